@@ -0,0 +1,13 @@
+#!/bin/sh
+# Runs the benchmarks with the gc profiler and stores the results of the current commit
+# as results/<commit>.json; extra arguments go to JMH, e.g. a benchmark name pattern.
+# Compare two runs with CompareResults (see README).
+set -e
+cd "$(dirname "$0")"
+commit=$(git rev-parse --short HEAD)
+if ! git diff --quiet HEAD -- ../src; then
+  commit="$commit-dirty"
+fi
+mkdir -p results
+java -jar target/benchmarks.jar -prof gc -rf json -rff "results/$commit.json" "$@"
+echo "results/$commit.json"
@@ -0,0 +1,66 @@
+package org.example.ugv_rc.benchmarks;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import org.example.ugv_rc.clients.ESP32Client;
+import org.example.ugv_rc.simulator.LinkModel;
+import org.example.ugv_rc.simulator.Simulator;
+import org.example.ugv_rc.telemetry.BaseFeedback;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/*
+ * End-to-end command latency of ESP32Client against the simulator on loopback with an
+ * ideal link, i.e. the client's own share of a round trip (encoding, executor hand-off,
+ * transport, parsing). SampleTime reports the percentiles; the simulator runs in the
+ * benchmark JVM, so -prof gc counts its allocations too.
+ *  - baseFeedback: T:130 parsed into a reused BaseFeedback
+ *  - speedControl: T:1 as the control loop sends it
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Dorg.slf4j.simpleLogger.defaultLogLevel=warn")
+public class ClientLatencyBenchmark {
+
+  private Simulator simulator;
+  private ESP32Client client;
+  private final BaseFeedback feedback = new BaseFeedback();
+
+  @Setup(Level.Trial)
+  public void setUp() throws IOException {
+    simulator = Simulator.loopback(LinkModel.IDEAL);
+    simulator.start();
+    client = new ESP32Client(simulator.getHost(), simulator.getEsp32Port());
+    client.warmUp();
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    client.close();
+    simulator.close();
+  }
+
+  @Benchmark
+  public BaseFeedback baseFeedback() {
+    return client.cmd_base_feedback(feedback);
+  }
+
+  @Benchmark
+  public JsonNode speedControl() {
+    return client.cmd_speed_control_async(0.14, -0.07).join();
+  }
+}
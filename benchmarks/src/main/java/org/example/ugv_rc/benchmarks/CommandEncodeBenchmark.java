@@ -0,0 +1,60 @@
+package org.example.ugv_rc.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+import org.apache.hc.core5.http.ClassicHttpRequest;
+import org.apache.hc.core5.http.HttpHost;
+import org.apache.hc.core5.http.Method;
+import org.apache.hc.core5.http.io.support.ClassicRequestBuilder;
+import org.apache.hc.core5.http.message.BasicClassicHttpRequest;
+import org.example.ugv_rc.clients.CommandEncoder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/*
+ * T:1 speed command encoding, run with -prof gc to compare gc.alloc.rate.norm:
+ *  - concatenation: the former string concatenation plus ClassicRequestBuilder
+ *  - encoder: CommandEncoder into its buffer only, the control loop hot path
+ *  - encoderRequest: CommandEncoder plus the request the client sends
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CommandEncodeBenchmark {
+
+  private final HttpHost host = new HttpHost("192.168.178.29");
+  private final CommandEncoder encoder = new CommandEncoder();
+  private double left = 0.14;
+  private double right = -0.07;
+
+  @Benchmark
+  public ClassicHttpRequest concatenation() {
+    String cmd = "{\"T\":1,\"L\":" + left + ",\"R\":" + right + "}";
+    return ClassicRequestBuilder.get()
+        .setScheme("http")
+        .setHttpHost(host)
+        .setPath("/js")
+        .addParameter("json", cmd)
+        .build();
+  }
+
+  @Benchmark
+  public int encoder() {
+    return encoder.speedControl(left, right).getLength();
+  }
+
+  @Benchmark
+  public ClassicHttpRequest encoderRequest() {
+    return new BasicClassicHttpRequest(Method.GET, host,
+        encoder.speedControl(left, right).path());
+  }
+}
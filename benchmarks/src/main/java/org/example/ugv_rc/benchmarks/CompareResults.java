@@ -0,0 +1,103 @@
+package org.example.ugv_rc.benchmarks;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.File;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/*
+ * Compares two JMH result files written with -rf json, e.g. of two commits (see run.sh):
+ *
+ *   java -cp target/benchmarks.jar org.example.ugv_rc.benchmarks.CompareResults \
+ *       results/<base>.json results/<new>.json [--threshold=10]
+ *
+ * Prints score, p99 (sample mode) and allocation per operation (-prof gc) side by side
+ * and exits with 1 if a score got worse by more than threshold percent.
+ */
+public class CompareResults {
+
+  private static final String ALLOC_NORM = "gc.alloc.rate.norm";
+
+  static void main(String[] args) throws IOException {
+    if (args.length < 2) {
+      System.err.println("usage: CompareResults <base.json> <new.json> [--threshold=percent]");
+      System.exit(2);
+    }
+    double threshold = 10;
+    if (args.length > 2 && args[2].startsWith("--threshold=")) {
+      threshold = Double.parseDouble(args[2].substring("--threshold=".length()));
+    }
+    ObjectMapper objectMapper = new ObjectMapper();
+    Map<String, JsonNode> base = index(objectMapper.readTree(new File(args[0])));
+    Map<String, JsonNode> current = index(objectMapper.readTree(new File(args[1])));
+    System.out.printf(Locale.ROOT, "%-58s %12s %12s %8s %10s %10s %9s %9s%n", "benchmark",
+        "base", "new", "change", "base p99", "new p99", "base B/op", "new B/op");
+    int regressions = 0;
+    for (Map.Entry<String, JsonNode> entry : current.entrySet()) {
+      JsonNode now = entry.getValue();
+      JsonNode before = base.get(entry.getKey());
+      double newScore = now.path("primaryMetric").path("score").asDouble();
+      String unit = now.path("primaryMetric").path("scoreUnit").asText();
+      if (before == null) {
+        System.out.printf(Locale.ROOT, "%-58s %12s %12.3f %8s   (%s)%n", entry.getKey(), "-",
+            newScore, "new", unit);
+        continue;
+      }
+      double baseScore = before.path("primaryMetric").path("score").asDouble();
+      double change = 100 * (newScore - baseScore) / baseScore;
+      // throughput is better when higher, the time modes when lower
+      boolean worse = "thrpt".equals(now.path("mode").asText()) ? change < -threshold
+          : change > threshold;
+      if (worse) {
+        regressions++;
+      }
+      System.out.printf(Locale.ROOT, "%-58s %12.3f %12.3f %+7.1f%% %10s %10s %9s %9s %s(%s)%n",
+          entry.getKey(), baseScore, newScore, change, p99(before), p99(now), alloc(before),
+          alloc(now), worse ? "REGRESSION " : "", unit);
+    }
+    if (regressions > 0) {
+      System.out.printf("%d benchmark(s) worse by more than %.0f%%%n", regressions, threshold);
+      System.exit(1);
+    }
+  }
+
+  private static Map<String, JsonNode> index(JsonNode results) {
+    Map<String, JsonNode> index = new LinkedHashMap<>();
+    for (JsonNode result : results) {
+      StringBuilder key = new StringBuilder(result.path("benchmark").asText()
+          .replace("org.example.ugv_rc.benchmarks.", ""));
+      key.append(' ').append(result.path("mode").asText());
+      Iterator<Map.Entry<String, JsonNode>> params = result.path("params").fields();
+      while (params.hasNext()) {
+        Map.Entry<String, JsonNode> param = params.next();
+        key.append(' ').append(param.getKey()).append('=').append(param.getValue().asText());
+      }
+      index.put(key.toString(), result);
+    }
+    return index;
+  }
+
+  private static String p99(JsonNode result) {
+    if (!"sample".equals(result.path("mode").asText())) {
+      return "-";
+    }
+    JsonNode p99 = result.path("primaryMetric").path("scorePercentiles").path("99.0");
+    return p99.isMissingNode() ? "-" : String.format(Locale.ROOT, "%.3f", p99.asDouble());
+  }
+
+  private static String alloc(JsonNode result) {
+    Iterator<Map.Entry<String, JsonNode>> metrics = result.path("secondaryMetrics").fields();
+    while (metrics.hasNext()) {
+      Map.Entry<String, JsonNode> metric = metrics.next();
+      // older JMH versions prefix secondary metric names with a middle dot
+      if (metric.getKey().endsWith(ALLOC_NORM)) {
+        return String.format(Locale.ROOT, "%.0f", metric.getValue().path("score").asDouble());
+      }
+    }
+    return "-";
+  }
+}
@@ -0,0 +1,92 @@
+package org.example.ugv_rc.benchmarks;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.example.ugv_rc.clients.CommandCoalescer;
+import org.example.ugv_rc.clients.QueryCache;
+import org.example.ugv_rc.control.OperatorIntent;
+import org.example.ugv_rc.fleet.Fleet;
+import org.example.ugv_rc.fleet.Vehicle;
+import org.example.ugv_rc.fleet.VehicleConfig;
+import org.example.ugv_rc.simulator.LinkModel;
+import org.example.ugv_rc.simulator.Simulator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/*
+ * STOP of a fleet of simulated vehicles, one simulator each with a 5 ms link, all of them
+ * driving and streaming feedback from the shared control loop:
+ *  - stopAll: Fleet.stopAll until every vehicle acknowledged both stops
+ *  - stopOne: the same for the selected vehicle alone
+ * With fan-out, stopAll stays close to stopOne as the fleet grows.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Dorg.slf4j.simpleLogger.defaultLogLevel=warn")
+public class FleetBenchmark {
+
+  private static final OperatorIntent.WheelSpeeds DRIVING =
+      new OperatorIntent.WheelSpeeds(0.2, 0.2);
+
+  @Param({"1", "12", "48"})
+  public int vehicles;
+
+  private final List<Simulator> simulators = new ArrayList<>();
+  private Fleet fleet;
+
+  @Setup(Level.Trial)
+  public void setUp() throws IOException {
+    fleet = new Fleet(50);
+    for (int i = 0; i < vehicles; i++) {
+      Simulator simulator = Simulator.loopback(LinkModel.ofMillis(5, 0, 0));
+      simulator.start();
+      simulators.add(simulator);
+      Vehicle vehicle = fleet.add(new VehicleConfig("ugv" + i, simulator.getHost(),
+          simulator.getEsp32Port(), simulator.getHost(), simulator.getJetsonPort(),
+          simulator.getHost(), simulator.getStreamPort(), 50, QueryCache.DEFAULT_TTL_MILLIS,
+          CommandCoalescer.DEFAULT_BOUNDS, Vehicle.DEFAULT_POLL_RATE));
+      vehicle.whenUgvReady().join();
+    }
+    fleet.start();
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    fleet.close();
+    simulators.forEach(Simulator::close);
+  }
+
+  // every vehicle drives again, not part of the measurement
+  @Setup(Level.Invocation)
+  public void drive() {
+    for (Vehicle vehicle : fleet.getVehicles()) {
+      vehicle.getIntent().setWheelSpeeds(DRIVING);
+    }
+  }
+
+  @Benchmark
+  public Void stopAll() {
+    return fleet.stopAll().join();
+  }
+
+  @Benchmark
+  public Void stopOne() {
+    return fleet.getSelected().stop().join();
+  }
+}
@@ -0,0 +1,78 @@
+package org.example.ugv_rc.benchmarks;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import org.example.ugv_rc.recorder.FlightRecorder;
+import org.example.ugv_rc.telemetry.BaseFeedback;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/*
+ * Cost of recording on the command and telemetry paths, segment rolls included; every
+ * iteration writes a fresh recording, which is deleted afterwards:
+ *  - command: a T:1 speed command
+ *  - baseFeedback: a changing T:1001 frame
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Dorg.slf4j.simpleLogger.defaultLogLevel=warn")
+public class FlightRecorderBenchmark {
+
+  private Path directory;
+  private FlightRecorder recorder;
+  private final BaseFeedback feedback = new BaseFeedback();
+  private long count;
+
+  @Setup(Level.Iteration)
+  public void setUp() throws IOException {
+    directory = Files.createTempDirectory("flight-recorder-benchmark");
+    recorder = new FlightRecorder(directory, FlightRecorder.DEFAULT_SEGMENT_SIZE);
+    feedback.reset();
+    feedback.setValid(true);
+    feedback.setLeft(0.14);
+    feedback.setRight(0.14);
+    feedback.setPitch(1.27);
+    feedback.setRoll(-0.51);
+  }
+
+  @TearDown(Level.Iteration)
+  public void tearDown() throws IOException {
+    recorder.close();
+    try (Stream<Path> files = Files.walk(directory)) {
+      for (Path file : files.sorted(Comparator.reverseOrder()).toList()) {
+        Files.delete(file);
+      }
+    }
+  }
+
+  @Benchmark
+  public void command() {
+    recorder.recordCommand(1, 0.14, -0.07);
+  }
+
+  @Benchmark
+  public void baseFeedback() {
+    count++;
+    feedback.setTimestampNanos(System.nanoTime());
+    feedback.setYaw(count % 3600 / 10.0);
+    feedback.setVoltage(12.4 - count % 1000 / 1000.0);
+    recorder.record(feedback);
+  }
+}
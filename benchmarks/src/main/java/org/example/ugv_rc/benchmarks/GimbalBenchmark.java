@@ -0,0 +1,101 @@
+package org.example.ugv_rc.benchmarks;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import org.example.ugv_rc.clients.CommandCoalescer;
+import org.example.ugv_rc.clients.ESP32Client;
+import org.example.ugv_rc.control.GimbalPlanner;
+import org.example.ugv_rc.simulator.LinkModel;
+import org.example.ugv_rc.simulator.Simulator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/*
+ * Gimbal commands as the control loop issues them:
+ *  - planned: GimbalPlanner.hold once per 20 ms tick with a direction held, which
+ *    plans a setpoint only on a change of direction or speed level
+ *  - coalesced: a CommandCoalescer setpoint while the previous command is still in
+ *    flight (the simulator holds it for a minute), i.e. the pure state update
+ *  - sent: a T:133 setpoint against the simulator with an ideal link
+ * The direction flips every 90 ticks so that the planner keeps planning.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Dorg.slf4j.simpleLogger.defaultLogLevel=warn")
+public class GimbalBenchmark {
+
+  private static final long TICK_NANOS = TimeUnit.MILLISECONDS.toNanos(20);
+
+  private Simulator stalled;
+  private Simulator ideal;
+  private ESP32Client stalledClient;
+  private ESP32Client idealClient;
+  private CommandCoalescer coalescer;
+  private final GimbalPlanner planner = new GimbalPlanner();
+  private long tickNanos = System.nanoTime();
+  private int step;
+  private int direction = 1;
+
+  @Setup(Level.Trial)
+  public void setUp() throws IOException {
+    stalled = Simulator.loopback(LinkModel.ofMillis(60_000, 0, 0));
+    stalled.start();
+    stalledClient = new ESP32Client(stalled.getHost(), stalled.getEsp32Port());
+    coalescer = new CommandCoalescer(stalledClient);
+    coalescer.cmd_gimbal_ctrl_simple(0, 0, 90, 360);
+    ideal = Simulator.loopback(LinkModel.IDEAL);
+    ideal.start();
+    idealClient = new ESP32Client(ideal.getHost(), ideal.getEsp32Port());
+    idealClient.warmUp();
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    stalledClient.close();
+    stalled.close();
+    idealClient.close();
+    ideal.close();
+  }
+
+  @Benchmark
+  public boolean planned() {
+    tickNanos += TICK_NANOS;
+    return planner.hold(nextDirection(), 0, tickNanos);
+  }
+
+  @Benchmark
+  public void coalesced() {
+    coalescer.cmd_gimbal_ctrl_simple(2 * step * nextDirection(), 0, 90, 360);
+  }
+
+  @Benchmark
+  @BenchmarkMode(Mode.SampleTime)
+  @OutputTimeUnit(TimeUnit.MICROSECONDS)
+  public JsonNode sent() {
+    return idealClient.cmd_gimbal_ctrl_simple_async(2 * step * nextDirection(), 0, 90, 360)
+        .join();
+  }
+
+  // angles up to 180 degrees each way stay within the pan limits
+  private int nextDirection() {
+    if (++step == 90) {
+      step = 0;
+      direction = -direction;
+    }
+    return direction;
+  }
+}
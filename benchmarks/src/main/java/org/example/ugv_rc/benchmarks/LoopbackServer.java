@@ -0,0 +1,95 @@
+package org.example.ugv_rc.benchmarks;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/*
+ * Minimal stand-in for the ESP32 web api on the loopback interface.
+ * Every request to /js answers with a fixed base feedback frame, keep-alive enabled.
+ * With a motion stall, T:1 with non-zero speeds and T:133 are held that long first, like
+ * responses lost on a congested link.
+ */
+public class LoopbackServer implements AutoCloseable {
+
+  static final byte[] BASE_FEEDBACK = ("{\"T\":1001,\"L\":0,\"R\":0,\"r\":-0.51,\"p\":1.27,"
+      + "\"y\":93.4,\"v\":12.06}").getBytes(StandardCharsets.US_ASCII);
+
+  private final HttpServer server;
+  private final long motionStallMillis;
+  private final ObjectMapper objectMapper = new ObjectMapper();
+  private final AtomicLong heldCount = new AtomicLong();
+
+  public LoopbackServer() throws IOException {
+    this(0);
+  }
+
+  public LoopbackServer(long motionStallMillis) throws IOException {
+    this.motionStallMillis = motionStallMillis;
+    // the JDK server leaves Nagle on, which stalls keep-alive responses on delayed ACKs
+    System.setProperty("sun.net.httpserver.nodelay", "true");
+    server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+    server.createContext("/js", this::handle);
+    server.setExecutor(motionStallMillis > 0 ? Executors.newVirtualThreadPerTaskExecutor()
+        : Executors.newFixedThreadPool(2));
+    server.start();
+  }
+
+  public String host() {
+    return server.getAddress().getHostString();
+  }
+
+  public int port() {
+    return server.getAddress().getPort();
+  }
+
+  // motion commands received so far that were held
+  public long heldCount() {
+    return heldCount.get();
+  }
+
+  private void handle(HttpExchange exchange) throws IOException {
+    if (motionStallMillis > 0 && isMotion(exchange.getRequestURI().getRawQuery())) {
+      heldCount.incrementAndGet();
+      try {
+        TimeUnit.MILLISECONDS.sleep(motionStallMillis);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        return;
+      }
+    }
+    exchange.getResponseHeaders().set("Content-Type", "application/json");
+    exchange.sendResponseHeaders(200, BASE_FEEDBACK.length);
+    try (OutputStream body = exchange.getResponseBody()) {
+      body.write(BASE_FEEDBACK);
+    }
+  }
+
+  private boolean isMotion(String query) throws IOException {
+    if (query == null || !query.startsWith("json=")) {
+      return false;
+    }
+    JsonNode cmd = objectMapper.readTree(
+        URLDecoder.decode(query.substring(5), StandardCharsets.US_ASCII));
+    return switch (cmd.path("T").asInt()) {
+      case 1 -> cmd.path("L").asDouble() != 0 || cmd.path("R").asDouble() != 0;
+      case 133 -> true;
+      default -> false;
+    };
+  }
+
+  @Override
+  public void close() {
+    server.stop(0);
+  }
+}
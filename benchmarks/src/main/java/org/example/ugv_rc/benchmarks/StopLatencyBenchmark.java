@@ -0,0 +1,78 @@
+package org.example.ugv_rc.benchmarks;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import org.example.ugv_rc.clients.CommandCoalescer;
+import org.example.ugv_rc.clients.ESP32Client;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/*
+ * Chassis stop while a speed command is stuck in flight: the stand-in holds motion
+ * commands for STALL_MILLIS and answers the stop at once.
+ *  - preempting: CommandCoalescer.stop_chassis aborts the stuck command and sends the
+ *    stop on the priority lane; bounded by one round trip of the stop
+ *  - queued: the stop goes out when the stuck command completes, as it did behind the
+ *    request in flight of the chassis channel
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Dorg.slf4j.simpleLogger.defaultLogLevel=warn")
+public class StopLatencyBenchmark {
+
+  private static final long STALL_MILLIS = 200;
+
+  private LoopbackServer server;
+  private ESP32Client client;
+  private CommandCoalescer coalescer;
+  private CompletableFuture<JsonNode> stuck;
+
+  @Setup(Level.Trial)
+  public void setUp() throws IOException {
+    server = new LoopbackServer(STALL_MILLIS);
+    client = new ESP32Client(server.host(), server.port());
+    client.warmUp();
+    coalescer = new CommandCoalescer(client);
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    client.close();
+    server.close();
+  }
+
+  // a speed command that the stand-in is holding, not part of the measurement
+  @Setup(Level.Invocation)
+  public void sendStuckCommand() throws InterruptedException {
+    long held = server.heldCount();
+    stuck = client.cmd_speed_control_async(0.2, 0.2);
+    while (server.heldCount() == held) {
+      Thread.sleep(0, 100_000);
+    }
+  }
+
+  @Benchmark
+  public JsonNode preempting() {
+    return coalescer.stop_chassis().join();
+  }
+
+  @Benchmark
+  public JsonNode queued() {
+    return stuck.thenCompose(_ -> client.cmd_speed_control_async(0, 0)).join();
+  }
+}
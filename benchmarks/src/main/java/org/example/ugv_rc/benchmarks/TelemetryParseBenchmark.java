@@ -0,0 +1,79 @@
+package org.example.ugv_rc.benchmarks;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.text.DecimalFormat;
+import java.util.concurrent.TimeUnit;
+import org.example.ugv_rc.telemetry.BaseFeedback;
+import org.example.ugv_rc.telemetry.TelemetryParser;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/*
+ * Base feedback parsing, run with -prof gc to compare gc.alloc.rate.norm:
+ *  - treeAndFormat: the former path, readTree plus a new DecimalFormat per field
+ *  - tree: readTree and asDouble only
+ *  - streaming: TelemetryParser into a reused BaseFeedback
+ *  - streamingAndFormat: streaming plus one shared DecimalFormat for the four displayed
+ *    fields, what RcController pays per frame when all four values changed
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TelemetryParseBenchmark {
+
+  private static final String[] FIELDS = {"r", "p", "y", "v"};
+
+  private final byte[] frame = LoopbackServer.BASE_FEEDBACK;
+  private final ObjectMapper objectMapper = new ObjectMapper(new JsonFactory());
+  private final TelemetryParser parser = new TelemetryParser();
+  private final BaseFeedback feedback = new BaseFeedback();
+  private final DecimalFormat paramFormat = new DecimalFormat("###.##");
+
+  @Benchmark
+  public void treeAndFormat(Blackhole blackhole) throws IOException {
+    JsonNode result = objectMapper.readTree(new ByteArrayInputStream(frame));
+    for (String field : FIELDS) {
+      Double num = Double.parseDouble(result.get(field).toString());
+      DecimalFormat df = new DecimalFormat("###.##");
+      blackhole.consume(df.format(num));
+    }
+  }
+
+  @Benchmark
+  public void tree(Blackhole blackhole) throws IOException {
+    JsonNode result = objectMapper.readTree(frame);
+    for (String field : FIELDS) {
+      blackhole.consume(result.get(field).asDouble());
+    }
+  }
+
+  @Benchmark
+  public BaseFeedback streaming() throws IOException {
+    parser.parse(frame, 0, frame.length, feedback);
+    return feedback;
+  }
+
+  @Benchmark
+  public void streamingAndFormat(Blackhole blackhole) throws IOException {
+    parser.parse(frame, 0, frame.length, feedback);
+    blackhole.consume(paramFormat.format(feedback.getRoll()));
+    blackhole.consume(paramFormat.format(feedback.getPitch()));
+    blackhole.consume(paramFormat.format(feedback.getYaw()));
+    blackhole.consume(paramFormat.format(feedback.getVoltage()));
+  }
+}
@@ -0,0 +1,98 @@
+package org.example.ugv_rc.benchmarks;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.TimeUnit;
+import org.apache.hc.client5.http.config.ConnectionConfig;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.client5.http.impl.classic.HttpClients;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManagerBuilder;
+import org.apache.hc.core5.http.ClassicHttpRequest;
+import org.apache.hc.core5.http.HttpHost;
+import org.apache.hc.core5.http.io.support.ClassicRequestBuilder;
+import org.apache.hc.core5.util.TimeValue;
+import org.apache.hc.core5.util.Timeout;
+import org.example.ugv_rc.clients.HttpTransport;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/*
+ * Request latency against the loopback stand-in server:
+ *  - freshClientPerRequest: the former ESP32Client.get, new pool/client/mapper per call
+ *  - sharedTransport: one keep-alive HttpTransport for all calls
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TransportLatencyBenchmark {
+
+  private static final String CMD = "{\"T\":130}";
+
+  private LoopbackServer server;
+  private HttpHost host;
+  private HttpTransport transport;
+
+  @Setup(Level.Trial)
+  public void setUp() throws IOException {
+    server = new LoopbackServer();
+    host = new HttpHost(server.host(), server.port());
+    transport = new HttpTransport("benchmark", host);
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    transport.close();
+    server.close();
+  }
+
+  @Benchmark
+  public JsonNode freshClientPerRequest() throws IOException {
+    ObjectMapper objectMapper = new ObjectMapper(new JsonFactory());
+    PoolingHttpClientConnectionManager connManager =
+        PoolingHttpClientConnectionManagerBuilder.create().build();
+    connManager.setDefaultConnectionConfig(ConnectionConfig.custom()
+        .setConnectTimeout(Timeout.ofSeconds(2))
+        .setSocketTimeout(Timeout.ofSeconds(2))
+        .setTimeToLive(TimeValue.ofHours(1))
+        .build());
+    try (CloseableHttpClient client = HttpClients.custom()
+        .setConnectionManager(connManager).build()) {
+      return client.execute(request(), response -> {
+        try (InputStream inputStream = response.getEntity().getContent()) {
+          return objectMapper.readTree(inputStream);
+        }
+      });
+    }
+  }
+
+  @Benchmark
+  public JsonNode sharedTransport() throws IOException {
+    return transport.execute(request());
+  }
+
+  private ClassicHttpRequest request() {
+    return ClassicRequestBuilder.get()
+        .setScheme("http")
+        .setHttpHost(host)
+        .setPath("/js")
+        .addParameter("json", CMD)
+        .build();
+  }
+}
@@ -7,8 +7,25 @@ module org.example.ugv_rc {
   requires com.fasterxml.jackson.databind;
   requires org.slf4j;
   requires com.fasterxml.jackson.core;
+  requires jdk.httpserver;
+  requires jinput;
+  // jinput logs to java.util.logging
+  requires java.logging;
+  // the JVM start time, for the startup report
+  requires java.management;
+  // custom flight recorder events, see metrics
+  requires jdk.jfr;
 
   opens org.example.ugv_rc to javafx.fxml;
   exports org.example.ugv_rc;
   exports org.example.ugv_rc.clients;
+  exports org.example.ugv_rc.control;
+  exports org.example.ugv_rc.fleet;
+  exports org.example.ugv_rc.input;
+  exports org.example.ugv_rc.metrics;
+  exports org.example.ugv_rc.mission;
+  exports org.example.ugv_rc.recorder;
+  exports org.example.ugv_rc.simulator;
+  exports org.example.ugv_rc.telemetry;
+  exports org.example.ugv_rc.video;
 }
\ No newline at end of file
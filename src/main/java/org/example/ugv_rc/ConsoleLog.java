@@ -0,0 +1,160 @@
+package org.example.ugv_rc;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import javafx.animation.AnimationTimer;
+import javafx.application.Platform;
+import javafx.collections.ObservableListBase;
+import javafx.scene.control.ListView;
+import org.example.ugv_rc.metrics.UiUpdateEvent;
+
+/*
+ * Bounded console of the panel.
+ *
+ * Lines are kept in a ring buffer of capacity lines shown by a ListView, which only
+ * renders the visible cells, so an append costs the same after hours as after seconds
+ * and the oldest lines are dropped. append() takes text formatted on the caller's thread
+ * and queues it. The first append after a flush starts a one-shot AnimationTimer with a
+ * single Platform.runLater; the timer moves the queue to the view on the next pulse, so
+ * the view changes at most once per frame however fast lines arrive.
+ */
+public class ConsoleLog {
+
+  public static final int DEFAULT_CAPACITY = 1000;
+
+  private final ListView<String> view;
+  private final RingList lines;
+  private final AtomicBoolean flushPending = new AtomicBoolean();
+  private final AnimationTimer nextFrame = new AnimationTimer() {
+    @Override
+    public void handle(long now) {
+      stop();
+      flush();
+    }
+  };
+  // guarded by itself
+  private final List<String> queued = new ArrayList<>();
+  private final AtomicLong appendedCount = new AtomicLong();
+  private final AtomicLong flushCount = new AtomicLong();
+
+  public ConsoleLog(ListView<String> view, int capacity) {
+    if (capacity < 1) {
+      throw new IllegalArgumentException("console capacity " + capacity);
+    }
+    this.view = view;
+    this.lines = new RingList(capacity);
+    view.setItems(lines);
+  }
+
+  /*
+   * From any thread; text may hold several lines
+   */
+  public void append(String text) {
+    synchronized (queued) {
+      int start = 0;
+      int end;
+      while ((end = text.indexOf('\n', start)) >= 0) {
+        queued.add(text.substring(start, end));
+        start = end + 1;
+      }
+      if (start < text.length()) {
+        queued.add(text.substring(start));
+      }
+      // older queued lines would be dropped by the ring anyway
+      int excess = queued.size() - lines.capacity;
+      if (excess > 0) {
+        queued.subList(0, excess).clear();
+      }
+    }
+    appendedCount.incrementAndGet();
+    if (flushPending.compareAndSet(false, true)) {
+      Platform.runLater(nextFrame::start);
+    }
+  }
+
+  public long getAppendedCount() {
+    return appendedCount.get();
+  }
+
+  // JavaFX updates of the view
+  public long getFlushCount() {
+    return flushCount.get();
+  }
+
+  private void flush() {
+    UiUpdateEvent event = new UiUpdateEvent();
+    event.begin();
+    flushPending.set(false);
+    List<String> batch;
+    synchronized (queued) {
+      if (queued.isEmpty()) {
+        return;
+      }
+      batch = new ArrayList<>(queued);
+      queued.clear();
+    }
+    flushCount.incrementAndGet();
+    lines.append(batch);
+    view.scrollTo(lines.size() - 1);
+    event.view = "console";
+    event.commit();
+  }
+
+  /*
+   * Fixed-capacity list that drops its first element when full, JavaFX thread only
+   */
+  private static final class RingList extends ObservableListBase<String> {
+
+    private final int capacity;
+    private final String[] elements;
+    private int head;
+    private int size;
+
+    RingList(int capacity) {
+      this.capacity = capacity;
+      this.elements = new String[capacity];
+    }
+
+    @Override
+    public String get(int index) {
+      if (index < 0 || index >= size) {
+        throw new IndexOutOfBoundsException(index);
+      }
+      return elements[(head + index) % capacity];
+    }
+
+    @Override
+    public int size() {
+      return size;
+    }
+
+    void append(List<String> batch) {
+      int skip = Math.max(0, batch.size() - capacity);
+      int count = batch.size() - skip;
+      int overflow = Math.min(size, size + count - capacity);
+      beginChange();
+      try {
+        if (overflow > 0) {
+          List<String> removed = new ArrayList<>(overflow);
+          for (int i = 0; i < overflow; i++) {
+            removed.add(elements[head]);
+            elements[head] = null;
+            head = (head + 1) % capacity;
+          }
+          size -= overflow;
+          nextRemove(0, removed);
+        }
+        int from = size;
+        for (int i = skip; i < batch.size(); i++) {
+          elements[(head + size) % capacity] = batch.get(i);
+          size++;
+        }
+        nextAdd(from, size);
+      } finally {
+        endChange();
+      }
+    }
+  }
+}
@@ -1,10 +1,15 @@
 package org.example.ugv_rc;
 
+import java.util.EnumSet;
+import java.util.Set;
 import javafx.scene.input.KeyCode;
 import javafx.scene.input.KeyEvent;
 import lombok.extern.slf4j.Slf4j;
+import org.example.ugv_rc.clients.CommandCoalescer;
 import org.example.ugv_rc.clients.ESP32Client;
 import org.example.ugv_rc.clients.MovingDirection;
+import org.example.ugv_rc.control.OperatorIntent;
+import org.example.ugv_rc.metrics.InputEvent;
 
 /*
  Apple key codes:
@@ -15,52 +20,56 @@ import org.example.ugv_rc.clients.MovingDirection;
   - cursor right: 39
   - cursor left: 37
   - numpad '0': 96
+
+ Keys are tracked as a held set and only the resulting OperatorIntent is written, which
+ the control loop samples at its fixed rate; OS auto-repeat changes nothing. H/J/K/L
+ drive west/north/south/east, chords combine (J+L -> NORTHEAST), opposite keys cancel.
+ With SHIFT held they move the gimbal instead. Releasing the last drive key stops the
+ chassis at once. Only the directions set from the keyboard are released, not those the
+ buttons set since. SPACE stops everything; keys held at that moment are ignored until
+ they are released.
  */
 @Slf4j
 public class KeyboardController {
 
+  private static final Set<KeyCode> MOTION_KEYS =
+      EnumSet.of(KeyCode.H, KeyCode.J, KeyCode.K, KeyCode.L);
+
   private final ESP32Client esp32Client;
-  private boolean optionKeyPressed = false;
+  private final CommandCoalescer commands;
+  private final OperatorIntent intent;
+  private final Set<KeyCode> held = EnumSet.noneOf(KeyCode.class);
+  // motion keys held during a stop
+  private final Set<KeyCode> ignored = EnumSet.noneOf(KeyCode.class);
+  // the directions last set in the intent from the keys
+  private MovingDirection direction = MovingDirection.STOP;
+  private OperatorIntent.GimbalHold gimbalHold = OperatorIntent.GimbalHold.NONE;
 
-  public KeyboardController(ESP32Client esp32Client) {
+  public KeyboardController(ESP32Client esp32Client, CommandCoalescer commands,
+      OperatorIntent intent) {
     this.esp32Client = esp32Client;
+    this.commands = commands;
+    this.intent = intent;
   }
 
   public void keyPressed(KeyEvent e) {
-    switch (e.getCode()) {
-      case KeyCode.SHIFT -> optionKeyPressed = true;
-      case KeyCode.H -> {
-        if (optionKeyPressed) {
-          esp32Client.gimbal_step(-1, 0);
-        } else {
-          esp32Client.cmd_speed_control(MovingDirection.WEST);
-        }
-      }
-      case KeyCode.J -> {
-        if (optionKeyPressed) {
-          esp32Client.gimbal_step(0, 1);
-        } else {
-          esp32Client.cmd_speed_control(MovingDirection.NORTH);
-        }
-      }
-      case KeyCode.K -> {
-        if (optionKeyPressed) {
-          esp32Client.gimbal_step(0, -1);
-        } else {
-          esp32Client.cmd_speed_control(MovingDirection.SOUTH);
+    KeyCode code = e.getCode();
+    switch (code) {
+      case KeyCode.SHIFT, KeyCode.H, KeyCode.J, KeyCode.K, KeyCode.L -> {
+        if (!ignored.contains(code) && held.add(code)) {
+          InputEvent.emit("keyboard", "pressed", code);
+          update();
         }
       }
-      case KeyCode.L -> {
-        if (optionKeyPressed) {
-          esp32Client.gimbal_step(1, 0);
-        } else {
-          esp32Client.cmd_speed_control(MovingDirection.EAST);
+      case KeyCode.A -> {
+        if (held.add(code)) {
+          InputEvent.emit("keyboard", "pressed", code);
+          esp32Client.turn_pan_tilt_led_async();
         }
       }
-      case KeyCode.A -> esp32Client.turn_pan_tilt_led();
       case KeyCode.SPACE -> {
-        esp32Client.cmd_speed_control(MovingDirection.STOP);
-        esp32Client.cmd_gimbal_ctrl_stop();
+        InputEvent.emit("keyboard", "pressed", code);
+        stop();
       }
       default -> log.info("unexpected key pressed: char={} code={}, ignored",
           e.getText(), e.getCode());
@@ -68,8 +77,64 @@ public class KeyboardController {
   }
 
   public void keyReleased(KeyEvent e) {
-    if (e.getCode() == KeyCode.SHIFT) {
-      optionKeyPressed = false;
+    KeyCode code = e.getCode();
+    ignored.remove(code);
+    if (held.remove(code)) {
+      InputEvent.emit("keyboard", "released", code);
+      update();
+    }
+  }
+
+  /*
+   * When no more key events arrive, e.g. on focus loss
+   */
+  public void releaseAll() {
+    held.clear();
+    ignored.clear();
+    update();
+  }
+
+  private void stop() {
+    for (KeyCode code : MOTION_KEYS) {
+      if (held.remove(code)) {
+        ignored.add(code);
+      }
+    }
+    direction = MovingDirection.STOP;
+    gimbalHold = OperatorIntent.GimbalHold.NONE;
+    intent.releaseChassis();
+    intent.releaseGimbal();
+    commands.emergency_stop();
+  }
+
+  // derives the intent from the held keys, changing only what the keys changed
+  private void update() {
+    int east = axis(KeyCode.L, KeyCode.H);
+    int north = axis(KeyCode.J, KeyCode.K);
+    boolean gimbal = held.contains(KeyCode.SHIFT) && (east != 0 || north != 0);
+    OperatorIntent.GimbalHold nextHold = gimbal
+        ? new OperatorIntent.GimbalHold(east, north) : OperatorIntent.GimbalHold.NONE;
+    MovingDirection next = held.contains(KeyCode.SHIFT)
+        ? MovingDirection.STOP : MovingDirection.of(east, north);
+    if (!nextHold.equals(gimbalHold)) {
+      if (gimbal) {
+        intent.setGimbal(east, north);
+      } else {
+        intent.releaseGimbal(gimbalHold);
+      }
+      gimbalHold = nextHold;
+    }
+    if (next != direction) {
+      if (next != MovingDirection.STOP) {
+        intent.setChassisDirection(next);
+      } else if (intent.releaseChassis(direction)) {
+        commands.stop_chassis();
+      }
+      direction = next;
     }
   }
+
+  private int axis(KeyCode positive, KeyCode negative) {
+    return (held.contains(positive) ? 1 : 0) - (held.contains(negative) ? 1 : 0);
+  }
 }
@@ -0,0 +1,119 @@
+package org.example.ugv_rc;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import lombok.extern.slf4j.Slf4j;
+import org.example.ugv_rc.clients.ESP32Client;
+import org.example.ugv_rc.clients.JetsonOrinNanoClient;
+import org.example.ugv_rc.clients.QueryCache;
+import org.example.ugv_rc.mission.Mission;
+import org.example.ugv_rc.mission.MissionExecutor;
+import org.example.ugv_rc.mission.TimingReport;
+import org.example.ugv_rc.simulator.LinkModel;
+import org.example.ugv_rc.simulator.Simulator;
+
+/*
+ * Headless entry point next to Launcher: runs a mission script (see Mission) against a
+ * UGV02, or a local simulator, and prints a timing report, which --report also writes to
+ * a file. Exits with 0 if every check passed, 1 if not, 2 if the UGV02 did not answer.
+ *
+ *   java ... org.example.ugv_rc.MissionRunner --script=square.mission --host=192.168.178.29
+ *   java ... org.example.ugv_rc.MissionRunner --script=square.mission --simulator=true
+ */
+@Slf4j
+public class MissionRunner {
+
+  static void main(String[] args) throws IOException {
+    Path script = null;
+    Path reportFile = null;
+    String host = null;
+    int port = 80;
+    String jetsonHost = null;
+    int jetsonPort = 8000;
+    boolean simulated = false;
+    double latency = 0;
+    double jitter = 0;
+    double loss = 0;
+    for (String arg : args) {
+      String[] option = arg.split("=", 2);
+      if (option.length != 2) {
+        throw new IllegalArgumentException("expected --option=value: " + arg);
+      }
+      switch (option[0]) {
+        case "--script" -> script = Path.of(option[1]);
+        case "--report" -> reportFile = Path.of(option[1]);
+        case "--host" -> host = option[1];
+        case "--port" -> port = Integer.parseInt(option[1]);
+        case "--jetson-host" -> jetsonHost = option[1];
+        case "--jetson-port" -> jetsonPort = Integer.parseInt(option[1]);
+        case "--simulator" -> simulated = Boolean.parseBoolean(option[1]);
+        case "--latency" -> latency = Double.parseDouble(option[1]);
+        case "--jitter" -> jitter = Double.parseDouble(option[1]);
+        case "--loss" -> loss = Double.parseDouble(option[1]);
+        default -> throw new IllegalArgumentException("unknown option: " + arg);
+      }
+    }
+    if (script == null || (host == null && !simulated)) {
+      throw new IllegalArgumentException("--script and --host or --simulator=true required");
+    }
+    // a broken script fails before anything is connected
+    Mission mission = Mission.read(script);
+    Simulator simulator = null;
+    if (simulated) {
+      simulator = Simulator.loopback(LinkModel.ofMillis(latency, jitter, loss));
+      simulator.start();
+      host = simulator.getHost();
+      port = simulator.getEsp32Port();
+      jetsonHost = simulator.getHost();
+      jetsonPort = simulator.getJetsonPort();
+    }
+    ESP32Client ugv = new ESP32Client(host, port);
+    // only a mission that checks the power status connects to the Jetson
+    JetsonOrinNanoClient jetson = mission.reads("power")
+        ? new JetsonOrinNanoClient(jetsonHost != null ? jetsonHost : host, jetsonPort) : null;
+    int status;
+    try {
+      status = run(mission, ugv, jetson, host + ":" + port, reportFile);
+    } finally {
+      ugv.close();
+      if (jetson != null) {
+        jetson.close();
+      }
+      if (simulator != null) {
+        simulator.close();
+      }
+    }
+    System.exit(status);
+  }
+
+  private static int run(Mission mission, ESP32Client ugv, JetsonOrinNanoClient jetson,
+      String target, Path reportFile) throws IOException {
+    if (!ugv.warmUp()) {
+      log.error("mission {}: UGV02 at {} not reachable", mission.name(), target);
+      return 2;
+    }
+    // interrupted by the user, e.g. Ctrl-C, the vehicle stops
+    Thread stopOnExit = new Thread(() -> {
+      try {
+        ugv.emergency_stop_async().get(1, TimeUnit.SECONDS);
+      } catch (Exception e) {
+        log.error("stop on exit failed: {}", e.toString());
+      }
+    });
+    Runtime.getRuntime().addShutdownHook(stopOnExit);
+    TimingReport report = new MissionExecutor(ugv, new QueryCache(ugv, jetson, 0))
+        .run(mission, target);
+    Runtime.getRuntime().removeShutdownHook(stopOnExit);
+    report.write(new PrintWriter(System.out));
+    if (reportFile != null) {
+      try (PrintWriter out = new PrintWriter(Files.newBufferedWriter(reportFile))) {
+        report.write(out);
+      }
+      log.info("report written to {}", reportFile);
+    }
+    return report.isPassed() ? 0 : 1;
+  }
+}
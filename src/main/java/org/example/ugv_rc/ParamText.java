@@ -0,0 +1,26 @@
+package org.example.ugv_rc;
+
+import java.text.DecimalFormat;
+import lombok.Getter;
+
+/*
+ * Displayed text of one feedback value, formatted again only when the value changed
+ */
+final class ParamText {
+
+  private boolean valid;
+  private double value = Double.NaN;
+  @Getter
+  private String text = "";
+
+  // true if the value changed
+  boolean update(boolean valid, double value, DecimalFormat format) {
+    if (valid == this.valid && Double.compare(value, this.value) == 0) {
+      return false;
+    }
+    this.valid = valid;
+    this.value = value;
+    text = valid && !Double.isNaN(value) ? format.format(value) : "";
+    return true;
+  }
+}
@@ -1,27 +1,40 @@
 package org.example.ugv_rc;
 
-import com.fasterxml.jackson.databind.JsonNode;
 import java.io.IOException;
 import java.io.InputStream;
 import java.text.DecimalFormat;
 import java.util.Properties;
-import java.util.Timer;
-import java.util.TimerTask;
+import java.util.concurrent.atomic.AtomicBoolean;
 import javafx.application.Platform;
 import javafx.fxml.FXML;
-import javafx.scene.control.TextArea;
+import javafx.scene.Scene;
+import javafx.scene.control.Button;
+import javafx.scene.control.ComboBox;
+import javafx.scene.control.Label;
+import javafx.scene.control.ListView;
 import javafx.scene.control.TextField;
+import javafx.scene.control.Tooltip;
 import javafx.scene.input.KeyEvent;
+import javafx.scene.layout.HBox;
 import javafx.stage.Stage;
 import lombok.Setter;
 import lombok.extern.slf4j.Slf4j;
-import org.example.ugv_rc.clients.ESP32Client;
-import org.example.ugv_rc.clients.JetsonOrinNanoClient;
+import org.example.ugv_rc.clients.CommandCoalescer;
 import org.example.ugv_rc.clients.MovingDirection;
 import org.example.ugv_rc.clients.SpeedLevel;
-
+import org.example.ugv_rc.control.OperatorIntent;
+import org.example.ugv_rc.fleet.Vehicle;
+import org.example.ugv_rc.metrics.InputEvent;
+import org.example.ugv_rc.metrics.UiUpdateEvent;
+import org.example.ugv_rc.telemetry.BaseFeedback;
+import org.example.ugv_rc.telemetry.TelemetryHistory;
+
+/*
+ * Binds the panel to an RcSession, which runs the fleet; the buttons and keys act on the
+ * selected vehicle
+ */
 @Slf4j
-public class RcController {
+public class RcController implements RcSession.Listener {
 
   @FXML
   private TextField bf_roll;
@@ -32,185 +45,354 @@ public class RcController {
   @FXML
   protected TextField bf_voltage;
   @FXML
-  private TextArea console;
+  private ListView<String> console;
+  @FXML
+  private Label link_state;
+  @FXML
+  private Label link_quality;
+  @FXML
+  private Button keyboard_control;
+  @FXML
+  private ComboBox<String> vehicle_choice;
+  @FXML
+  private Button stop_all;
+  @FXML
+  private HBox ugv_controls;
+  @FXML
+  private Button imu_data;
+  @FXML
+  private Button ina_data;
 
   @Setter
   private Stage stage;
-  private ESP32Client ugv;
-  private JetsonOrinNanoClient jetson;
-  private KeyboardController keyboardController;
-  private Timer gimbalTimer = null;
-  private Timer chassisTimer = null;
-
+  private StartupReport startup;
+  private Thread startupThread;
+  private RcSession session;
+  // of the selected vehicle, switched by the session
+  private volatile CommandCoalescer commands;
+  private volatile OperatorIntent intent;
+  private volatile KeyboardController keyboardController;
+  // latest feedback from polling or streaming, guarded by itself
+  private final BaseFeedback displayedFeedback = new BaseFeedback();
+  private final AtomicBoolean feedbackUpdatePending = new AtomicBoolean();
+  private final TelemetryHistory.Aggregate voltageAggregate = new TelemetryHistory.Aggregate();
+  private final Tooltip voltageTooltip = new Tooltip();
+  // used under the displayedFeedback lock, DecimalFormat is not thread-safe
+  private final DecimalFormat paramFormat = new DecimalFormat("###.##");
+  private final ParamText rollText = new ParamText();
+  private final ParamText pitchText = new ParamText();
+  private final ParamText yawText = new ParamText();
+  private final ParamText voltageText = new ParamText();
+  private String voltageSummary = "";
+  private ConsoleLog consoleLog;
+  private final Tooltip linkQualityTooltip = new Tooltip();
+
+  /*
+   * Only prepares the panel, which is shown right away with the device controls disabled;
+   * everything that may block runs on the startup thread
+   */
   @FXML
   private void initialize() {
     Properties properties = loadProperties();
-    String ugv_host = properties.get("UGV02.host").toString();
-    log.info("ugv host: {}", ugv_host);
-    ugv = initUgv02Client(ugv_host);
-    String jetson_host = properties.get("Jetson.host").toString();
-    log.info("jetson host: {}", jetson_host);
-    jetson = new JetsonOrinNanoClient(jetson_host);
-    keyboardController = new KeyboardController(ugv);
-    Timer feedbackTimer = new Timer();
-    feedbackTimer.scheduleAtFixedRate(new TimerTask() {
+    consoleLog = new ConsoleLog(console, Integer.parseInt(properties.getProperty(
+        "Console.lines", String.valueOf(ConsoleLog.DEFAULT_CAPACITY)).trim()));
+    startup = new StartupReport(consoleLog::append);
+    session = new RcSession(properties, startup, this);
+    console.sceneProperty().addListener((_, _, scene) -> {
+      if (scene != null) {
+        reportFirstFrame(scene);
+      }
+    });
+    // key releases go to the focus owner, without focus held keys would stay held
+    keyboard_control.focusedProperty().addListener((_, _, focused) -> {
+      if (!focused && keyboardController != null) {
+        keyboardController.releaseAll();
+      }
+    });
+    bf_voltage.setTooltip(voltageTooltip);
+    link_quality.setTooltip(linkQualityTooltip);
+    link_state.setText("connecting...");
+    link_state.getStyleClass().add("link-down");
+    startupThread = Thread.ofVirtual().name("startup").start(session::start);
+    Platform.runLater(() -> stage.setOnCloseRequest(_ -> shutdown()));
+    log.info("UGV RC initialized");
+  }
+
+  // after the startup thread, which does not block on the devices
+  private void shutdown() {
+    try {
+      startupThread.join();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    session.close();
+  }
+
+  // the first pulse that laid out the shown panel, the frame follows right after it
+  private void reportFirstFrame(Scene scene) {
+    scene.addPostLayoutPulseListener(new Runnable() {
       @Override
       public void run() {
-        getBaseFeedback();
+        scene.removePostLayoutPulseListener(this);
+        startup.reached("first frame");
       }
-    }, 0, 3000);
-    Platform.runLater(() -> stage.setOnCloseRequest(_ -> feedbackTimer.cancel()));
-    log.info("UGV RC initialized");
+    });
+  }
+
+  /*
+   * The buttons and keys of a device are enabled once the selected vehicle connected to
+   * it; an outage later on is shown by the link state and handled by the circuit breaker
+   */
+  private void updateControls() {
+    Vehicle selected = session.isStarted() ? session.getSelected() : null;
+    boolean ugvReady = selected != null && selected.isUgvReady();
+    ugv_controls.setDisable(!ugvReady);
+    imu_data.setDisable(!ugvReady);
+    keyboard_control.setDisable(!ugvReady);
+    ina_data.setDisable(selected == null || !selected.isJetsonReady());
+  }
+
+  @Override
+  public void onMessage(String text) {
+    consoleLog.append(text);
+  }
+
+  @Override
+  public void onStarted() {
+    Platform.runLater(() -> {
+      initVehicleChoice();
+      stop_all.setDisable(false);
+      updateControls();
+    });
+  }
+
+  // the buttons and the keyboard follow the vehicle
+  @Override
+  public void onVehicleSelected(Vehicle vehicle) {
+    commands = vehicle.getCommands();
+    intent = vehicle.getIntent();
+    keyboardController = new KeyboardController(vehicle.getUgv(), commands, intent);
+  }
+
+  @Override
+  public void onDeviceReady() {
+    Platform.runLater(this::updateControls);
+  }
+
+  /*
+   * Called at the rate of the feedback source, which also formats the texts; at most
+   * one update is queued on the JavaFX thread, which always shows the latest texts and
+   * only touches the fields whose text changed
+   */
+  @Override
+  public void onBaseFeedback(BaseFeedback result) {
+    synchronized (displayedFeedback) {
+      displayedFeedback.copyFrom(result);
+      boolean valid = result.isValid();
+      rollText.update(valid, result.getRoll(), paramFormat);
+      pitchText.update(valid, result.getPitch(), paramFormat);
+      yawText.update(valid, result.getYaw(), paramFormat);
+      if (voltageText.update(valid, result.getVoltage(), paramFormat)) {
+        // lock-free, the writers only serialize among themselves
+        session.getFeedbackHistory().aggregate(TelemetryHistory.BF_VOLTAGE, voltageAggregate);
+        voltageSummary = String.format("last 60 s: min %.2f V, max %.2f V, mean %.2f V",
+            voltageAggregate.getMin(), voltageAggregate.getMax(), voltageAggregate.getMean());
+      }
+    }
+    if (feedbackUpdatePending.compareAndSet(false, true)) {
+      Platform.runLater(() -> {
+        UiUpdateEvent event = new UiUpdateEvent();
+        event.begin();
+        feedbackUpdatePending.set(false);
+        synchronized (displayedFeedback) {
+          setIfChanged(bf_roll, rollText.getText());
+          setIfChanged(bf_pitch, pitchText.getText());
+          setIfChanged(bf_yaw, yawText.getText());
+          setIfChanged(bf_voltage, voltageText.getText());
+          if (!voltageSummary.equals(voltageTooltip.getText())) {
+            voltageTooltip.setText(voltageSummary);
+          }
+        }
+        event.view = "base feedback";
+        event.commit();
+      });
+    }
   }
 
-  @FXML
-  private void getBaseFeedback() {
-    JsonNode result = ugv.cmd_base_feedback();
-    //console.appendText(result.toString() + "\n");
-    bf_roll.setText(roundParamValue("r", result));
-    bf_pitch.setText(roundParamValue("p", result));
-    bf_yaw.setText(roundParamValue("y", result));
-    bf_voltage.setText(roundParamValue("v", result));
+  // setText replaces the content and relayouts even for an equal text
+  private static void setIfChanged(TextField field, String text) {
+    if (!text.equals(field.getText())) {
+      field.setText(text);
+    }
+  }
+
+  // once a second whatever the request rate
+  @Override
+  public void onLinkQuality(String summary, String details) {
+    Platform.runLater(() -> {
+      UiUpdateEvent event = new UiUpdateEvent();
+      event.begin();
+      link_quality.setText(summary);
+      linkQualityTooltip.setText(details);
+      event.view = "link quality";
+      event.commit();
+    });
+  }
+
+  @Override
+  public void onLinkState(String text, boolean down) {
+    Platform.runLater(() -> {
+      link_state.setText(text);
+      link_state.getStyleClass().remove("link-down");
+      if (down) {
+        link_state.getStyleClass().add("link-down");
+      }
+    });
   }
 
   @FXML
   private void getImuData() {
-    JsonNode result = ugv.get_IMU_data();
-    console.appendText(result.toPrettyString() + "\n");
+    session.queryImuData().thenAccept(result -> consoleLog.append(result.toString()));
   }
 
   @FXML
   private void getInaData() {
-    JsonNode result = jetson.get("/ugv_power_status");
-    console.appendText(result.toPrettyString() + "\n");
+    session.queryPowerStatus().thenAccept(result -> consoleLog.append(result.toString()));
   }
 
   // gimbal upper left button
   @FXML
   private void gul_pressed() {
-    repeat_gimbal_cmd(-1, 1);
+    hold_gimbal_cmd(-1, 1);
   }
 
   // gimbal upper middle button
   @FXML
   private void gum_pressed() {
-    repeat_gimbal_cmd(0, 1);
+    hold_gimbal_cmd(0, 1);
   }
 
   // gimbal upper right button
   @FXML
   private void gur_pressed() {
-    repeat_gimbal_cmd(1, 1);
+    hold_gimbal_cmd(1, 1);
   }
 
   // gimbal middle left button
   @FXML
   private void gml_pressed() {
-    repeat_gimbal_cmd(-1, 0);
+    hold_gimbal_cmd(-1, 0);
   }
 
   // gimbal middle middle button
   @FXML
   private void gmm_pressed() {
-    ugv.cmd_gimbal_ctrl_simple(0, 0);
+    InputEvent.emit("button", "gimbal center");
+    intent.setGimbalTarget(0, 0);
   }
 
   // gimbal middle right button
   @FXML
   private void gmr_pressed() {
-    repeat_gimbal_cmd(1, 0);
+    hold_gimbal_cmd(1, 0);
   }
 
   // gimbal bottom left button
   @FXML
   private void gbl_pressed() {
-    repeat_gimbal_cmd(-1, -1);
+    hold_gimbal_cmd(-1, -1);
   }
 
   // gimbal bottom middle button
   @FXML
   private void gbm_pressed() {
-    repeat_gimbal_cmd(0, -1);
+    hold_gimbal_cmd(0, -1);
   }
 
   // gimbal bottom right button
   @FXML
   private void gbr_pressed() {
-    repeat_gimbal_cmd(1, -1);
+    hold_gimbal_cmd(1, -1);
   }
 
   // chassis upper left button
   @FXML
   private void cul_pressed() {
-    repeat_chassis_cmd(MovingDirection.NORTHWEST);
+    hold_chassis_cmd(MovingDirection.NORTHWEST);
   }
 
   // chassis upper middle button
   @FXML
   private void cum_pressed() {
-    repeat_chassis_cmd(MovingDirection.NORTH);
+    hold_chassis_cmd(MovingDirection.NORTH);
   }
 
   // chassis upper right button
   @FXML
   private void cur_pressed() {
-    repeat_chassis_cmd(MovingDirection.NORTHEAST);
+    hold_chassis_cmd(MovingDirection.NORTHEAST);
   }
 
   // chassis middle left button
   @FXML
   private void cml_pressed() {
-    repeat_chassis_cmd(MovingDirection.WEST);
+    hold_chassis_cmd(MovingDirection.WEST);
   }
 
   // chassis middle middle button
   @FXML
   private void cmm_pressed() {
-    ugv.cmd_speed_control(MovingDirection.STOP);
+    InputEvent.emit("button", "chassis stop");
+    intent.releaseChassis();
+    commands.stop_chassis();
   }
 
   // chassis middle right button
   @FXML
   private void cmr_pressed() {
-    repeat_chassis_cmd(MovingDirection.EAST);
+    hold_chassis_cmd(MovingDirection.EAST);
   }
 
   // chassis bottom left button
   @FXML
   private void cbl_pressed() {
-    repeat_chassis_cmd(MovingDirection.SOUTHWEST);
+    hold_chassis_cmd(MovingDirection.SOUTHWEST);
   }
 
   // chassis bottom middle button
   @FXML
   private void cbm_pressed() {
-    repeat_chassis_cmd(MovingDirection.SOUTH);
+    hold_chassis_cmd(MovingDirection.SOUTH);
   }
 
   // chassis bottom right button
   @FXML
   private void cbr_pressed() {
-    repeat_chassis_cmd(MovingDirection.SOUTHEAST);
+    hold_chassis_cmd(MovingDirection.SOUTHEAST);
   }
 
   @FXML
   private void radio_button4() {
-    ugv.setSpeed(SpeedLevel.LEVEL_FOUR);
+    InputEvent.emit("button", "speed", SpeedLevel.LEVEL_FOUR);
+    setSpeed(SpeedLevel.LEVEL_FOUR);
   }
 
   @FXML
   private void radio_button3() {
-    ugv.setSpeed(SpeedLevel.LEVEL_THREE);
+    InputEvent.emit("button", "speed", SpeedLevel.LEVEL_THREE);
+    setSpeed(SpeedLevel.LEVEL_THREE);
   }
 
   @FXML
   private void radio_button2() {
-    ugv.setSpeed(SpeedLevel.LEVEL_TWO);
+    InputEvent.emit("button", "speed", SpeedLevel.LEVEL_TWO);
+    setSpeed(SpeedLevel.LEVEL_TWO);
   }
 
   @FXML
   private void radio_button1() {
-    ugv.setSpeed(SpeedLevel.LEVEL_ONE);
+    InputEvent.emit("button", "speed", SpeedLevel.LEVEL_ONE);
+    setSpeed(SpeedLevel.LEVEL_ONE);
   }
 
   @FXML
@@ -228,11 +410,35 @@ public class RcController {
     // focus on button is sufficient
   }
 
-  private ESP32Client initUgv02Client(String host) {
-    ESP32Client ugv02 = new ESP32Client(host);
-    log.info("Init gimbal: cmd_gimbal_ctrl_simple(0, 0)");
-    ugv02.cmd_gimbal_ctrl_simple(0, 0);
-    return ugv02;
+  private void setSpeed(SpeedLevel level) {
+    session.setSpeed(level);
+  }
+
+  // hidden with a single vehicle
+  private void initVehicleChoice() {
+    if (session.getVehicleNames().size() < 2) {
+      vehicle_choice.setVisible(false);
+      vehicle_choice.setManaged(false);
+      return;
+    }
+    vehicle_choice.getItems().addAll(session.getVehicleNames());
+    vehicle_choice.setValue(session.getSelected().getName());
+    vehicle_choice.valueProperty().addListener((_, _, name) -> selectVehicle(name));
+  }
+
+  private void selectVehicle(String name) {
+    if (name == null || name.equals(session.getSelected().getName())) {
+      return;
+    }
+    keyboardController.releaseAll();
+    session.select(name);
+    updateControls();
+  }
+
+  @FXML
+  private void stopAll() {
+    InputEvent.emit("button", "stop all");
+    session.stopAll();
   }
 
   private Properties loadProperties() {
@@ -249,49 +455,29 @@ public class RcController {
     return properties;
   }
 
-  private String roundParamValue(String parameter, JsonNode result) {
-    if (!result.isEmpty()) {
-      Double num = Double.parseDouble(result.get(parameter).toString());
-      DecimalFormat df = new DecimalFormat("###.##");
-      return df.format(num);
-    }
-    return "";
-  }
-
-  private void repeat_gimbal_cmd(int delta_pan, int delta_tilt) {
-    if (gimbalTimer != null) {
-      gimbalTimer.cancel();
-    }
-    gimbalTimer = new Timer();
-    gimbalTimer.scheduleAtFixedRate(new TimerTask() {
-      @Override
-      public void run() {
-        ugv.gimbal_step(delta_pan, delta_tilt);
-      }
-    }, 0, 50);
+  // the control loop plans the gimbal motion while the direction is held
+  private void hold_gimbal_cmd(int delta_pan, int delta_tilt) {
+    InputEvent.emit("button", "gimbal", delta_pan + " " + delta_tilt);
+    intent.setGimbal(delta_pan, delta_tilt);
   }
 
   @FXML
   private void gimbal_released() {
-    gimbalTimer.cancel();
+    InputEvent.emit("button", "gimbal released");
+    intent.releaseGimbal();
   }
 
-  private void repeat_chassis_cmd(MovingDirection direction) {
-    if (chassisTimer != null) {
-      chassisTimer.cancel();
-    }
-    chassisTimer = new Timer();
-    chassisTimer.scheduleAtFixedRate(new TimerTask() {
-      @Override
-      public void run() {
-        ugv.cmd_speed_control(direction);
-      }
-    }, 0, 2900);
+  // the control loop sends the held direction and its keep-alive until release
+  private void hold_chassis_cmd(MovingDirection direction) {
+    InputEvent.emit("button", "chassis", direction);
+    intent.setChassisDirection(direction);
   }
 
   @FXML
   private void chassis_released() {
-    ugv.cmd_speed_control(MovingDirection.STOP);
-    chassisTimer.cancel();
+    InputEvent.emit("button", "chassis released");
+    intent.releaseChassis();
+    commands.stop_chassis();
   }
 }
+
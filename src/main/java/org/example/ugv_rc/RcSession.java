@@ -0,0 +1,522 @@
+package org.example.ugv_rc;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.example.ugv_rc.clients.CircuitBreaker;
+import org.example.ugv_rc.clients.CommandType;
+import org.example.ugv_rc.clients.SpeedLevel;
+import org.example.ugv_rc.control.ControlLoop;
+import org.example.ugv_rc.control.OperatorIntent;
+import org.example.ugv_rc.fleet.Fleet;
+import org.example.ugv_rc.fleet.Vehicle;
+import org.example.ugv_rc.fleet.VehicleConfig;
+import org.example.ugv_rc.input.AxisCurve;
+import org.example.ugv_rc.input.GamepadSource;
+import org.example.ugv_rc.input.InputPoller;
+import org.example.ugv_rc.input.InputSource;
+import org.example.ugv_rc.input.SyntheticSource;
+import org.example.ugv_rc.metrics.LinkQuality;
+import org.example.ugv_rc.recorder.FlightReader;
+import org.example.ugv_rc.recorder.FlightRecorder;
+import org.example.ugv_rc.recorder.Replay;
+import org.example.ugv_rc.recorder.ReplayListener;
+import org.example.ugv_rc.simulator.LinkModel;
+import org.example.ugv_rc.simulator.Simulator;
+import org.example.ugv_rc.telemetry.BaseFeedback;
+import org.example.ugv_rc.telemetry.ImuData;
+import org.example.ugv_rc.telemetry.PowerStatus;
+import org.example.ugv_rc.telemetry.TelemetryHistory;
+import org.example.ugv_rc.telemetry.TelemetryListener;
+import org.example.ugv_rc.video.RtpReceiver;
+import org.example.ugv_rc.video.SdpDescription;
+
+/*
+ * What the panel controls, without the panel: simulators, recorder and replay, the fleet
+ * and its selected vehicle, the analog input and the video receivers.
+ *
+ * start() runs on a startup thread and does not block on the devices; the vehicles
+ * connect in the background. Selecting another vehicle releases what the operator holds
+ * on the one left, which stops it, and retargets the analog input and the recorder. The
+ * panel follows through the Listener, which is called from any thread.
+ */
+@Slf4j
+class RcSession implements AutoCloseable {
+
+  private final Properties properties;
+  private final StartupReport startup;
+  private final Listener listener;
+  private final BaseFeedback feedback = new BaseFeedback();
+  private final PowerStatus powerStatus = new PowerStatus();
+  private final ImuData imuData = new ImuData();
+  // one minute of history at the default stream interval; the writers serialize on it,
+  // readers take a snapshot or an aggregate without locking
+  @Getter
+  private final TelemetryHistory feedbackHistory =
+      TelemetryHistory.baseFeedback(1200, 60, TimeUnit.SECONDS);
+  private final TelemetryHistory imuHistory = TelemetryHistory.imu(1200, 60, TimeUnit.SECONDS);
+  private final TelemetryHistory powerHistory =
+      TelemetryHistory.power(600, 600, TimeUnit.SECONDS);
+  private final List<Simulator> simulators = new ArrayList<>();
+  private final List<RtpReceiver> videoReceivers = new CopyOnWriteArrayList<>();
+  private volatile Fleet fleet;
+  private volatile FlightRecorder recorder;
+  private volatile Replay replay;
+  private volatile InputPoller inputPoller;
+  private volatile LinkQuality linkQuality;
+  // true once the first vehicle is selected and the fleet runs
+  @Getter
+  private volatile boolean started;
+
+  interface Listener {
+
+    // a line for the console
+    void onMessage(String text);
+
+    // the fleet runs, its vehicles are connecting
+    void onStarted();
+
+    // the operator's input goes to vehicle from now on
+    void onVehicleSelected(Vehicle vehicle);
+
+    // a device of a vehicle answered for the first time
+    void onDeviceReady();
+
+    // down: a device of the selected vehicle is not ready or unreachable
+    void onLinkState(String text, boolean down);
+
+    // of the selected vehicle, polled, streamed or replayed, already recorded
+    void onBaseFeedback(BaseFeedback feedback);
+
+    // once a second, from the control loop
+    void onLinkQuality(String summary, String details);
+  }
+
+  RcSession(Properties properties, StartupReport startup, Listener listener) {
+    this.properties = properties;
+    this.startup = startup;
+    this.listener = listener;
+  }
+
+  /*
+   * Simulators, recorder, the fleet and the analog input. The vehicles connect in
+   * parallel in the background.
+   */
+  void start() {
+    try {
+      List<VehicleConfig> configs = initSimulators(VehicleConfig.fromProperties(properties));
+      replay = initReplay();
+      if (replay == null) {
+        recorder = initRecorder();
+      }
+      int rate = Integer.parseInt(properties.getProperty("ControlLoop.rate", "50").trim());
+      fleet = new Fleet(rate);
+      for (VehicleConfig config : configs) {
+        initVehicle(fleet.add(config));
+      }
+      show(fleet.getSelected(), SpeedLevel.LEVEL_ONE);
+      ControlLoop controlLoop = fleet.getControlLoop();
+      controlLoop.every(() -> fleet.getSelected().getPollRate().getIntervalNanos(),
+          this::pollBaseFeedback);
+      controlLoop.every(1000, this::refreshLinkQuality);
+      fleet.start();
+      inputPoller = initInput();
+      started = true;
+      listener.onStarted();
+      initVideo();
+    } catch (RuntimeException e) {
+      log.error("startup failed", e);
+      listener.onMessage("startup failed: " + e.getMessage());
+    }
+  }
+
+  // null until started
+  Vehicle getSelected() {
+    Fleet current = fleet;
+    return current != null ? current.getSelected() : null;
+  }
+
+  List<String> getVehicleNames() {
+    return fleet.getVehicles().stream().map(Vehicle::getName).toList();
+  }
+
+  /*
+   * What the operator holds is released on the vehicle left, which stops it; the speed
+   * level carries over
+   */
+  void select(String name) {
+    Vehicle previous = fleet.getSelected();
+    if (name == null || name.equals(previous.getName())) {
+      return;
+    }
+    OperatorIntent intent = previous.getIntent();
+    intent.releaseChassis();
+    intent.releaseGimbal();
+    previous.getUgv().setRecorder(null);
+    Vehicle vehicle = fleet.select(name);
+    show(vehicle, intent.getSpeedLevel());
+    if (inputPoller != null) {
+      inputPoller.retarget(vehicle.getIntent(), vehicle.getCommands());
+    }
+    Thread.ofVirtual().start(this::pollBaseFeedback);
+  }
+
+  void setSpeed(SpeedLevel level) {
+    Vehicle vehicle = fleet.getSelected();
+    vehicle.getIntent().setSpeedLevel(level);
+    vehicle.getUgv().setSpeed(level);
+  }
+
+  void stopAll() {
+    long start = System.nanoTime();
+    fleet.stopAll().thenRun(() -> listener.onMessage(String.format(
+        "STOP all: %d vehicles in %.1f ms", fleet.size(), (System.nanoTime() - start) / 1e6)));
+  }
+
+  // of the selected vehicle, recorded
+  CompletableFuture<ImuData> queryImuData() {
+    return fleet.getSelected().getQueries().imuData(imuData).thenApply(result -> {
+      if (recorder != null) {
+        recorder.record(result);
+      }
+      return result;
+    });
+  }
+
+  // of the selected vehicle, recorded
+  CompletableFuture<PowerStatus> queryPowerStatus() {
+    return fleet.getSelected().getQueries().powerStatus(powerStatus).thenApply(result -> {
+      // a second query may complete concurrently, the history takes one writer at a time
+      synchronized (powerHistory) {
+        powerHistory.record(result);
+      }
+      if (recorder != null) {
+        recorder.record(result);
+      }
+      return result;
+    });
+  }
+
+  // after the startup thread, which does not block on the devices
+  @Override
+  public void close() {
+    if (inputPoller != null) {
+      inputPoller.close();
+    }
+    videoReceivers.forEach(RtpReceiver::close);
+    if (replay != null) {
+      replay.close();
+    }
+    if (fleet != null) {
+      fleet.close();
+    }
+    if (recorder != null) {
+      recorder.close();
+    }
+    simulators.forEach(Simulator::close);
+  }
+
+  // the recorder and the link panel follow the vehicle
+  private void show(Vehicle vehicle, SpeedLevel level) {
+    vehicle.getUgv().setRecorder(recorder);
+    vehicle.getIntent().setSpeedLevel(level);
+    vehicle.getUgv().setSpeed(level);
+    linkQuality = new LinkQuality(vehicle.getUgv().getMetrics(),
+        vehicle.getJetson().getMetrics());
+    listener.onVehicleSelected(vehicle);
+    showLinkState();
+  }
+
+  // polling is the fallback while no feedback stream is connected
+  private void pollBaseFeedback() {
+    Vehicle vehicle = fleet.getSelected();
+    if (replay != null || vehicle == null || vehicle.isStreaming()) {
+      return;
+    }
+    vehicle.getQueries().baseFeedback(feedback).thenAccept(this::baseFeedback);
+  }
+
+  private void baseFeedback(BaseFeedback result) {
+    synchronized (feedbackHistory) {
+      feedbackHistory.record(result);
+      if (recorder != null) {
+        recorder.record(result);
+      }
+    }
+    listener.onBaseFeedback(result);
+  }
+
+  /*
+   * Runs on the control loop once a second, so the panel costs one update per second
+   * whatever the request rate
+   */
+  private void refreshLinkQuality() {
+    long now = System.nanoTime();
+    Vehicle vehicle = fleet.getSelected();
+    LinkQuality quality = linkQuality;
+    quality.update(now);
+    StringBuilder details = new StringBuilder(quality.details());
+    details.append('\n').append(vehicle.getQueries().summary());
+    details.append('\n').append(vehicle.getUgv().getRate().summary()).append(String.format(
+        ", keep-alive %d ms",
+        TimeUnit.NANOSECONDS.toMillis(vehicle.getCommands().getKeepAliveNanos())));
+    details.append('\n').append(vehicle.getJetson().getRate().summary());
+    for (RtpReceiver receiver : videoReceivers) {
+      details.append('\n').append(receiver.getStats().summary(now));
+    }
+    listener.onLinkQuality(quality.summary(), details.toString());
+  }
+
+  /*
+   * On a state change of any circuit breaker, from the thread that caused it, and when a
+   * device became ready: the selected vehicle and how many of the others are unreachable
+   */
+  private void showLinkState() {
+    Fleet current = fleet;
+    Vehicle selected = current != null ? current.getSelected() : null;
+    if (selected == null) {
+      return;
+    }
+    CircuitBreaker ugvBreaker = selected.getUgv().getBreaker();
+    CircuitBreaker jetsonBreaker = selected.getJetson().getBreaker();
+    String text = "UGV02 " + describe(selected.isUgvReady(), ugvBreaker)
+        + "   Jetson " + describe(selected.isJetsonReady(), jetsonBreaker);
+    if (current.size() > 1) {
+      long unreachable = current.getVehicles().stream()
+          .filter(vehicle -> vehicle != selected && (!vehicle.isUgvReady()
+              || vehicle.getUgv().getBreaker().getState() != CircuitBreaker.State.CLOSED))
+          .count();
+      text = selected.getName() + ": " + text + "   others unreachable: " + unreachable;
+    }
+    boolean down = !selected.isUgvReady() || !selected.isJetsonReady()
+        || ugvBreaker.getState() != CircuitBreaker.State.CLOSED
+        || jetsonBreaker.getState() != CircuitBreaker.State.CLOSED;
+    listener.onLinkState(text, down);
+  }
+
+  private static String describe(boolean ready, CircuitBreaker breaker) {
+    if (!ready) {
+      return "connecting...";
+    }
+    return switch (breaker.getState()) {
+      case CLOSED -> "online";
+      case OPEN ->
+          String.format("unreachable, retry in %.1f s", breaker.getBackoffMillis() / 1000.0);
+      case HALF_OPEN -> "unreachable, probing";
+    };
+  }
+
+  /*
+   * Centers the gimbal once the UGV02 answers, reports each device as it becomes ready
+   * and passes on the feedback stream while the vehicle is selected
+   */
+  private void initVehicle(Vehicle vehicle) {
+    String name = vehicle.getName();
+    vehicle.whenUgvReady().thenRun(() -> {
+      startup.reached(name + " ESP32 ready");
+      log.info("Init gimbal of {}: cmd_gimbal_ctrl_simple(0, 0)", name);
+      vehicle.getUgv().cmd_gimbal_ctrl_simple_async(0, 0).thenRun(() -> {
+        if (vehicle.getUgv().getBreaker().getState() == CircuitBreaker.State.CLOSED) {
+          startup.reached("first command");
+        }
+      });
+      deviceReady();
+    });
+    vehicle.whenJetsonReady().thenRun(() -> {
+      startup.reached(name + " Jetson ready");
+      deviceReady();
+    });
+    vehicle.getUgv().getBreaker().addListener((_, _) -> showLinkState());
+    vehicle.getJetson().getBreaker().addListener((_, _) -> showLinkState());
+    if (vehicle.getStream() == null) {
+      log.info("{}: no feedback stream configured, polling base feedback", vehicle.getName());
+      return;
+    }
+    vehicle.getStream().addListener(new TelemetryListener() {
+      @Override
+      public void onBaseFeedback(BaseFeedback feedback) {
+        if (fleet.getSelected() == vehicle) {
+          baseFeedback(feedback);
+        }
+      }
+
+      @Override
+      public void onImuData(ImuData imuData) {
+        if (fleet.getSelected() != vehicle) {
+          return;
+        }
+        imuHistory.record(imuData);
+        if (recorder != null) {
+          recorder.record(imuData);
+        }
+      }
+    });
+  }
+
+  private void deviceReady() {
+    showLinkState();
+    listener.onDeviceReady();
+  }
+
+  /*
+   * Input.source = gamepad or synthetic adds analog input next to keyboard and buttons,
+   * polled Input.rate times a second, see InputPoller for the other Input.* settings
+   */
+  private InputPoller initInput() {
+    String name = properties.getProperty("Input.source", "").trim();
+    InputSource source = switch (name) {
+      case "" -> null;
+      case "gamepad" -> GamepadSource.find();
+      case "synthetic" -> SyntheticSource.demo();
+      default -> {
+        log.error("unknown Input.source: {}", name);
+        yield null;
+      }
+    };
+    if (source == null) {
+      return null;
+    }
+    AxisCurve curve = new AxisCurve(
+        Double.parseDouble(properties.getProperty("Input.deadzone", "0.08").trim()),
+        Double.parseDouble(properties.getProperty("Input.expo", "0.4").trim()));
+    Vehicle vehicle = fleet.getSelected();
+    InputPoller poller = new InputPoller(source, vehicle.getIntent(), vehicle.getCommands(),
+        Integer.parseInt(properties.getProperty("Input.rate",
+            String.valueOf(InputPoller.DEFAULT_RATE_HZ)).trim()),
+        curve,
+        Double.parseDouble(properties.getProperty("Input.maxSpeed",
+            String.valueOf(SpeedLevel.LEVEL_FOUR.getSpeed())).trim()),
+        Double.parseDouble(properties.getProperty("Input.threshold",
+            String.valueOf(InputPoller.DEFAULT_THRESHOLD)).trim()));
+    poller.start();
+    return poller;
+  }
+
+  /*
+   * Video.<camera>.sdp = SDP file of a camera stream received in the app, its statistics
+   * are shown with the link quality; the external player must not listen on the same port
+   */
+  private void initVideo() {
+    long jitterMillis = Long.parseLong(properties.getProperty("Video.jitterMillis",
+        String.valueOf(RtpReceiver.DEFAULT_JITTER_MILLIS)).trim());
+    for (String camera : List.of("gimbal", "chassis")) {
+      String file = properties.getProperty("Video." + camera + ".sdp", "").trim();
+      if (file.isEmpty()) {
+        continue;
+      }
+      try {
+        SdpDescription sdp = SdpDescription.read(Path.of(file));
+        RtpReceiver receiver = RtpReceiver.open(camera, sdp, (_, _) -> {
+        }, jitterMillis);
+        receiver.start();
+        videoReceivers.add(receiver);
+      } catch (IOException | IllegalArgumentException e) {
+        log.error("video {}: {}", camera, e.getMessage());
+      }
+    }
+  }
+
+  /*
+   * Simulator.enabled = true runs against local simulators instead of the vehicles, one
+   * per vehicle, with Simulator.latency and Simulator.jitter in ms and Simulator.loss from
+   * 0 to 1
+   */
+  private List<VehicleConfig> initSimulators(List<VehicleConfig> configs) {
+    if (!Boolean.parseBoolean(properties.getProperty("Simulator.enabled", "false").trim())) {
+      return configs;
+    }
+    LinkModel link = LinkModel.ofMillis(
+        Double.parseDouble(properties.getProperty("Simulator.latency", "0").trim()),
+        Double.parseDouble(properties.getProperty("Simulator.jitter", "0").trim()),
+        Double.parseDouble(properties.getProperty("Simulator.loss", "0").trim()));
+    List<VehicleConfig> simulated = new ArrayList<>();
+    for (VehicleConfig config : configs) {
+      Simulator sim;
+      try {
+        sim = Simulator.loopback(link);
+      } catch (IOException e) {
+        log.error(e.getMessage());
+        throw new RuntimeException(e);
+      }
+      sim.start();
+      simulators.add(sim);
+      simulated.add(config.at(sim.getHost(), sim.getEsp32Port(), sim.getHost(),
+          sim.getJetsonPort(), sim.getHost(), sim.getStreamPort()));
+    }
+    return simulated;
+  }
+
+  /*
+   * Recorder.directory = where recordings are written, recording is off if unset
+   */
+  private FlightRecorder initRecorder() {
+    String directory = properties.getProperty("Recorder.directory", "").trim();
+    if (directory.isEmpty()) {
+      return null;
+    }
+    try {
+      return new FlightRecorder(Path.of(directory), FlightRecorder.DEFAULT_SEGMENT_SIZE);
+    } catch (IOException e) {
+      log.error("flight recorder not started: {}", e.getMessage());
+      return null;
+    }
+  }
+
+  /*
+   * Replay.recording = recording shown instead of live telemetry, Replay.speed = 1 for
+   * real time. The devices can still be commanded, but they are not polled.
+   */
+  private Replay initReplay() {
+    String recording = properties.getProperty("Replay.recording", "").trim();
+    if (recording.isEmpty()) {
+      return null;
+    }
+    double speed = Double.parseDouble(properties.getProperty("Replay.speed", "1").trim());
+    FlightReader reader;
+    try {
+      reader = new FlightReader(Path.of(recording));
+    } catch (IOException e) {
+      log.error("replay not started: {}", e.getMessage());
+      return null;
+    }
+    log.info("replaying {} at {}x", recording, speed);
+    Replay r = new Replay(reader, speed);
+    r.addListener(new ReplayListener() {
+      @Override
+      public void onBaseFeedback(BaseFeedback feedback) {
+        baseFeedback(feedback);
+      }
+
+      @Override
+      public void onImuData(ImuData imuData) {
+        imuHistory.record(imuData);
+      }
+
+      @Override
+      public void onPowerStatus(PowerStatus powerStatus) {
+        synchronized (powerHistory) {
+          powerHistory.record(powerStatus);
+        }
+      }
+
+      @Override
+      public void onCommand(int code, double a, double b) {
+        listener.onMessage("replay: " + CommandType.fromCode(code) + " " + a + " " + b);
+      }
+
+      @Override
+      public void onReplayFinished() {
+        listener.onMessage("replay finished");
+      }
+    });
+    r.start();
+    return r;
+  }
+}
@@ -0,0 +1,36 @@
+package org.example.ugv_rc;
+
+import java.lang.management.ManagementFactory;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import lombok.extern.slf4j.Slf4j;
+
+/*
+ * Milestones of the application startup in ms since the JVM was started: the first frame
+ * of the panel, each device ready and the first command acknowledged. Each one is logged
+ * and shown in the console once, from whichever thread reaches it.
+ */
+@Slf4j
+class StartupReport {
+
+  private final long originMillis;
+  private final Consumer<String> console;
+  private final Set<String> reached = ConcurrentHashMap.newKeySet();
+
+  StartupReport(Consumer<String> console) {
+    // in ms, unlike the start of the process, which some platforms round to seconds
+    this.originMillis = ManagementFactory.getRuntimeMXBean().getStartTime();
+    this.console = console;
+  }
+
+  // only the first call per milestone counts
+  void reached(String milestone) {
+    if (!reached.add(milestone)) {
+      return;
+    }
+    long millis = System.currentTimeMillis() - originMillis;
+    log.info("startup: {} after {} ms", milestone, millis);
+    console.accept("startup: " + milestone + " after " + millis + " ms");
+  }
+}
@@ -0,0 +1,229 @@
+package org.example.ugv_rc.clients;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.SocketException;
+import java.net.UnknownHostException;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BooleanSupplier;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.hc.core5.http.ConnectionClosedException;
+import org.apache.hc.core5.http.NoHttpResponseException;
+
+/*
+ * Link health of one device.
+ *
+ * CLOSED: requests pass. After failureThreshold consecutive link failures (connect or
+ * socket timeouts, refused or reset connections) the breaker opens. OPEN: requests are
+ * rejected at once instead of each waiting for its timeout, and a single probe request
+ * runs on its own virtual thread, first after initialBackoff and then with the backoff
+ * doubled up to maxBackoff after each failed probe. HALF_OPEN: the probe is in flight,
+ * requests are still rejected. A successful probe, or any other request that succeeds
+ * meanwhile, closes the breaker.
+ *
+ * An error response, an unparsable body or any other error of the answer still proves the
+ * device reachable and counts as success here.
+ */
+@Slf4j
+public class CircuitBreaker implements AutoCloseable {
+
+  public enum State {
+    CLOSED, OPEN, HALF_OPEN
+  }
+
+  @FunctionalInterface
+  public interface StateListener {
+
+    void onStateChange(CircuitBreaker breaker, State state);
+  }
+
+  public static final int DEFAULT_FAILURE_THRESHOLD = 3;
+  public static final long DEFAULT_INITIAL_BACKOFF_MILLIS = 250;
+  public static final long DEFAULT_MAX_BACKOFF_MILLIS = 8000;
+
+  @Getter
+  private final String name;
+  private final BooleanSupplier probe;
+  private final int failureThreshold;
+  private final long initialBackoffMillis;
+  private final long maxBackoffMillis;
+  private final List<StateListener> listeners = new CopyOnWriteArrayList<>();
+  private final AtomicLong rejectedCount = new AtomicLong();
+
+  // written under this, read without
+  @Getter
+  private volatile State state = State.CLOSED;
+  private volatile int consecutiveFailures;
+  // delay before the next probe, while not closed
+  @Getter
+  private volatile long backoffMillis;
+  @Getter
+  private volatile long tripCount;
+  private Thread prober;
+  private boolean closed;
+
+  /*
+   * probe: one lightweight read-only request of the device that bypasses the breaker;
+   * true if the device answered
+   */
+  public CircuitBreaker(String name, BooleanSupplier probe) {
+    this(name, probe, DEFAULT_FAILURE_THRESHOLD, DEFAULT_INITIAL_BACKOFF_MILLIS,
+        DEFAULT_MAX_BACKOFF_MILLIS);
+  }
+
+  public CircuitBreaker(String name, BooleanSupplier probe, int failureThreshold,
+      long initialBackoffMillis, long maxBackoffMillis) {
+    if (failureThreshold < 1 || initialBackoffMillis < 1
+        || maxBackoffMillis < initialBackoffMillis) {
+      throw new IllegalArgumentException("threshold " + failureThreshold + ", backoff "
+          + initialBackoffMillis + ".." + maxBackoffMillis + " ms");
+    }
+    this.name = name;
+    this.probe = probe;
+    this.failureThreshold = failureThreshold;
+    this.initialBackoffMillis = initialBackoffMillis;
+    this.maxBackoffMillis = maxBackoffMillis;
+  }
+
+  public void addListener(StateListener listener) {
+    listeners.add(listener);
+  }
+
+  public void removeListener(StateListener listener) {
+    listeners.remove(listener);
+  }
+
+  /*
+   * False while the link is down; the caller fails the request without sending it
+   */
+  public boolean allowRequest() {
+    if (state == State.CLOSED) {
+      return true;
+    }
+    rejectedCount.incrementAndGet();
+    return false;
+  }
+
+  public long getRejectedCount() {
+    return rejectedCount.get();
+  }
+
+  public void onSuccess() {
+    // lock-free on the common path
+    if (state == State.CLOSED && consecutiveFailures == 0) {
+      return;
+    }
+    synchronized (this) {
+      consecutiveFailures = 0;
+      if (state == State.CLOSED) {
+        return;
+      }
+      state = State.CLOSED;
+      if (prober != null) {
+        prober.interrupt();
+        prober = null;
+      }
+    }
+    log.info("{}: link restored", name);
+    notifyListeners(State.CLOSED);
+  }
+
+  public void onFailure() {
+    synchronized (this) {
+      if (state != State.CLOSED || closed || ++consecutiveFailures < failureThreshold) {
+        return;
+      }
+      tripCount++;
+      backoffMillis = initialBackoffMillis;
+      state = State.OPEN;
+      prober = Thread.ofVirtual().name(name + "-probe").start(this::probe);
+    }
+    log.warn("{}: {} consecutive failures, failing fast until a probe succeeds", name,
+        failureThreshold);
+    notifyListeners(State.OPEN);
+  }
+
+  /*
+   * Counts the exception of a request as failure if the link is at fault
+   */
+  public void onError(IOException e) {
+    if (isLinkFailure(e)) {
+      onFailure();
+    } else {
+      onSuccess();
+    }
+  }
+
+  /*
+   * A timeout, a refused, reset or closed connection, an unknown host or no answer at all.
+   * The clients report only these to the RateController as a loss.
+   */
+  static boolean isLinkFailure(IOException e) {
+    return e instanceof InterruptedIOException || e instanceof SocketException
+        || e instanceof UnknownHostException || e instanceof NoHttpResponseException
+        || e instanceof ConnectionClosedException;
+  }
+
+  @Override
+  public void close() {
+    synchronized (this) {
+      closed = true;
+      if (prober != null) {
+        prober.interrupt();
+        prober = null;
+      }
+    }
+  }
+
+  private void probe() {
+    while (true) {
+      try {
+        TimeUnit.MILLISECONDS.sleep(backoffMillis);
+      } catch (InterruptedException e) {
+        return;
+      }
+      if (!enter(State.OPEN, State.HALF_OPEN)) {
+        return;
+      }
+      notifyListeners(State.HALF_OPEN);
+      boolean reachable;
+      try {
+        reachable = probe.getAsBoolean();
+      } catch (RuntimeException e) {
+        log.debug("{}: probe failed: {}", name, e.getMessage());
+        reachable = false;
+      }
+      if (reachable) {
+        onSuccess();
+        return;
+      }
+      synchronized (this) {
+        backoffMillis = Math.min(maxBackoffMillis, backoffMillis * 2);
+      }
+      if (!enter(State.HALF_OPEN, State.OPEN)) {
+        return;
+      }
+      log.debug("{}: probe failed, next in {} ms", name, backoffMillis);
+      notifyListeners(State.OPEN);
+    }
+  }
+
+  // false if the state changed meanwhile or the breaker was closed
+  private synchronized boolean enter(State expected, State next) {
+    if (closed || state != expected || Thread.currentThread().isInterrupted()) {
+      return false;
+    }
+    state = next;
+    return true;
+  }
+
+  private void notifyListeners(State next) {
+    for (StateListener listener : listeners) {
+      listener.onStateChange(this, next);
+    }
+  }
+}
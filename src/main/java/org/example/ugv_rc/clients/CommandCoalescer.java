@@ -0,0 +1,352 @@
+package org.example.ugv_rc.clients;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+/*
+ * Latest-value-wins stage in front of ESP32Client.
+ *
+ * Chassis (T:1) and gimbal (T:133 with speed and acceleration) setpoints each have one
+ * channel with at most one
+ * request in flight. A setpoint submitted while a request is in flight replaces any
+ * pending one, so a slow link only ever catches up with the newest operator intent.
+ * A setpoint equal to the last one sent is skipped, except that the chassis repeats
+ * it after KEEP_ALIVE so the firmware does not time out, and a stop is never skipped.
+ * A setpoint the device did not answer is sent again unless a newer one replaced it, so
+ * that a lost release of the gimbal or a lost zero of the chassis does not leave it
+ * moving. While the circuit breaker is open the newest setpoint is held and goes out as
+ * soon as the breaker closes.
+ *
+ * Each channel is paced by a rate of the RateController of the ESP32: a setpoint is not
+ * sent sooner than the current interval after the previous one, except a zero chassis
+ * setpoint. The keep-alive shortens when the round trip time, the pacing or loss would
+ * otherwise let the firmware time out.
+ *
+ * Stops bypass the channels: they drop the pending setpoint and go out on the priority
+ * lane of ESP32Client, which aborts the request in flight. Each stop starts a new epoch
+ * of its channel; a setpoint submitted with an older epoch, e.g. by a control loop tick
+ * that sampled the operator intent just before the release, is dropped.
+ */
+@Slf4j
+public class CommandCoalescer {
+
+  // the longest keep-alive, well below the firmware's timeout of a chassis command
+  public static final long KEEP_ALIVE_MILLIS = 2000;
+  public static final RateController.Bounds DEFAULT_BOUNDS = new RateController.Bounds(20, 500);
+  private static final long KEEP_ALIVE_NANOS = TimeUnit.MILLISECONDS.toNanos(KEEP_ALIVE_MILLIS);
+  private static final long MIN_KEEP_ALIVE_NANOS = TimeUnit.MILLISECONDS.toNanos(250);
+  private static final long FIRMWARE_TIMEOUT_NANOS = TimeUnit.SECONDS.toNanos(3);
+  // from this loss rate on, the firmware timeout must leave room for a second keep-alive
+  private static final double LOSSY = 0.01;
+
+  private final ESP32Client ugv;
+  private final Channel chassis;
+  private final Channel gimbal;
+
+  public CommandCoalescer(ESP32Client ugv) {
+    this(ugv, DEFAULT_BOUNDS);
+  }
+
+  /*
+   * bounds: of the interval between two setpoints of a channel
+   */
+  public CommandCoalescer(ESP32Client ugv, RateController.Bounds bounds) {
+    this.ugv = ugv;
+    RateController link = ugv.getRate();
+    this.chassis = new Channel("chassis", ugv.getBreaker(), link.rate("chassis", bounds),
+        true) {
+      @Override
+      CompletableFuture<Boolean> send(double left, double right, double unused,
+          double unused2) {
+        return ugv.cmd_speed_control_answered(left, right);
+      }
+
+      /*
+       * A lost keep-alive is noticed after the retransmission timeout and the next one may
+       * wait out the pacing interval; the firmware timeout must cover both, and with loss
+       * a second keep-alive
+       */
+      @Override
+      long keepAliveNanos() {
+        long budget = FIRMWARE_TIMEOUT_NANOS - link.getRtoNanos() - getRate().getIntervalNanos();
+        if (link.getLossRate() >= LOSSY) {
+          budget /= 2;
+        }
+        return Math.clamp(budget, MIN_KEEP_ALIVE_NANOS, KEEP_ALIVE_NANOS);
+      }
+    };
+    this.gimbal = new Channel("gimbal", ugv.getBreaker(), link.rate("gimbal", bounds), false) {
+      @Override
+      CompletableFuture<Boolean> send(double pan, double tilt, double speed, double acc) {
+        return ugv.cmd_gimbal_ctrl_simple_answered((int) pan, (int) tilt, (int) speed,
+            (int) acc);
+      }
+    };
+  }
+
+  public void cmd_speed_control(MovingDirection direction) {
+    chassis.submit(ugv.leftSpeed(direction), ugv.rightSpeed(direction), 0, 0, chassis.epoch);
+  }
+
+  public void cmd_speed_control(double left, double right) {
+    chassis.submit(left, right, 0, 0, chassis.epoch);
+  }
+
+  /*
+   * chassisEpoch: getChassisEpoch() taken before the setpoint was decided
+   */
+  public void cmd_speed_control(double left, double right, long chassisEpoch) {
+    chassis.submit(left, right, 0, 0, chassisEpoch);
+  }
+
+  public long getChassisEpoch() {
+    return chassis.epoch;
+  }
+
+  public long getGimbalEpoch() {
+    return gimbal.epoch;
+  }
+
+  public void cmd_gimbal_ctrl_simple(int pan, int tilt, int speed, int acceleration) {
+    gimbal.submit(pan, tilt, speed, acceleration, gimbal.epoch);
+  }
+
+  /*
+   * gimbalEpoch: getGimbalEpoch() taken before the setpoint was decided
+   */
+  public void cmd_gimbal_ctrl_simple(int pan, int tilt, int speed, int acceleration,
+      long gimbalEpoch) {
+    gimbal.submit(pan, tilt, speed, acceleration, gimbalEpoch);
+  }
+
+  /*
+   * Priority lane, see ESP32Client.stop_chassis_async
+   */
+  public CompletableFuture<JsonNode> stop_chassis() {
+    chassis.stop();
+    return ugv.stop_chassis_async();
+  }
+
+  public CompletableFuture<JsonNode> stop_gimbal() {
+    gimbal.stop();
+    return ugv.cmd_gimbal_ctrl_stop_async();
+  }
+
+  public CompletableFuture<Void> emergency_stop() {
+    chassis.stop();
+    gimbal.stop();
+    return ugv.emergency_stop_async();
+  }
+
+  public long getSentCount() {
+    return chassis.sent.get() + gimbal.sent.get();
+  }
+
+  public long getCoalescedCount() {
+    return chassis.coalesced.get() + gimbal.coalesced.get();
+  }
+
+  public long getUnchangedCount() {
+    return chassis.unchanged.get() + gimbal.unchanged.get();
+  }
+
+  public long getPreemptedCount() {
+    return chassis.preempted.get() + gimbal.preempted.get();
+  }
+
+  public void logStatistics() {
+    chassis.logStatistics();
+    gimbal.logStatistics();
+  }
+
+  // the chassis keep-alive as it is now
+  public long getKeepAliveNanos() {
+    return chassis.keepAliveNanos();
+  }
+
+  private abstract static class Channel {
+
+    // a paced drain runs on the delay thread, it does not block
+    private static final Executor DIRECT = Runnable::run;
+
+    private final String name;
+    private final CircuitBreaker breaker;
+    @Getter
+    private final RateController.Rate rate;
+    private final boolean neverSkipZero;
+    private final AtomicLong sent = new AtomicLong();
+    private final AtomicLong coalesced = new AtomicLong();
+    private final AtomicLong unchanged = new AtomicLong();
+    private final AtomicLong preempted = new AtomicLong();
+    private final AtomicLong paced = new AtomicLong();
+    private final AtomicLong resent = new AtomicLong();
+    // incremented by stop(), under this
+    private volatile long epoch;
+    // guarded by this
+    private boolean pending;
+    private boolean inFlight;
+    private double pendingA;
+    private double pendingB;
+    private double pendingC;
+    private double pendingD;
+    private boolean hasLast;
+    private double lastA;
+    private double lastB;
+    private double lastC;
+    private double lastD;
+    private long lastSentNanos;
+    private long nextSendNanos = System.nanoTime();
+    // epoch of the last setpoint sent
+    private long sentEpoch;
+
+    Channel(String name, CircuitBreaker breaker, RateController.Rate rate,
+        boolean neverSkipZero) {
+      this.name = name;
+      this.breaker = breaker;
+      this.rate = rate;
+      this.neverSkipZero = neverSkipZero;
+      breaker.addListener((_, state) -> {
+        if (state == CircuitBreaker.State.CLOSED) {
+          resume();
+        }
+      });
+    }
+
+    // a setpoint has up to four values, the chassis uses two; true if it was answered
+    abstract CompletableFuture<Boolean> send(double a, double b, double c, double d);
+
+    // how long an unchanged setpoint is not repeated
+    long keepAliveNanos() {
+      return Long.MAX_VALUE;
+    }
+
+    void submit(double a, double b, double c, double d, long submitEpoch) {
+      synchronized (this) {
+        if (submitEpoch != epoch) {
+          preempted.incrementAndGet();
+          return;
+        }
+        if (pending) {
+          coalesced.incrementAndGet();
+        }
+        pending = true;
+        pendingA = a;
+        pendingB = b;
+        pendingC = c;
+        pendingD = d;
+        if (inFlight) {
+          return;
+        }
+        inFlight = true;
+      }
+      drain();
+    }
+
+    private void drain() {
+      double a;
+      double b;
+      double c;
+      double d;
+      synchronized (this) {
+        while (true) {
+          if (!pending) {
+            inFlight = false;
+            return;
+          }
+          if (breaker.getState() != CircuitBreaker.State.CLOSED) {
+            // held until the breaker closes, see resume()
+            inFlight = false;
+            return;
+          }
+          pending = false;
+          a = pendingA;
+          b = pendingB;
+          c = pendingC;
+          d = pendingD;
+          long now = System.nanoTime();
+          boolean zero = neverSkipZero && a == 0 && b == 0;
+          if (hasLast && !zero && a == lastA && b == lastB && c == lastC && d == lastD
+              && now - lastSentNanos < keepAliveNanos()) {
+            unchanged.incrementAndGet();
+            continue;
+          }
+          long wait = nextSendNanos - now;
+          if (!zero && wait > 0) {
+            // stays in flight until then, a newer setpoint meanwhile replaces this one
+            pending = true;
+            paced.incrementAndGet();
+            CompletableFuture.delayedExecutor(wait, TimeUnit.NANOSECONDS, DIRECT)
+                .execute(this::drain);
+            return;
+          }
+          nextSendNanos = now + rate.getIntervalNanos();
+          hasLast = true;
+          lastA = a;
+          lastB = b;
+          lastC = c;
+          lastD = d;
+          lastSentNanos = now;
+          sentEpoch = epoch;
+          break;
+        }
+      }
+      sent.incrementAndGet();
+      send(a, b, c, d).whenComplete((answered, _) -> {
+        if (breaker.getState() != CircuitBreaker.State.CLOSED) {
+          forget();
+        }
+        if (!Boolean.TRUE.equals(answered)) {
+          resend();
+        }
+        drain();
+      });
+    }
+
+    private synchronized void forget() {
+      hasLast = false;
+    }
+
+    // the last setpoint was not answered; again unless a stop or a newer one replaced it
+    private synchronized void resend() {
+      if (pending || sentEpoch != epoch) {
+        return;
+      }
+      resent.incrementAndGet();
+      pending = true;
+      pendingA = lastA;
+      pendingB = lastB;
+      pendingC = lastC;
+      pendingD = lastD;
+      hasLast = false;
+    }
+
+    // the breaker closed, the setpoint held meanwhile goes out
+    private void resume() {
+      synchronized (this) {
+        if (!pending || inFlight) {
+          return;
+        }
+        inFlight = true;
+      }
+      drain();
+    }
+
+    // the stop itself is sent on the priority lane
+    synchronized void stop() {
+      epoch++;
+      pending = false;
+      hasLast = false;
+    }
+
+    void logStatistics() {
+      log.info("{}: sent={} coalesced={} unchanged={} preempted={} paced={} resent={}", name,
+          sent.get(), coalesced.get(), unchanged.get(), preempted.get(), paced.get(),
+          resent.get());
+    }
+  }
+}
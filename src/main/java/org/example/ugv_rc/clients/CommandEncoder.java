@@ -0,0 +1,177 @@
+package org.example.ugv_rc.clients;
+
+import java.nio.charset.StandardCharsets;
+import lombok.Getter;
+
+/*
+ * Encodes ESP32 commands as request paths /js?json=... into a reusable byte buffer.
+ *
+ * The JSON is written already URL-encoded, numbers use a fixed number of decimals and
+ * are formatted digit by digit, so encoding allocates nothing; only path() creates the
+ * String the HTTP client needs. The buffer is overwritten by the next command, callers
+ * sharing an encoder must synchronize on it.
+ *
+ * Example: speedControl(0.14, -0.07) -> /js?json=%7B%22T%22%3A1%2C%22L%22%3A0.140%2C...
+ */
+public class CommandEncoder {
+
+  public static final int SPEED_DECIMALS = 3;
+
+  private static final byte[] PREFIX = ascii("/js?json=%7B%22T%22%3A");
+  private static final byte[] FIELD_START = ascii("%2C%22");
+  private static final byte[] FIELD_END = ascii("%22%3A");
+  private static final byte[] SUFFIX = ascii("%7D");
+  private static final byte[] L = ascii("L");
+  private static final byte[] R = ascii("R");
+  private static final byte[] X = ascii("X");
+  private static final byte[] Y = ascii("Y");
+  private static final byte[] SPD = ascii("SPD");
+  private static final byte[] ACC = ascii("ACC");
+  private static final byte[] IO4 = ascii("IO4");
+  private static final byte[] IO5 = ascii("IO5");
+  private static final long[] POW10 = {1, 10, 100, 1000, 10000, 100000, 1000000};
+
+  private final byte[] buffer = new byte[256];
+  private final byte[] digits = new byte[20];
+  @Getter
+  private int length;
+  @Getter
+  private CommandType type;
+
+  /*
+   * CMD_SPEED_CTRL {"T":1,"L":left,"R":right}
+   */
+  public CommandEncoder speedControl(double left, double right) {
+    start(CommandType.SPEED_CTRL);
+    field(L);
+    writeFixed(left, SPEED_DECIMALS);
+    field(R);
+    writeFixed(right, SPEED_DECIMALS);
+    return end();
+  }
+
+  /*
+   * {"T":126}
+   */
+  public CommandEncoder imuData() {
+    start(CommandType.IMU_DATA);
+    return end();
+  }
+
+  /*
+   * CMD_BASE_FEEDBACK {"T":130}
+   */
+  public CommandEncoder baseFeedback() {
+    start(CommandType.BASE_FEEDBACK);
+    return end();
+  }
+
+  /*
+   * CMD_LED_CTRL {"T":132,"IO4":io4,"IO5":io5}
+   */
+  public CommandEncoder ledControl(int io4, int io5) {
+    start(CommandType.LED_CTRL);
+    field(IO4);
+    writeLong(io4);
+    field(IO5);
+    writeLong(io5);
+    return end();
+  }
+
+  /*
+   * CMD_GIMBAL_CTRL_SIMPLE {"T":133,"X":pan,"Y":tilt,"SPD":speed,"ACC":acceleration}
+   */
+  public CommandEncoder gimbalSimple(int pan, int tilt, int speed, int acceleration) {
+    start(CommandType.GIMBAL_CTRL_SIMPLE);
+    field(X);
+    writeLong(pan);
+    field(Y);
+    writeLong(tilt);
+    field(SPD);
+    writeLong(speed);
+    field(ACC);
+    writeLong(acceleration);
+    return end();
+  }
+
+  /*
+   * CMD_GIMBAL_CTRL_STOP {"T":135}
+   */
+  public CommandEncoder gimbalStop() {
+    start(CommandType.GIMBAL_CTRL_STOP);
+    return end();
+  }
+
+  /*
+   * The encoded command; valid until the next command is encoded
+   */
+  public byte[] buffer() {
+    return buffer;
+  }
+
+  public String path() {
+    return new String(buffer, 0, length, StandardCharsets.US_ASCII);
+  }
+
+  private void start(CommandType commandType) {
+    type = commandType;
+    length = 0;
+    write(PREFIX);
+    writeLong(commandType.getCode());
+  }
+
+  private CommandEncoder end() {
+    write(SUFFIX);
+    return this;
+  }
+
+  private void field(byte[] name) {
+    write(FIELD_START);
+    write(name);
+    write(FIELD_END);
+  }
+
+  private void write(byte[] bytes) {
+    System.arraycopy(bytes, 0, buffer, length, bytes.length);
+    length += bytes.length;
+  }
+
+  /*
+   * Writes value rounded half up to the given decimals; NaN and infinities are written as 0
+   */
+  private void writeFixed(double value, int decimals) {
+    if (!Double.isFinite(value)) {
+      value = 0;
+    }
+    long pow = POW10[decimals];
+    long scaled = Math.round(Math.abs(value) * pow);
+    if (value < 0 && scaled != 0) {
+      buffer[length++] = '-';
+    }
+    writeLong(scaled / pow);
+    buffer[length++] = '.';
+    long fraction = scaled % pow;
+    for (long p = pow / 10; p > 0; p /= 10) {
+      buffer[length++] = (byte) ('0' + fraction / p % 10);
+    }
+  }
+
+  private void writeLong(long value) {
+    if (value < 0) {
+      buffer[length++] = '-';
+      value = -value;
+    }
+    int n = 0;
+    do {
+      digits[n++] = (byte) ('0' + value % 10);
+      value /= 10;
+    } while (value != 0);
+    while (n > 0) {
+      buffer[length++] = digits[--n];
+    }
+  }
+
+  private static byte[] ascii(String s) {
+    return s.getBytes(StandardCharsets.US_ASCII);
+  }
+}
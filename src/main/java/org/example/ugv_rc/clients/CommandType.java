@@ -0,0 +1,34 @@
+package org.example.ugv_rc.clients;
+
+import lombok.Getter;
+
+/*
+ * JSON commands of the UGV02 ESP32 web api used by this client, by T code
+ */
+@Getter
+public enum CommandType {
+  SPEED_CTRL(1),
+  IMU_DATA(126),
+  BASE_FEEDBACK(130),
+  LED_CTRL(132),
+  GIMBAL_CTRL_SIMPLE(133),
+  GIMBAL_CTRL_STOP(135);
+
+  private final int code;
+
+  CommandType(int code) {
+    this.code = code;
+  }
+
+  /*
+   * Command type of a T code, null if this client does not send it
+   */
+  public static CommandType fromCode(int code) {
+    for (CommandType type : values()) {
+      if (type.code == code) {
+        return type;
+      }
+    }
+    return null;
+  }
+}
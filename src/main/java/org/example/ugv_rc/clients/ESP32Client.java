@@ -1,47 +1,107 @@
 package org.example.ugv_rc.clients;
 
-import com.fasterxml.jackson.core.JsonFactory;
 import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.node.JsonNodeFactory;
 import java.io.IOException;
-import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import lombok.Getter;
+import lombok.Setter;
 import lombok.extern.slf4j.Slf4j;
-import org.apache.hc.client5.http.config.ConnectionConfig;
-import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
-import org.apache.hc.client5.http.impl.classic.HttpClients;
-import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
-import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManagerBuilder;
-import org.apache.hc.core5.http.ClassicHttpRequest;
-import org.apache.hc.core5.http.HttpEntity;
+import org.apache.hc.client5.http.classic.methods.HttpGet;
 import org.apache.hc.core5.http.HttpHost;
-import org.apache.hc.core5.http.io.support.ClassicRequestBuilder;
-import org.apache.hc.core5.http.message.StatusLine;
-import org.apache.hc.core5.util.TimeValue;
-import org.apache.hc.core5.util.Timeout;
+import org.example.ugv_rc.clients.HttpTransport.BodyReader;
+import org.example.ugv_rc.metrics.CommandEncodedEvent;
+import org.example.ugv_rc.metrics.LinkMetrics;
+import org.example.ugv_rc.recorder.FlightRecorder;
+import org.example.ugv_rc.telemetry.BaseFeedback;
+import org.example.ugv_rc.telemetry.ImuData;
+import org.example.ugv_rc.telemetry.TelemetryParser;
 
 /*
  * References:
  *  - https://www.waveshare.com/wiki/UGV02
  *  - https://www.waveshare.com/wiki/2-Axis_Pan-Tilt_Camera_Module
+ *
+ * Every command has a *_async variant that runs the request on a virtual thread and
+ * returns immediately; the blocking methods wait for it. Callers on the JavaFX thread
+ * must use the async variants.
+ *
+ * While the CircuitBreaker is open, requests complete at once with the same result as a
+ * failed request instead of waiting for the timeout.
+ *
+ * Stops take a priority lane: stop_chassis, cmd_gimbal_ctrl_stop and emergency_stop abort
+ * the motion commands of their actuator that are in flight, drop those not yet sent, and
+ * go out at once, also while the circuit breaker is open. They have a transport of their
+ * own (HttpTransport.PRIORITY), so queries holding every pooled connection do not delay
+ * them, and a stop completes within HttpTransport.PRIORITY.worstCaseMillis().
  */
 
 @Slf4j
-public class ESP32Client {
+public class ESP32Client implements AutoCloseable {
 
-  private final String host;
+  public static final int PAN_MIN = -180;
+  public static final int PAN_MAX = 180;
+  public static final int TILT_MIN = -30;
+  public static final int TILT_MAX = 90;
+
+  /*
+   * Whether a motion command was answered, the body is not read. A request that failed, was
+   * rejected by the circuit breaker or was dropped or aborted by a stop completes with the
+   * fallback false.
+   */
+  private static final BodyReader<Boolean> ANSWERED = _ -> true;
+
+  private final HttpTransport transport;
+  // the priority lane
+  private final HttpTransport stopTransport;
+  private final ExecutorService executor;
+  private final TelemetryParser telemetryParser;
+  private final CommandEncoder encoder;
   private double speedR;
   private double speedL;
-  private int actPan;
-  private int actTilt;
   private boolean panTiltLed;
+  @Getter
+  private final LinkMetrics metrics;
+  @Getter
+  private final CircuitBreaker breaker;
+  @Getter
+  private final RateController rate = new RateController("ESP32");
+  private final Lane chassisLane = new Lane();
+  private final Lane gimbalLane = new Lane();
+  // records every command sent, if set
+  @Setter
+  private volatile FlightRecorder recorder;
 
   public ESP32Client(String host) {
-    this.host = host;
+    this(host, 80);
+  }
+
+  public ESP32Client(String host, int port) {
+    this(host, port, true);
+  }
+
+  /*
+   * evictorThread: false if the owner calls closeIdle() periodically instead
+   */
+  public ESP32Client(String host, int port, boolean evictorThread) {
+    this.transport = new HttpTransport("ESP32Client", new HttpHost(host, port), evictorThread);
+    this.stopTransport = new HttpTransport("ESP32Client stop", new HttpHost(host, port),
+        evictorThread, HttpTransport.PRIORITY);
+    this.executor = Executors.newVirtualThreadPerTaskExecutor();
+    this.telemetryParser = new TelemetryParser();
+    this.encoder = new CommandEncoder();
+    this.metrics = new LinkMetrics("ESP32", channels());
+    this.breaker = new CircuitBreaker("ESP32Client", this::probe);
     this.speedR = 0.14;
     this.speedL = 0.14;
-    this.actPan = 0;
-    this.actTilt = 0;
     this.panTiltLed = false;
   }
 
@@ -67,8 +127,33 @@ public class ESP32Client {
    *  - temp
    */
   public JsonNode get_IMU_data() {
-    String cmd = "{\"T\":126}";
-    return get(cmd);
+    return get_IMU_data_async().join();
+  }
+
+  public CompletableFuture<JsonNode> get_IMU_data_async() {
+    String cmd;
+    synchronized (encoder) {
+      cmd = encoder.imuData().path();
+    }
+    record(CommandType.IMU_DATA, cmd, 0, 0);
+    return getAsync(CommandType.IMU_DATA, cmd);
+  }
+
+  public ImuData get_IMU_data(ImuData target) {
+    return get_IMU_data_async(target).join();
+  }
+
+  public CompletableFuture<ImuData> get_IMU_data_async(ImuData target) {
+    String cmd;
+    synchronized (encoder) {
+      cmd = encoder.imuData().path();
+    }
+    record(CommandType.IMU_DATA, cmd, 0, 0);
+    target.reset();
+    return getAsync(CommandType.IMU_DATA, cmd, body -> {
+      telemetryParser.parse(body, target);
+      return target;
+    }, target);
   }
 
   /*
@@ -81,8 +166,37 @@ public class ESP32Client {
    *    - v
    */
   public JsonNode cmd_base_feedback() {
-    String cmd = "{\"T\":130}";
-    return get(cmd);
+    return cmd_base_feedback_async().join();
+  }
+
+  public CompletableFuture<JsonNode> cmd_base_feedback_async() {
+    String cmd;
+    synchronized (encoder) {
+      cmd = encoder.baseFeedback().path();
+    }
+    record(CommandType.BASE_FEEDBACK, cmd, 0, 0);
+    return getAsync(CommandType.BASE_FEEDBACK, cmd);
+  }
+
+  /*
+   * Parses the feedback straight into target, which is returned;
+   * target is left invalid when the request fails
+   */
+  public BaseFeedback cmd_base_feedback(BaseFeedback target) {
+    return cmd_base_feedback_async(target).join();
+  }
+
+  public CompletableFuture<BaseFeedback> cmd_base_feedback_async(BaseFeedback target) {
+    String cmd;
+    synchronized (encoder) {
+      cmd = encoder.baseFeedback().path();
+    }
+    record(CommandType.BASE_FEEDBACK, cmd, 0, 0);
+    target.reset();
+    return getAsync(CommandType.BASE_FEEDBACK, cmd, body -> {
+      telemetryParser.parse(body, target);
+      return target;
+    }, target);
   }
 
   /*
@@ -91,48 +205,63 @@ public class ESP32Client {
    *  - L, R: speed of the wheel, value range 0.5 - -0.5
    */
   public void cmd_speed_control(MovingDirection direction) {
-    double left = 0;
-    double right = 0;
-    switch (direction) {
-      case NORTH -> {
-        left = speedL;
-        right = speedR;
-      }
-      case NORTHEAST -> {
-        left = speedL;
-        right = speedR * 0.5;
-      }
-      case EAST -> {
-        left = speedL;
-        right = -speedR;
-      }
-      case SOUTHEAST -> {
-        left = -speedL;
-        right = -speedR * 0.5;
-      }
-      case SOUTH -> {
-        left = -speedL;
-        right = -speedR;
-      }
-      case SOUTHWEST -> {
-        left = -speedL * 0.5;
-        right = -speedR;
-      }
-      case WEST -> {
-        left = -speedL;
-        right = speedR;
-      }
-      case NORTHWEST -> {
-        left = speedL * 0.5;
-        right = speedR;
-      }
-      case STOP -> {
-        left = 0;
-        right = 0;
-      }
+    cmd_speed_control_async(direction).join();
+  }
+
+  public CompletableFuture<JsonNode> cmd_speed_control_async(MovingDirection direction) {
+    return cmd_speed_control_async(leftSpeed(direction), rightSpeed(direction));
+  }
+
+  public CompletableFuture<JsonNode> cmd_speed_control_async(double left, double right) {
+    return speedControl(left, right, transport::readTree, JsonNodeFactory.instance.objectNode());
+  }
+
+  // for the CommandCoalescer, see ANSWERED
+  CompletableFuture<Boolean> cmd_speed_control_answered(double left, double right) {
+    return speedControl(left, right, ANSWERED, false);
+  }
+
+  private <T> CompletableFuture<T> speedControl(double left, double right,
+      BodyReader<T> reader, T fallback) {
+    long epoch = chassisLane.epoch();
+    String cmd;
+    synchronized (encoder) {
+      cmd = encoder.speedControl(left, right).path();
     }
-    String cmd = "{\"T\":1,\"L\":" + left + ",\"R\":" + right + "}";
-    get(cmd);
+    record(CommandType.SPEED_CTRL, cmd, left, right);
+    return getAsync(CommandType.SPEED_CTRL, cmd, reader, fallback, chassisLane, epoch);
+  }
+
+  /*
+   * CMD_SPEED_CTRL L=0 R=0 on the priority lane
+   */
+  public void stop_chassis() {
+    stop_chassis_async().join();
+  }
+
+  public CompletableFuture<JsonNode> stop_chassis_async() {
+    chassisLane.abort();
+    String cmd;
+    synchronized (encoder) {
+      cmd = encoder.speedControl(0, 0).path();
+    }
+    record(CommandType.SPEED_CTRL, cmd, 0, 0);
+    return CompletableFuture.supplyAsync(() -> stop(CommandType.SPEED_CTRL, cmd), executor);
+  }
+
+  /*
+   * Stops chassis and gimbal, both on the priority lane
+   */
+  public CompletableFuture<Void> emergency_stop_async() {
+    return CompletableFuture.allOf(stop_chassis_async(), cmd_gimbal_ctrl_stop_async());
+  }
+
+  public double leftSpeed(MovingDirection direction) {
+    return speedL * direction.getLeftFactor();
+  }
+
+  public double rightSpeed(MovingDirection direction) {
+    return speedR * direction.getRightFactor();
   }
 
   /*
@@ -144,47 +273,53 @@ public class ESP32Client {
    *  - ACC: Acceleration, 0 means fastest
    */
   public void cmd_gimbal_ctrl_simple(int pan, int tilt) {
-    String cmd = "{\"T\":133,\"X\":" + pan + ",\"Y\":" + tilt + ",\"SPD\":0,\"ACC\":0} ";
-    actPan = pan;
-    actTilt = tilt;
-    get(cmd);
+    cmd_gimbal_ctrl_simple_async(pan, tilt).join();
+  }
+
+  public CompletableFuture<JsonNode> cmd_gimbal_ctrl_simple_async(int pan, int tilt) {
+    return cmd_gimbal_ctrl_simple_async(pan, tilt, 0, 0);
+  }
+
+  public CompletableFuture<JsonNode> cmd_gimbal_ctrl_simple_async(int pan, int tilt,
+      int speed, int acceleration) {
+    return gimbalSimple(pan, tilt, speed, acceleration, transport::readTree,
+        JsonNodeFactory.instance.objectNode());
+  }
+
+  // for the CommandCoalescer, see ANSWERED
+  CompletableFuture<Boolean> cmd_gimbal_ctrl_simple_answered(int pan, int tilt, int speed,
+      int acceleration) {
+    return gimbalSimple(pan, tilt, speed, acceleration, ANSWERED, false);
+  }
+
+  private <T> CompletableFuture<T> gimbalSimple(int pan, int tilt, int speed,
+      int acceleration, BodyReader<T> reader, T fallback) {
+    long epoch = gimbalLane.epoch();
+    String cmd;
+    synchronized (encoder) {
+      cmd = encoder.gimbalSimple(pan, tilt, speed, acceleration).path();
+    }
+    record(CommandType.GIMBAL_CTRL_SIMPLE, cmd, pan, tilt);
+    return getAsync(CommandType.GIMBAL_CTRL_SIMPLE, cmd, reader, fallback, gimbalLane, epoch);
   }
 
   /*
    * CMD_GIMBAL_CTRL_STOPE
-   * Stops the pan-tilt movement at any time
+   * Stops the pan-tilt movement at any time, on the priority lane
    */
   public void cmd_gimbal_ctrl_stop() {
-    String cmd = "{\"T\":135} ";
-    get(cmd);
+    cmd_gimbal_ctrl_stop_async().join();
   }
 
-  /*
-   * delta_pan: -1 -> step left, 0 -> none, 1 -> step right
-   * delta_tilt: -1 -> step down, 0 -> none, 1 -> step up
-   */
-  public void gimbal_step(int delta_pan, int delta_tilt) {
-    int new_pan = actPan;
-    int new_tilt = actTilt;
-    if (delta_pan < 0) {
-      if (actPan > -180) {
-        new_pan = actPan - 2;
-      }
-    } else if (delta_pan > 0) {
-      if (actPan < 180) {
-        new_pan = actPan + 2;
-      }
-    }
-    if (delta_tilt < 0) {
-      if (actTilt > -30) {
-        new_tilt = actTilt - 2;
-      }
-    } else if (delta_tilt > 0) {
-      if (actTilt < 90) {
-        new_tilt = actTilt + 2;
-      }
+  public CompletableFuture<JsonNode> cmd_gimbal_ctrl_stop_async() {
+    gimbalLane.abort();
+    String cmd;
+    synchronized (encoder) {
+      cmd = encoder.gimbalStop().path();
     }
-    cmd_gimbal_ctrl_simple(new_pan, new_tilt);
+    record(CommandType.GIMBAL_CTRL_STOP, cmd, 0, 0);
+    return CompletableFuture.supplyAsync(() -> stop(CommandType.GIMBAL_CTRL_STOP, cmd),
+        executor);
   }
 
   /*
@@ -192,6 +327,10 @@ public class ESP32Client {
    *  IO5 controls pan-tilt LED
    */
   public void turn_pan_tilt_led() {
+    turn_pan_tilt_led_async().join();
+  }
+
+  public synchronized CompletableFuture<JsonNode> turn_pan_tilt_led_async() {
     int brightness;
     if (!panTiltLed) {
       panTiltLed = true;
@@ -200,56 +339,206 @@ public class ESP32Client {
       panTiltLed = false;
       brightness = 0;
     }
-    String cmd = "{\"T\":132, \"IO4\":0,\"IO5\":" + brightness + "}";
-    get(cmd);
+    String cmd;
+    synchronized (encoder) {
+      cmd = encoder.ledControl(0, brightness).path();
+    }
+    record(CommandType.LED_CTRL, cmd, 0, brightness);
+    return getAsync(CommandType.LED_CTRL, cmd);
+  }
+
+  public boolean warmUp() {
+    String cmd;
+    synchronized (encoder) {
+      cmd = encoder.baseFeedback().path();
+    }
+    // the stop connections too, so that the first stop does not open one
+    return transport.warmUp(request(cmd)) && stopTransport.warmUp(request(cmd));
+  }
+
+  public void closeIdle() {
+    transport.closeIdle();
+    stopTransport.closeIdle();
+  }
+
+  @Override
+  public void close() {
+    breaker.close();
+    executor.shutdownNow();
+    transport.close();
+    stopTransport.close();
+  }
+
+  // one latency histogram per command type, by ordinal
+  private static String[] channels() {
+    CommandType[] types = CommandType.values();
+    String[] channels = new String[types.length];
+    for (CommandType type : types) {
+      channels[type.ordinal()] = "T:" + type.getCode();
+    }
+    return channels;
+  }
+
+  // probe of the circuit breaker, bypasses it
+  private boolean probe() {
+    String cmd;
+    synchronized (encoder) {
+      cmd = encoder.baseFeedback().path();
+    }
+    try {
+      transport.execute(request(cmd));
+      return true;
+    } catch (IOException e) {
+      return !CircuitBreaker.isLinkFailure(e);
+    }
+  }
+
+  // cmd: the encoded command
+  private void record(CommandType type, String cmd, double a, double b) {
+    CommandEncodedEvent.emit(type.getCode(), type.name(), cmd.length());
+    FlightRecorder r = recorder;
+    if (r != null) {
+      r.recordCommand(type.getCode(), a, b);
+    }
+  }
+
+  /*
+   * cmd: request path produced by the CommandEncoder; the request can be aborted
+   */
+  private HttpGet request(String cmd) {
+    return new HttpGet(transport.getHost().toURI() + cmd);
+  }
+
+  private static String describe(String cmd) {
+    return URLDecoder.decode(cmd.substring(cmd.indexOf('=') + 1), StandardCharsets.US_ASCII);
+  }
+
+  /*
+   * Runs the request on a virtual thread; never completes exceptionally,
+   * errors are logged and yield an empty node like the blocking path.
+   */
+  private CompletableFuture<JsonNode> getAsync(CommandType type, String cmd) {
+    return getAsync(type, cmd, transport::readTree, JsonNodeFactory.instance.objectNode());
+  }
+
+  private <T> CompletableFuture<T> getAsync(CommandType type, String cmd, BodyReader<T> reader,
+      T fallback) {
+    return getAsync(type, cmd, reader, fallback, null, 0);
+  }
+
+  private <T> CompletableFuture<T> getAsync(CommandType type, String cmd, BodyReader<T> reader,
+      T fallback, Lane lane, long epoch) {
+    return CompletableFuture.supplyAsync(() -> get(type, cmd, reader, fallback, lane, epoch),
+        executor);
+  }
+
+  /*
+   * lane: of a motion command, which is dropped if the lane was stopped since epoch was
+   * taken and aborted if it is stopped while the request is in flight
+   */
+  private <T> T get(CommandType type, String cmd, BodyReader<T> reader, T fallback, Lane lane,
+      long epoch) {
+    if (!breaker.allowRequest()) {
+      log.debug("ESP32Client unreachable, not sent: {}", type);
+      return fallback;
+    }
+    HttpGet request = request(cmd);
+    if (lane != null && !lane.register(request, epoch)) {
+      log.debug("ESP32Client pre-empted by a stop, not sent: {}", type);
+      return fallback;
+    }
+    try {
+      return send(transport, type, cmd, request, reader, fallback);
+    } finally {
+      if (lane != null) {
+        lane.unregister(request);
+      }
+    }
   }
 
-  private JsonNode get(String cmd) throws RuntimeException {
-    JsonFactory jsonFactory = new JsonFactory();
-    ObjectMapper objectMapper = new ObjectMapper(jsonFactory);
-    JsonNode responseData = JsonNodeFactory.instance.objectNode();
-    PoolingHttpClientConnectionManager connManager;
+  // the priority lane, which bypasses the circuit breaker and the pool of the other requests
+  private JsonNode stop(CommandType type, String cmd) {
+    return send(stopTransport, type, cmd, request(cmd), transport::readTree,
+        JsonNodeFactory.instance.objectNode());
+  }
+
+  /*
+   * Every request is timed into the latency histogram of its command type and into the
+   * rate controller, unless a stop aborted it
+   */
+  private <T> T send(HttpTransport via, CommandType type, String cmd, HttpGet request,
+      BodyReader<T> reader, T fallback) {
+    T responseData = fallback;
     try {
-      connManager = PoolingHttpClientConnectionManagerBuilder.create()
-          .build();
-      {
-        connManager.setDefaultConnectionConfig(ConnectionConfig.custom()
-            .setConnectTimeout(Timeout.ofSeconds(2))
-            .setSocketTimeout(Timeout.ofSeconds(2))
-            .setTimeToLive(TimeValue.ofHours(1))
-            .build());
-        try (CloseableHttpClient client = HttpClients.custom()
-            .setConnectionManager(connManager).build()) {
-          ClassicHttpRequest httpGet = ClassicRequestBuilder.get()
-              .setScheme("http")
-              .setHttpHost(new HttpHost(host))
-              .setPath("/js")
-              .addParameter("json", cmd)
-              .build();
-          log.info("Request: {}", cmd);
-          responseData = client.execute(httpGet, response -> {
-            if (response.getCode() >= 300) {
-              log.error(new StatusLine(response).toString());
-              client.close();
-              throw new RuntimeException("ESPClientError");
-            }
-            final HttpEntity responseEntity = response.getEntity();
-            if (responseEntity == null) {
-              return JsonNodeFactory.instance.objectNode();
-            }
-            try (InputStream inputStream = responseEntity.getContent()) {
-              return objectMapper.readTree(inputStream);
-            }
-          });
-          log.info("Response: {}", responseData);
-        } catch (IOException e) {
-          log.error("ESP32Client error: {}", e.getMessage());
+      if (log.isDebugEnabled()) {
+        log.debug("Request: {}", describe(cmd));
+      }
+      long start = System.nanoTime();
+      T result = via.execute(request, type.getCode(), reader);
+      long elapsed = System.nanoTime() - start;
+      metrics.record(type.ordinal(), elapsed);
+      rate.onResponse(elapsed);
+      breaker.onSuccess();
+      if (result != null) {
+        responseData = result;
+      }
+      log.debug("Response: {}", responseData);
+    } catch (IOException e) {
+      if (request.isCancelled()) {
+        log.debug("ESP32Client aborted by a stop: {}", type);
+      } else if (e instanceof InterruptedIOException) {
+        metrics.recordTimeout(type.ordinal());
+        rate.onLoss();
+        breaker.onFailure();
+        log.error("ESP32Client timeout: {}", e.getMessage());
+      } else {
+        metrics.recordError(type.ordinal());
+        // an error status or body is an answer of the device, not a loss
+        if (CircuitBreaker.isLinkFailure(e)) {
+          rate.onLoss();
         }
-        return responseData;
+        breaker.onError(e);
+        log.error("ESP32Client error: {}", e.getMessage());
       }
     } catch (RuntimeException e) {
+      metrics.recordError(type.ordinal());
       log.error(e.getMessage());
     }
     return responseData;
   }
-}
\ No newline at end of file
+
+  /*
+   * Motion commands of one actuator in flight; a stop of the lane aborts them and drops
+   * those not yet registered
+   */
+  private static final class Lane {
+
+    private final AtomicLong epoch = new AtomicLong();
+    private final Set<HttpGet> inFlight = ConcurrentHashMap.newKeySet();
+
+    long epoch() {
+      return epoch.get();
+    }
+
+    // false if the lane was stopped since expected was taken
+    boolean register(HttpGet request, long expected) {
+      inFlight.add(request);
+      if (epoch.get() != expected) {
+        inFlight.remove(request);
+        return false;
+      }
+      return true;
+    }
+
+    void unregister(HttpGet request) {
+      inFlight.remove(request);
+    }
+
+    void abort() {
+      epoch.incrementAndGet();
+      for (HttpGet request : inFlight) {
+        request.cancel();
+      }
+    }
+  }
+}
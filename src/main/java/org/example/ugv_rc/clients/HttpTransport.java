@@ -0,0 +1,222 @@
+package org.example.ugv_rc.clients;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import java.io.IOException;
+import java.io.InputStream;
+import javax.net.ssl.SSLException;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.hc.client5.http.HttpResponseException;
+import org.apache.hc.client5.http.config.ConnectionConfig;
+import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.client5.http.impl.DefaultHttpRequestRetryStrategy;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.client5.http.impl.classic.HttpClientBuilder;
+import org.apache.hc.client5.http.impl.classic.HttpClients;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManagerBuilder;
+import org.apache.hc.client5.http.ssl.TlsSocketStrategy;
+import org.apache.hc.core5.http.ClassicHttpRequest;
+import org.apache.hc.core5.http.HttpEntity;
+import org.apache.hc.core5.http.HttpHost;
+import org.apache.hc.core5.http.io.SocketConfig;
+import org.apache.hc.core5.http.message.StatusLine;
+import org.apache.hc.core5.io.CloseMode;
+import org.apache.hc.core5.util.TimeValue;
+import org.apache.hc.core5.util.Timeout;
+import org.example.ugv_rc.metrics.InputEvent;
+import org.example.ugv_rc.metrics.RequestEvent;
+
+/*
+ * Long-lived HTTP transport to one device.
+ *
+ * The connection manager, client and object mapper are created once and kept for the
+ * lifetime of the device client, so consecutive commands reuse the same keep-alive
+ * connection instead of paying a TCP handshake per request. Stale connections are
+ * validated after inactivity and a request that fails on a dropped connection is
+ * retried once on a fresh one. Idle connections are closed by an evictor thread of the
+ * client, or, with many devices sharing one scheduler, by its calls of closeIdle().
+ * A Profile sets the pool size and timeouts, see PRIORITY for the stops of a device.
+ */
+@Slf4j
+public class HttpTransport implements AutoCloseable {
+
+  private static final TimeValue VALIDATE_AFTER_INACTIVITY = TimeValue.ofSeconds(1);
+  private static final TimeValue IDLE_EVICTION = TimeValue.ofSeconds(30);
+  // the devices speak plain HTTP; the default strategy loads the trust store up front
+  private static final TlsSocketStrategy NO_TLS = (socket, target, port, attachment, context) -> {
+    throw new SSLException("TLS not supported: " + target);
+  };
+
+  /*
+   * Pool size, timeouts and retries of a transport. A request takes at most
+   * connectionRequestTimeout waiting for a pooled connection, connectTimeout opening it
+   * and socketTimeout for the response; timeouts are not retried.
+   */
+  public record Profile(int maxConnections, Timeout connectionRequestTimeout,
+      Timeout connectTimeout, Timeout socketTimeout, int retries) {
+
+    public long worstCaseMillis() {
+      return connectionRequestTimeout.toMilliseconds() + connectTimeout.toMilliseconds()
+          + socketTimeout.toMilliseconds();
+    }
+  }
+
+  // commands and queries of a device; a request queued for a connection longer than one
+  // round trip may take fails as a timeout instead of running long after it was given up
+  public static final Profile DEFAULT = new Profile(4, Timeout.ofSeconds(4),
+      Timeout.ofSeconds(2), Timeout.ofSeconds(2), 1);
+  // stops: connections no other request holds, enough for an emergency stop of both
+  // actuators and one more stop of each meanwhile; short timeouts, no retry
+  public static final Profile PRIORITY = new Profile(4, Timeout.ofMilliseconds(250),
+      Timeout.ofMilliseconds(500), Timeout.ofSeconds(1), 0);
+
+  @Getter
+  private final String name;
+  @Getter
+  private final HttpHost host;
+  private final PoolingHttpClientConnectionManager connManager;
+  private final CloseableHttpClient client;
+  private final ObjectMapper objectMapper;
+
+  public HttpTransport(String name, HttpHost host) {
+    this(name, host, true);
+  }
+
+  /*
+   * evictorThread: false if the owner calls closeIdle() periodically instead
+   */
+  public HttpTransport(String name, HttpHost host, boolean evictorThread) {
+    this(name, host, evictorThread, DEFAULT);
+  }
+
+  public HttpTransport(String name, HttpHost host, boolean evictorThread, Profile profile) {
+    this.name = name;
+    this.host = host;
+    this.objectMapper = new ObjectMapper(new JsonFactory());
+    this.connManager = PoolingHttpClientConnectionManagerBuilder.create()
+        .setMaxConnTotal(profile.maxConnections())
+        .setMaxConnPerRoute(profile.maxConnections())
+        .setTlsSocketStrategy(NO_TLS)
+        .setDefaultSocketConfig(SocketConfig.custom()
+            .setTcpNoDelay(true)
+            .setSoKeepAlive(true)
+            .build())
+        .setDefaultConnectionConfig(ConnectionConfig.custom()
+            .setConnectTimeout(profile.connectTimeout())
+            .setSocketTimeout(profile.socketTimeout())
+            .setValidateAfterInactivity(VALIDATE_AFTER_INACTIVITY)
+            .setTimeToLive(TimeValue.ofHours(1))
+            .build())
+        .build();
+    HttpClientBuilder builder = HttpClients.custom()
+        .setConnectionManager(connManager)
+        .setDefaultRequestConfig(RequestConfig.custom()
+            .setConnectionRequestTimeout(profile.connectionRequestTimeout())
+            .build())
+        .setRetryStrategy(new DefaultHttpRequestRetryStrategy(profile.retries(),
+            TimeValue.ZERO_MILLISECONDS));
+    if (evictorThread) {
+      builder.evictExpiredConnections().evictIdleConnections(IDLE_EVICTION);
+    }
+    this.client = builder.build();
+  }
+
+  // what the evictor thread does, for a transport without one
+  public void closeIdle() {
+    connManager.closeExpired();
+    connManager.closeIdle(IDLE_EVICTION);
+  }
+
+  /*
+   * Executes the request on a pooled connection and returns the response body as a tree.
+   * Responses without a body yield an empty object node.
+   */
+  public JsonNode execute(ClassicHttpRequest request) throws IOException {
+    JsonNode tree = execute(request, this::readTree);
+    return tree != null ? tree : JsonNodeFactory.instance.objectNode();
+  }
+
+  /*
+   * Executes the request on a pooled connection and hands the response body to the reader.
+   * Responses without a body yield null.
+   */
+  public <T> T execute(ClassicHttpRequest request, BodyReader<T> reader) throws IOException {
+    return execute(request, 0, reader);
+  }
+
+  /*
+   * As execute(ClassicHttpRequest, BodyReader), recorded as a RequestEvent with code, the
+   * T code of an ESP32 command
+   */
+  public <T> T execute(ClassicHttpRequest request, int code, BodyReader<T> reader)
+      throws IOException {
+    RequestEvent event = new RequestEvent();
+    event.begin();
+    try {
+      return client.execute(host, request, response -> {
+        event.status = response.getCode();
+        if (response.getCode() >= 300) {
+          log.error("{}: {}", name, new StatusLine(response));
+          throw new HttpResponseException(response.getCode(), response.getReasonPhrase());
+        }
+        final HttpEntity responseEntity = response.getEntity();
+        if (responseEntity == null) {
+          return null;
+        }
+        event.responseBytes = responseEntity.getContentLength();
+        try (InputStream inputStream = responseEntity.getContent()) {
+          return reader.read(inputStream);
+        }
+      });
+    } catch (IOException | RuntimeException e) {
+      event.error = e.getClass().getSimpleName();
+      throw e;
+    } finally {
+      event.end();
+      if (event.shouldCommit()) {
+        event.device = name;
+        event.code = code;
+        event.path = request.getRequestUri();
+        event.sinceInput = InputEvent.sinceLastNanos();
+        event.commit();
+      }
+    }
+  }
+
+  /*
+   * Reads a response body as a tree; the BodyReader of execute(ClassicHttpRequest)
+   */
+  public JsonNode readTree(InputStream body) throws IOException {
+    return objectMapper.readTree(body);
+  }
+
+  /*
+   * Opens the keep-alive connection ahead of the first real command.
+   * The probe should be a read-only request of the device.
+   */
+  public boolean warmUp(ClassicHttpRequest probe) {
+    try {
+      execute(probe);
+      log.info("{}: connection to {} established", name, host);
+      return true;
+    } catch (IOException e) {
+      log.warn("{}: warm-up failed: {}", name, e.getMessage());
+      return false;
+    }
+  }
+
+  @FunctionalInterface
+  public interface BodyReader<T> {
+
+    T read(InputStream body) throws IOException;
+  }
+
+  @Override
+  public void close() {
+    client.close(CloseMode.GRACEFUL);
+  }
+}
@@ -1,82 +1,179 @@
 package org.example.ugv_rc.clients;
 
-import com.fasterxml.jackson.core.JsonFactory;
 import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.node.JsonNodeFactory;
 import java.io.IOException;
-import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
-import org.apache.hc.client5.http.config.ConnectionConfig;
-import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
-import org.apache.hc.client5.http.impl.classic.HttpClients;
-import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
-import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManagerBuilder;
 import org.apache.hc.core5.http.ClassicHttpRequest;
-import org.apache.hc.core5.http.HttpEntity;
 import org.apache.hc.core5.http.HttpHost;
 import org.apache.hc.core5.http.io.support.ClassicRequestBuilder;
-import org.apache.hc.core5.http.message.StatusLine;
-import org.apache.hc.core5.util.TimeValue;
-import org.apache.hc.core5.util.Timeout;
+import org.example.ugv_rc.metrics.LinkMetrics;
+import org.example.ugv_rc.telemetry.PowerStatus;
+import org.example.ugv_rc.telemetry.TelemetryParser;
 
+/*
+ * While the CircuitBreaker is open, requests return at once with the same result as a
+ * failed request instead of waiting for the timeout.
+ */
 @Slf4j
-public class JetsonOrinNanoClient {
+public class JetsonOrinNanoClient implements AutoCloseable {
 
-  private final String host;
+  public static final String POWER_STATUS = "/ugv_power_status";
+
+  // latency histograms by endpoint
+  private static final int CHANNEL_POWER_STATUS = 0;
+  private static final int CHANNEL_OTHER = 1;
+
+  private final HttpTransport transport;
+  private final ExecutorService executor;
+  private final TelemetryParser telemetryParser;
+  @Getter
+  private final LinkMetrics metrics = new LinkMetrics("Jetson", POWER_STATUS, "other");
+  @Getter
+  private final CircuitBreaker breaker = new CircuitBreaker("JetsonOrinNanoClient", this::probe);
+  @Getter
+  private final RateController rate = new RateController("Jetson");
 
   public JetsonOrinNanoClient(String host) {
-    this.host = host;
+    this(host, 8000);
+  }
+
+  public JetsonOrinNanoClient(String host, int port) {
+    this(host, port, true);
+  }
+
+  /*
+   * evictorThread: false if the owner calls closeIdle() periodically instead
+   */
+  public JetsonOrinNanoClient(String host, int port, boolean evictorThread) {
+    this.transport = new HttpTransport("JetsonOrinNanoClient", new HttpHost(host, port),
+        evictorThread);
+    this.executor = Executors.newVirtualThreadPerTaskExecutor();
+    this.telemetryParser = new TelemetryParser();
+  }
+
+  public CompletableFuture<JsonNode> getAsync(String path) {
+    return CompletableFuture.supplyAsync(() -> get(path), executor);
   }
 
   public JsonNode get(String path) throws RuntimeException {
-    JsonFactory jsonFactory = new JsonFactory();
-    ObjectMapper objectMapper = new ObjectMapper(jsonFactory);
     JsonNode responseData = JsonNodeFactory.instance.objectNode();
-    PoolingHttpClientConnectionManager connManager;
+    int channel = POWER_STATUS.equals(path) ? CHANNEL_POWER_STATUS : CHANNEL_OTHER;
+    if (!breaker.allowRequest()) {
+      log.debug("Jetson Orin unreachable, not sent: {}", path);
+      return responseData;
+    }
     try {
-      connManager = PoolingHttpClientConnectionManagerBuilder.create()
-          .build();
-      {
-        connManager.setDefaultConnectionConfig(ConnectionConfig.custom()
-            .setConnectTimeout(Timeout.ofSeconds(2))
-            .setSocketTimeout(Timeout.ofSeconds(2))
-            .setTimeToLive(TimeValue.ofHours(1))
-            .build());
-        try (CloseableHttpClient client = HttpClients.custom()
-            .setConnectionManager(connManager).build()) {
-          ClassicHttpRequest httpGet = ClassicRequestBuilder.get()
-              .setScheme("http")
-              .setHttpHost(new HttpHost(host, 8000))
-              .setPath(path)
-              .build();
-          log.info("Request: {}", path);
-          responseData = client.execute(httpGet, response -> {
-            if (response.getCode() >= 300) {
-              log.error(new StatusLine(response).toString());
-              client.close();
-              throw new RuntimeException("JetsonClientError");
-            }
-            final HttpEntity responseEntity = response.getEntity();
-            if (responseEntity == null) {
-              return JsonNodeFactory.instance.objectNode();
-            }
-            try (InputStream inputStream = responseEntity.getContent()) {
-              return objectMapper.readTree(inputStream);
-            }
-          });
-          if (responseData != null) {
-            if (!responseData.isEmpty()) {
-              log.info("Response: {}", responseData);
-            }
-          }
-        } catch (IOException e) {
-          log.error("Jetson Orin error: {}", e.getMessage());
+      log.debug("Request: {}", path);
+      long start = System.nanoTime();
+      responseData = transport.execute(request(path));
+      long elapsed = System.nanoTime() - start;
+      metrics.record(channel, elapsed);
+      rate.onResponse(elapsed);
+      breaker.onSuccess();
+      if (responseData != null) {
+        if (!responseData.isEmpty()) {
+          log.debug("Response: {}", responseData);
         }
       }
+    } catch (InterruptedIOException e) {
+      metrics.recordTimeout(channel);
+      rate.onLoss();
+      breaker.onFailure();
+      log.error("Jetson Orin timeout: {}", e.getMessage());
+    } catch (IOException e) {
+      metrics.recordError(channel);
+      // an error status or body is an answer of the device, not a loss
+      if (CircuitBreaker.isLinkFailure(e)) {
+        rate.onLoss();
+      }
+      breaker.onError(e);
+      log.error("Jetson Orin error: {}", e.getMessage());
     } catch (RuntimeException e) {
+      metrics.recordError(channel);
       log.error(e.getMessage());
     }
     return responseData;
   }
+
+  /*
+   * INA219 readings of /ugv_power_status parsed straight into target, which is returned;
+   * target is left invalid when the request fails
+   */
+  public PowerStatus getPowerStatus(PowerStatus target) {
+    target.reset();
+    if (!breaker.allowRequest()) {
+      log.debug("Jetson Orin unreachable, not sent: {}", POWER_STATUS);
+      return target;
+    }
+    try {
+      log.debug("Request: {}", POWER_STATUS);
+      long start = System.nanoTime();
+      transport.execute(request(POWER_STATUS), body -> telemetryParser.parse(body, target));
+      long elapsed = System.nanoTime() - start;
+      metrics.record(CHANNEL_POWER_STATUS, elapsed);
+      rate.onResponse(elapsed);
+      breaker.onSuccess();
+      log.debug("Response: {}", target);
+    } catch (InterruptedIOException e) {
+      metrics.recordTimeout(CHANNEL_POWER_STATUS);
+      rate.onLoss();
+      breaker.onFailure();
+      log.error("Jetson Orin timeout: {}", e.getMessage());
+    } catch (IOException e) {
+      metrics.recordError(CHANNEL_POWER_STATUS);
+      // an error status or body is an answer of the device, not a loss
+      if (CircuitBreaker.isLinkFailure(e)) {
+        rate.onLoss();
+      }
+      breaker.onError(e);
+      log.error("Jetson Orin error: {}", e.getMessage());
+    } catch (RuntimeException e) {
+      metrics.recordError(CHANNEL_POWER_STATUS);
+      log.error(e.getMessage());
+    }
+    return target;
+  }
+
+  public CompletableFuture<PowerStatus> getPowerStatusAsync(PowerStatus target) {
+    return CompletableFuture.supplyAsync(() -> getPowerStatus(target), executor);
+  }
+
+  public boolean warmUp() {
+    return transport.warmUp(request(POWER_STATUS));
+  }
+
+  public void closeIdle() {
+    transport.closeIdle();
+  }
+
+  @Override
+  public void close() {
+    breaker.close();
+    executor.shutdownNow();
+    transport.close();
+  }
+
+  // probe of the circuit breaker, bypasses it
+  private boolean probe() {
+    try {
+      transport.execute(request(POWER_STATUS));
+      return true;
+    } catch (IOException e) {
+      return !CircuitBreaker.isLinkFailure(e);
+    }
+  }
+
+  private ClassicHttpRequest request(String path) {
+    return ClassicRequestBuilder.get()
+        .setScheme("http")
+        .setHttpHost(transport.getHost())
+        .setPath(path)
+        .build();
+  }
 }
@@ -1,13 +1,40 @@
 package org.example.ugv_rc.clients;
 
+import lombok.Getter;
+
+/*
+ * leftFactor, rightFactor: share of the selected speed applied to the left and right wheels
+ */
+@Getter
 public enum MovingDirection {
-  NORTH,
-  NORTHEAST,
-  EAST,
-  SOUTHEAST,
-  SOUTH,
-  SOUTHWEST,
-  WEST,
-  NORTHWEST,
-  STOP
+  NORTH(1, 1),
+  NORTHEAST(1, 0.5),
+  EAST(1, -1),
+  SOUTHEAST(-1, -0.5),
+  SOUTH(-1, -1),
+  SOUTHWEST(-0.5, -1),
+  WEST(-1, 1),
+  NORTHWEST(0.5, 1),
+  STOP(0, 0);
+
+  private final double leftFactor;
+  private final double rightFactor;
+
+  MovingDirection(double leftFactor, double rightFactor) {
+    this.leftFactor = leftFactor;
+    this.rightFactor = rightFactor;
+  }
+
+  /*
+   * east: -1 -> west, 0 -> none, 1 -> east
+   * north: -1 -> south, 0 -> none, 1 -> north
+   */
+  public static MovingDirection of(int east, int north) {
+    if (north > 0) {
+      return east > 0 ? NORTHEAST : east < 0 ? NORTHWEST : NORTH;
+    } else if (north < 0) {
+      return east > 0 ? SOUTHEAST : east < 0 ? SOUTHWEST : SOUTH;
+    }
+    return east > 0 ? EAST : east < 0 ? WEST : STOP;
+  }
 }
@@ -0,0 +1,182 @@
+package org.example.ugv_rc.clients;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+import lombok.extern.slf4j.Slf4j;
+import org.example.ugv_rc.telemetry.BaseFeedback;
+import org.example.ugv_rc.telemetry.ImuData;
+import org.example.ugv_rc.telemetry.PowerStatus;
+
+/*
+ * Read-only stage in front of ESP32Client and JetsonOrinNanoClient for the queries any
+ * number of consumers may issue: base feedback (T:130), IMU data (T:126) and the Jetson
+ * power status.
+ *
+ * Each query has at most one request in flight. A caller arriving while it is in flight
+ * waits for that request instead of sending its own, and a valid result younger than the
+ * TTL is served without a request at all, so all consumers together cost one device
+ * request per TTL. Failed requests are not cached. Like the clients, the queries parse
+ * into reusable values: every caller passes its own target, which the result is copied
+ * into.
+ */
+@Slf4j
+public class QueryCache {
+
+  public static final long DEFAULT_TTL_MILLIS = 250;
+
+  private final Query<BaseFeedback> baseFeedback;
+  private final Query<ImuData> imuData;
+  private final Query<PowerStatus> powerStatus;
+
+  /*
+   * ttlMillis: how long a result is served from the cache, 0 to only collapse concurrent
+   * requests; jetson: null if the power status is not queried, it then stays invalid
+   */
+  public QueryCache(ESP32Client ugv, JetsonOrinNanoClient jetson, long ttlMillis) {
+    long ttlNanos = TimeUnit.MILLISECONDS.toNanos(ttlMillis);
+    this.baseFeedback = new Query<>("base feedback", ttlNanos, BaseFeedback::new,
+        ugv::cmd_base_feedback_async, (from, to) -> to.copyFrom(from), BaseFeedback::isValid);
+    this.imuData = new Query<>("IMU data", ttlNanos, ImuData::new, ugv::get_IMU_data_async,
+        (from, to) -> to.copyFrom(from), ImuData::isValid);
+    this.powerStatus = new Query<>("power status", ttlNanos, PowerStatus::new,
+        jetson != null ? jetson::getPowerStatusAsync : CompletableFuture::completedFuture,
+        (from, to) -> to.copyFrom(from), PowerStatus::isValid);
+  }
+
+  // target is left invalid when the request fails
+  public CompletableFuture<BaseFeedback> baseFeedback(BaseFeedback target) {
+    return baseFeedback.get(target);
+  }
+
+  public CompletableFuture<ImuData> imuData(ImuData target) {
+    return imuData.get(target);
+  }
+
+  public CompletableFuture<PowerStatus> powerStatus(PowerStatus target) {
+    return powerStatus.get(target);
+  }
+
+  // answered from the cache
+  public long getHitCount() {
+    return baseFeedback.hits.get() + imuData.hits.get() + powerStatus.hits.get();
+  }
+
+  // sent to the device
+  public long getMissCount() {
+    return baseFeedback.misses.get() + imuData.misses.get() + powerStatus.misses.get();
+  }
+
+  // joined a request already in flight
+  public long getCollapsedCount() {
+    return baseFeedback.collapsed.get() + imuData.collapsed.get() + powerStatus.collapsed.get();
+  }
+
+  public String summary() {
+    return String.format("queries: %d hit, %d miss, %d collapsed", getHitCount(),
+        getMissCount(), getCollapsedCount());
+  }
+
+  public void logStatistics() {
+    baseFeedback.logStatistics();
+    imuData.logStatistics();
+    powerStatus.logStatistics();
+  }
+
+  private static final class Query<T> {
+
+    private final String name;
+    private final long ttlNanos;
+    private final Function<T, CompletableFuture<T>> request;
+    private final BiConsumer<T, T> copy;
+    private final Predicate<T> valid;
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong collapsed = new AtomicLong();
+    // guarded by this; the request parses into fetching, which becomes cached if valid
+    private T cached;
+    private T fetching;
+    private boolean hasCached;
+    private long cachedNanos;
+    private boolean inFlight;
+    private final List<Waiter<T>> waiters = new ArrayList<>();
+
+    Query(String name, long ttlNanos, Supplier<T> values,
+        Function<T, CompletableFuture<T>> request, BiConsumer<T, T> copy, Predicate<T> valid) {
+      this.name = name;
+      this.ttlNanos = ttlNanos;
+      this.request = request;
+      this.copy = copy;
+      this.valid = valid;
+      this.cached = values.get();
+      this.fetching = values.get();
+    }
+
+    CompletableFuture<T> get(T target) {
+      CompletableFuture<T> result;
+      T value;
+      synchronized (this) {
+        if (hasCached && System.nanoTime() - cachedNanos < ttlNanos) {
+          hits.incrementAndGet();
+          copy.accept(cached, target);
+          return CompletableFuture.completedFuture(target);
+        }
+        result = new CompletableFuture<>();
+        waiters.add(new Waiter<>(target, result));
+        if (inFlight) {
+          collapsed.incrementAndGet();
+          return result;
+        }
+        inFlight = true;
+        misses.incrementAndGet();
+        // not touched by anyone else until the request completes
+        value = fetching;
+      }
+      try {
+        request.apply(value).whenComplete((_, _) -> complete());
+      } catch (RuntimeException e) {
+        // the client is closed, the waiters get the invalid value
+        log.debug("{}: {}", name, e.getMessage());
+        complete();
+      }
+      return result;
+    }
+
+    private void complete() {
+      List<Waiter<T>> done;
+      synchronized (this) {
+        inFlight = false;
+        T result = fetching;
+        if (valid.test(result)) {
+          fetching = cached;
+          cached = result;
+          cachedNanos = System.nanoTime();
+          hasCached = true;
+        }
+        for (Waiter<T> waiter : waiters) {
+          copy.accept(result, waiter.target);
+        }
+        done = new ArrayList<>(waiters);
+        waiters.clear();
+      }
+      // outside the lock, the callers' stages run on this thread
+      for (Waiter<T> waiter : done) {
+        waiter.result.complete(waiter.target);
+      }
+    }
+
+    void logStatistics() {
+      log.info("{}: hits={} misses={} collapsed={}", name, hits.get(), misses.get(),
+          collapsed.get());
+    }
+  }
+
+  private record Waiter<T>(T target, CompletableFuture<T> result) {
+  }
+}
@@ -0,0 +1,157 @@
+package org.example.ugv_rc.clients;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+/*
+ * Link estimate of one device and the request rates that follow it.
+ *
+ * The client reports every answered request with its round trip time and every timeout
+ * or failed connection as a loss. From these the controller keeps the smoothed round trip
+ * time and its variation as TCP does (RFC 6298), the loss rate, and the base round trip
+ * time, the smallest of the last BASE_WINDOW.
+ *
+ * Each Rate is an interval between requests within its own bounds, adjusted AIMD-style:
+ * a loss, or a round trip time more than twice the base plus QUEUE_SLACK, halves the rate,
+ * at most once per round trip; otherwise the rate grows by a sixteenth of its range per
+ * round trip. All rates of a device see the same link and move together.
+ */
+@Slf4j
+public class RateController {
+
+  // an answer this much later than twice the base round trip time means a queue
+  private static final long QUEUE_SLACK_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+  private static final long BASE_WINDOW_NANOS = TimeUnit.SECONDS.toNanos(10);
+  // until the first answer
+  private static final long INITIAL_RTO_NANOS = TimeUnit.SECONDS.toNanos(1);
+  private static final double LOSS_GAIN = 1.0 / 16;
+  private static final int INCREASE_STEPS = 16;
+
+  /*
+   * Range of the interval between two requests in ms
+   */
+  public record Bounds(long minMillis, long maxMillis) {
+
+    public Bounds {
+      if (minMillis < 1 || maxMillis < minMillis) {
+        throw new IllegalArgumentException("rate bounds " + minMillis + ".." + maxMillis
+            + " ms");
+      }
+    }
+  }
+
+  @Getter
+  private final String device;
+  private final List<Rate> rates = new CopyOnWriteArrayList<>();
+  // guarded by this, published through the volatile fields
+  private boolean sampled;
+  private long rttVarNanos;
+  private long baseRttNanos = Long.MAX_VALUE;
+  private long previousBaseRttNanos = Long.MAX_VALUE;
+  private long baseWindowStartNanos;
+  @Getter
+  private volatile long smoothedRttNanos;
+  @Getter
+  private volatile long rtoNanos = INITIAL_RTO_NANOS;
+  @Getter
+  private volatile double lossRate;
+
+  public RateController(String device) {
+    this.device = device;
+  }
+
+  /*
+   * A request interval of this device, starting at its shortest
+   */
+  public Rate rate(String name, Bounds bounds) {
+    Rate rate = new Rate(name, bounds);
+    rates.add(rate);
+    return rate;
+  }
+
+  public synchronized void onResponse(long rttNanos) {
+    long now = System.nanoTime();
+    if (!sampled) {
+      sampled = true;
+      smoothedRttNanos = rttNanos;
+      rttVarNanos = rttNanos / 2;
+      baseWindowStartNanos = now;
+    } else {
+      rttVarNanos += (Math.abs(smoothedRttNanos - rttNanos) - rttVarNanos) / 4;
+      smoothedRttNanos += (rttNanos - smoothedRttNanos) / 8;
+    }
+    rtoNanos = smoothedRttNanos + 4 * rttVarNanos;
+    lossRate -= lossRate * LOSS_GAIN;
+    if (now - baseWindowStartNanos >= BASE_WINDOW_NANOS) {
+      previousBaseRttNanos = baseRttNanos;
+      baseRttNanos = Long.MAX_VALUE;
+      baseWindowStartNanos = now;
+    }
+    baseRttNanos = Math.min(baseRttNanos, rttNanos);
+    long base = Math.min(baseRttNanos, previousBaseRttNanos);
+    adjust(rttNanos > 2 * base + QUEUE_SLACK_NANOS, now);
+  }
+
+  public synchronized void onLoss() {
+    lossRate += (1 - lossRate) * LOSS_GAIN;
+    adjust(true, System.nanoTime());
+  }
+
+  public void logStatistics() {
+    log.info(summary());
+  }
+
+  public String summary() {
+    StringBuilder summary = new StringBuilder(String.format(
+        "%s rtt %.1f ms, rto %.0f ms, loss %.1f %%", device, smoothedRttNanos / 1e6,
+        rtoNanos / 1e6, lossRate * 100));
+    for (Rate rate : rates) {
+      summary.append(String.format(", %s %d ms", rate.name,
+          TimeUnit.NANOSECONDS.toMillis(rate.intervalNanos)));
+    }
+    return summary.toString();
+  }
+
+  // under this
+  private void adjust(boolean congested, long now) {
+    // once per round trip, so that a burst of late answers counts once
+    long rtt = Math.max(smoothedRttNanos, 1);
+    for (Rate rate : rates) {
+      if (now - rate.lastAdjustNanos < rtt) {
+        continue;
+      }
+      rate.lastAdjustNanos = now;
+      double hz = congested ? rate.hz / 2 : rate.hz + (rate.maxHz - rate.minHz) / INCREASE_STEPS;
+      rate.hz = Math.clamp(hz, rate.minHz, rate.maxHz);
+      long intervalNanos = (long) (1e9 / rate.hz);
+      if (congested && intervalNanos != rate.intervalNanos) {
+        log.debug("{} {}: {} ms", device, rate.name, TimeUnit.NANOSECONDS.toMillis(intervalNanos));
+      }
+      rate.intervalNanos = intervalNanos;
+    }
+  }
+
+  public static final class Rate {
+
+    @Getter
+    private final String name;
+    private final double minHz;
+    private final double maxHz;
+    // guarded by the controller
+    private double hz;
+    private long lastAdjustNanos = System.nanoTime();
+    @Getter
+    private volatile long intervalNanos;
+
+    private Rate(String name, Bounds bounds) {
+      this.name = name;
+      this.minHz = 1000.0 / bounds.maxMillis();
+      this.maxHz = 1000.0 / bounds.minMillis();
+      this.hz = maxHz;
+      this.intervalNanos = TimeUnit.MILLISECONDS.toNanos(bounds.minMillis());
+    }
+  }
+}
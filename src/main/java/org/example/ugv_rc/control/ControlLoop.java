@@ -0,0 +1,242 @@
+package org.example.ugv_rc.control;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.LongSupplier;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.example.ugv_rc.clients.CommandCoalescer;
+import org.example.ugv_rc.clients.MovingDirection;
+
+/*
+ * Single fixed-rate control loop, shared by all vehicles.
+ *
+ * Each tick samples the OperatorIntent of every attached vehicle and emits at most one
+ * chassis and one gimbal command per vehicle through its CommandCoalescer, which never
+ * blocks; gimbal setpoints come from a GimbalPlanner per vehicle.
+ * A held direction takes precedence over the analog wheel speeds and gimbal rate of the
+ * intent. Ticks are scheduled against absolute deadlines; when the loop falls behind by
+ * one period or more the missed ticks are skipped, never replayed in a burst. Periodic
+ * tasks (e.g. feedback polling) run on the loop thread and must not block.
+ */
+@Slf4j
+public class ControlLoop implements AutoCloseable {
+
+  // the last part of the wait is spun to keep wake-up jitter low
+  private static final long SPIN_NANOS = TimeUnit.MICROSECONDS.toNanos(100);
+
+  private final long periodNanos;
+  private final List<Binding> bindings = new CopyOnWriteArrayList<>();
+  private final List<PeriodicTask> tasks = new CopyOnWriteArrayList<>();
+  private final Thread thread;
+  private volatile boolean running;
+
+  @Getter
+  private volatile long ticks;
+  @Getter
+  private volatile long skippedTicks;
+  @Getter
+  private volatile long overruns;
+  @Getter
+  private volatile long maxJitterNanos;
+  private volatile long jitterSumNanos;
+
+  // without vehicles, see attach
+  public ControlLoop(int rateHz) {
+    if (rateHz < 1 || rateHz > 1000) {
+      throw new IllegalArgumentException("control loop rate out of range: " + rateHz);
+    }
+    this.periodNanos = TimeUnit.SECONDS.toNanos(1) / rateHz;
+    this.thread = Thread.ofPlatform()
+        .name("control-loop")
+        .daemon(true)
+        .priority(Thread.MAX_PRIORITY)
+        .unstarted(this::run);
+  }
+
+  /*
+   * Drives a vehicle from its intent, from the next tick on; also while running
+   */
+  public void attach(OperatorIntent intent, CommandCoalescer commands) {
+    bindings.add(new Binding(intent, commands));
+  }
+
+  public void detach(OperatorIntent intent) {
+    bindings.removeIf(binding -> binding.intent == intent);
+  }
+
+  public int getVehicleCount() {
+    return bindings.size();
+  }
+
+  /*
+   * Runs task on the loop thread about every periodMillis, the first time on the next tick
+   */
+  public void every(long periodMillis, Runnable task) {
+    long periodNanos = TimeUnit.MILLISECONDS.toNanos(periodMillis);
+    every(() -> periodNanos, task);
+  }
+
+  /*
+   * As every(long, Runnable) with a period that may change, taken after each run
+   */
+  public void every(LongSupplier periodNanos, Runnable task) {
+    tasks.add(new PeriodicTask(periodNanos, task));
+  }
+
+  public void start() {
+    running = true;
+    thread.start();
+    log.info("control loop started: period={} us", TimeUnit.NANOSECONDS.toMicros(periodNanos));
+  }
+
+  @Override
+  public void close() {
+    running = false;
+    LockSupport.unpark(thread);
+    logStatistics();
+  }
+
+  public long getMeanJitterNanos() {
+    long n = ticks;
+    return n == 0 ? 0 : jitterSumNanos / n;
+  }
+
+  public void logStatistics() {
+    log.info("control loop: ticks={} skipped={} overruns={} jitter mean={} us max={} us",
+        ticks, skippedTicks, overruns,
+        TimeUnit.NANOSECONDS.toMicros(getMeanJitterNanos()),
+        TimeUnit.NANOSECONDS.toMicros(maxJitterNanos));
+  }
+
+  private void run() {
+    long deadline = System.nanoTime() + periodNanos;
+    while (running) {
+      waitUntil(deadline);
+      long start = System.nanoTime();
+      long late = start - deadline;
+      if (late >= periodNanos) {
+        long missed = late / periodNanos;
+        skippedTicks += missed;
+        deadline += missed * periodNanos;
+        late -= missed * periodNanos;
+      }
+      jitterSumNanos += late;
+      if (late > maxJitterNanos) {
+        maxJitterNanos = late;
+      }
+      tick(start);
+      ticks++;
+      if (System.nanoTime() - start > periodNanos) {
+        overruns++;
+      }
+      deadline += periodNanos;
+    }
+  }
+
+  private void tick(long now) {
+    for (Binding binding : bindings) {
+      try {
+        binding.tick(now);
+      } catch (RuntimeException e) {
+        log.error("control loop tick failed: {}", e.getMessage());
+      }
+    }
+    for (PeriodicTask task : tasks) {
+      if (now - task.nextRunNanos >= 0) {
+        task.nextRunNanos = now + task.periodNanos.getAsLong();
+        try {
+          task.runnable.run();
+        } catch (RuntimeException e) {
+          log.error("control loop task failed: {}", e.getMessage());
+        }
+      }
+    }
+  }
+
+  private static void waitUntil(long deadline) {
+    long remaining;
+    while ((remaining = deadline - System.nanoTime()) > SPIN_NANOS) {
+      LockSupport.parkNanos(remaining - SPIN_NANOS);
+    }
+    while (deadline - System.nanoTime() > 0) {
+      Thread.onSpinWait();
+    }
+  }
+
+  // one vehicle, ticked on the loop thread
+  private static final class Binding {
+
+    private final OperatorIntent intent;
+    private final CommandCoalescer commands;
+    private final GimbalPlanner gimbalPlanner = new GimbalPlanner();
+    private boolean lastMoving;
+    private long lastGimbalEpoch;
+
+    Binding(OperatorIntent intent, CommandCoalescer commands) {
+      this.intent = intent;
+      this.commands = commands;
+    }
+
+    void tick(long now) {
+      // taken before the intent is sampled, so that a stop meanwhile drops these setpoints
+      long chassisEpoch = commands.getChassisEpoch();
+      long gimbalEpoch = commands.getGimbalEpoch();
+      MovingDirection direction = intent.getChassisDirection();
+      double left;
+      double right;
+      if (direction != MovingDirection.STOP) {
+        double speed = intent.getSpeedLevel().getSpeed();
+        left = speed * direction.getLeftFactor();
+        right = speed * direction.getRightFactor();
+      } else {
+        OperatorIntent.WheelSpeeds wheels = intent.getWheelSpeeds();
+        left = wheels.left();
+        right = wheels.right();
+      }
+      boolean moving = left != 0 || right != 0;
+      if (moving) {
+        // unchanged setpoints are filtered by the coalescer except for the keep-alive
+        commands.cmd_speed_control(left, right, chassisEpoch);
+      } else if (lastMoving) {
+        commands.cmd_speed_control(0, 0, chassisEpoch);
+      }
+      lastMoving = moving;
+
+      if (gimbalEpoch != lastGimbalEpoch) {
+        lastGimbalEpoch = gimbalEpoch;
+        gimbalPlanner.stopped(now);
+      }
+      OperatorIntent.GimbalTarget target = intent.takeGimbalTarget();
+      OperatorIntent.GimbalHold hold = intent.getGimbalHold();
+      OperatorIntent.GimbalRate rate = intent.getGimbalRate();
+      boolean planned;
+      if (target != null) {
+        planned = gimbalPlanner.moveTo(target.pan(), target.tilt(), now);
+      } else if (!hold.isNone() || rate.isNone()) {
+        planned = gimbalPlanner.hold(hold.pan(), hold.tilt(), now);
+      } else {
+        planned = gimbalPlanner.drive(rate.pan(), rate.tilt(), now);
+      }
+      if (planned) {
+        commands.cmd_gimbal_ctrl_simple(gimbalPlanner.getTargetPan(),
+            gimbalPlanner.getTargetTilt(), gimbalPlanner.getSpeed(),
+            gimbalPlanner.getAcceleration(), gimbalEpoch);
+      }
+    }
+  }
+
+  private static final class PeriodicTask {
+
+    private final LongSupplier periodNanos;
+    private final Runnable runnable;
+    private long nextRunNanos = System.nanoTime();
+
+    PeriodicTask(LongSupplier periodNanos, Runnable runnable) {
+      this.periodNanos = periodNanos;
+      this.runnable = runnable;
+    }
+  }
+}
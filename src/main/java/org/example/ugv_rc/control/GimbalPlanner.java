@@ -0,0 +1,268 @@
+package org.example.ugv_rc.control;
+
+import java.util.concurrent.TimeUnit;
+import lombok.Getter;
+import org.example.ugv_rc.clients.ESP32Client;
+
+/*
+ * Turns the gimbal intent into a few absolute T:133 setpoints with speed and
+ * acceleration, instead of a stream of small steps.
+ *
+ * Holding a direction sends the moving axes to their limits; the speed grows with the
+ * hold time (SPEEDS, from HOLD_NANOS on), one setpoint per speed level. Releasing it
+ * sends the axes to where they come to rest when braking at the current acceleration,
+ * so a tap moves about a degree. drive does the same for a continuous rate, e.g. of a
+ * stick, with the speed set by the rate. moveTo plans one move to a target angle. An
+ * axis that is not moved is sent to where it is at rest.
+ *
+ * The UGV02 does not report the gimbal angles, so they are estimated by following each
+ * setpoint with the servo model of the firmware: up to SPD deg/s, ACC deg/s^2, braking
+ * in time to stop at the target. Not thread-safe; owned by the control loop.
+ */
+public class GimbalPlanner {
+
+  private static final int[] SPEEDS = {30, 90, 180};
+  private static final long[] HOLD_NANOS = {0, millis(600), millis(1500)};
+  // each speed is reached within a quarter of a second
+  private static final int ACC_PER_SPEED = 4;
+  private static final double MIN_MOVE_SECONDS = 0.5;
+  private static final long MAX_STEP_NANOS = millis(5);
+
+  private final Axis pan = new Axis(ESP32Client.PAN_MIN, ESP32Client.PAN_MAX);
+  private final Axis tilt = new Axis(ESP32Client.TILT_MIN, ESP32Client.TILT_MAX);
+  private int holdPan;
+  private int holdTilt;
+  private int level;
+  private long holdStartNanos;
+  // set by a stop, until the held direction is released
+  private boolean latched;
+
+  // the last setpoint planned
+  @Getter
+  private int targetPan;
+  @Getter
+  private int targetTilt;
+  @Getter
+  private int speed;
+  @Getter
+  private int acceleration;
+  @Getter
+  private long setpointCount;
+
+  /*
+   * The held direction, sampled every tick: -1, 0 or 1 per axis as in OperatorIntent.
+   * True if a new setpoint was planned.
+   */
+  public boolean hold(int dirPan, int dirTilt, long nowNanos) {
+    boolean held = dirPan != 0 || dirTilt != 0;
+    if (latched) {
+      latched = held;
+      return false;
+    }
+    if (dirPan != holdPan || dirTilt != holdTilt) {
+      boolean wasHeld = holdPan != 0 || holdTilt != 0;
+      holdPan = dirPan;
+      holdTilt = dirTilt;
+      holdStartNanos = nowNanos;
+      level = 0;
+      if (!held) {
+        return wasHeld && brake(nowNanos);
+      }
+      return plan(nowNanos);
+    }
+    if (!held) {
+      return false;
+    }
+    int next = level;
+    while (next + 1 < SPEEDS.length && nowNanos - holdStartNanos >= HOLD_NANOS[next + 1]) {
+      next++;
+    }
+    if (next == level) {
+      return false;
+    }
+    level = next;
+    return plan(nowNanos);
+  }
+
+  /*
+   * Continuous rate per axis, -1..1 of the top speed, sampled every tick; plans a
+   * setpoint when the rate changed. T:133 takes one speed for both axes, so the larger
+   * rate sets it. The caller filters small changes, each one is a request.
+   */
+  public boolean drive(double ratePan, double rateTilt, long nowNanos) {
+    int dirPan = (int) Math.signum(ratePan);
+    int dirTilt = (int) Math.signum(rateTilt);
+    boolean held = dirPan != 0 || dirTilt != 0;
+    if (latched) {
+      latched = held;
+      return false;
+    }
+    int next = (int) Math.ceil(Math.min(1, Math.max(Math.abs(ratePan), Math.abs(rateTilt)))
+        * SPEEDS[SPEEDS.length - 1]);
+    if (dirPan == holdPan && dirTilt == holdTilt && (!held || next == speed)) {
+      return false;
+    }
+    boolean wasHeld = holdPan != 0 || holdTilt != 0;
+    holdPan = dirPan;
+    holdTilt = dirTilt;
+    // a key held next is timed from here
+    holdStartNanos = nowNanos;
+    level = 0;
+    if (!held) {
+      return wasHeld && brake(nowNanos);
+    }
+    advance(nowNanos);
+    speed = next;
+    acceleration = speed * ACC_PER_SPEED;
+    targetPan = pan.target(holdPan, acceleration);
+    targetTilt = tilt.target(holdTilt, acceleration);
+    return setpoint();
+  }
+
+  /*
+   * One move to the target angles, clamped to the limits, with a speed that makes it
+   * take about MIN_MOVE_SECONDS unless that exceeds the top speed. Always plans a
+   * setpoint, the estimate may be off.
+   */
+  public boolean moveTo(int pan, int tilt, long nowNanos) {
+    advance(nowNanos);
+    targetPan = this.pan.clamp(pan);
+    targetTilt = this.tilt.clamp(tilt);
+    double distance = Math.max(Math.abs(targetPan - this.pan.position),
+        Math.abs(targetTilt - this.tilt.position));
+    speed = (int) Math.ceil(Math.clamp(distance / MIN_MOVE_SECONDS, SPEEDS[0],
+        SPEEDS[SPEEDS.length - 1]));
+    acceleration = speed * ACC_PER_SPEED;
+    return setpoint();
+  }
+
+  /*
+   * The gimbal was stopped (T:135): the estimate halts where it is, and a direction
+   * still held is ignored until it is released
+   */
+  public void stopped(long nowNanos) {
+    advance(nowNanos);
+    pan.stop();
+    tilt.stop();
+    holdPan = 0;
+    holdTilt = 0;
+    latched = true;
+  }
+
+  public double panAt(long nowNanos) {
+    advance(nowNanos);
+    return pan.position;
+  }
+
+  public double tiltAt(long nowNanos) {
+    advance(nowNanos);
+    return tilt.position;
+  }
+
+  private boolean plan(long nowNanos) {
+    advance(nowNanos);
+    speed = SPEEDS[level];
+    acceleration = speed * ACC_PER_SPEED;
+    targetPan = pan.target(holdPan, acceleration);
+    targetTilt = tilt.target(holdTilt, acceleration);
+    return setpoint();
+  }
+
+  private boolean brake(long nowNanos) {
+    advance(nowNanos);
+    targetPan = pan.target(0, acceleration);
+    targetTilt = tilt.target(0, acceleration);
+    return setpoint();
+  }
+
+  private boolean setpoint() {
+    pan.moveTo(targetPan, speed, acceleration);
+    tilt.moveTo(targetTilt, speed, acceleration);
+    setpointCount++;
+    return true;
+  }
+
+  private void advance(long nowNanos) {
+    pan.advance(nowNanos);
+    tilt.advance(nowNanos);
+  }
+
+  private static long millis(long millis) {
+    return TimeUnit.MILLISECONDS.toNanos(millis);
+  }
+
+  /*
+   * Estimated servo axis, advanced lazily to the time of each access
+   */
+  private static final class Axis {
+
+    private final int min;
+    private final int max;
+    private double position;
+    private double velocity;
+    private double target;
+    private double maxSpeed = SPEEDS[SPEEDS.length - 1];
+    private double maxAcc = maxSpeed * ACC_PER_SPEED;
+    private long lastNanos;
+
+    Axis(int min, int max) {
+      this.min = min;
+      this.max = max;
+    }
+
+    int clamp(int angle) {
+      return Math.clamp(angle, min, max);
+    }
+
+    /*
+     * The limit in direction, or for 0 where the axis comes to rest braking at acc
+     */
+    int target(int direction, double acc) {
+      if (direction != 0) {
+        return direction > 0 ? max : min;
+      }
+      return clamp((int) Math.round(position + velocity * Math.abs(velocity) / (2 * acc)));
+    }
+
+    void moveTo(double angle, double speed, double acc) {
+      target = angle;
+      maxSpeed = speed;
+      maxAcc = acc;
+    }
+
+    void stop() {
+      target = position;
+      velocity = 0;
+    }
+
+    void advance(long nowNanos) {
+      if (lastNanos == 0 || position == target && velocity == 0) {
+        lastNanos = nowNanos;
+        return;
+      }
+      while (nowNanos - lastNanos > 0) {
+        long step = Math.min(MAX_STEP_NANOS, nowNanos - lastNanos);
+        step(step / 1e9);
+        lastNanos += step;
+      }
+    }
+
+    private void step(double dt) {
+      double distance = target - position;
+      if (distance == 0 && velocity == 0) {
+        return;
+      }
+      double brakingSpeed = Math.sqrt(2 * maxAcc * Math.abs(distance));
+      double desired = Math.signum(distance) * Math.min(maxSpeed, brakingSpeed);
+      double change = Math.clamp(desired - velocity, -maxAcc * dt, maxAcc * dt);
+      velocity += change;
+      double move = velocity * dt;
+      if (Math.abs(move) >= Math.abs(distance) && Math.signum(move) == Math.signum(distance)) {
+        position = target;
+        velocity = 0;
+      } else {
+        position += move;
+      }
+    }
+  }
+}
@@ -0,0 +1,119 @@
+package org.example.ugv_rc.control;
+
+import java.util.concurrent.atomic.AtomicReference;
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.Setter;
+import org.example.ugv_rc.clients.MovingDirection;
+import org.example.ugv_rc.clients.SpeedLevel;
+
+/*
+ * What the operator currently asks for, written by the input handlers and
+ * sampled by the ControlLoop once per tick.
+ *
+ * gimbalHold: held gimbal direction, pan -1 -> left, 0 -> none, 1 -> right and
+ *   tilt -1 -> down, 0 -> none, 1 -> up
+ * gimbalTarget: absolute angles to move to once, taken by the loop
+ * wheelSpeeds: continuous left/right wheel speeds of an analog input, used while
+ *   chassisDirection is STOP
+ * gimbalRate: continuous pan/tilt rate of an analog input, -1..1 of the top speed, used
+ *   while no gimbal direction is held
+ *
+ * Several inputs write the held directions; their writers are serialized so that a
+ * conditional release never undoes a newer hold. The loop reads without locking.
+ */
+@Getter
+@Setter
+public class OperatorIntent {
+
+  private volatile MovingDirection chassisDirection = MovingDirection.STOP;
+  private volatile SpeedLevel speedLevel = SpeedLevel.LEVEL_ONE;
+  // each one record, so that a sample never mixes two updates
+  private volatile GimbalHold gimbalHold = GimbalHold.NONE;
+  private volatile WheelSpeeds wheelSpeeds = WheelSpeeds.STOP;
+  private volatile GimbalRate gimbalRate = GimbalRate.NONE;
+  @Getter(AccessLevel.NONE)
+  @Setter(AccessLevel.NONE)
+  private final AtomicReference<GimbalTarget> gimbalTarget = new AtomicReference<>();
+
+  public record GimbalTarget(int pan, int tilt) {
+  }
+
+  public record GimbalHold(int pan, int tilt) {
+
+    public static final GimbalHold NONE = new GimbalHold(0, 0);
+
+    public boolean isNone() {
+      return pan == 0 && tilt == 0;
+    }
+  }
+
+  public record WheelSpeeds(double left, double right) {
+
+    public static final WheelSpeeds STOP = new WheelSpeeds(0, 0);
+
+    public boolean isStop() {
+      return left == 0 && right == 0;
+    }
+  }
+
+  public record GimbalRate(double pan, double tilt) {
+
+    public static final GimbalRate NONE = new GimbalRate(0, 0);
+
+    public boolean isNone() {
+      return pan == 0 && tilt == 0;
+    }
+  }
+
+  public synchronized void setGimbal(int pan, int tilt) {
+    this.gimbalHold = pan == 0 && tilt == 0 ? GimbalHold.NONE : new GimbalHold(pan, tilt);
+  }
+
+  public synchronized void releaseGimbal() {
+    this.gimbalHold = GimbalHold.NONE;
+  }
+
+  /*
+   * Releases the gimbal only while hold is still the held direction, so that an input
+   * does not release what another one set since; true if released
+   */
+  public synchronized boolean releaseGimbal(GimbalHold hold) {
+    if (!gimbalHold.equals(hold)) {
+      return false;
+    }
+    gimbalHold = GimbalHold.NONE;
+    return true;
+  }
+
+  public void setGimbalTarget(int pan, int tilt) {
+    gimbalTarget.set(new GimbalTarget(pan, tilt));
+  }
+
+  // the target set since the last call, null if none
+  public GimbalTarget takeGimbalTarget() {
+    return gimbalTarget.get() != null ? gimbalTarget.getAndSet(null) : null;
+  }
+
+  public synchronized void setChassisDirection(MovingDirection chassisDirection) {
+    this.chassisDirection = chassisDirection;
+  }
+
+  public synchronized void releaseChassis() {
+    this.chassisDirection = MovingDirection.STOP;
+  }
+
+  // as releaseGimbal(GimbalHold) for the chassis
+  public synchronized boolean releaseChassis(MovingDirection direction) {
+    if (chassisDirection != direction) {
+      return false;
+    }
+    chassisDirection = MovingDirection.STOP;
+    return true;
+  }
+
+  public void releaseAnalog() {
+    this.wheelSpeeds = WheelSpeeds.STOP;
+    this.gimbalRate = GimbalRate.NONE;
+  }
+}
@@ -0,0 +1,152 @@
+package org.example.ugv_rc.fleet;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Function;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.example.ugv_rc.control.ControlLoop;
+
+/*
+ * Registry of the vehicles under control.
+ *
+ * All vehicles share one ControlLoop thread, which ticks each of them and closes their
+ * idle connections now and then; requests run on virtual threads and the feedback
+ * streams read on virtual threads, so a vehicle costs no platform thread of its own.
+ * One vehicle is selected for the operator's input. A broadcast hands a command to every
+ * vehicle at once without waiting for any of them, so a STOP of all vehicles takes about
+ * as long as the slowest single stop.
+ */
+@Slf4j
+public class Fleet implements AutoCloseable {
+
+  private static final long CLOSE_IDLE_MILLIS = 5000;
+
+  @Getter
+  private final ControlLoop controlLoop;
+  private final List<Vehicle> vehicles = new CopyOnWriteArrayList<>();
+  @Getter
+  private volatile Vehicle selected;
+
+  public Fleet(int rateHz) {
+    this.controlLoop = new ControlLoop(rateHz);
+    controlLoop.every(CLOSE_IDLE_MILLIS, this::closeIdle);
+  }
+
+  /*
+   * Connects the vehicle and drives it from its intent from the next tick on; the first
+   * one added is selected
+   */
+  public synchronized Vehicle add(VehicleConfig config) {
+    if (get(config.name()) != null) {
+      throw new IllegalArgumentException("vehicle already registered: " + config.name());
+    }
+    Vehicle vehicle = new Vehicle(config);
+    vehicles.add(vehicle);
+    controlLoop.attach(vehicle.getIntent(), vehicle.getCommands());
+    vehicle.start();
+    if (selected == null) {
+      selected = vehicle;
+    }
+    log.info("fleet: {} at {}:{}, {} vehicles", config.name(), config.host(), config.port(),
+        vehicles.size());
+    return vehicle;
+  }
+
+  /*
+   * Stops the vehicle and closes its connections
+   */
+  public synchronized void remove(String name) {
+    Vehicle vehicle = get(name);
+    if (vehicle == null) {
+      return;
+    }
+    controlLoop.detach(vehicle.getIntent());
+    vehicles.remove(vehicle);
+    if (selected == vehicle) {
+      selected = vehicles.isEmpty() ? null : vehicles.getFirst();
+    }
+    vehicle.stop().join();
+    vehicle.close();
+  }
+
+  // null if there is none of that name
+  public Vehicle get(String name) {
+    for (Vehicle vehicle : vehicles) {
+      if (vehicle.getName().equals(name)) {
+        return vehicle;
+      }
+    }
+    return null;
+  }
+
+  public List<Vehicle> getVehicles() {
+    return List.copyOf(vehicles);
+  }
+
+  public int size() {
+    return vehicles.size();
+  }
+
+  /*
+   * The vehicle that takes the operator's input from now on
+   */
+  public Vehicle select(String name) {
+    Vehicle vehicle = get(name);
+    if (vehicle == null) {
+      throw new IllegalArgumentException("unknown vehicle: " + name);
+    }
+    selected = vehicle;
+    log.info("fleet: {} selected", name);
+    return vehicle;
+  }
+
+  /*
+   * Sends the command to every vehicle at once; completes when all of them did
+   */
+  public CompletableFuture<Void> broadcast(Function<Vehicle, CompletableFuture<?>> command) {
+    List<Vehicle> targets = getVehicles();
+    CompletableFuture<?>[] results = new CompletableFuture<?>[targets.size()];
+    for (int i = 0; i < results.length; i++) {
+      results[i] = command.apply(targets.get(i));
+    }
+    return CompletableFuture.allOf(results);
+  }
+
+  /*
+   * STOP all: chassis and gimbal of every vehicle on their priority lanes, all chassis
+   * stops handed off before the first gimbal stop
+   */
+  public CompletableFuture<Void> stopAll() {
+    List<Vehicle> targets = getVehicles();
+    CompletableFuture<?>[] results = new CompletableFuture<?>[2 * targets.size()];
+    for (int i = 0; i < targets.size(); i++) {
+      results[i] = targets.get(i).stopChassis();
+    }
+    for (int i = 0; i < targets.size(); i++) {
+      results[targets.size() + i] = targets.get(i).stopGimbal();
+    }
+    return CompletableFuture.allOf(results);
+  }
+
+  public void start() {
+    controlLoop.start();
+  }
+
+  @Override
+  public synchronized void close() {
+    controlLoop.close();
+    for (Vehicle vehicle : vehicles) {
+      vehicle.close();
+    }
+    vehicles.clear();
+    selected = null;
+  }
+
+  private void closeIdle() {
+    for (Vehicle vehicle : vehicles) {
+      vehicle.closeIdle();
+    }
+  }
+}
@@ -0,0 +1,162 @@
+package org.example.ugv_rc.fleet;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.BooleanSupplier;
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.example.ugv_rc.clients.CommandCoalescer;
+import org.example.ugv_rc.clients.ESP32Client;
+import org.example.ugv_rc.clients.JetsonOrinNanoClient;
+import org.example.ugv_rc.clients.QueryCache;
+import org.example.ugv_rc.clients.RateController;
+import org.example.ugv_rc.control.OperatorIntent;
+import org.example.ugv_rc.telemetry.TelemetryStream;
+
+/*
+ * One UGV02 of the fleet with its own connections, command channels and operator intent.
+ * Its clients have no evictor threads and its feedback stream reads on a virtual thread;
+ * the Fleet does their housekeeping on its shared control loop.
+ *
+ * Started, it connects to the UGV02 and to the Jetson in parallel, each on a virtual
+ * thread that health-checks the device with a read-only request, and again with growing
+ * pauses while the device does not answer; whenUgvReady and whenJetsonReady complete on
+ * the first answer.
+ */
+@Slf4j
+@Getter
+public class Vehicle implements AutoCloseable {
+
+  // feedback polling while no stream is connected, once every 3 s on a poor link
+  public static final RateController.Bounds DEFAULT_POLL_RATE =
+      new RateController.Bounds(250, 3000);
+  private static final long CONNECT_RETRY_MILLIS = 250;
+  private static final long CONNECT_RETRY_MAX_MILLIS = 8000;
+
+  private final String name;
+  private final ESP32Client ugv;
+  private final CommandCoalescer commands;
+  private final JetsonOrinNanoClient jetson;
+  // read-only queries of any number of consumers
+  private final QueryCache queries;
+  // of the base feedback while it is polled, follows the link like the setpoints
+  private final RateController.Rate pollRate;
+  private final OperatorIntent intent = new OperatorIntent();
+  // null if the feedback is polled
+  private final TelemetryStream stream;
+  @Getter(AccessLevel.NONE)
+  private final CompletableFuture<Void> ugvReady = new CompletableFuture<>();
+  @Getter(AccessLevel.NONE)
+  private final CompletableFuture<Void> jetsonReady = new CompletableFuture<>();
+  @Getter(AccessLevel.NONE)
+  private volatile boolean closed;
+
+  Vehicle(VehicleConfig config) {
+    this.name = config.name();
+    this.ugv = new ESP32Client(config.host(), config.port(), false);
+    this.commands = new CommandCoalescer(ugv, config.commandRate());
+    this.jetson = new JetsonOrinNanoClient(config.jetsonHost(), config.jetsonPort(), false);
+    this.queries = new QueryCache(ugv, jetson, config.queryTtlMillis());
+    this.pollRate = ugv.getRate().rate("feedback poll", config.pollRate());
+    this.stream = config.hasStream()
+        ? new TelemetryStream(config.streamHost(), config.streamPort(),
+            config.streamIntervalMillis(), Thread.ofVirtual().name("telemetry-" + name).factory())
+        : null;
+  }
+
+  // true while the feedback arrives on the stream, so polling is not needed
+  public boolean isStreaming() {
+    return stream != null && stream.isConnected();
+  }
+
+  public CompletableFuture<Void> whenUgvReady() {
+    return ugvReady;
+  }
+
+  public CompletableFuture<Void> whenJetsonReady() {
+    return jetsonReady;
+  }
+
+  public boolean isUgvReady() {
+    return ugvReady.isDone();
+  }
+
+  public boolean isJetsonReady() {
+    return jetsonReady.isDone();
+  }
+
+  /*
+   * Releases whatever the operator holds and stops chassis and gimbal on the priority lane
+   */
+  public CompletableFuture<Void> stop() {
+    return CompletableFuture.allOf(stopChassis(), stopGimbal());
+  }
+
+  // the intent is released first, so that no tick drives on after the stop
+  public CompletableFuture<JsonNode> stopChassis() {
+    intent.releaseChassis();
+    intent.setWheelSpeeds(OperatorIntent.WheelSpeeds.STOP);
+    return commands.stop_chassis();
+  }
+
+  public CompletableFuture<JsonNode> stopGimbal() {
+    intent.releaseGimbal();
+    intent.setGimbalRate(OperatorIntent.GimbalRate.NONE);
+    return commands.stop_gimbal();
+  }
+
+  void start() {
+    Thread.ofVirtual().name("connect-" + name + "-ugv")
+        .start(() -> connect("UGV02", ugv::warmUp, ugvReady));
+    Thread.ofVirtual().name("connect-" + name + "-jetson")
+        .start(() -> connect("Jetson", jetson::warmUp, jetsonReady));
+    if (stream != null) {
+      stream.start();
+    }
+  }
+
+  private void connect(String device, BooleanSupplier healthCheck,
+      CompletableFuture<Void> ready) {
+    long start = System.nanoTime();
+    long pause = CONNECT_RETRY_MILLIS;
+    while (!closed) {
+      if (healthCheck.getAsBoolean()) {
+        log.info("{} {}: ready after {} ms", name, device,
+            (System.nanoTime() - start) / 1_000_000);
+        ready.complete(null);
+        return;
+      }
+      try {
+        Thread.sleep(pause);
+      } catch (InterruptedException e) {
+        return;
+      }
+      pause = Math.min(2 * pause, CONNECT_RETRY_MAX_MILLIS);
+    }
+  }
+
+  void closeIdle() {
+    ugv.closeIdle();
+    jetson.closeIdle();
+  }
+
+  @Override
+  public void close() {
+    closed = true;
+    if (stream != null) {
+      stream.close();
+    }
+    commands.logStatistics();
+    queries.logStatistics();
+    ugv.getRate().logStatistics();
+    jetson.getRate().logStatistics();
+    ugv.close();
+    jetson.close();
+  }
+
+  @Override
+  public String toString() {
+    return name;
+  }
+}
@@ -0,0 +1,107 @@
+package org.example.ugv_rc.fleet;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import lombok.extern.slf4j.Slf4j;
+import org.example.ugv_rc.clients.CommandCoalescer;
+import org.example.ugv_rc.clients.QueryCache;
+import org.example.ugv_rc.clients.RateController;
+
+/*
+ * Addresses of one vehicle: the ESP32 web api, the Jetson, and the serial bridge of the
+ * feedback stream, streamHost null if the feedback is polled; queryTtlMillis: see
+ * QueryCache; commandRate: the pacing of chassis and gimbal setpoints, pollRate: of the
+ * feedback polling, see RateController
+ */
+@Slf4j
+public record VehicleConfig(String name, String host, int port, String jetsonHost,
+    int jetsonPort, String streamHost, int streamPort, int streamIntervalMillis,
+    long queryTtlMillis, RateController.Bounds commandRate, RateController.Bounds pollRate) {
+
+  public boolean hasStream() {
+    return streamHost != null;
+  }
+
+  /*
+   * The same vehicle at other addresses, e.g. those of a simulator; streamHost null if
+   * the feedback is polled
+   */
+  public VehicleConfig at(String host, int port, String jetsonHost, int jetsonPort,
+      String streamHost, int streamPort) {
+    return new VehicleConfig(name, host, port, jetsonHost, jetsonPort, streamHost, streamPort,
+        streamIntervalMillis, queryTtlMillis, commandRate, pollRate);
+  }
+
+  /*
+   * Fleet.vehicles = names of several vehicles, each with Fleet.<name>.host, .port,
+   * .jetson = host[:port] and .stream = host:port of its serial bridge; if unset, the
+   * one vehicle of UGV02.host, UGV02.port, Jetson.host, Jetson.port and UGV02.stream.
+   * UGV02.stream.interval in ms applies to all streams, Query.ttl in ms to the read-only
+   * queries of all vehicles, Rate.command.min/max and Rate.poll.min/max in ms to the
+   * pacing of their setpoints and feedback polling.
+   */
+  public static List<VehicleConfig> fromProperties(Properties properties) {
+    int interval = Integer.parseInt(properties.getProperty("UGV02.stream.interval", "50").trim());
+    long ttl = Long.parseLong(properties.getProperty("Query.ttl",
+        String.valueOf(QueryCache.DEFAULT_TTL_MILLIS)).trim());
+    RateController.Bounds commandRate =
+        rateBounds(properties, "Rate.command", CommandCoalescer.DEFAULT_BOUNDS);
+    RateController.Bounds pollRate = rateBounds(properties, "Rate.poll", Vehicle.DEFAULT_POLL_RATE);
+    String names = properties.getProperty("Fleet.vehicles", "").trim();
+    List<VehicleConfig> configs = new ArrayList<>();
+    if (names.isEmpty()) {
+      String ugv_host = properties.get("UGV02.host").toString();
+      int ugv_port = Integer.parseInt(properties.getProperty("UGV02.port", "80").trim());
+      log.info("ugv host: {}:{}", ugv_host, ugv_port);
+      String jetson_host = properties.get("Jetson.host").toString();
+      int jetson_port = Integer.parseInt(properties.getProperty("Jetson.port", "8000").trim());
+      log.info("jetson host: {}:{}", jetson_host, jetson_port);
+      configs.add(of("UGV02", ugv_host, ugv_port, jetson_host + ":" + jetson_port,
+          properties.getProperty("UGV02.stream", ""), interval, ttl, commandRate, pollRate));
+      return configs;
+    }
+    for (String entry : names.split(",")) {
+      String name = entry.trim();
+      String prefix = "Fleet." + name + ".";
+      String host = properties.getProperty(prefix + "host", "").trim();
+      String jetson = properties.getProperty(prefix + "jetson", "").trim();
+      if (host.isEmpty() || jetson.isEmpty()) {
+        throw new IllegalArgumentException(prefix + "host and " + prefix + "jetson required");
+      }
+      int port = Integer.parseInt(properties.getProperty(prefix + "port", "80").trim());
+      configs.add(of(name, host, port, jetson, properties.getProperty(prefix + "stream", ""),
+          interval, ttl, commandRate, pollRate));
+    }
+    return configs;
+  }
+
+  private static RateController.Bounds rateBounds(Properties properties, String prefix,
+      RateController.Bounds defaults) {
+    return new RateController.Bounds(
+        Long.parseLong(properties.getProperty(prefix + ".min",
+            String.valueOf(defaults.minMillis())).trim()),
+        Long.parseLong(properties.getProperty(prefix + ".max",
+            String.valueOf(defaults.maxMillis())).trim()));
+  }
+
+  // jetson: host[:port]; stream: host:port, empty if polled
+  private static VehicleConfig of(String name, String host, int port, String jetson,
+      String stream, int interval, long ttl, RateController.Bounds commandRate,
+      RateController.Bounds pollRate) {
+    int jetsonSeparator = jetson.lastIndexOf(':');
+    String jetsonHost = jetsonSeparator < 0 ? jetson : jetson.substring(0, jetsonSeparator);
+    int jetsonPort = jetsonSeparator < 0 ? 8000
+        : Integer.parseInt(jetson.substring(jetsonSeparator + 1));
+    String address = stream.trim();
+    if (address.isEmpty()) {
+      return new VehicleConfig(name, host, port, jetsonHost, jetsonPort, null, 0, interval,
+          ttl, commandRate, pollRate);
+    }
+    int separator = address.lastIndexOf(':');
+    log.info("{} feedback stream: {} every {} ms", name, address, interval);
+    return new VehicleConfig(name, host, port, jetsonHost, jetsonPort,
+        address.substring(0, separator), Integer.parseInt(address.substring(separator + 1)),
+        interval, ttl, commandRate, pollRate);
+  }
+}
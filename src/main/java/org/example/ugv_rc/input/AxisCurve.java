@@ -0,0 +1,40 @@
+package org.example.ugv_rc.input;
+
+/*
+ * Response curve of a stick axis.
+ *
+ * Values within the deadzone around the center read 0, so a stick at rest does not creep.
+ * The rest is rescaled to start at 0 and shaped by the expo blend
+ * (1 - expo) * x + expo * x^3, which leaves full deflection at 1 and gives finer
+ * control near the center: expo 0 is linear, 1 fully cubic.
+ */
+public class AxisCurve {
+
+  public static final AxisCurve LINEAR = new AxisCurve(0, 0);
+
+  private final double deadzone;
+  private final double expo;
+
+  public AxisCurve(double deadzone, double expo) {
+    if (deadzone < 0 || deadzone >= 1 || expo < 0 || expo > 1) {
+      throw new IllegalArgumentException("deadzone " + deadzone + ", expo " + expo);
+    }
+    this.deadzone = deadzone;
+    this.expo = expo;
+  }
+
+  // raw in -1..1, larger values are clamped
+  public double apply(double raw) {
+    double magnitude = Math.min(1, Math.abs(raw));
+    if (magnitude <= deadzone || Double.isNaN(raw)) {
+      return 0;
+    }
+    double x = (magnitude - deadzone) / (1 - deadzone);
+    return Math.copySign((1 - expo) * x + expo * x * x * x, raw);
+  }
+
+  @Override
+  public String toString() {
+    return "deadzone " + deadzone + ", expo " + expo;
+  }
+}
@@ -0,0 +1,86 @@
+package org.example.ugv_rc.input;
+
+import lombok.extern.slf4j.Slf4j;
+import net.java.games.input.Component;
+import net.java.games.input.Controller;
+import net.java.games.input.ControllerEnvironment;
+
+/*
+ * First gamepad or joystick found by jinput.
+ *
+ * Left stick: throttle (Y, up is forward) and steer (X). Right stick: pan (RX) and tilt
+ * (RY, up is up). South face button (A, or button 0): stop.
+ *
+ * jinput needs its native library, the directory holding it is taken from the system
+ * property net.java.games.input.librarypath or java.library.path. Devices plugged in
+ * after find() are not seen.
+ */
+@Slf4j
+public class GamepadSource implements InputSource {
+
+  private final Controller controller;
+  private final Component throttle;
+  private final Component steer;
+  private final Component pan;
+  private final Component tilt;
+  private final Component stop;
+
+  private GamepadSource(Controller controller) {
+    this.controller = controller;
+    this.throttle = controller.getComponent(Component.Identifier.Axis.Y);
+    this.steer = controller.getComponent(Component.Identifier.Axis.X);
+    this.pan = controller.getComponent(Component.Identifier.Axis.RX);
+    this.tilt = controller.getComponent(Component.Identifier.Axis.RY);
+    Component a = controller.getComponent(Component.Identifier.Button.A);
+    this.stop = a != null ? a : controller.getComponent(Component.Identifier.Button._0);
+  }
+
+  /*
+   * null if there is no gamepad or jinput cannot run here
+   */
+  public static GamepadSource find() {
+    Controller[] controllers;
+    try {
+      controllers = ControllerEnvironment.getDefaultEnvironment().getControllers();
+    } catch (LinkageError e) {
+      log.error("gamepad input unavailable, jinput native library not loaded: {}",
+          e.getMessage());
+      return null;
+    }
+    for (Controller controller : controllers) {
+      Controller.Type type = controller.getType();
+      if (type == Controller.Type.GAMEPAD || type == Controller.Type.STICK) {
+        GamepadSource source = new GamepadSource(controller);
+        if (source.throttle != null && source.steer != null) {
+          log.info("gamepad: {}", controller.getName());
+          return source;
+        }
+      }
+    }
+    log.warn("no gamepad found");
+    return null;
+  }
+
+  @Override
+  public String getName() {
+    return "gamepad";
+  }
+
+  @Override
+  public boolean poll(InputState state) {
+    if (!controller.poll()) {
+      return false;
+    }
+    // jinput axes point right and down
+    state.setThrottle(-read(throttle));
+    state.setSteer(read(steer));
+    state.setPan(read(pan));
+    state.setTilt(-read(tilt));
+    state.setStop(stop != null && stop.getPollData() > 0.5f);
+    return true;
+  }
+
+  private static double read(Component axis) {
+    return axis != null ? axis.getPollData() : 0;
+  }
+}
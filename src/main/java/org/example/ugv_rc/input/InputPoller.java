@@ -0,0 +1,240 @@
+package org.example.ugv_rc.input;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.example.ugv_rc.clients.CommandCoalescer;
+import org.example.ugv_rc.control.OperatorIntent;
+import org.example.ugv_rc.metrics.InputEvent;
+
+/*
+ * Polls an InputSource at a fixed rate and turns the sticks into the analog part of the
+ * OperatorIntent.
+ *
+ * Each axis goes through the AxisCurve. Throttle and steer are mixed into left/right
+ * wheel speeds (left = throttle + steer, right = throttle - steer, scaled down together
+ * when one exceeds full speed) of up to maxSpeed m/s; pan and tilt become the gimbal
+ * rate. A value is only published when it moved by threshold or more since the last
+ * published one, or reached 0 or full deflection, so sensor noise and slow drift do not
+ * turn into requests; the ControlLoop sends what was published at its own rate.
+ *
+ * Returning the drive stick to the center stops the chassis at once on the priority
+ * lane. The stop button stops everything; the sticks then have to return to the center
+ * before they drive again. A source that is lost releases its part of the intent, and so
+ * does switching to another vehicle with retarget().
+ */
+@Slf4j
+public class InputPoller implements AutoCloseable {
+
+  public static final int DEFAULT_RATE_HZ = 250;
+  public static final double DEFAULT_THRESHOLD = 0.02;
+  private static final long LOST_RETRY_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+  private final InputSource source;
+  private final AtomicReference<Target> nextTarget = new AtomicReference<>();
+  private final AxisCurve curve;
+  private final double maxSpeed;
+  private final double threshold;
+  private final long periodNanos;
+  private final InputState state = new InputState();
+  private final Thread thread;
+  private volatile boolean running;
+
+  // owned by the poller thread
+  private OperatorIntent intent;
+  private CommandCoalescer commands;
+  private double publishedLeft;
+  private double publishedRight;
+  private double publishedPan;
+  private double publishedTilt;
+  private boolean stopHeld;
+  private boolean neutralRequired;
+  private boolean connected = true;
+
+  @Getter
+  private volatile long polls;
+  @Getter
+  private volatile long published;
+  // changes below the threshold
+  @Getter
+  private volatile long suppressed;
+
+  /*
+   * maxSpeed: wheel speed at full deflection in m/s; threshold: smallest change
+   * published, as a share of full deflection
+   */
+  public InputPoller(InputSource source, OperatorIntent intent, CommandCoalescer commands,
+      int rateHz, AxisCurve curve, double maxSpeed, double threshold) {
+    if (rateHz < 1 || rateHz > 1000) {
+      throw new IllegalArgumentException("input poll rate out of range: " + rateHz);
+    }
+    this.source = source;
+    this.intent = intent;
+    this.commands = commands;
+    this.curve = curve;
+    this.maxSpeed = maxSpeed;
+    this.threshold = threshold;
+    this.periodNanos = TimeUnit.SECONDS.toNanos(1) / rateHz;
+    this.thread = Thread.ofPlatform()
+        .name("input-" + source.getName())
+        .daemon(true)
+        .unstarted(this::run);
+  }
+
+  public void start() {
+    running = true;
+    thread.start();
+    log.info("input {} polled every {} us, {}, max speed {} m/s", source.getName(),
+        TimeUnit.NANOSECONDS.toMicros(periodNanos), curve, maxSpeed);
+  }
+
+  @Override
+  public void close() {
+    running = false;
+    LockSupport.unpark(thread);
+    try {
+      thread.join(1000);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    source.close();
+    log.info("input {}: polls={} published={} suppressed={}", source.getName(), polls,
+        published, suppressed);
+  }
+
+  /*
+   * Drives another vehicle from the next poll on; the sticks have to return to the
+   * center first
+   */
+  public void retarget(OperatorIntent newIntent, CommandCoalescer newCommands) {
+    nextTarget.set(new Target(newIntent, newCommands));
+  }
+
+  // share of full speed on the left wheel, -1..1
+  static double mixLeft(double throttle, double steer) {
+    return (throttle + steer) / Math.max(1, Math.abs(throttle) + Math.abs(steer));
+  }
+
+  static double mixRight(double throttle, double steer) {
+    return (throttle - steer) / Math.max(1, Math.abs(throttle) + Math.abs(steer));
+  }
+
+  private void run() {
+    long deadline = System.nanoTime();
+    while (running) {
+      Target target = nextTarget.getAndSet(null);
+      if (target != null) {
+        release();
+        intent = target.intent();
+        commands = target.commands();
+        neutralRequired = true;
+      }
+      try {
+        poll();
+      } catch (RuntimeException e) {
+        log.error("input {} poll failed: {}", source.getName(), e.getMessage());
+      }
+      polls++;
+      deadline += connected ? periodNanos : LOST_RETRY_NANOS;
+      long now = System.nanoTime();
+      if (now - deadline >= periodNanos) {
+        // fell behind, skip the missed polls
+        deadline = now;
+      }
+      long remaining;
+      while (running && (remaining = deadline - System.nanoTime()) > 0) {
+        LockSupport.parkNanos(remaining);
+      }
+    }
+    release();
+  }
+
+  private void poll() {
+    if (!source.poll(state)) {
+      if (connected) {
+        connected = false;
+        log.warn("input {} lost", source.getName());
+        release();
+      }
+      return;
+    }
+    if (!connected) {
+      connected = true;
+      neutralRequired = true;
+      log.info("input {} back, waiting for the sticks at center", source.getName());
+    }
+    if (state.isStop() && !stopHeld) {
+      neutralRequired = true;
+      publishedLeft = 0;
+      publishedRight = 0;
+      publishedPan = 0;
+      publishedTilt = 0;
+      intent.releaseAnalog();
+      commands.emergency_stop();
+      InputEvent.emit(source.getName(), "stop");
+    }
+    stopHeld = state.isStop();
+    double throttle = curve.apply(state.getThrottle());
+    double steer = curve.apply(state.getSteer());
+    double pan = curve.apply(state.getPan());
+    double tilt = curve.apply(state.getTilt());
+    if (neutralRequired) {
+      if (throttle != 0 || steer != 0 || pan != 0 || tilt != 0 || stopHeld) {
+        return;
+      }
+      neutralRequired = false;
+    }
+    double left = mixLeft(throttle, steer);
+    double right = mixRight(throttle, steer);
+    if (changed(publishedLeft, left) || changed(publishedRight, right)) {
+      boolean stop = left == 0 && right == 0 && (publishedLeft != 0 || publishedRight != 0);
+      publishedLeft = left;
+      publishedRight = right;
+      OperatorIntent.WheelSpeeds wheels =
+          new OperatorIntent.WheelSpeeds(left * maxSpeed, right * maxSpeed);
+      intent.setWheelSpeeds(wheels);
+      published++;
+      InputEvent.emit(source.getName(), "chassis", wheels);
+      if (stop) {
+        commands.stop_chassis();
+      }
+    }
+    if (changed(publishedPan, pan) || changed(publishedTilt, tilt)) {
+      publishedPan = pan;
+      publishedTilt = tilt;
+      OperatorIntent.GimbalRate rate = new OperatorIntent.GimbalRate(pan, tilt);
+      intent.setGimbalRate(rate);
+      published++;
+      InputEvent.emit(source.getName(), "gimbal", rate);
+    }
+  }
+
+  private boolean changed(double last, double value) {
+    if (value == last) {
+      return false;
+    }
+    // the ends are always published, a stick at rest or at full deflection is exact
+    if (Math.abs(value - last) >= threshold || value == 0 || Math.abs(value) == 1) {
+      return true;
+    }
+    suppressed++;
+    return false;
+  }
+
+  private void release() {
+    boolean moving = publishedLeft != 0 || publishedRight != 0;
+    publishedLeft = 0;
+    publishedRight = 0;
+    publishedPan = 0;
+    publishedTilt = 0;
+    intent.releaseAnalog();
+    if (moving) {
+      commands.stop_chassis();
+    }
+  }
+
+  private record Target(OperatorIntent intent, CommandCoalescer commands) {
+  }
+}
@@ -0,0 +1,19 @@
+package org.example.ugv_rc.input;
+
+/*
+ * Analog operator input, polled by the InputPoller at its fixed rate
+ */
+public interface InputSource extends AutoCloseable {
+
+  String getName();
+
+  /*
+   * Writes the current raw values to state, on the poller thread. False if the device
+   * is gone or has nothing more to report; state is then not written.
+   */
+  boolean poll(InputState state);
+
+  @Override
+  default void close() {
+  }
+}
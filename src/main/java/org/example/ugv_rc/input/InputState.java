@@ -0,0 +1,32 @@
+package org.example.ugv_rc.input;
+
+import lombok.Getter;
+import lombok.Setter;
+
+/*
+ * One raw sample of an InputSource, reused for every poll.
+ *
+ * throttle: -1 -> full reverse, 1 -> full forward
+ * steer: -1 -> left, 1 -> right
+ * pan: -1 -> left, 1 -> right
+ * tilt: -1 -> down, 1 -> up
+ * stop: the stop button is down
+ */
+@Getter
+@Setter
+public class InputState {
+
+  private double throttle;
+  private double steer;
+  private double pan;
+  private double tilt;
+  private boolean stop;
+
+  public void clear() {
+    throttle = 0;
+    steer = 0;
+    pan = 0;
+    tilt = 0;
+    stop = false;
+  }
+}
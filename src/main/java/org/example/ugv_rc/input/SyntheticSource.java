@@ -0,0 +1,138 @@
+package org.example.ugv_rc.input;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Scripted input, for running the input pipeline without a gamepad.
+ *
+ * A script is a list of segments, each ramping the sticks linearly from where the
+ * previous one ended to its values over its duration; pressStop() holds the stop button
+ * for one segment. noise adds uniform random jitter of that amplitude to every axis, as a
+ * worn stick does, to exercise deadzone and threshold. The script starts at the first
+ * poll and, unless looped, reports the source lost at its end.
+ */
+public class SyntheticSource implements InputSource {
+
+  private final List<Segment> segments = new ArrayList<>();
+  private final Random random = new Random(42);
+  private double noise;
+  private boolean loop;
+  private long durationNanos;
+  private long startNanos;
+  private boolean started;
+
+  private record Segment(long endNanos, double throttle, double steer, double pan,
+      double tilt, boolean stop) {
+  }
+
+  /*
+   * A loop of about 20 s: forward, a curve, a turn on the spot, reverse, a pan and tilt
+   * sweep, and a stop while driving
+   */
+  public static SyntheticSource demo() {
+    return new SyntheticSource()
+        .noise(0.01)
+        .loop(true)
+        .ramp(1000, 0, 0, 0, 0)
+        .ramp(1500, 0.8, 0, 0, 0)
+        .ramp(1000, 0.8, 0, 0, 0)
+        .ramp(1000, 0.6, 0.4, 0, 0)
+        .ramp(1000, 0, 0, 0, 0)
+        .ramp(500, 0, 1, 0, 0)
+        .ramp(1500, 0, 1, 0, 0)
+        .ramp(500, 0, 0, 0, 0)
+        .ramp(1000, -0.5, 0, 0, 0)
+        .ramp(1000, 0, 0, 0, 0)
+        .ramp(1000, 0, 0, 1, 0)
+        .ramp(1500, 0, 0, 1, 0)
+        .ramp(1000, 0, 0, -0.5, 0.5)
+        .ramp(500, 0, 0, 0, 0)
+        .ramp(1000, 1, 0, 0, 0)
+        .pressStop(200)
+        .ramp(1000, 1, 0, 0, 0)
+        .ramp(800, 0, 0, 0, 0)
+        .ramp(1000, 0, 0, 0, 0);
+  }
+
+  public SyntheticSource ramp(long millis, double throttle, double steer, double pan,
+      double tilt) {
+    return add(millis, throttle, steer, pan, tilt, false);
+  }
+
+  // holds the stop button, the sticks stay where they are
+  public SyntheticSource pressStop(long millis) {
+    Segment last = segments.isEmpty() ? null : segments.getLast();
+    return last == null ? add(millis, 0, 0, 0, 0, true)
+        : add(millis, last.throttle, last.steer, last.pan, last.tilt, true);
+  }
+
+  public SyntheticSource noise(double amplitude) {
+    this.noise = amplitude;
+    return this;
+  }
+
+  public SyntheticSource loop(boolean loop) {
+    this.loop = loop;
+    return this;
+  }
+
+  @Override
+  public String getName() {
+    return "synthetic";
+  }
+
+  @Override
+  public boolean poll(InputState state) {
+    long now = System.nanoTime();
+    if (!started) {
+      started = true;
+      startNanos = now;
+    }
+    long t = now - startNanos;
+    if (t >= durationNanos) {
+      if (!loop || durationNanos == 0) {
+        return false;
+      }
+      t %= durationNanos;
+    }
+    double throttle = 0;
+    double steer = 0;
+    double pan = 0;
+    double tilt = 0;
+    long segmentStart = 0;
+    for (Segment segment : segments) {
+      if (t < segment.endNanos) {
+        double f = (double) (t - segmentStart) / (segment.endNanos - segmentStart);
+        state.setThrottle(jitter(throttle + f * (segment.throttle - throttle)));
+        state.setSteer(jitter(steer + f * (segment.steer - steer)));
+        state.setPan(jitter(pan + f * (segment.pan - pan)));
+        state.setTilt(jitter(tilt + f * (segment.tilt - tilt)));
+        state.setStop(segment.stop);
+        return true;
+      }
+      throttle = segment.throttle;
+      steer = segment.steer;
+      pan = segment.pan;
+      tilt = segment.tilt;
+      segmentStart = segment.endNanos;
+    }
+    return false;
+  }
+
+  private SyntheticSource add(long millis, double throttle, double steer, double pan,
+      double tilt, boolean stop) {
+    durationNanos += TimeUnit.MILLISECONDS.toNanos(millis);
+    segments.add(new Segment(durationNanos, throttle, steer, pan, tilt, stop));
+    return this;
+  }
+
+  private double jitter(double value) {
+    if (noise == 0) {
+      return value;
+    }
+    return Math.clamp(value + (random.nextDouble() * 2 - 1) * noise, -1, 1);
+  }
+}
@@ -0,0 +1,47 @@
+package org.example.ugv_rc.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/*
+ * JFR event of an ESP32 command encoded for sending
+ */
+@Name("org.example.ugv_rc.CommandEncoded")
+@Label("Command Encoded")
+@Category({"UGV RC", "Control"})
+@Description("An ESP32 command encoded into its request path")
+@StackTrace(false)
+public class CommandEncodedEvent extends Event {
+
+  @Label("T Code")
+  public int code;
+
+  @Label("Command")
+  public String command;
+
+  @Label("Bytes")
+  @DataAmount
+  public int bytes;
+
+  @Label("Since Input")
+  @Description("Time since the last operator input, N/A before the first")
+  @Timespan
+  public long sinceInput;
+
+  public static void emit(int code, String command, int bytes) {
+    CommandEncodedEvent event = new CommandEncodedEvent();
+    if (event.shouldCommit()) {
+      event.code = code;
+      event.command = command;
+      event.bytes = bytes;
+      event.sinceInput = InputEvent.sinceLastNanos();
+      event.commit();
+    }
+  }
+}
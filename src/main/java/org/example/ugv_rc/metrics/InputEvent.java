@@ -0,0 +1,58 @@
+package org.example.ugv_rc.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/*
+ * JFR event of an operator input: a key, a button of the panel or a change of the
+ * gamepad. The time of the last one is kept whether recording or not, for the sinceInput
+ * of CommandEncodedEvent and RequestEvent.
+ */
+@Name("org.example.ugv_rc.Input")
+@Label("Operator Input")
+@Category({"UGV RC", "Input"})
+@Description("A key, panel button or gamepad change of the operator")
+@StackTrace(false)
+public class InputEvent extends Event {
+
+  private static volatile long lastNanos;
+  private static volatile boolean seen;
+
+  @Label("Source")
+  public String source;
+
+  @Label("Action")
+  public String action;
+
+  public static void emit(String source, String action) {
+    lastNanos = System.nanoTime();
+    seen = true;
+    InputEvent event = new InputEvent();
+    if (event.shouldCommit()) {
+      event.source = source;
+      event.action = action;
+      event.commit();
+    }
+  }
+
+  // argument is only formatted while recording
+  public static void emit(String source, String action, Object argument) {
+    lastNanos = System.nanoTime();
+    seen = true;
+    InputEvent event = new InputEvent();
+    if (event.shouldCommit()) {
+      event.source = source;
+      event.action = action + " " + argument;
+      event.commit();
+    }
+  }
+
+  // Long.MIN_VALUE, shown as N/A, before the first input
+  public static long sinceLastNanos() {
+    return seen ? System.nanoTime() - lastNanos : Long.MIN_VALUE;
+  }
+}
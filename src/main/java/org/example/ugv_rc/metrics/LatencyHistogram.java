@@ -0,0 +1,156 @@
+package org.example.ugv_rc.metrics;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import lombok.Getter;
+
+/*
+ * Lock-free latency histogram with microsecond resolution.
+ *
+ * Buckets are log-linear: 16 linear sub-buckets per power of two, so a bucket is at
+ * most 1/16 of its value wide, from 1 us up to about 68 s; longer samples count in the
+ * last bucket. Recording is a few atomic increments and allocates nothing, so it can
+ * stay on for every request. Counts are cumulative; a Snapshot turns them into the
+ * statistics of the interval since its previous update.
+ */
+public class LatencyHistogram {
+
+  private static final int SUB_BITS = 4;
+  private static final int SUB = 1 << SUB_BITS;
+  private static final int MAX_EXPONENT = 36;
+  private static final long MAX_MICROS = (1L << MAX_EXPONENT) - 1;
+  static final int BUCKETS = (MAX_EXPONENT - SUB_BITS + 1) * SUB;
+
+  private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+  private final AtomicLong count = new AtomicLong();
+  private final AtomicLong errors = new AtomicLong();
+  private final AtomicLong timeouts = new AtomicLong();
+  private final AtomicLong maxNanos = new AtomicLong();
+
+  public void record(long nanos) {
+    counts.incrementAndGet(bucket(TimeUnit.NANOSECONDS.toMicros(nanos)));
+    count.incrementAndGet();
+    long max = maxNanos.get();
+    while (nanos > max && !maxNanos.compareAndSet(max, nanos)) {
+      max = maxNanos.get();
+    }
+  }
+
+  public void recordError() {
+    errors.incrementAndGet();
+  }
+
+  public void recordTimeout() {
+    timeouts.incrementAndGet();
+  }
+
+  public long getCount() {
+    return count.get();
+  }
+
+  public long getErrors() {
+    return errors.get();
+  }
+
+  public long getTimeouts() {
+    return timeouts.get();
+  }
+
+  public long getMaxNanos() {
+    return maxNanos.get();
+  }
+
+  static int bucket(long micros) {
+    if (micros < SUB) {
+      return (int) Math.max(0, micros);
+    }
+    micros = Math.min(micros, MAX_MICROS);
+    int shift = 63 - Long.numberOfLeadingZeros(micros) - SUB_BITS;
+    return (shift + 1) * SUB + (int) ((micros >>> shift) - SUB);
+  }
+
+  // largest value counted in bucket
+  static long upperBoundMicros(int bucket) {
+    if (bucket < SUB) {
+      return bucket;
+    }
+    int shift = bucket / SUB - 1;
+    return ((long) (bucket % SUB + SUB + 1) << shift) - 1;
+  }
+
+  /*
+   * Statistics of the samples recorded between two update() calls. Owned by one reader
+   * thread, allocation-free after construction. A snapshot taken concurrently with
+   * recording may be off by the samples in progress.
+   */
+  public static class Snapshot {
+
+    private final long[] previous = new long[BUCKETS];
+    private final long[] interval = new long[BUCKETS];
+    private long previousCount;
+    private long previousErrors;
+    private long previousTimeouts;
+    private long previousNanos;
+
+    @Getter
+    private long count;
+    @Getter
+    private long errors;
+    @Getter
+    private long timeouts;
+    // requests per second
+    @Getter
+    private double rate;
+    @Getter
+    private long p50Micros;
+    @Getter
+    private long p99Micros;
+    @Getter
+    private long maxMicros;
+    // since the histogram was created
+    @Getter
+    private long totalCount;
+
+    public void update(LatencyHistogram histogram, long nowNanos) {
+      long total = 0;
+      for (int i = 0; i < BUCKETS; i++) {
+        long c = histogram.counts.get(i);
+        interval[i] = c - previous[i];
+        previous[i] = c;
+        total += interval[i];
+      }
+      count = total;
+      totalCount = histogram.getCount();
+      long e = histogram.getErrors();
+      long t = histogram.getTimeouts();
+      errors = e - previousErrors;
+      timeouts = t - previousTimeouts;
+      previousErrors = e;
+      previousTimeouts = t;
+      double seconds = previousNanos == 0 ? 0 : (nowNanos - previousNanos) / 1e9;
+      rate = seconds > 0 ? (totalCount - previousCount) / seconds : 0;
+      previousCount = totalCount;
+      previousNanos = nowNanos;
+      long histogramMax = TimeUnit.NANOSECONDS.toMicros(histogram.getMaxNanos());
+      p50Micros = Math.min(percentile(0.5), histogramMax);
+      p99Micros = Math.min(percentile(0.99), histogramMax);
+      maxMicros = Math.min(percentile(1), histogramMax);
+    }
+
+    private long percentile(double fraction) {
+      if (count == 0) {
+        return 0;
+      }
+      long rank = Math.max(1, (long) Math.ceil(fraction * count));
+      long seen = 0;
+      for (int i = 0; i < BUCKETS; i++) {
+        seen += interval[i];
+        if (seen >= rank) {
+          return upperBoundMicros(i);
+        }
+      }
+      return upperBoundMicros(BUCKETS - 1);
+    }
+  }
+}
@@ -0,0 +1,52 @@
+package org.example.ugv_rc.metrics;
+
+import lombok.Getter;
+
+/*
+ * Request latencies of one device, by channel (command type or endpoint) and in total
+ */
+public class LinkMetrics {
+
+  @Getter
+  private final String device;
+  private final String[] channels;
+  private final LatencyHistogram[] histograms;
+  @Getter
+  private final LatencyHistogram total = new LatencyHistogram();
+
+  public LinkMetrics(String device, String... channels) {
+    this.device = device;
+    this.channels = channels.clone();
+    this.histograms = new LatencyHistogram[channels.length];
+    for (int i = 0; i < channels.length; i++) {
+      histograms[i] = new LatencyHistogram();
+    }
+  }
+
+  public void record(int channel, long nanos) {
+    histograms[channel].record(nanos);
+    total.record(nanos);
+  }
+
+  public void recordError(int channel) {
+    histograms[channel].recordError();
+    total.recordError();
+  }
+
+  public void recordTimeout(int channel) {
+    histograms[channel].recordTimeout();
+    total.recordTimeout();
+  }
+
+  public int getChannelCount() {
+    return channels.length;
+  }
+
+  public String getChannel(int channel) {
+    return channels[channel];
+  }
+
+  public LatencyHistogram histogram(int channel) {
+    return histograms[channel];
+  }
+}
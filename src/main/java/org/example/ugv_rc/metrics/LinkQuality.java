@@ -0,0 +1,82 @@
+package org.example.ugv_rc.metrics;
+
+import java.util.List;
+import java.util.Locale;
+
+/*
+ * Compact readout of the links to the devices, one line per device and a detail line
+ * per channel, with the statistics of the interval since the previous update.
+ * Not thread-safe; meant to be updated at a low, fixed rate by one thread.
+ */
+public class LinkQuality {
+
+  private final List<LinkMetrics> links;
+  private final LatencyHistogram.Snapshot[] totals;
+  private final LatencyHistogram.Snapshot[][] channels;
+  private final StringBuilder summary = new StringBuilder();
+  private final StringBuilder details = new StringBuilder();
+
+  public LinkQuality(LinkMetrics... links) {
+    this.links = List.of(links);
+    this.totals = new LatencyHistogram.Snapshot[links.length];
+    this.channels = new LatencyHistogram.Snapshot[links.length][];
+    for (int l = 0; l < links.length; l++) {
+      totals[l] = new LatencyHistogram.Snapshot();
+      channels[l] = new LatencyHistogram.Snapshot[links[l].getChannelCount()];
+      for (int c = 0; c < channels[l].length; c++) {
+        channels[l][c] = new LatencyHistogram.Snapshot();
+      }
+    }
+  }
+
+  public void update(long nowNanos) {
+    summary.setLength(0);
+    details.setLength(0);
+    for (int l = 0; l < totals.length; l++) {
+      LinkMetrics link = links.get(l);
+      totals[l].update(link.getTotal(), nowNanos);
+      if (l > 0) {
+        summary.append("   ");
+      }
+      summary.append(link.getDevice()).append(' ');
+      append(summary, totals[l]);
+      for (int c = 0; c < channels[l].length; c++) {
+        LatencyHistogram.Snapshot snapshot = channels[l][c];
+        snapshot.update(link.histogram(c), nowNanos);
+        if (snapshot.getTotalCount() > 0 || snapshot.getErrors() > 0
+            || snapshot.getTimeouts() > 0) {
+          details.append(link.getDevice()).append(' ').append(link.getChannel(c)).append(": ");
+          append(details, snapshot);
+          details.append('\n');
+        }
+      }
+    }
+  }
+
+  // one line per device
+  public String summary() {
+    return summary.toString();
+  }
+
+  // one line per channel that has seen requests
+  public String details() {
+    return details.toString();
+  }
+
+  private static void append(StringBuilder out, LatencyHistogram.Snapshot snapshot) {
+    out.append(String.format(Locale.ROOT, "%.1f/s", snapshot.getRate()));
+    if (snapshot.getCount() > 0) {
+      out.append(String.format(Locale.ROOT, " p50 %s p99 %s max %s",
+          millis(snapshot.getP50Micros()), millis(snapshot.getP99Micros()),
+          millis(snapshot.getMaxMicros())));
+    }
+    if (snapshot.getErrors() > 0 || snapshot.getTimeouts() > 0) {
+      out.append(" err ").append(snapshot.getErrors())
+          .append(" t/o ").append(snapshot.getTimeouts());
+    }
+  }
+
+  private static String millis(long micros) {
+    return String.format(Locale.ROOT, micros < 10_000 ? "%.1fms" : "%.0fms", micros / 1000.0);
+  }
+}
@@ -0,0 +1,50 @@
+package org.example.ugv_rc.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/*
+ * JFR event of one HTTP request to a device, from sending it to the response read. For
+ * the first command after an input, sinceInput at its end is the latency from the input
+ * to the device having it.
+ */
+@Name("org.example.ugv_rc.Request")
+@Label("Device Request")
+@Category({"UGV RC", "Transport"})
+@Description("An HTTP request to the ESP32 or Jetson, from sent to response received")
+@StackTrace(false)
+public class RequestEvent extends Event {
+
+  @Label("Device")
+  public String device;
+
+  @Label("T Code")
+  @Description("Of an ESP32 command, 0 otherwise")
+  public int code;
+
+  @Label("Path")
+  public String path;
+
+  @Label("Status")
+  @Description("HTTP status, 0 if there was no response")
+  public int status;
+
+  @Label("Response Bytes")
+  @Description("Content length, -1 if unknown")
+  @DataAmount
+  public long responseBytes;
+
+  @Label("Error")
+  public String error;
+
+  @Label("Since Input")
+  @Description("Time since the last operator input at the response, N/A before the first")
+  @Timespan
+  public long sinceInput;
+}
@@ -0,0 +1,31 @@
+package org.example.ugv_rc.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/*
+ * JFR event of a telemetry frame or response parsed
+ */
+@Name("org.example.ugv_rc.TelemetryParsed")
+@Label("Telemetry Parsed")
+@Category({"UGV RC", "Telemetry"})
+@Description("Base feedback, IMU data or power status parsed from a frame or response")
+@StackTrace(false)
+public class TelemetryParsedEvent extends Event {
+
+  @Label("T Code")
+  @Description("Of an ESP32 frame, 0 for the Jetson power status")
+  public int code;
+
+  @Label("Bytes")
+  @DataAmount
+  public int bytes;
+
+  @Label("Valid")
+  public boolean valid;
+}
@@ -0,0 +1,22 @@
+package org.example.ugv_rc.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/*
+ * JFR event of an update of the panel on the JavaFX thread
+ */
+@Name("org.example.ugv_rc.UiUpdate")
+@Label("UI Update")
+@Category({"UGV RC", "UI"})
+@Description("Telemetry, link quality or console shown on the JavaFX thread")
+@StackTrace(false)
+public class UiUpdateEvent extends Event {
+
+  @Label("View")
+  public String view;
+}
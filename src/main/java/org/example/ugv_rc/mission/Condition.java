@@ -0,0 +1,87 @@
+package org.example.ugv_rc.mission;
+
+import org.example.ugv_rc.telemetry.BaseFeedback;
+import org.example.ugv_rc.telemetry.ImuData;
+import org.example.ugv_rc.telemetry.PowerStatus;
+
+/*
+ * <source>.<field> <op> <value> of an await or expect step, e.g. feedback.voltage > 11.1
+ *  - source: feedback (T:130), imu (T:126) or power (Jetson INA219)
+ *  - field: a value of BaseFeedback, ImuData or PowerStatus, e.g. roll, accelZ, current
+ *  - op: <, <=, >, >=, ==, !=
+ */
+public record Condition(String source, String field, String op, double value) {
+
+  public static Condition parse(String operand, String op, String value) {
+    int dot = operand.indexOf('.');
+    if (dot < 0) {
+      throw new IllegalArgumentException("expected <source>.<field>: " + operand);
+    }
+    Condition condition = new Condition(operand.substring(0, dot), operand.substring(dot + 1),
+        op, Double.parseDouble(value));
+    // fails on an unknown source, field or operator
+    condition.test(condition.read(new BaseFeedback(), new ImuData(), new PowerStatus()));
+    return condition;
+  }
+
+  // the field of whichever value the source was queried into
+  public double read(BaseFeedback feedback, ImuData imu, PowerStatus power) {
+    return switch (source) {
+      case "feedback" -> switch (field) {
+        case "left" -> feedback.getLeft();
+        case "right" -> feedback.getRight();
+        case "roll" -> feedback.getRoll();
+        case "pitch" -> feedback.getPitch();
+        case "yaw" -> feedback.getYaw();
+        case "voltage" -> feedback.getVoltage();
+        default -> throw unknownField();
+      };
+      case "imu" -> switch (field) {
+        case "roll" -> imu.getRoll();
+        case "pitch" -> imu.getPitch();
+        case "yaw" -> imu.getYaw();
+        case "accelX" -> imu.getAccelX();
+        case "accelY" -> imu.getAccelY();
+        case "accelZ" -> imu.getAccelZ();
+        case "gyroX" -> imu.getGyroX();
+        case "gyroY" -> imu.getGyroY();
+        case "gyroZ" -> imu.getGyroZ();
+        case "magX" -> imu.getMagX();
+        case "magY" -> imu.getMagY();
+        case "magZ" -> imu.getMagZ();
+        case "temperature" -> imu.getTemperature();
+        default -> throw unknownField();
+      };
+      case "power" -> switch (field) {
+        case "voltage" -> power.getVoltage();
+        case "shuntVoltage" -> power.getShuntVoltage();
+        case "current" -> power.getCurrent();
+        case "power" -> power.getPower();
+        default -> throw unknownField();
+      };
+      default -> throw new IllegalArgumentException("unknown source: " + source);
+    };
+  }
+
+  // false for NaN, i.e. a failed query
+  public boolean test(double actual) {
+    return switch (op) {
+      case "<" -> actual < value;
+      case "<=" -> actual <= value;
+      case ">" -> actual > value;
+      case ">=" -> actual >= value;
+      case "==" -> actual == value;
+      case "!=" -> !Double.isNaN(actual) && actual != value;
+      default -> throw new IllegalArgumentException("unknown operator: " + op);
+    };
+  }
+
+  @Override
+  public String toString() {
+    return source + "." + field + " " + op + " " + value;
+  }
+
+  private IllegalArgumentException unknownField() {
+    return new IllegalArgumentException("unknown field of " + source + ": " + field);
+  }
+}
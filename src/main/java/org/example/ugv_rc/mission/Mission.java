@@ -0,0 +1,151 @@
+package org.example.ugv_rc.mission;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/*
+ * Mission script, one step per line, # starts a comment:
+ *
+ *   drive <left> <right> <ms>        wheel speeds in m/s, stops after ms unless the next
+ *                                    step is a drive
+ *   stop                             chassis and gimbal
+ *   gimbal <pan> <tilt> [<speed> <acceleration>]
+ *   sweep <from-pan> <to-pan> <tilt> <ms> [<steps>]
+ *                                    gimbal setpoints spread across ms, one per 100 ms
+ *                                    if steps is not given
+ *   pause <ms>
+ *   await <condition> within <ms>    polls until the condition holds, else aborts
+ *   expect <condition>               checks once and goes on
+ *
+ * A condition is <source>.<field> <op> <value>, see Condition. Steps run one after the
+ * other: drive, sweep and pause take their time, the others none apart from awaiting
+ * telemetry.
+ */
+public record Mission(String name, List<Step> steps) {
+
+  private static final long SWEEP_STEP_MILLIS = 100;
+
+  public static Mission read(Path script) throws IOException {
+    return parse(script.getFileName().toString(), Files.readAllLines(script));
+  }
+
+  public static Mission parse(String name, List<String> lines) {
+    List<Step> steps = new ArrayList<>();
+    for (int i = 0; i < lines.size(); i++) {
+      String text = lines.get(i);
+      int comment = text.indexOf('#');
+      if (comment >= 0) {
+        text = text.substring(0, comment);
+      }
+      text = text.strip();
+      if (text.isEmpty()) {
+        continue;
+      }
+      try {
+        steps.add(step(i + 1, text.split("\\s+")));
+      } catch (IllegalArgumentException e) {
+        throw new IllegalArgumentException(name + " line " + (i + 1) + ": " + e.getMessage(), e);
+      }
+    }
+    return new Mission(name, List.copyOf(steps));
+  }
+
+  // the time of the steps that take time, without awaiting telemetry
+  public long plannedMillis() {
+    long millis = 0;
+    for (Step step : steps) {
+      millis += switch (step) {
+        case Step.Drive drive -> drive.millis();
+        case Step.Sweep sweep -> sweep.millis();
+        case Step.Pause pause -> pause.millis();
+        default -> 0;
+      };
+    }
+    return millis;
+  }
+
+  // whether an await or expect queries the source, e.g. power, which needs the Jetson
+  public boolean reads(String source) {
+    for (Step step : steps) {
+      Condition condition = switch (step) {
+        case Step.Await await -> await.condition();
+        case Step.Expect expect -> expect.condition();
+        default -> null;
+      };
+      if (condition != null && condition.source().equals(source)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private static Step step(int line, String[] word) {
+    return switch (word[0]) {
+      case "drive" -> {
+        arguments(word, 3, 3);
+        yield new Step.Drive(line, Double.parseDouble(word[1]), Double.parseDouble(word[2]),
+            millis(word[3]));
+      }
+      case "stop" -> {
+        arguments(word, 0, 0);
+        yield new Step.Stop(line);
+      }
+      case "gimbal" -> {
+        arguments(word, 2, 4);
+        if (word.length == 4) {
+          throw new IllegalArgumentException("speed without acceleration");
+        }
+        yield new Step.Gimbal(line, Integer.parseInt(word[1]), Integer.parseInt(word[2]),
+            word.length > 3 ? Integer.parseInt(word[3]) : 0,
+            word.length > 4 ? Integer.parseInt(word[4]) : 0);
+      }
+      case "sweep" -> {
+        arguments(word, 4, 5);
+        long millis = millis(word[4]);
+        int steps = word.length > 5 ? Integer.parseInt(word[5])
+            : (int) Math.max(1, millis / SWEEP_STEP_MILLIS);
+        if (steps < 1) {
+          throw new IllegalArgumentException("steps must be at least 1");
+        }
+        yield new Step.Sweep(line, Integer.parseInt(word[1]), Integer.parseInt(word[2]),
+            Integer.parseInt(word[3]), millis, steps);
+      }
+      case "pause" -> {
+        arguments(word, 1, 1);
+        yield new Step.Pause(line, millis(word[1]));
+      }
+      case "await" -> {
+        arguments(word, 5, 5);
+        if (!word[4].equals("within")) {
+          throw new IllegalArgumentException("expected await <condition> within <ms>");
+        }
+        yield new Step.Await(line, Condition.parse(word[1], word[2], word[3]),
+            millis(word[5]));
+      }
+      case "expect" -> {
+        arguments(word, 3, 3);
+        yield new Step.Expect(line, Condition.parse(word[1], word[2], word[3]));
+      }
+      default -> throw new IllegalArgumentException("unknown step: " + word[0]);
+    };
+  }
+
+  private static void arguments(String[] word, int min, int max) {
+    int count = word.length - 1;
+    if (count < min || count > max) {
+      throw new IllegalArgumentException(word[0] + " takes "
+          + (min == max ? String.valueOf(min) : min + " to " + max) + " arguments");
+    }
+  }
+
+  private static long millis(String word) {
+    long millis = Long.parseLong(word);
+    if (millis < 0) {
+      throw new IllegalArgumentException("negative time: " + word);
+    }
+    return millis;
+  }
+}
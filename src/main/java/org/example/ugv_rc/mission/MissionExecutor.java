@@ -0,0 +1,260 @@
+package org.example.ugv_rc.mission;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Supplier;
+import lombok.extern.slf4j.Slf4j;
+import org.example.ugv_rc.clients.CommandCoalescer;
+import org.example.ugv_rc.clients.ESP32Client;
+import org.example.ugv_rc.clients.QueryCache;
+import org.example.ugv_rc.telemetry.BaseFeedback;
+import org.example.ugv_rc.telemetry.ImuData;
+import org.example.ugv_rc.telemetry.PowerStatus;
+
+/*
+ * Runs a mission on the calling thread against the clients, without JavaFX.
+ *
+ * The mission is planned into commands with a deadline on one timeline before it starts.
+ * The thread parks until shortly before each deadline and spins the rest, then hands the
+ * command to the client without waiting for the answer, so a slow round trip does not
+ * delay the next command.
+ * A drive repeats its T:1 every CommandCoalescer.KEEP_ALIVE_MILLIS. Awaiting telemetry
+ * takes as long as it takes; the timeline continues from when it was done. Whatever
+ * happens, chassis and gimbal are stopped at the end.
+ */
+@Slf4j
+public class MissionExecutor {
+
+  // parkNanos oversleeps by up to about 100 us
+  private static final long SPIN_NANOS = TimeUnit.MICROSECONDS.toNanos(300);
+  private static final long POLL_NANOS = TimeUnit.MILLISECONDS.toNanos(20);
+  private static final long KEEP_ALIVE_NANOS =
+      TimeUnit.MILLISECONDS.toNanos(CommandCoalescer.KEEP_ALIVE_MILLIS);
+  private static final long DRAIN_MILLIS = 5000;
+
+  private final ESP32Client ugv;
+  private final QueryCache queries;
+  private final BaseFeedback feedback = new BaseFeedback();
+  private final ImuData imu = new ImuData();
+  private final PowerStatus power = new PowerStatus();
+  private final List<CompletableFuture<?>> sent = new ArrayList<>();
+  private TimingReport report;
+
+  /*
+   * queries: best with a TTL of 0, so that each poll sees a new value
+   */
+  public MissionExecutor(ESP32Client ugv, QueryCache queries) {
+    this.ugv = ugv;
+    this.queries = queries;
+  }
+
+  public TimingReport run(Mission mission, String target) {
+    List<Entry> plan = plan(mission.steps());
+    // from standstill, and the first requests through the async paths are not the ones
+    // that load and compile them
+    ugv.emergency_stop_async().join();
+    queries.baseFeedback(feedback).join();
+    report = new TimingReport(mission, target, System.currentTimeMillis());
+    sent.clear();
+    log.info("mission {}: {} steps, {} ms planned", mission.name(), mission.steps().size(),
+        mission.plannedMillis());
+    long start = System.nanoTime();
+    report.start(start);
+    boolean stopped = false;
+    try {
+      // what awaiting telemetry took longer than planned
+      long shift = 0;
+      for (Entry entry : plan) {
+        if (entry.check() == null) {
+          dispatch(entry, start + shift);
+        } else {
+          shift = check(entry, start + shift) - start - entry.offsetNanos();
+        }
+      }
+      stopped = true;
+    } catch (Aborted e) {
+      log.warn("mission {} aborted: {}", mission.name(), e.getMessage());
+    } finally {
+      if (!stopped) {
+        for (Entry entry : stop(new ArrayList<>(), 0, 0)) {
+          dispatch(entry, System.nanoTime());
+        }
+      }
+      report.end(System.nanoTime());
+      drain();
+    }
+    return report;
+  }
+
+  /*
+   * A command, or with check set an await or expect, at offsetNanos on the timeline. Planned
+   * before the start, so that no label or lambda is built while the timeline runs.
+   */
+  private record Entry(int line, long offsetNanos, String label,
+      Supplier<CompletableFuture<?>> command, Step check) {
+
+    static Entry command(int line, long offsetNanos, String label,
+        Supplier<CompletableFuture<?>> command) {
+      return new Entry(line, offsetNanos, label, command, null);
+    }
+  }
+
+  private List<Entry> plan(List<Step> steps) {
+    List<Entry> plan = new ArrayList<>();
+    long at = 0;
+    for (int i = 0; i < steps.size(); i++) {
+      boolean driveNext = i + 1 < steps.size() && steps.get(i + 1) instanceof Step.Drive;
+      Step step = steps.get(i);
+      at = switch (step) {
+        case Step.Drive drive -> drive(plan, drive, at, driveNext);
+        case Step.Stop stop -> {
+          stop(plan, stop.line(), at);
+          yield at;
+        }
+        case Step.Gimbal gimbal -> {
+          plan.add(Entry.command(gimbal.line(), at, "gimbal " + gimbal.pan() + " "
+              + gimbal.tilt(), () -> ugv.cmd_gimbal_ctrl_simple_async(gimbal.pan(),
+              gimbal.tilt(), gimbal.speed(), gimbal.acceleration())));
+          yield at;
+        }
+        case Step.Sweep sweep -> sweep(plan, sweep, at);
+        case Step.Pause pause -> at + TimeUnit.MILLISECONDS.toNanos(pause.millis());
+        case Step.Await _, Step.Expect _ -> {
+          plan.add(new Entry(step.line(), at, null, null, step));
+          yield at;
+        }
+      };
+    }
+    // line 0: the end of the mission
+    stop(plan, 0, at);
+    return plan;
+  }
+
+  private long drive(List<Entry> plan, Step.Drive drive, long at, boolean driveNext) {
+    long end = at + TimeUnit.MILLISECONDS.toNanos(drive.millis());
+    String label = "drive " + drive.left() + " " + drive.right();
+    for (long t = at; t < end; t += KEEP_ALIVE_NANOS) {
+      plan.add(Entry.command(drive.line(), t, label,
+          () -> ugv.cmd_speed_control_async(drive.left(), drive.right())));
+    }
+    if (!driveNext) {
+      plan.add(Entry.command(drive.line(), end, "stop chassis", ugv::stop_chassis_async));
+    }
+    return end;
+  }
+
+  private List<Entry> stop(List<Entry> plan, int line, long at) {
+    plan.add(Entry.command(line, at, "stop chassis", ugv::stop_chassis_async));
+    plan.add(Entry.command(line, at, "stop gimbal", ugv::cmd_gimbal_ctrl_stop_async));
+    return plan;
+  }
+
+  private long sweep(List<Entry> plan, Step.Sweep sweep, long at) {
+    long nanos = TimeUnit.MILLISECONDS.toNanos(sweep.millis());
+    for (int k = 0; k <= sweep.steps(); k++) {
+      int pan = sweep.fromPan() + (sweep.toPan() - sweep.fromPan()) * k / sweep.steps();
+      plan.add(Entry.command(sweep.line(), at + nanos * k / sweep.steps(),
+          "sweep " + pan + " " + sweep.tilt(),
+          () -> ugv.cmd_gimbal_ctrl_simple_async(pan, sweep.tilt())));
+    }
+    return at + nanos;
+  }
+
+  // returns when the check was done
+  private long check(Entry entry, long base) throws Aborted {
+    sleepUntil(base + entry.offsetNanos());
+    return switch (entry.check()) {
+      case Step.Await await -> await(await);
+      case Step.Expect expect -> expect(expect);
+      default -> throw new IllegalStateException("not a check: " + entry.check());
+    };
+  }
+
+  private long await(Step.Await await) throws Aborted {
+    long start = System.nanoTime();
+    long deadline = start + TimeUnit.MILLISECONDS.toNanos(await.timeoutMillis());
+    while (true) {
+      long polled = System.nanoTime();
+      double actual = read(await.condition());
+      boolean passed = await.condition().test(actual);
+      long now = System.nanoTime();
+      if (passed || now - deadline >= 0) {
+        report.check(new TimingReport.Check(await.line(), await.condition(), actual, passed,
+            now - start));
+        if (!passed) {
+          report.abort(await.line(), "timed out on " + await.condition());
+          throw new Aborted("line " + await.line() + ": " + await.condition());
+        }
+        return now;
+      }
+      sleepUntil(polled + POLL_NANOS);
+    }
+  }
+
+  private long expect(Step.Expect expect) {
+    long start = System.nanoTime();
+    double actual = read(expect.condition());
+    long now = System.nanoTime();
+    report.check(new TimingReport.Check(expect.line(), expect.condition(), actual,
+        expect.condition().test(actual), now - start));
+    return now;
+  }
+
+  // NaN if the query failed
+  private double read(Condition condition) {
+    boolean valid = switch (condition.source()) {
+      case "feedback" -> queries.baseFeedback(feedback).join().isValid();
+      case "imu" -> queries.imuData(imu).join().isValid();
+      case "power" -> queries.powerStatus(power).join().isValid();
+      default -> throw new IllegalArgumentException("unknown source: " + condition.source());
+    };
+    return valid ? condition.read(feedback, imu, power) : Double.NaN;
+  }
+
+  private void dispatch(Entry entry, long base) {
+    long scheduled = base + entry.offsetNanos();
+    sleepUntil(scheduled);
+    long dispatched = System.nanoTime();
+    CompletableFuture<?> result = entry.command().get();
+    TimingReport.Command command =
+        report.command(entry.line(), entry.label(), scheduled, dispatched);
+    result.whenComplete((_, _) -> command.responded(System.nanoTime() - dispatched));
+    sent.add(result);
+  }
+
+  // waits for the answers still outstanding, for the report
+  private void drain() {
+    try {
+      CompletableFuture.allOf(sent.toArray(CompletableFuture[]::new))
+          .get(DRAIN_MILLIS, TimeUnit.MILLISECONDS);
+    } catch (TimeoutException | ExecutionException e) {
+      log.warn("mission: not all commands answered: {}", e.getMessage());
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private static void sleepUntil(long deadline) {
+    long remaining;
+    while ((remaining = deadline - System.nanoTime()) > SPIN_NANOS) {
+      LockSupport.parkNanos(remaining - SPIN_NANOS);
+    }
+    while (deadline - System.nanoTime() > 0) {
+      Thread.onSpinWait();
+    }
+  }
+
+  private static final class Aborted extends Exception {
+
+    private static final long serialVersionUID = 1L;
+
+    Aborted(String message) {
+      super(message);
+    }
+  }
+}
@@ -0,0 +1,37 @@
+package org.example.ugv_rc.mission;
+
+/*
+ * One line of a mission script, see Mission for the syntax
+ */
+public sealed interface Step {
+
+  // line in the script, for the report
+  int line();
+
+  // left and right wheel speeds in m/s for millis
+  record Drive(int line, double left, double right, long millis) implements Step {
+  }
+
+  // chassis and gimbal stop on the priority lane
+  record Stop(int line) implements Step {
+  }
+
+  record Gimbal(int line, int pan, int tilt, int speed, int acceleration) implements Step {
+  }
+
+  // steps + 1 pan setpoints from fromPan to toPan spread evenly across millis
+  record Sweep(int line, int fromPan, int toPan, int tilt, long millis, int steps)
+      implements Step {
+  }
+
+  record Pause(int line, long millis) implements Step {
+  }
+
+  // polls until the condition holds, the mission is aborted after timeoutMillis
+  record Await(int line, Condition condition, long timeoutMillis) implements Step {
+  }
+
+  // checks the condition once, the mission goes on either way
+  record Expect(int line, Condition condition) implements Step {
+  }
+}
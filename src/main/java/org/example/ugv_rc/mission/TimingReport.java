@@ -0,0 +1,140 @@
+package org.example.ugv_rc.mission;
+
+import java.io.PrintWriter;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+
+/*
+ * What a mission run did and when: per command its scheduled time, how late it was
+ * dispatched and how long the device took to answer, per await or expect the value seen.
+ * Written by the executor thread, except the response times.
+ */
+public class TimingReport {
+
+  private final Mission mission;
+  private final String target;
+  private final long startedAtMillis;
+  private final List<Command> commands = new ArrayList<>();
+  private final List<Check> checks = new ArrayList<>();
+  private long startNanos;
+  private long endNanos;
+  private String abortReason;
+
+  /*
+   * startedAtMillis: wall clock at the start of the mission; the JVM start it is compared
+   * with is only read when writing, java.management is not loaded before the mission runs
+   */
+  TimingReport(Mission mission, String target, long startedAtMillis) {
+    this.mission = mission;
+    this.target = target;
+    this.startedAtMillis = startedAtMillis;
+  }
+
+  public static final class Command {
+
+    private final int line;
+    private final String label;
+    private final long scheduledNanos;
+    private final long latenessNanos;
+    // -1 until answered
+    private volatile long responseNanos = -1;
+
+    private Command(int line, String label, long scheduledNanos, long latenessNanos) {
+      this.line = line;
+      this.label = label;
+      this.scheduledNanos = scheduledNanos;
+      this.latenessNanos = latenessNanos;
+    }
+
+    void responded(long nanos) {
+      responseNanos = nanos;
+    }
+  }
+
+  public record Check(int line, Condition condition, double actual, boolean passed,
+      long waitedNanos) {
+  }
+
+  void start(long nanos) {
+    startNanos = nanos;
+  }
+
+  void end(long nanos) {
+    endNanos = nanos;
+  }
+
+  // scheduledNanos, dispatchedNanos: System.nanoTime()
+  Command command(int line, String label, long scheduledNanos, long dispatchedNanos) {
+    Command command = new Command(line, label, scheduledNanos - startNanos,
+        dispatchedNanos - scheduledNanos);
+    commands.add(command);
+    return command;
+  }
+
+  void check(Check check) {
+    checks.add(check);
+  }
+
+  void abort(int line, String reason) {
+    abortReason = "line " + line + ": " + reason;
+  }
+
+  public boolean isPassed() {
+    return abortReason == null && checks.stream().allMatch(Check::passed);
+  }
+
+  public long getCommandCount() {
+    return commands.size();
+  }
+
+  // the dispatch lateness of all commands, sorted
+  public long[] latenessNanos() {
+    return commands.stream().mapToLong(command -> command.latenessNanos).sorted().toArray();
+  }
+
+  public void write(PrintWriter out) {
+    out.printf("mission %s against %s%n", mission.name(), target);
+    long startupMillis = startedAtMillis - ManagementFactory.getRuntimeMXBean().getStartTime();
+    out.printf("started %d ms after JVM start, ran %.3f s (planned %.3f s)%n%n", startupMillis,
+        (endNanos - startNanos) / 1e9, mission.plannedMillis() / 1e3);
+    out.printf("%5s %10s %9s %12s  %s%n", "line", "at ms", "late us", "response ms", "command");
+    for (Command command : commands) {
+      long response = command.responseNanos;
+      out.printf("%5d %10.3f %9.1f %12s  %s%n", command.line, command.scheduledNanos / 1e6,
+          command.latenessNanos / 1e3,
+          response < 0 ? "-" : String.format("%.2f", response / 1e6), command.label);
+    }
+    if (!checks.isEmpty()) {
+      out.printf("%n%5s %6s %10s %10s  %s%n", "line", "result", "actual", "waited ms",
+          "condition");
+      for (Check check : checks) {
+        out.printf("%5d %6s %10.3f %10.1f  %s%n", check.line(), check.passed() ? "pass" : "FAIL",
+            check.actual(), check.waitedNanos() / 1e6, check.condition());
+      }
+    }
+    out.println();
+    long[] lateness = latenessNanos();
+    if (lateness.length > 0) {
+      out.printf("dispatch lateness: %d commands, p50 %.1f us, p99 %.1f us, max %.1f us%n",
+          lateness.length, percentile(lateness, 0.5) / 1e3, percentile(lateness, 0.99) / 1e3,
+          lateness[lateness.length - 1] / 1e3);
+    }
+    long[] responses = commands.stream().mapToLong(command -> command.responseNanos)
+        .filter(nanos -> nanos >= 0).sorted().toArray();
+    if (responses.length > 0) {
+      out.printf("response time:     p50 %.2f ms, p99 %.2f ms, max %.2f ms, %d unanswered%n",
+          percentile(responses, 0.5) / 1e6, percentile(responses, 0.99) / 1e6,
+          responses[responses.length - 1] / 1e6, commands.size() - responses.length);
+    }
+    long passed = checks.stream().filter(Check::passed).count();
+    out.printf("result: %s (%d of %d checks passed)%s%n", isPassed() ? "PASS" : "FAIL", passed,
+        checks.size(), abortReason != null ? ", aborted at " + abortReason : "");
+    out.flush();
+  }
+
+  // of sorted values
+  private static long percentile(long[] sorted, double quantile) {
+    return sorted[Math.min(sorted.length - 1, (int) (quantile * sorted.length))];
+  }
+}
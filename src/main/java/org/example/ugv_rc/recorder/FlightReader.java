@@ -0,0 +1,177 @@
+package org.example.ugv_rc.recorder;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import lombok.Getter;
+import org.example.ugv_rc.telemetry.BaseFeedback;
+import org.example.ugv_rc.telemetry.ImuData;
+import org.example.ugv_rc.telemetry.PowerStatus;
+
+/*
+ * Sequential reader of a recording written by FlightRecorder, segment by segment.
+ * Not thread-safe.
+ */
+public class FlightReader {
+
+  private final List<Path> segments;
+  private final long[] values = new long[FlightRecorder.IMU_DATA_FIELDS];
+  private final long[] lastBaseFeedback = new long[FlightRecorder.BASE_FEEDBACK_FIELDS];
+  private final long[] lastImuData = new long[FlightRecorder.IMU_DATA_FIELDS];
+  private final long[] lastPowerStatus = new long[FlightRecorder.POWER_STATUS_FIELDS];
+  private int segmentIndex;
+  private ByteBuffer buffer;
+  private long lastNanos;
+  // wall clock millis at the start of the current segment
+  @Getter
+  private long segmentEpochMillis;
+
+  /*
+   * recording: directory and name of the recording, or the path of any of its segments
+   */
+  public FlightReader(Path recording) throws IOException {
+    String name = recording.getFileName().toString();
+    if (name.matches(".*-\\d{4}\\" + FlightRecorder.SUFFIX)) {
+      name = name.substring(0, name.length() - 5 - FlightRecorder.SUFFIX.length());
+    }
+    Path directory = recording.toAbsolutePath().getParent();
+    this.segments = new ArrayList<>();
+    Path segment;
+    while (Files.exists(segment = FlightRecorder.segmentPath(directory, name, segments.size()))) {
+      segments.add(segment);
+    }
+    if (segments.isEmpty()) {
+      throw new NoSuchFileException(FlightRecorder.segmentPath(directory, name, 0).toString());
+    }
+  }
+
+  public int getSegmentCount() {
+    return segments.size();
+  }
+
+  /*
+   * Decodes the next record into record, false at the end of the recording
+   */
+  public boolean next(FlightRecord record) throws IOException {
+    while (buffer == null || !buffer.hasRemaining() || buffer.get(buffer.position()) == 0) {
+      if (segmentIndex == segments.size()) {
+        return false;
+      }
+      openSegment(segments.get(segmentIndex++));
+    }
+    byte kind = buffer.get();
+    lastNanos += unzigzag(readVarint());
+    record.timestampNanos = lastNanos;
+    switch (kind) {
+      case FlightRecorder.COMMAND -> {
+        record.kind = FlightRecord.Kind.COMMAND;
+        record.commandCode = (int) readVarint();
+        record.commandA = unzigzag(readVarint()) / FlightRecorder.FIXED_SCALE;
+        record.commandB = unzigzag(readVarint()) / FlightRecorder.FIXED_SCALE;
+      }
+      case FlightRecorder.BASE_FEEDBACK -> {
+        record.kind = FlightRecord.Kind.BASE_FEEDBACK;
+        long mask = readFields(FlightRecorder.BASE_FEEDBACK_FIELDS, lastBaseFeedback);
+        BaseFeedback feedback = record.baseFeedback;
+        feedback.setValid(true);
+        feedback.setTimestampNanos(lastNanos);
+        feedback.setLeft(value(mask, 0));
+        feedback.setRight(value(mask, 1));
+        feedback.setRoll(value(mask, 2));
+        feedback.setPitch(value(mask, 3));
+        feedback.setYaw(value(mask, 4));
+        feedback.setVoltage(value(mask, 5));
+      }
+      case FlightRecorder.IMU_DATA -> {
+        record.kind = FlightRecord.Kind.IMU_DATA;
+        long mask = readFields(FlightRecorder.IMU_DATA_FIELDS, lastImuData);
+        ImuData imuData = record.imuData;
+        imuData.setValid(true);
+        imuData.setTimestampNanos(lastNanos);
+        imuData.setRoll(value(mask, 0));
+        imuData.setPitch(value(mask, 1));
+        imuData.setYaw(value(mask, 2));
+        imuData.setAccelX(value(mask, 3));
+        imuData.setAccelY(value(mask, 4));
+        imuData.setAccelZ(value(mask, 5));
+        imuData.setGyroX(value(mask, 6));
+        imuData.setGyroY(value(mask, 7));
+        imuData.setGyroZ(value(mask, 8));
+        imuData.setMagX(value(mask, 9));
+        imuData.setMagY(value(mask, 10));
+        imuData.setMagZ(value(mask, 11));
+        imuData.setTemperature(value(mask, 12));
+      }
+      case FlightRecorder.POWER_STATUS -> {
+        record.kind = FlightRecord.Kind.POWER_STATUS;
+        long mask = readFields(FlightRecorder.POWER_STATUS_FIELDS, lastPowerStatus);
+        PowerStatus powerStatus = record.powerStatus;
+        powerStatus.setValid(true);
+        powerStatus.setTimestampNanos(lastNanos);
+        powerStatus.setVoltage(value(mask, 0));
+        powerStatus.setShuntVoltage(value(mask, 1));
+        powerStatus.setCurrent(value(mask, 2));
+        powerStatus.setPower(value(mask, 3));
+      }
+      default -> throw new IOException("unknown record kind " + kind + " in "
+          + segments.get(segmentIndex - 1) + " at " + (buffer.position() - 1));
+    }
+    return true;
+  }
+
+  private void openSegment(Path path) throws IOException {
+    buffer = ByteBuffer.wrap(Files.readAllBytes(path));
+    if (buffer.remaining() < FlightRecorder.HEADER_SIZE
+        || buffer.getInt() != FlightRecorder.MAGIC) {
+      throw new IOException("not a flight recording: " + path);
+    }
+    int version = buffer.getInt();
+    if (version != FlightRecorder.VERSION) {
+      throw new IOException("unsupported recording version " + version + ": " + path);
+    }
+    segmentEpochMillis = buffer.getLong();
+    lastNanos = buffer.getLong();
+    Arrays.fill(lastBaseFeedback, 0);
+    Arrays.fill(lastImuData, 0);
+    Arrays.fill(lastPowerStatus, 0);
+  }
+
+  private long readFields(int count, long[] last) throws IOException {
+    long mask = readVarint();
+    for (int i = 0; i < count; i++) {
+      if ((mask & (1L << i)) != 0) {
+        last[i] += unzigzag(readVarint());
+        values[i] = last[i];
+      }
+    }
+    return mask;
+  }
+
+  private double value(long mask, int field) {
+    return (mask & (1L << field)) != 0 ? values[field] / FlightRecorder.FIXED_SCALE : Double.NaN;
+  }
+
+  private long readVarint() throws IOException {
+    long value = 0;
+    for (int shift = 0; shift < 64; shift += 7) {
+      if (!buffer.hasRemaining()) {
+        throw new IOException("truncated record in " + segments.get(segmentIndex - 1));
+      }
+      byte b = buffer.get();
+      value |= (long) (b & 0x7F) << shift;
+      if (b >= 0) {
+        return value;
+      }
+    }
+    throw new IOException("malformed varint in " + segments.get(segmentIndex - 1));
+  }
+
+  private static long unzigzag(long value) {
+    return (value >>> 1) ^ -(value & 1);
+  }
+}
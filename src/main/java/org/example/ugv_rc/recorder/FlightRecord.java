@@ -0,0 +1,36 @@
+package org.example.ugv_rc.recorder;
+
+import lombok.Getter;
+import lombok.ToString;
+import org.example.ugv_rc.telemetry.BaseFeedback;
+import org.example.ugv_rc.telemetry.ImuData;
+import org.example.ugv_rc.telemetry.PowerStatus;
+
+/*
+ * One decoded record of a flight recording. The reader reuses the instance and its
+ * telemetry objects for the next record; only the part matching kind is valid.
+ */
+@Getter
+@ToString
+public class FlightRecord {
+
+  public enum Kind {
+    COMMAND,
+    BASE_FEEDBACK,
+    IMU_DATA,
+    POWER_STATUS
+  }
+
+  Kind kind;
+  // System.nanoTime() of the recording JVM
+  long timestampNanos;
+  int commandCode;
+  double commandA;
+  double commandB;
+  @ToString.Exclude
+  final BaseFeedback baseFeedback = new BaseFeedback();
+  @ToString.Exclude
+  final ImuData imuData = new ImuData();
+  @ToString.Exclude
+  final PowerStatus powerStatus = new PowerStatus();
+}
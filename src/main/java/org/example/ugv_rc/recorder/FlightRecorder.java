@@ -0,0 +1,280 @@
+package org.example.ugv_rc.recorder;
+
+import java.io.IOException;
+import java.lang.foreign.Arena;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Arrays;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.example.ugv_rc.telemetry.BaseFeedback;
+import org.example.ugv_rc.telemetry.ImuData;
+import org.example.ugv_rc.telemetry.PowerStatus;
+
+/*
+ * Binary flight recorder for outgoing commands and incoming telemetry.
+ *
+ * Records are appended to memory-mapped segment files <name>-0000.rec, <name>-0001.rec, ...
+ * in the recording directory. A segment starts with a header
+ *   magic "UGVR", version, wall clock millis, System.nanoTime() at creation
+ * followed by records
+ *   kind byte, zigzag varint nanos since the previous record, body
+ * A command body is the varint T code and both arguments in thousandths as zigzag
+ * varints. A telemetry body is a varint mask of the fields present, then every present
+ * field in thousandths as zigzag varint delta to its previous value in the segment, so
+ * a slowly changing frame takes a few bytes. Each segment is decodable on its own.
+ *
+ * The kind byte is written last; the unwritten rest of a segment is zero, which marks
+ * its end, so a recording cut short by a crash stays readable up to the last complete
+ * record. A full segment is unmapped and truncated to its length and the next one is
+ * mapped, which is the only file system work on the recording path.
+ *
+ * Thread-safe; records after close() or after an I/O error are dropped.
+ */
+@Slf4j
+public class FlightRecorder implements AutoCloseable {
+
+  public static final long DEFAULT_SEGMENT_SIZE = 4 * 1024 * 1024;
+
+  static final int MAGIC = 0x55475652;
+  static final int VERSION = 1;
+  static final int HEADER_SIZE = 24;
+  static final String SUFFIX = ".rec";
+  static final double FIXED_SCALE = 1000;
+
+  static final byte END = 0;
+  static final byte COMMAND = 1;
+  static final byte BASE_FEEDBACK = 2;
+  static final byte IMU_DATA = 3;
+  static final byte POWER_STATUS = 4;
+
+  static final int BASE_FEEDBACK_FIELDS = 6;
+  static final int IMU_DATA_FIELDS = 13;
+  static final int POWER_STATUS_FIELDS = 4;
+
+  // kind, timestamp, mask and 13 fields of 10 bytes at most
+  private static final int MAX_RECORD = 1 + 10 + 3 + IMU_DATA_FIELDS * 10;
+  private static final DateTimeFormatter NAME_FORMAT =
+      DateTimeFormatter.ofPattern("'flight-'yyyyMMdd-HHmmss");
+
+  private final Path directory;
+  @Getter
+  private final String name;
+  private final long segmentSize;
+  private final double[] values = new double[IMU_DATA_FIELDS];
+  private final long[] lastBaseFeedback = new long[BASE_FEEDBACK_FIELDS];
+  private final long[] lastImuData = new long[IMU_DATA_FIELDS];
+  private final long[] lastPowerStatus = new long[POWER_STATUS_FIELDS];
+  // guarded by this
+  private FileChannel channel;
+  private Arena arena;
+  private ByteBuffer buffer;
+  private int segmentIndex;
+  // position of the kind byte of the record being written
+  private int recordStart;
+  private byte recordKind;
+  private long lastNanos;
+  private boolean open;
+  @Getter
+  private long recordCount;
+  @Getter
+  private long byteCount;
+
+  /*
+   * Starts a new recording named after the current time in directory
+   */
+  public FlightRecorder(Path directory, long segmentSize) throws IOException {
+    this(directory, LocalDateTime.now().format(NAME_FORMAT), segmentSize);
+  }
+
+  public FlightRecorder(Path directory, String name, long segmentSize) throws IOException {
+    if (segmentSize < HEADER_SIZE + MAX_RECORD || segmentSize > Integer.MAX_VALUE) {
+      throw new IllegalArgumentException("segment size " + segmentSize);
+    }
+    this.directory = directory;
+    this.name = name;
+    this.segmentSize = segmentSize;
+    Files.createDirectories(directory);
+    openSegment();
+    open = true;
+    log.info("flight recorder: {}", directory.resolve(name));
+  }
+
+  public Path getPath() {
+    return directory.resolve(name);
+  }
+
+  /*
+   * Outgoing command by T code; a and b are its first two arguments, 0 if it has none
+   */
+  public synchronized void recordCommand(int code, double a, double b) {
+    if (!begin(COMMAND, System.nanoTime())) {
+      return;
+    }
+    writeVarint(code);
+    writeVarint(zigzag(fixed(a)));
+    writeVarint(zigzag(fixed(b)));
+    commit();
+  }
+
+  public synchronized void record(BaseFeedback feedback) {
+    if (!feedback.isValid() || !begin(BASE_FEEDBACK, feedback.getTimestampNanos())) {
+      return;
+    }
+    values[0] = feedback.getLeft();
+    values[1] = feedback.getRight();
+    values[2] = feedback.getRoll();
+    values[3] = feedback.getPitch();
+    values[4] = feedback.getYaw();
+    values[5] = feedback.getVoltage();
+    writeFields(BASE_FEEDBACK_FIELDS, lastBaseFeedback);
+    commit();
+  }
+
+  public synchronized void record(ImuData imuData) {
+    if (!imuData.isValid() || !begin(IMU_DATA, imuData.getTimestampNanos())) {
+      return;
+    }
+    values[0] = imuData.getRoll();
+    values[1] = imuData.getPitch();
+    values[2] = imuData.getYaw();
+    values[3] = imuData.getAccelX();
+    values[4] = imuData.getAccelY();
+    values[5] = imuData.getAccelZ();
+    values[6] = imuData.getGyroX();
+    values[7] = imuData.getGyroY();
+    values[8] = imuData.getGyroZ();
+    values[9] = imuData.getMagX();
+    values[10] = imuData.getMagY();
+    values[11] = imuData.getMagZ();
+    values[12] = imuData.getTemperature();
+    writeFields(IMU_DATA_FIELDS, lastImuData);
+    commit();
+  }
+
+  public synchronized void record(PowerStatus powerStatus) {
+    if (!powerStatus.isValid() || !begin(POWER_STATUS, powerStatus.getTimestampNanos())) {
+      return;
+    }
+    values[0] = powerStatus.getVoltage();
+    values[1] = powerStatus.getShuntVoltage();
+    values[2] = powerStatus.getCurrent();
+    values[3] = powerStatus.getPower();
+    writeFields(POWER_STATUS_FIELDS, lastPowerStatus);
+    commit();
+  }
+
+  @Override
+  public synchronized void close() {
+    if (!open) {
+      return;
+    }
+    open = false;
+    closeSegment();
+    log.info("flight recorder: {} records, {} bytes in {} segments", recordCount, byteCount,
+        segmentIndex);
+  }
+
+  private boolean begin(byte kind, long timestampNanos) {
+    if (!open) {
+      return false;
+    }
+    if (buffer.remaining() < MAX_RECORD) {
+      closeSegment();
+      try {
+        openSegment();
+      } catch (IOException e) {
+        log.error("flight recorder stopped: {}", e.getMessage());
+        open = false;
+        return false;
+      }
+    }
+    recordStart = buffer.position();
+    recordKind = kind;
+    buffer.position(recordStart + 1);
+    writeVarint(zigzag(timestampNanos - lastNanos));
+    lastNanos = timestampNanos;
+    return true;
+  }
+
+  private void commit() {
+    buffer.put(recordStart, recordKind);
+    byteCount += buffer.position() - recordStart;
+    recordCount++;
+  }
+
+  private void writeFields(int count, long[] last) {
+    int mask = 0;
+    for (int i = 0; i < count; i++) {
+      if (!Double.isNaN(values[i])) {
+        mask |= 1 << i;
+      }
+    }
+    writeVarint(mask);
+    for (int i = 0; i < count; i++) {
+      if ((mask & (1 << i)) != 0) {
+        long value = fixed(values[i]);
+        writeVarint(zigzag(value - last[i]));
+        last[i] = value;
+      }
+    }
+  }
+
+  private void writeVarint(long value) {
+    while ((value & ~0x7FL) != 0) {
+      buffer.put((byte) ((value & 0x7F) | 0x80));
+      value >>>= 7;
+    }
+    buffer.put((byte) value);
+  }
+
+  private void openSegment() throws IOException {
+    Path path = segmentPath(directory, name, segmentIndex);
+    channel = FileChannel.open(path, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ,
+        StandardOpenOption.WRITE);
+    arena = Arena.ofShared();
+    buffer = channel.map(MapMode.READ_WRITE, 0, segmentSize, arena).asByteBuffer();
+    long nanos = System.nanoTime();
+    buffer.putInt(MAGIC);
+    buffer.putInt(VERSION);
+    buffer.putLong(System.currentTimeMillis());
+    buffer.putLong(nanos);
+    segmentIndex++;
+    lastNanos = nanos;
+    Arrays.fill(lastBaseFeedback, 0);
+    Arrays.fill(lastImuData, 0);
+    Arrays.fill(lastPowerStatus, 0);
+  }
+
+  /*
+   * Unmaps the segment and cuts the file to the bytes written
+   */
+  private void closeSegment() {
+    int length = buffer.position();
+    buffer = null;
+    arena.close();
+    try (FileChannel c = channel) {
+      c.truncate(length);
+    } catch (IOException e) {
+      log.warn("flight recorder segment close: {}", e.getMessage());
+    }
+  }
+
+  static Path segmentPath(Path directory, String name, int index) {
+    return directory.resolve(String.format("%s-%04d%s", name, index, SUFFIX));
+  }
+
+  static long fixed(double value) {
+    return Double.isNaN(value) ? 0 : Math.round(value * FIXED_SCALE);
+  }
+
+  static long zigzag(long value) {
+    return (value << 1) ^ (value >> 63);
+  }
+}
@@ -0,0 +1,117 @@
+package org.example.ugv_rc.recorder;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.locks.LockSupport;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+/*
+ * Plays a flight recording back to listeners with the recorded spacing between
+ * records divided by speed; speed 1 is real time, 0 plays as fast as possible.
+ * Telemetry timestamps are moved to the time of replay, so consumers keyed on
+ * System.nanoTime() (histories, staleness checks) see a live feed.
+ */
+@Slf4j
+public class Replay implements AutoCloseable {
+
+  private final FlightReader reader;
+  private final double speed;
+  private final FlightRecord record = new FlightRecord();
+  private final List<ReplayListener> listeners = new CopyOnWriteArrayList<>();
+  // the replaying thread, parked until the next record is due
+  private volatile Thread thread;
+  private volatile boolean running;
+  @Getter
+  private volatile long replayedCount;
+
+  public Replay(FlightReader reader, double speed) {
+    if (speed < 0 || Double.isNaN(speed)) {
+      throw new IllegalArgumentException("speed " + speed);
+    }
+    this.reader = reader;
+    this.speed = speed;
+  }
+
+  public void addListener(ReplayListener listener) {
+    listeners.add(listener);
+  }
+
+  public void start() {
+    running = true;
+    Thread.ofPlatform()
+        .name("flight-replay")
+        .daemon(true)
+        .start(this::run);
+  }
+
+  /*
+   * Replays on the calling thread until the recording ends or close() is called
+   */
+  public void run() {
+    thread = Thread.currentThread();
+    running = true;
+    long firstRecorded = 0;
+    long startNanos = 0;
+    try {
+      while (running && reader.next(record)) {
+        long now = System.nanoTime();
+        if (replayedCount == 0) {
+          firstRecorded = record.timestampNanos;
+          startNanos = now;
+        } else if (speed > 0) {
+          long due = startNanos + (long) ((record.timestampNanos - firstRecorded) / speed);
+          while (running && (now = System.nanoTime()) < due) {
+            LockSupport.parkNanos(due - now);
+          }
+        }
+        dispatch(now);
+        replayedCount++;
+      }
+    } catch (IOException e) {
+      log.error("replay stopped: {}", e.getMessage());
+    }
+    log.info("replay finished after {} records", replayedCount);
+    for (ReplayListener listener : listeners) {
+      listener.onReplayFinished();
+    }
+  }
+
+  @Override
+  public void close() {
+    running = false;
+    Thread t = thread;
+    if (t != null) {
+      LockSupport.unpark(t);
+    }
+  }
+
+  private void dispatch(long now) {
+    switch (record.kind) {
+      case COMMAND -> {
+        for (ReplayListener listener : listeners) {
+          listener.onCommand(record.commandCode, record.commandA, record.commandB);
+        }
+      }
+      case BASE_FEEDBACK -> {
+        record.baseFeedback.setTimestampNanos(now);
+        for (ReplayListener listener : listeners) {
+          listener.onBaseFeedback(record.baseFeedback);
+        }
+      }
+      case IMU_DATA -> {
+        record.imuData.setTimestampNanos(now);
+        for (ReplayListener listener : listeners) {
+          listener.onImuData(record.imuData);
+        }
+      }
+      case POWER_STATUS -> {
+        record.powerStatus.setTimestampNanos(now);
+        for (ReplayListener listener : listeners) {
+          listener.onPowerStatus(record.powerStatus);
+        }
+      }
+    }
+  }
+}
@@ -0,0 +1,19 @@
+package org.example.ugv_rc.recorder;
+
+import org.example.ugv_rc.telemetry.TelemetryListener;
+
+/*
+ * Receives the records of a replay on the replay thread, telemetry through the
+ * TelemetryListener callbacks with timestamps moved to the time of replay.
+ */
+public interface ReplayListener extends TelemetryListener {
+
+  /*
+   * code: T code of the recorded command, a and b its first two arguments
+   */
+  default void onCommand(int code, double a, double b) {
+  }
+
+  default void onReplayFinished() {
+  }
+}
@@ -0,0 +1,53 @@
+package org.example.ugv_rc.simulator;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Impairments of the simulated Wi-Fi link, applied per request: a round trip takes
+ * latency plus a uniformly distributed share of jitter, and with probability loss the
+ * request is dropped: it is held without a response for DROP_STALL, longer than the
+ * clients' 2 s socket timeout, so that it times out as a lost packet does. Closing the
+ * connection instead would fail at once and be retried by the transport.
+ */
+public record LinkModel(long latencyMicros, long jitterMicros, double loss) {
+
+  public static final LinkModel IDEAL = new LinkModel(0, 0, 0);
+  static final long DROP_STALL_NANOS = TimeUnit.SECONDS.toNanos(10);
+
+  public LinkModel {
+    if (latencyMicros < 0 || jitterMicros < 0 || loss < 0 || loss > 1) {
+      throw new IllegalArgumentException(
+          "latency " + latencyMicros + " us, jitter " + jitterMicros + " us, loss " + loss);
+    }
+  }
+
+  public static LinkModel ofMillis(double latency, double jitter, double loss) {
+    return new LinkModel(Math.round(latency * 1000), Math.round(jitter * 1000), loss);
+  }
+
+  long roundTripNanos() {
+    long jitter = jitterMicros > 0 ? ThreadLocalRandom.current().nextLong(jitterMicros + 1) : 0;
+    return TimeUnit.MICROSECONDS.toNanos(latencyMicros + jitter);
+  }
+
+  boolean drop() {
+    return loss > 0 && ThreadLocalRandom.current().nextDouble() < loss;
+  }
+
+  /*
+   * Holds a dropped request until the client has given up on it
+   */
+  static void stall() throws InterruptedException {
+    TimeUnit.NANOSECONDS.sleep(DROP_STALL_NANOS);
+  }
+
+  /*
+   * Sleeps half of a round trip, the time one direction takes
+   */
+  static void delay(long roundTripNanos) throws InterruptedException {
+    if (roundTripNanos > 0) {
+      TimeUnit.NANOSECONDS.sleep(roundTripNanos / 2);
+    }
+  }
+}
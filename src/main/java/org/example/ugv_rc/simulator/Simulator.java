@@ -0,0 +1,287 @@
+package org.example.ugv_rc.simulator;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import lombok.extern.slf4j.Slf4j;
+
+/*
+ * Stand-in for the UGV02 and the Jetson, for running and measuring the controller
+ * without the vehicle.
+ *
+ * Serves the ESP32 web api /js?json=... and the Jetson /ugv_power_status from one
+ * UgvModel, and the serial bridge of the feedback stream (jetson-files/feedbackbridge.sh),
+ * which accepts the same JSON commands line by line and pushes T:1001 frames while
+ * T:131 flow is on. HTTP requests pass through the LinkModel; a dropped request gets no
+ * response until the client has timed out.
+ *
+ * Standalone: java ... org.example.ugv_rc.simulator.Simulator [--latency=ms]
+ *   [--jitter=ms] [--loss=0..1] [--bind=address] [--esp32-port=80] [--jetson-port=8000]
+ *   [--stream-port=5001]
+ */
+@Slf4j
+public class Simulator implements AutoCloseable {
+
+  private static final int MIN_STREAM_INTERVAL_MILLIS = 10;
+
+  private final LinkModel link;
+  private final UgvModel model = new UgvModel();
+  private final ObjectMapper objectMapper = new ObjectMapper();
+  private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+  private final HttpServer esp32Server;
+  private final HttpServer jetsonServer;
+  private final ServerSocket streamServer;
+  private final Thread streamAcceptor;
+  private volatile boolean running;
+  private final AtomicLong requestCount = new AtomicLong();
+  private final AtomicLong droppedCount = new AtomicLong();
+
+  /*
+   * Port 0 picks a free port, see the getters
+   */
+  public Simulator(String bindAddress, LinkModel link, int esp32Port, int jetsonPort,
+      int streamPort) throws IOException {
+    // the JDK server delays small responses without it (Nagle vs. delayed ACK)
+    if (System.getProperty("sun.net.httpserver.nodelay") == null) {
+      System.setProperty("sun.net.httpserver.nodelay", "true");
+    }
+    this.link = link;
+    this.esp32Server = HttpServer.create(new InetSocketAddress(bindAddress, esp32Port), 64);
+    esp32Server.createContext("/js", this::handleCommand);
+    esp32Server.setExecutor(executor);
+    this.jetsonServer = HttpServer.create(new InetSocketAddress(bindAddress, jetsonPort), 16);
+    jetsonServer.createContext("/ugv_power_status", this::handlePowerStatus);
+    jetsonServer.setExecutor(executor);
+    this.streamServer = new ServerSocket();
+    streamServer.setReuseAddress(true);
+    streamServer.bind(new InetSocketAddress(bindAddress, streamPort));
+    this.streamAcceptor = Thread.ofPlatform()
+        .name("simulator-stream")
+        .daemon(true)
+        .unstarted(this::acceptStreams);
+  }
+
+  public static Simulator loopback(LinkModel link) throws IOException {
+    return new Simulator("127.0.0.1", link, 0, 0, 0);
+  }
+
+  public void start() {
+    running = true;
+    esp32Server.start();
+    jetsonServer.start();
+    streamAcceptor.start();
+    log.info("simulator: esp32 :{}, jetson :{}, stream :{}, {}", getEsp32Port(),
+        getJetsonPort(), getStreamPort(), link);
+  }
+
+  public String getHost() {
+    return esp32Server.getAddress().getHostString();
+  }
+
+  public int getEsp32Port() {
+    return esp32Server.getAddress().getPort();
+  }
+
+  public int getJetsonPort() {
+    return jetsonServer.getAddress().getPort();
+  }
+
+  public int getStreamPort() {
+    return streamServer.getLocalPort();
+  }
+
+  public long getRequestCount() {
+    return requestCount.get();
+  }
+
+  public long getDroppedCount() {
+    return droppedCount.get();
+  }
+
+  @Override
+  public void close() {
+    running = false;
+    esp32Server.stop(0);
+    jetsonServer.stop(0);
+    try {
+      streamServer.close();
+    } catch (IOException e) {
+      log.debug("simulator stream close: {}", e.getMessage());
+    }
+    executor.shutdownNow();
+    log.info("simulator: {} requests, {} dropped", requestCount.get(), droppedCount.get());
+  }
+
+  private void handleCommand(HttpExchange exchange) throws IOException {
+    try (exchange) {
+      requestCount.incrementAndGet();
+      long roundTrip = link.roundTripNanos();
+      LinkModel.delay(roundTrip);
+      if (link.drop()) {
+        droppedCount.incrementAndGet();
+        LinkModel.stall();
+        return;
+      }
+      String query = exchange.getRequestURI().getRawQuery();
+      JsonNode cmd = query != null && query.startsWith("json=")
+          ? parse(URLDecoder.decode(query.substring(5), StandardCharsets.UTF_8)) : null;
+      String response = cmd != null ? model.command(cmd) : null;
+      LinkModel.delay(roundTrip);
+      if (response == null) {
+        respond(exchange, 400, "{\"error\":\"unknown command\"}");
+      } else {
+        respond(exchange, 200, response);
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private void handlePowerStatus(HttpExchange exchange) throws IOException {
+    try (exchange) {
+      requestCount.incrementAndGet();
+      long roundTrip = link.roundTripNanos();
+      LinkModel.delay(roundTrip);
+      if (link.drop()) {
+        droppedCount.incrementAndGet();
+        LinkModel.stall();
+        return;
+      }
+      String response = model.powerStatus();
+      LinkModel.delay(roundTrip);
+      respond(exchange, 200, response);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private JsonNode parse(String json) {
+    try {
+      return objectMapper.readTree(json);
+    } catch (JsonProcessingException e) {
+      log.debug("simulator: malformed command {}", json);
+      return null;
+    }
+  }
+
+  private static void respond(HttpExchange exchange, int code, String body) throws IOException {
+    byte[] bytes = body.getBytes(StandardCharsets.US_ASCII);
+    exchange.getResponseHeaders().set("Content-Type", "application/json");
+    exchange.sendResponseHeaders(code, bytes.length);
+    try (OutputStream out = exchange.getResponseBody()) {
+      out.write(bytes);
+    }
+  }
+
+  private void acceptStreams() {
+    while (running) {
+      try {
+        Socket socket = streamServer.accept();
+        socket.setTcpNoDelay(true);
+        executor.execute(() -> serveStream(socket));
+      } catch (IOException e) {
+        if (running) {
+          log.warn("simulator stream accept: {}", e.getMessage());
+        }
+      }
+    }
+  }
+
+  /*
+   * Reads command lines on this thread and pushes feedback from a second one
+   */
+  private void serveStream(Socket socket) {
+    StreamState state = new StreamState();
+    Thread writer = Thread.ofVirtual().start(() -> pushFeedback(socket, state));
+    try (socket; BufferedReader in = new BufferedReader(
+        new InputStreamReader(socket.getInputStream(), StandardCharsets.US_ASCII))) {
+      String line;
+      while ((line = in.readLine()) != null) {
+        if (line.isBlank()) {
+          continue;
+        }
+        JsonNode cmd = parse(line);
+        if (cmd == null) {
+          continue;
+        }
+        switch (cmd.path("T").asInt(-1)) {
+          case 131 -> state.flow = cmd.path("cmd").asInt() != 0;
+          case 142 -> state.intervalMillis =
+              Math.max(MIN_STREAM_INTERVAL_MILLIS, cmd.path("cmd").asInt());
+          default -> model.command(cmd);
+        }
+      }
+    } catch (IOException e) {
+      log.debug("simulator stream: {}", e.getMessage());
+    } finally {
+      writer.interrupt();
+    }
+  }
+
+  private void pushFeedback(Socket socket, StreamState state) {
+    try {
+      OutputStream out = socket.getOutputStream();
+      while (!socket.isClosed()) {
+        if (state.flow) {
+          out.write((model.baseFeedback() + "\n").getBytes(StandardCharsets.US_ASCII));
+          out.flush();
+        }
+        TimeUnit.MILLISECONDS.sleep(state.intervalMillis);
+      }
+    } catch (IOException | InterruptedException e) {
+      log.debug("simulator stream writer: {}", e.getMessage());
+    }
+  }
+
+  private static final class StreamState {
+
+    private volatile boolean flow;
+    private volatile int intervalMillis = 50;
+  }
+
+  static void main(String[] args) throws IOException, InterruptedException {
+    String bind = "0.0.0.0";
+    double latency = 0;
+    double jitter = 0;
+    double loss = 0;
+    int esp32Port = 80;
+    int jetsonPort = 8000;
+    int streamPort = 5001;
+    for (String arg : args) {
+      String[] option = arg.split("=", 2);
+      if (option.length != 2) {
+        throw new IllegalArgumentException("expected --option=value: " + arg);
+      }
+      switch (option[0]) {
+        case "--latency" -> latency = Double.parseDouble(option[1]);
+        case "--jitter" -> jitter = Double.parseDouble(option[1]);
+        case "--loss" -> loss = Double.parseDouble(option[1]);
+        case "--bind" -> bind = option[1];
+        case "--esp32-port" -> esp32Port = Integer.parseInt(option[1]);
+        case "--jetson-port" -> jetsonPort = Integer.parseInt(option[1]);
+        case "--stream-port" -> streamPort = Integer.parseInt(option[1]);
+        default -> throw new IllegalArgumentException("unknown option: " + arg);
+      }
+    }
+    Simulator simulator = new Simulator(bind, LinkModel.ofMillis(latency, jitter, loss),
+        esp32Port, jetsonPort, streamPort);
+    Runtime.getRuntime().addShutdownHook(new Thread(simulator::close));
+    simulator.start();
+    Thread.currentThread().join();
+  }
+}
@@ -0,0 +1,228 @@
+package org.example.ugv_rc.simulator;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import java.util.Locale;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Simulated UGV02 with pan-tilt module, advanced lazily to the time of each access.
+ *
+ * Chassis: differential drive, the wheels follow the commanded L/R speeds (m/s) with
+ * a first-order lag and stop when no T:1 arrives within the heartbeat timeout, like the
+ * firmware does. Gimbal: each axis moves to its target at SPD deg/s with ACC deg/s^2,
+ * 0 meaning the fastest the servo does; T:135 stops it where it is. Battery: 3S pack
+ * whose voltage follows the charge drawn and sags under load.
+ *
+ * Thread-safe.
+ */
+class UgvModel {
+
+  static final int PAN_MIN = -180;
+  static final int PAN_MAX = 180;
+  static final int TILT_MIN = -30;
+  static final int TILT_MAX = 90;
+
+  private static final double TRACK_WIDTH = 0.17;
+  private static final double WHEEL_TIME_CONSTANT = 0.15;
+  private static final double MAX_WHEEL_SPEED = 0.5;
+  private static final long HEARTBEAT_TIMEOUT_NANOS = TimeUnit.SECONDS.toNanos(3);
+  private static final double MAX_GIMBAL_SPEED = 360;
+  private static final double MAX_GIMBAL_ACC = 3600;
+  private static final double FULL_VOLTAGE = 12.4;
+  private static final double EMPTY_VOLTAGE = 10.5;
+  private static final double CAPACITY_AH = 2.6;
+  private static final double INTERNAL_RESISTANCE = 0.15;
+  private static final double IDLE_CURRENT = 0.6;
+  private static final double DRIVE_CURRENT = 1.5;
+  private static final double GIMBAL_CURRENT = 0.3;
+  private static final double SHUNT_RESISTANCE = 0.01;
+  private static final long MAX_STEP_NANOS = TimeUnit.MILLISECONDS.toNanos(5);
+
+  private long lastNanos = System.nanoTime();
+  private long lastSpeedCommandNanos = lastNanos;
+  private double commandLeft;
+  private double commandRight;
+  private double left;
+  private double right;
+  private double heading;
+  private double yawRate;
+  private double acceleration;
+  private double chargeDrawn;
+  private double current = IDLE_CURRENT;
+  private final Axis pan = new Axis(PAN_MIN, PAN_MAX);
+  private final Axis tilt = new Axis(TILT_MIN, TILT_MAX);
+  private boolean led;
+
+  /*
+   * Applies a command; returns the response body, null for an unknown T code
+   */
+  synchronized String command(JsonNode cmd) {
+    long now = System.nanoTime();
+    advance(now);
+    int type = cmd.path("T").asInt(-1);
+    return switch (type) {
+      case 1 -> {
+        commandLeft = clamp(cmd.path("L").asDouble(), -MAX_WHEEL_SPEED, MAX_WHEEL_SPEED);
+        commandRight = clamp(cmd.path("R").asDouble(), -MAX_WHEEL_SPEED, MAX_WHEEL_SPEED);
+        lastSpeedCommandNanos = now;
+        yield cmd.toString();
+      }
+      case 126 -> imuData();
+      case 130 -> baseFeedback();
+      case 132 -> {
+        led = cmd.path("IO5").asInt() > 0;
+        yield cmd.toString();
+      }
+      case 133 -> {
+        double speed = cmd.path("SPD").asDouble();
+        double acc = cmd.path("ACC").asDouble();
+        pan.moveTo(cmd.path("X").asDouble(), speed, acc);
+        tilt.moveTo(cmd.path("Y").asDouble(), speed, acc);
+        yield cmd.toString();
+      }
+      case 135 -> {
+        pan.stop();
+        tilt.stop();
+        yield cmd.toString();
+      }
+      default -> null;
+    };
+  }
+
+  /*
+   * T:1001 frame as the firmware reports it
+   */
+  synchronized String baseFeedback() {
+    advance(System.nanoTime());
+    ThreadLocalRandom random = ThreadLocalRandom.current();
+    return String.format(Locale.ROOT,
+        "{\"T\":1001,\"L\":%.3f,\"R\":%.3f,\"r\":%.2f,\"p\":%.2f,\"y\":%.2f,\"v\":%.2f,"
+            + "\"pan\":%.1f,\"tilt\":%.1f}",
+        left, right, random.nextGaussian() * 0.2, random.nextGaussian() * 0.2, yawDegrees(),
+        voltage() + random.nextGaussian() * 0.01, pan.position, tilt.position);
+  }
+
+  /*
+   * T:1002 frame: angles in degrees, acceleration in m/s^2, rates in deg/s,
+   * magnetic field in uT
+   */
+  synchronized String imuData() {
+    advance(System.nanoTime());
+    ThreadLocalRandom random = ThreadLocalRandom.current();
+    double yaw = yawDegrees();
+    return String.format(Locale.ROOT,
+        "{\"T\":1002,\"r\":%.2f,\"p\":%.2f,\"y\":%.2f,\"ax\":%.3f,\"ay\":%.3f,\"az\":%.3f,"
+            + "\"gx\":%.2f,\"gy\":%.2f,\"gz\":%.2f,\"mx\":%.1f,\"my\":%.1f,\"mz\":%.1f,"
+            + "\"temp\":%.1f}",
+        random.nextGaussian() * 0.2, random.nextGaussian() * 0.2, yaw,
+        acceleration + random.nextGaussian() * 0.05,
+        yawRate * (left + right) / 2 + random.nextGaussian() * 0.05,
+        9.81 + random.nextGaussian() * 0.05,
+        random.nextGaussian() * 0.3, random.nextGaussian() * 0.3, Math.toDegrees(yawRate),
+        40 * Math.cos(heading), -40 * Math.sin(heading), -20.0,
+        32 + chargeDrawn * 4);
+  }
+
+  /*
+   * Jetson /ugv_power_status: INA219 on the battery rail
+   */
+  synchronized String powerStatus() {
+    advance(System.nanoTime());
+    double voltage = voltage();
+    return String.format(Locale.ROOT,
+        "{\"load_voltage\":%.3f,\"shunt_voltage\":%.5f,\"current\":%.3f,\"power\":%.3f}",
+        voltage, current * SHUNT_RESISTANCE, current, voltage * current);
+  }
+
+  private void advance(long now) {
+    if (now - lastSpeedCommandNanos > HEARTBEAT_TIMEOUT_NANOS) {
+      commandLeft = 0;
+      commandRight = 0;
+    }
+    while (lastNanos < now) {
+      long step = Math.min(MAX_STEP_NANOS, now - lastNanos);
+      step(step / 1e9);
+      lastNanos += step;
+    }
+  }
+
+  private void step(double dt) {
+    double alpha = 1 - Math.exp(-dt / WHEEL_TIME_CONSTANT);
+    double speed = (left + right) / 2;
+    left += (commandLeft - left) * alpha;
+    right += (commandRight - right) * alpha;
+    acceleration = ((left + right) / 2 - speed) / dt;
+    yawRate = (right - left) / TRACK_WIDTH;
+    heading = Math.IEEEremainder(heading + yawRate * dt, 2 * Math.PI);
+    pan.step(dt);
+    tilt.step(dt);
+    double load = (Math.abs(left) + Math.abs(right)) / (2 * MAX_WHEEL_SPEED);
+    current = IDLE_CURRENT + DRIVE_CURRENT * load
+        + (pan.velocity != 0 || tilt.velocity != 0 ? GIMBAL_CURRENT : 0)
+        + (led ? 0.1 : 0);
+    chargeDrawn += current * dt / 3600;
+  }
+
+  private double voltage() {
+    double charge = Math.max(0, 1 - chargeDrawn / CAPACITY_AH);
+    return EMPTY_VOLTAGE + (FULL_VOLTAGE - EMPTY_VOLTAGE) * charge
+        - current * INTERNAL_RESISTANCE;
+  }
+
+  private double yawDegrees() {
+    return Math.toDegrees(heading);
+  }
+
+  private static double clamp(double value, double min, double max) {
+    return Math.max(min, Math.min(max, value));
+  }
+
+  /*
+   * One servo axis: brakes in time to stop at the target
+   */
+  private static final class Axis {
+
+    private final double min;
+    private final double max;
+    private double position;
+    private double velocity;
+    private double target;
+    private double maxSpeed = MAX_GIMBAL_SPEED;
+    private double maxAcc = MAX_GIMBAL_ACC;
+
+    Axis(double min, double max) {
+      this.min = min;
+      this.max = max;
+    }
+
+    void moveTo(double angle, double speed, double acc) {
+      target = clamp(angle, min, max);
+      maxSpeed = speed > 0 ? Math.min(speed, MAX_GIMBAL_SPEED) : MAX_GIMBAL_SPEED;
+      maxAcc = acc > 0 ? Math.min(acc, MAX_GIMBAL_ACC) : MAX_GIMBAL_ACC;
+    }
+
+    void stop() {
+      target = position;
+      velocity = 0;
+    }
+
+    void step(double dt) {
+      double distance = target - position;
+      if (distance == 0 && velocity == 0) {
+        return;
+      }
+      double brakingSpeed = Math.sqrt(2 * maxAcc * Math.abs(distance));
+      double desired = Math.signum(distance) * Math.min(maxSpeed, brakingSpeed);
+      double change = clamp(desired - velocity, -maxAcc * dt, maxAcc * dt);
+      velocity += change;
+      double move = velocity * dt;
+      if (Math.abs(move) >= Math.abs(distance) && Math.signum(move) == Math.signum(distance)) {
+        position = target;
+        velocity = 0;
+      } else {
+        position += move;
+      }
+    }
+  }
+}
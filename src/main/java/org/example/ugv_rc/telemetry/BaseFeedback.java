@@ -0,0 +1,50 @@
+package org.example.ugv_rc.telemetry;
+
+import lombok.Getter;
+import lombok.Setter;
+import lombok.ToString;
+
+/*
+ * Response of CMD_BASE_FEEDBACK (T:130), reported as T:1001
+ *  - L, R: wheel speeds
+ *  - r, p, y: roll, pitch, yaw
+ *  - v: battery voltage
+ *
+ * Instances are reused; valid is false until a frame has been parsed into it.
+ */
+@Getter
+@Setter
+@ToString
+public class BaseFeedback {
+
+  boolean valid;
+  long timestampNanos;
+  double left;
+  double right;
+  double roll;
+  double pitch;
+  double yaw;
+  double voltage;
+
+  public void reset() {
+    valid = false;
+    timestampNanos = 0;
+    left = Double.NaN;
+    right = Double.NaN;
+    roll = Double.NaN;
+    pitch = Double.NaN;
+    yaw = Double.NaN;
+    voltage = Double.NaN;
+  }
+
+  public void copyFrom(BaseFeedback other) {
+    valid = other.valid;
+    timestampNanos = other.timestampNanos;
+    left = other.left;
+    right = other.right;
+    roll = other.roll;
+    pitch = other.pitch;
+    yaw = other.yaw;
+    voltage = other.voltage;
+  }
+}
@@ -0,0 +1,73 @@
+package org.example.ugv_rc.telemetry;
+
+import lombok.Getter;
+import lombok.Setter;
+import lombok.ToString;
+
+/*
+ * Response of the IMU query (T:126), reported as T:1002
+ *  - r, p, y: roll, pitch, yaw
+ *  - ax, ay, az: accelerometer
+ *  - gx, gy, gz: gyroscope
+ *  - mx, my, mz: magnetometer
+ *  - temp
+ *
+ * Instances are reused; valid is false until a frame has been parsed into it.
+ */
+@Getter
+@Setter
+@ToString
+public class ImuData {
+
+  boolean valid;
+  long timestampNanos;
+  double roll;
+  double pitch;
+  double yaw;
+  double accelX;
+  double accelY;
+  double accelZ;
+  double gyroX;
+  double gyroY;
+  double gyroZ;
+  double magX;
+  double magY;
+  double magZ;
+  double temperature;
+
+  public void reset() {
+    valid = false;
+    timestampNanos = 0;
+    roll = Double.NaN;
+    pitch = Double.NaN;
+    yaw = Double.NaN;
+    accelX = Double.NaN;
+    accelY = Double.NaN;
+    accelZ = Double.NaN;
+    gyroX = Double.NaN;
+    gyroY = Double.NaN;
+    gyroZ = Double.NaN;
+    magX = Double.NaN;
+    magY = Double.NaN;
+    magZ = Double.NaN;
+    temperature = Double.NaN;
+  }
+
+  public void copyFrom(ImuData other) {
+    valid = other.valid;
+    timestampNanos = other.timestampNanos;
+    roll = other.roll;
+    pitch = other.pitch;
+    yaw = other.yaw;
+    accelX = other.accelX;
+    accelY = other.accelY;
+    accelZ = other.accelZ;
+    gyroX = other.gyroX;
+    gyroY = other.gyroY;
+    gyroZ = other.gyroZ;
+    magX = other.magX;
+    magY = other.magY;
+    magZ = other.magZ;
+    temperature = other.temperature;
+  }
+}
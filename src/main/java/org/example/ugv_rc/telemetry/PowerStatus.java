@@ -0,0 +1,45 @@
+package org.example.ugv_rc.telemetry;
+
+import lombok.Getter;
+import lombok.Setter;
+import lombok.ToString;
+
+/*
+ * Response of the Jetson INA219 endpoint (/ugv_power_status)
+ *  - voltage (also accepted: load_voltage, bus_voltage)
+ *  - shunt_voltage
+ *  - current
+ *  - power
+ *
+ * Instances are reused; valid is false until a frame has been parsed into it.
+ */
+@Getter
+@Setter
+@ToString
+public class PowerStatus {
+
+  boolean valid;
+  long timestampNanos;
+  double voltage;
+  double shuntVoltage;
+  double current;
+  double power;
+
+  public void reset() {
+    valid = false;
+    timestampNanos = 0;
+    voltage = Double.NaN;
+    shuntVoltage = Double.NaN;
+    current = Double.NaN;
+    power = Double.NaN;
+  }
+
+  public void copyFrom(PowerStatus other) {
+    valid = other.valid;
+    timestampNanos = other.timestampNanos;
+    voltage = other.voltage;
+    shuntVoltage = other.shuntVoltage;
+    current = other.current;
+    power = other.power;
+  }
+}
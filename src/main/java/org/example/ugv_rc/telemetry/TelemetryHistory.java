@@ -0,0 +1,306 @@
+package org.example.ugv_rc.telemetry;
+
+import java.lang.invoke.VarHandle;
+import java.util.concurrent.TimeUnit;
+import lombok.Getter;
+
+/*
+ * Fixed-capacity history of timestamped telemetry samples in primitive columns.
+ *
+ * One thread records, any number of threads read without blocking it. The writer fills
+ * the slot of the next sequence number and then publishes the new count; a reader copies
+ * slots and afterwards discards those the writer may have overwritten meanwhile, so every
+ * sample in a snapshot is consistent. For every column the writer also keeps min, max and
+ * mean over a sliding time window, updated incrementally per sample (running sum and
+ * monotonic deques), as of the latest sample. NaN values, fields missing from a frame, are
+ * kept but left out of the aggregates.
+ */
+public class TelemetryHistory {
+
+  // base feedback columns
+  public static final int BF_ROLL = 0;
+  public static final int BF_PITCH = 1;
+  public static final int BF_YAW = 2;
+  public static final int BF_VOLTAGE = 3;
+  public static final int BF_LEFT = 4;
+  public static final int BF_RIGHT = 5;
+  // imu columns
+  public static final int IMU_ROLL = 0;
+  public static final int IMU_PITCH = 1;
+  public static final int IMU_YAW = 2;
+  public static final int IMU_ACCEL_X = 3;
+  public static final int IMU_ACCEL_Y = 4;
+  public static final int IMU_ACCEL_Z = 5;
+  public static final int IMU_GYRO_X = 6;
+  public static final int IMU_GYRO_Y = 7;
+  public static final int IMU_GYRO_Z = 8;
+  public static final int IMU_TEMPERATURE = 9;
+  // power columns
+  public static final int PWR_VOLTAGE = 0;
+  public static final int PWR_CURRENT = 1;
+  public static final int PWR_POWER = 2;
+
+  @Getter
+  private final int capacity;
+  @Getter
+  private final int columnCount;
+  private final long windowNanos;
+  private final long[] timestamps;
+  private final double[][] columns;
+  private final Window[] windows;
+  // number of samples ever recorded, written by the writer only
+  private volatile long published;
+  // incremented before and after each aggregate update, odd while in progress
+  private volatile long aggregateVersion;
+
+  public TelemetryHistory(int capacity, int columnCount, long window, TimeUnit unit) {
+    this.capacity = capacity;
+    this.columnCount = columnCount;
+    this.windowNanos = unit.toNanos(window);
+    this.timestamps = new long[capacity];
+    this.columns = new double[columnCount][capacity];
+    this.windows = new Window[columnCount];
+    for (int c = 0; c < columnCount; c++) {
+      windows[c] = new Window(capacity);
+    }
+  }
+
+  public static TelemetryHistory baseFeedback(int capacity, long window, TimeUnit unit) {
+    return new TelemetryHistory(capacity, 6, window, unit);
+  }
+
+  public static TelemetryHistory imu(int capacity, long window, TimeUnit unit) {
+    return new TelemetryHistory(capacity, 10, window, unit);
+  }
+
+  public static TelemetryHistory power(int capacity, long window, TimeUnit unit) {
+    return new TelemetryHistory(capacity, 3, window, unit);
+  }
+
+  public void record(BaseFeedback feedback) {
+    if (!feedback.isValid()) {
+      return;
+    }
+    int slot = beginRecord(feedback.getTimestampNanos());
+    columns[BF_ROLL][slot] = feedback.getRoll();
+    columns[BF_PITCH][slot] = feedback.getPitch();
+    columns[BF_YAW][slot] = feedback.getYaw();
+    columns[BF_VOLTAGE][slot] = feedback.getVoltage();
+    columns[BF_LEFT][slot] = feedback.getLeft();
+    columns[BF_RIGHT][slot] = feedback.getRight();
+    endRecord(slot);
+  }
+
+  public void record(ImuData imuData) {
+    if (!imuData.isValid()) {
+      return;
+    }
+    int slot = beginRecord(imuData.getTimestampNanos());
+    columns[IMU_ROLL][slot] = imuData.getRoll();
+    columns[IMU_PITCH][slot] = imuData.getPitch();
+    columns[IMU_YAW][slot] = imuData.getYaw();
+    columns[IMU_ACCEL_X][slot] = imuData.getAccelX();
+    columns[IMU_ACCEL_Y][slot] = imuData.getAccelY();
+    columns[IMU_ACCEL_Z][slot] = imuData.getAccelZ();
+    columns[IMU_GYRO_X][slot] = imuData.getGyroX();
+    columns[IMU_GYRO_Y][slot] = imuData.getGyroY();
+    columns[IMU_GYRO_Z][slot] = imuData.getGyroZ();
+    columns[IMU_TEMPERATURE][slot] = imuData.getTemperature();
+    endRecord(slot);
+  }
+
+  public void record(PowerStatus powerStatus) {
+    if (!powerStatus.isValid()) {
+      return;
+    }
+    int slot = beginRecord(powerStatus.getTimestampNanos());
+    columns[PWR_VOLTAGE][slot] = powerStatus.getVoltage();
+    columns[PWR_CURRENT][slot] = powerStatus.getCurrent();
+    columns[PWR_POWER][slot] = powerStatus.getPower();
+    endRecord(slot);
+  }
+
+  /*
+   * Records a sample of all columns; values must have columnCount entries
+   */
+  public void record(long timestampNanos, double... values) {
+    int slot = beginRecord(timestampNanos);
+    for (int c = 0; c < columnCount; c++) {
+      columns[c][slot] = values[c];
+    }
+    endRecord(slot);
+  }
+
+  public long size() {
+    return Math.min(published, capacity);
+  }
+
+  /*
+   * Copies the retained samples, oldest first, into snapshot
+   */
+  public void snapshot(Snapshot snapshot) {
+    long end = published;
+    long start = Math.max(0, end - capacity);
+    int n = 0;
+    for (long seq = start; seq < end; seq++) {
+      int slot = (int) (seq % capacity);
+      snapshot.timestamps[n] = timestamps[slot];
+      for (int c = 0; c < columnCount; c++) {
+        snapshot.columns[c][n] = columns[c][slot];
+      }
+      n++;
+    }
+    VarHandle.loadLoadFence();
+    // the writer may be overwriting the slot of sequence published - capacity
+    long firstValid = Math.max(start, published - capacity + 1);
+    int skip = (int) Math.min(n, firstValid - start);
+    if (skip > 0) {
+      System.arraycopy(snapshot.timestamps, skip, snapshot.timestamps, 0, n - skip);
+      for (int c = 0; c < columnCount; c++) {
+        System.arraycopy(snapshot.columns[c], skip, snapshot.columns[c], 0, n - skip);
+      }
+    }
+    snapshot.count = n - skip;
+  }
+
+  public Snapshot newSnapshot() {
+    return new Snapshot(capacity, columnCount);
+  }
+
+  /*
+   * Reads min, max and mean of column over the window into aggregate
+   */
+  public void aggregate(int column, Aggregate aggregate) {
+    Window window = windows[column];
+    long version;
+    do {
+      version = aggregateVersion;
+      aggregate.count = window.count;
+      aggregate.min = window.min;
+      aggregate.max = window.max;
+      aggregate.mean = window.count == 0 ? Double.NaN : window.sum / window.count;
+      VarHandle.loadLoadFence();
+    } while ((version & 1) != 0 || version != aggregateVersion);
+  }
+
+  private int beginRecord(long timestampNanos) {
+    int slot = (int) (published % capacity);
+    timestamps[slot] = timestampNanos;
+    return slot;
+  }
+
+  private void endRecord(int slot) {
+    long seq = published;
+    published = seq + 1;
+    long now = timestamps[slot];
+    aggregateVersion++;
+    VarHandle.storeStoreFence();
+    for (int c = 0; c < columnCount; c++) {
+      windows[c].add(seq, columns[c][slot], now);
+    }
+    aggregateVersion++;
+  }
+
+  /*
+   * Sliding window state of one column, touched by the writer only
+   */
+  private final class Window {
+
+    // oldest sequence number in the window; the deques hold sequence numbers
+    private long head;
+    private final long[] minDeque;
+    private final long[] maxDeque;
+    private int minHead;
+    private int minSize;
+    private int maxHead;
+    private int maxSize;
+    private double sum;
+    private long count;
+    private double min = Double.NaN;
+    private double max = Double.NaN;
+    private final double[] values;
+
+    Window(int capacity) {
+      this.minDeque = new long[capacity];
+      this.maxDeque = new long[capacity];
+      this.values = new double[capacity];
+    }
+
+    void add(long seq, double value, long now) {
+      // the new sample reuses the ring slot of sequence seq - capacity
+      while (seq - head >= capacity) {
+        expireHead();
+      }
+      int slot = (int) (seq % capacity);
+      values[slot] = value;
+      // a field missing from the frame stays in the history but not in the aggregates
+      if (!Double.isNaN(value)) {
+        sum += value;
+        count++;
+        while (minSize > 0 && values[slot(minDeque, minHead + minSize - 1)] >= value) {
+          minSize--;
+        }
+        minDeque[(minHead + minSize++) % capacity] = seq;
+        while (maxSize > 0 && values[slot(maxDeque, maxHead + maxSize - 1)] <= value) {
+          maxSize--;
+        }
+        maxDeque[(maxHead + maxSize++) % capacity] = seq;
+      }
+      while (head < seq && now - timestamps[(int) (head % capacity)] > windowNanos) {
+        expireHead();
+      }
+      min = minSize == 0 ? Double.NaN : values[slot(minDeque, minHead)];
+      max = maxSize == 0 ? Double.NaN : values[slot(maxDeque, maxHead)];
+    }
+
+    private void expireHead() {
+      double value = values[(int) (head % capacity)];
+      if (!Double.isNaN(value)) {
+        sum -= value;
+        count--;
+      }
+      if (minSize > 0 && minDeque[minHead] == head) {
+        minHead = (minHead + 1) % capacity;
+        minSize--;
+      }
+      if (maxSize > 0 && maxDeque[maxHead] == head) {
+        maxHead = (maxHead + 1) % capacity;
+        maxSize--;
+      }
+      head++;
+    }
+
+    private int slot(long[] deque, int index) {
+      return (int) (deque[index % capacity] % capacity);
+    }
+  }
+
+  /*
+   * Reader-owned copy of the history; reuse it across snapshots
+   */
+  @Getter
+  public static class Snapshot {
+
+    private final long[] timestamps;
+    private final double[][] columns;
+    private int count;
+
+    Snapshot(int capacity, int columnCount) {
+      this.timestamps = new long[capacity];
+      this.columns = new double[columnCount][capacity];
+    }
+
+    public double[] column(int column) {
+      return columns[column];
+    }
+  }
+
+  @Getter
+  public static class Aggregate {
+
+    private long count;
+    private double min;
+    private double max;
+    private double mean;
+  }
+}
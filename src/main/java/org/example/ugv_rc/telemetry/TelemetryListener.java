@@ -0,0 +1,20 @@
+package org.example.ugv_rc.telemetry;
+
+/*
+ * Receives telemetry frames as they arrive. The instances passed in are reused for
+ * the next frame, so listeners copy what they keep and must return quickly.
+ */
+public interface TelemetryListener {
+
+  default void onBaseFeedback(BaseFeedback feedback) {
+  }
+
+  default void onImuData(ImuData imuData) {
+  }
+
+  default void onPowerStatus(PowerStatus powerStatus) {
+  }
+
+  default void onStreamState(boolean connected) {
+  }
+}
@@ -0,0 +1,360 @@
+package org.example.ugv_rc.telemetry;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.async.ByteArrayFeeder;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+import org.example.ugv_rc.metrics.TelemetryParsedEvent;
+
+/*
+ * Streaming parser filling the telemetry types straight from the JSON tokens.
+ *
+ * No tree is built. One non-blocking JsonParser lives as long as this instance and is
+ * fed each frame in turn, field names come from Jackson's canonicalized symbol table
+ * and numbers are converted from the token characters in place, so a parse into a
+ * reused target allocates nothing; neither does its TelemetryParsedEvent once compiled,
+ * while no recording takes it. Unknown fields are skipped. A truncated frame, or
+ * one whose T does not match the expected type, leaves the target invalid; a malformed
+ * one throws. Either way the parser is replaced, so the next frame starts clean.
+ *
+ * Instances are thread-safe; parses are serialized.
+ */
+public class TelemetryParser {
+
+  public static final int T_BASE_FEEDBACK = 1001;
+  public static final int T_IMU = 1002;
+
+  private static final double[] POW10 = {
+      1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10,
+      1e11, 1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22};
+  // mantissas up to 15 digits are exact doubles, so one division rounds correctly
+  private static final int MAX_FAST_DIGITS = 15;
+  private static final int MAX_FRAME = 64 * 1024;
+
+  private final JsonFactory jsonFactory = new JsonFactory();
+  private byte[] buffer = new byte[1024];
+  private JsonParser parser;
+  private ByteArrayFeeder feeder;
+
+  public TelemetryParser() {
+    newParser();
+  }
+
+  public synchronized boolean parse(InputStream in, BaseFeedback target) throws IOException {
+    target.reset();
+    int length = readBody(in);
+    TelemetryParsedEvent event = new TelemetryParsedEvent();
+    event.begin();
+    return parsed(event, T_BASE_FEEDBACK, length, feed(buffer, 0, length) && read(target));
+  }
+
+  public synchronized boolean parse(byte[] data, int offset, int length, BaseFeedback target)
+      throws IOException {
+    target.reset();
+    TelemetryParsedEvent event = new TelemetryParsedEvent();
+    event.begin();
+    return parsed(event, T_BASE_FEEDBACK, length, feed(data, offset, length) && read(target));
+  }
+
+  public synchronized boolean parse(InputStream in, ImuData target) throws IOException {
+    target.reset();
+    int length = readBody(in);
+    TelemetryParsedEvent event = new TelemetryParsedEvent();
+    event.begin();
+    return parsed(event, T_IMU, length, feed(buffer, 0, length) && read(target));
+  }
+
+  public synchronized boolean parse(byte[] data, int offset, int length, ImuData target)
+      throws IOException {
+    target.reset();
+    TelemetryParsedEvent event = new TelemetryParsedEvent();
+    event.begin();
+    return parsed(event, T_IMU, length, feed(data, offset, length) && read(target));
+  }
+
+  public synchronized boolean parse(InputStream in, PowerStatus target) throws IOException {
+    target.reset();
+    int length = readBody(in);
+    TelemetryParsedEvent event = new TelemetryParsedEvent();
+    event.begin();
+    return parsed(event, 0, length, feed(buffer, 0, length) && read(target));
+  }
+
+  /*
+   * T code of a frame found by scanning for "T": without parsing it, -1 if there is none
+   */
+  public static int frameType(byte[] data, int offset, int length) {
+    int end = offset + length;
+    for (int i = offset; i + 4 < end; i++) {
+      if (data[i] == '"' && data[i + 1] == 'T' && data[i + 2] == '"') {
+        int j = i + 3;
+        while (j < end && (data[j] == ' ' || data[j] == ':')) {
+          j++;
+        }
+        int type = 0;
+        int digits = 0;
+        while (j < end && data[j] >= '0' && data[j] <= '9' && digits < 9) {
+          type = type * 10 + (data[j++] - '0');
+          digits++;
+        }
+        return digits > 0 ? type : -1;
+      }
+    }
+    return -1;
+  }
+
+  // code: T code of the frame, 0 for the power status
+  private static boolean parsed(TelemetryParsedEvent event, int code, int bytes,
+      boolean valid) {
+    event.end();
+    if (event.shouldCommit()) {
+      event.code = code;
+      event.bytes = bytes;
+      event.valid = valid;
+      event.commit();
+    }
+    return valid;
+  }
+
+  private boolean read(BaseFeedback target) throws IOException {
+    int type = T_BASE_FEEDBACK;
+    JsonToken token;
+    try {
+      while ((token = parser.nextToken()) == JsonToken.FIELD_NAME) {
+        String name = parser.currentName();
+        if (!parser.nextToken().isNumeric()) {
+          parser.skipChildren();
+          continue;
+        }
+        double value = number(parser);
+        switch (name) {
+          case "T" -> type = (int) value;
+          case "L" -> target.left = value;
+          case "R" -> target.right = value;
+          case "r" -> target.roll = value;
+          case "p" -> target.pitch = value;
+          case "y" -> target.yaw = value;
+          case "v" -> target.voltage = value;
+          default -> {
+          }
+        }
+      }
+    } catch (IOException e) {
+      newParser();
+      throw e;
+    }
+    target.valid = endOfFrame(token) && type == T_BASE_FEEDBACK;
+    target.timestampNanos = System.nanoTime();
+    return target.valid;
+  }
+
+  private boolean read(ImuData target) throws IOException {
+    int type = T_IMU;
+    JsonToken token;
+    try {
+      while ((token = parser.nextToken()) == JsonToken.FIELD_NAME) {
+        String name = parser.currentName();
+        if (!parser.nextToken().isNumeric()) {
+          parser.skipChildren();
+          continue;
+        }
+        double value = number(parser);
+        switch (name) {
+          case "T" -> type = (int) value;
+          case "r" -> target.roll = value;
+          case "p" -> target.pitch = value;
+          case "y" -> target.yaw = value;
+          case "ax" -> target.accelX = value;
+          case "ay" -> target.accelY = value;
+          case "az" -> target.accelZ = value;
+          case "gx" -> target.gyroX = value;
+          case "gy" -> target.gyroY = value;
+          case "gz" -> target.gyroZ = value;
+          case "mx" -> target.magX = value;
+          case "my" -> target.magY = value;
+          case "mz" -> target.magZ = value;
+          case "temp" -> target.temperature = value;
+          default -> {
+          }
+        }
+      }
+    } catch (IOException e) {
+      newParser();
+      throw e;
+    }
+    target.valid = endOfFrame(token) && type == T_IMU;
+    target.timestampNanos = System.nanoTime();
+    return target.valid;
+  }
+
+  private boolean read(PowerStatus target) throws IOException {
+    JsonToken token;
+    try {
+      while ((token = parser.nextToken()) == JsonToken.FIELD_NAME) {
+        String name = parser.currentName();
+        if (!parser.nextToken().isNumeric()) {
+          parser.skipChildren();
+          continue;
+        }
+        double value = number(parser);
+        switch (name) {
+          case "voltage", "load_voltage", "bus_voltage" -> target.voltage = value;
+          case "shunt_voltage" -> target.shuntVoltage = value;
+          case "current" -> target.current = value;
+          case "power" -> target.power = value;
+          default -> {
+          }
+        }
+      }
+    } catch (IOException e) {
+      newParser();
+      throw e;
+    }
+    target.valid = endOfFrame(token);
+    target.timestampNanos = System.nanoTime();
+    return target.valid;
+  }
+
+  /*
+   * Feeds one frame and positions the parser on its START_OBJECT
+   */
+  private boolean feed(byte[] data, int offset, int length) throws IOException {
+    try {
+      feeder.feedInput(data, offset, offset + length);
+      if (parser.nextToken() == JsonToken.START_OBJECT) {
+        return true;
+      }
+    } catch (IOException e) {
+      newParser();
+      throw e;
+    }
+    newParser();
+    return false;
+  }
+
+  /*
+   * A complete frame ends on END_OBJECT with nothing but whitespace after it;
+   * anything else leaves the parser in an unknown state, so it is replaced
+   */
+  private boolean endOfFrame(JsonToken token) throws IOException {
+    if (token == JsonToken.END_OBJECT && parser.nextToken() == JsonToken.NOT_AVAILABLE) {
+      return true;
+    }
+    newParser();
+    return false;
+  }
+
+  private void newParser() {
+    try {
+      if (parser != null) {
+        parser.close();
+      }
+      parser = jsonFactory.createNonBlockingByteArrayParser();
+      feeder = (ByteArrayFeeder) parser.getNonBlockingInputFeeder();
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  private int readBody(InputStream in) throws IOException {
+    int length = 0;
+    int n;
+    while ((n = in.read(buffer, length, buffer.length - length)) >= 0) {
+      length += n;
+      if (length == buffer.length) {
+        if (buffer.length >= MAX_FRAME) {
+          throw new IOException("telemetry frame exceeds " + MAX_FRAME + " bytes");
+        }
+        buffer = Arrays.copyOf(buffer, buffer.length * 2);
+      }
+    }
+    return length;
+  }
+
+  private static double number(JsonParser parser) throws IOException {
+    if (parser.currentToken() == JsonToken.VALUE_NUMBER_INT
+        && parser.getNumberType() != JsonParser.NumberType.BIG_INTEGER) {
+      return parser.getLongValue();
+    }
+    return parseDecimal(parser.getTextCharacters(), parser.getTextOffset(),
+        parser.getTextLength());
+  }
+
+  /*
+   * Parses a JSON number without creating a String. Numbers with more than
+   * MAX_FAST_DIGITS digits or a large exponent fall back to Double.parseDouble.
+   */
+  static double parseDecimal(char[] buf, int offset, int length) {
+    int i = offset;
+    int end = offset + length;
+    boolean negative = false;
+    if (i < end && (buf[i] == '-' || buf[i] == '+')) {
+      negative = buf[i] == '-';
+      i++;
+    }
+    long mantissa = 0;
+    int digits = 0;
+    int scale = 0;
+    boolean fraction = false;
+    int exponent = 0;
+    for (; i < end; i++) {
+      char c = buf[i];
+      if (c >= '0' && c <= '9') {
+        if (mantissa != 0 || c != '0') {
+          digits++;
+        }
+        mantissa = mantissa * 10 + (c - '0');
+        if (fraction) {
+          scale++;
+        }
+      } else if (c == '.' && !fraction) {
+        fraction = true;
+      } else if (c == 'e' || c == 'E') {
+        boolean negativeExponent = false;
+        i++;
+        if (i < end && (buf[i] == '-' || buf[i] == '+')) {
+          negativeExponent = buf[i] == '-';
+          i++;
+        }
+        int exponentStart = i;
+        for (; i < end; i++) {
+          char d = buf[i];
+          // beyond any double; Double.parseDouble yields the infinity or zero
+          if (d < '0' || d > '9' || exponent >= 1000) {
+            return Double.parseDouble(new String(buf, offset, length));
+          }
+          exponent = exponent * 10 + (d - '0');
+        }
+        if (i == exponentStart) {
+          return Double.parseDouble(new String(buf, offset, length));
+        }
+        if (negativeExponent) {
+          exponent = -exponent;
+        }
+      } else {
+        return Double.parseDouble(new String(buf, offset, length));
+      }
+      if (digits > MAX_FAST_DIGITS) {
+        return Double.parseDouble(new String(buf, offset, length));
+      }
+    }
+    int exp10 = exponent - scale;
+    double value = mantissa;
+    if (exp10 < 0) {
+      if (-exp10 >= POW10.length) {
+        return Double.parseDouble(new String(buf, offset, length));
+      }
+      value /= POW10[-exp10];
+    } else if (exp10 > 0) {
+      if (exp10 >= POW10.length) {
+        return Double.parseDouble(new String(buf, offset, length));
+      }
+      value *= POW10[exp10];
+    }
+    return negative ? -value : value;
+  }
+}
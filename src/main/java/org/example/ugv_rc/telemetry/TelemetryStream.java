@@ -0,0 +1,217 @@
+package org.example.ugv_rc.telemetry;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+/*
+ * Continuous feedback from the UGV02.
+ *
+ * The ESP32 pushes newline-terminated JSON frames on its serial port once
+ * CMD_BASE_FEEDBACK_FLOW ({"T":131,"cmd":1}) is on, at the interval set with
+ * CMD_FEEDBACK_FLOW_INTERVAL (T:142). The web api has no push channel, so the frames
+ * are read from a TCP bridge of that serial port (see jetson-files/feedbackbridge.sh).
+ * Bytes are split into lines as they arrive and each line is parsed incrementally into
+ * reused telemetry instances, which are published to the listeners on the reader thread.
+ * The connection is re-established with backoff; while it is down callers fall back to
+ * polling. The reader runs on a platform thread of its own, or on a thread of the given
+ * factory, e.g. virtual threads for many vehicles.
+ */
+@Slf4j
+public class TelemetryStream implements AutoCloseable {
+
+  private static final int CONNECT_TIMEOUT_MILLIS = 2000;
+  // no frame within this time counts as a dead link
+  private static final int READ_TIMEOUT_MILLIS = 2000;
+  private static final long MIN_BACKOFF_MILLIS = 250;
+  private static final long MAX_BACKOFF_MILLIS = 5000;
+  private static final int MAX_LINE = 4096;
+
+  private final String host;
+  private final int port;
+  private final int intervalMillis;
+  private final TelemetryParser parser = new TelemetryParser();
+  private final BaseFeedback feedback = new BaseFeedback();
+  private final ImuData imuData = new ImuData();
+  private final List<TelemetryListener> listeners = new CopyOnWriteArrayList<>();
+  private final byte[] buffer = new byte[2 * MAX_LINE];
+  private final Thread thread;
+  private volatile boolean running;
+  private volatile Socket socket;
+
+  @Getter
+  private volatile boolean connected;
+  @Getter
+  private volatile long frameCount;
+  @Getter
+  private volatile long malformedCount;
+
+  public TelemetryStream(String host, int port, int intervalMillis) {
+    this(host, port, intervalMillis, Thread.ofPlatform()
+        .name("telemetry-stream")
+        .daemon(true)
+        .factory());
+  }
+
+  public TelemetryStream(String host, int port, int intervalMillis,
+      ThreadFactory threadFactory) {
+    this.host = host;
+    this.port = port;
+    this.intervalMillis = intervalMillis;
+    this.thread = threadFactory.newThread(this::run);
+  }
+
+  public void addListener(TelemetryListener listener) {
+    listeners.add(listener);
+  }
+
+  public void removeListener(TelemetryListener listener) {
+    listeners.remove(listener);
+  }
+
+  public void start() {
+    running = true;
+    thread.start();
+  }
+
+  @Override
+  public void close() {
+    running = false;
+    Socket s = socket;
+    if (s != null) {
+      try {
+        s.close();
+      } catch (IOException e) {
+        log.debug("telemetry stream close: {}", e.getMessage());
+      }
+    }
+    thread.interrupt();
+  }
+
+  private void run() {
+    long backoff = MIN_BACKOFF_MILLIS;
+    while (running) {
+      try (Socket s = new Socket()) {
+        socket = s;
+        s.connect(new InetSocketAddress(host, port), CONNECT_TIMEOUT_MILLIS);
+        s.setSoTimeout(READ_TIMEOUT_MILLIS);
+        s.setTcpNoDelay(true);
+        enableFlow(s.getOutputStream());
+        log.info("telemetry stream connected to {}:{}", host, port);
+        setConnected(true);
+        backoff = MIN_BACKOFF_MILLIS;
+        readFrames(s.getInputStream());
+      } catch (IOException e) {
+        if (running) {
+          log.warn("telemetry stream {}:{}: {}", host, port, e.getMessage());
+        }
+      } finally {
+        socket = null;
+        setConnected(false);
+      }
+      if (running) {
+        try {
+          TimeUnit.MILLISECONDS.sleep(backoff);
+        } catch (InterruptedException e) {
+          return;
+        }
+        backoff = Math.min(MAX_BACKOFF_MILLIS, backoff * 2);
+      }
+    }
+  }
+
+  private void enableFlow(OutputStream out) throws IOException {
+    String cmd = "{\"T\":142,\"cmd\":" + intervalMillis + "}\n{\"T\":131,\"cmd\":1}\n";
+    out.write(cmd.getBytes(StandardCharsets.US_ASCII));
+    out.flush();
+  }
+
+  /*
+   * Splits the byte stream into lines in place; a line longer than MAX_LINE is dropped
+   */
+  private void readFrames(InputStream in) throws IOException {
+    int start = 0;
+    int end = 0;
+    boolean discarding = false;
+    while (running) {
+      int n = in.read(buffer, end, buffer.length - end);
+      if (n < 0) {
+        throw new IOException("stream closed by peer");
+      }
+      int scan = end;
+      end += n;
+      for (int i = scan; i < end; i++) {
+        if (buffer[i] == '\n') {
+          if (!discarding) {
+            handleLine(start, i - start);
+          }
+          discarding = false;
+          start = i + 1;
+        }
+      }
+      if (end - start >= MAX_LINE) {
+        malformedCount++;
+        discarding = true;
+        start = end;
+      }
+      if (start > 0) {
+        System.arraycopy(buffer, start, buffer, 0, end - start);
+        end -= start;
+        start = 0;
+      }
+    }
+  }
+
+  private void handleLine(int offset, int length) {
+    if (length > 0 && buffer[offset + length - 1] == '\r') {
+      length--;
+    }
+    if (length == 0) {
+      return;
+    }
+    try {
+      switch (TelemetryParser.frameType(buffer, offset, length)) {
+        case TelemetryParser.T_BASE_FEEDBACK -> {
+          if (parser.parse(buffer, offset, length, feedback)) {
+            frameCount++;
+            for (TelemetryListener listener : listeners) {
+              listener.onBaseFeedback(feedback);
+            }
+          }
+        }
+        case TelemetryParser.T_IMU -> {
+          if (parser.parse(buffer, offset, length, imuData)) {
+            frameCount++;
+            for (TelemetryListener listener : listeners) {
+              listener.onImuData(imuData);
+            }
+          }
+        }
+        default -> {
+          // command echoes and other frames
+        }
+      }
+    } catch (IOException e) {
+      malformedCount++;
+      log.debug("malformed telemetry frame: {}", e.getMessage());
+    }
+  }
+
+  private void setConnected(boolean state) {
+    if (connected != state) {
+      connected = state;
+      for (TelemetryListener listener : listeners) {
+        listener.onStreamState(state);
+      }
+    }
+  }
+}
@@ -0,0 +1,52 @@
+package org.example.ugv_rc.video;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import lombok.Getter;
+
+/*
+ * Fixed set of equally sized direct buffers, sliced from one allocation, so datagrams
+ * are received straight into native memory and no buffer is allocated per packet.
+ */
+public class BufferPool {
+
+  private final ArrayBlockingQueue<ByteBuffer> free;
+  @Getter
+  private final int bufferSize;
+  private final AtomicLong exhausted = new AtomicLong();
+
+  public BufferPool(int count, int bufferSize) {
+    this.bufferSize = bufferSize;
+    this.free = new ArrayBlockingQueue<>(count);
+    ByteBuffer block = ByteBuffer.allocateDirect(count * bufferSize);
+    for (int i = 0; i < count; i++) {
+      free.add(block.slice(i * bufferSize, bufferSize));
+    }
+  }
+
+  /*
+   * A cleared buffer, null if all are in use
+   */
+  public ByteBuffer acquire() {
+    ByteBuffer buffer = free.poll();
+    if (buffer == null) {
+      exhausted.incrementAndGet();
+      return null;
+    }
+    return buffer.clear();
+  }
+
+  public void release(ByteBuffer buffer) {
+    free.offer(buffer);
+  }
+
+  public int available() {
+    return free.size();
+  }
+
+  // acquire() calls that found no buffer
+  public long getExhaustedCount() {
+    return exhausted.get();
+  }
+}
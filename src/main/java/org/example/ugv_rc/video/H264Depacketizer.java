@@ -0,0 +1,162 @@
+package org.example.ugv_rc.video;
+
+import java.nio.ByteBuffer;
+import lombok.Getter;
+
+/*
+ * RTP payload format for H.264 (RFC 6184) in non-interleaved mode, as sent by
+ * rtph264pay: single NAL unit packets (types 1-23), STAP-A (24) aggregating small units
+ * such as SPS and PPS, and FU-A (28) fragments of large units.
+ *
+ * Single and aggregated units are handed to the listener in place in the packet buffer;
+ * only fragments are copied, into one reused direct assembly buffer. A fragmented unit
+ * missing a fragment is dropped. An access unit ends with the marker bit, or, if the
+ * packet carrying it was lost, with the first packet of the next timestamp; it is
+ * complete if no packet of it was lost. Not thread-safe, owned by the receiver thread.
+ */
+public class H264Depacketizer {
+
+  static final int STAP_A = 24;
+  static final int FU_A = 28;
+
+  private final NalUnitListener listener;
+  private final RtpStreamStats stats;
+  private final ByteBuffer assembly;
+  private boolean assembling;
+  private boolean inFrame;
+  private long frameTimestamp;
+  private long frameStartNanos;
+  private boolean frameDamaged;
+
+  @Getter
+  private long nalUnitCount;
+  // units lost to a missing fragment, a malformed packet or their size
+  @Getter
+  private long droppedNalUnitCount;
+
+  public H264Depacketizer(NalUnitListener listener, RtpStreamStats stats, int maxNalSize) {
+    this.listener = listener;
+    this.stats = stats;
+    this.assembly = ByteBuffer.allocateDirect(maxNalSize);
+  }
+
+  /*
+   * The payload of the next packet in sequence order; gap: packets before it were lost
+   */
+  public void packet(ByteBuffer buffer, int offset, int length, long timestamp,
+      boolean marker, long arrivalNanos, boolean gap) {
+    if (gap) {
+      if (assembling) {
+        assembling = false;
+        droppedNalUnitCount++;
+      }
+      // the lost packets belonged to this frame or the next one
+      frameDamaged = true;
+    }
+    if (inFrame && timestamp != frameTimestamp) {
+      endFrame(false);
+    }
+    if (!inFrame) {
+      inFrame = true;
+      frameTimestamp = timestamp;
+      frameStartNanos = arrivalNanos;
+      frameDamaged = gap;
+    }
+    if (length < 1) {
+      droppedNalUnitCount++;
+      frameDamaged = true;
+    } else {
+      int type = buffer.get(offset) & 0x1F;
+      switch (type) {
+        case STAP_A -> aggregate(buffer, offset + 1, offset + length, timestamp);
+        case FU_A -> fragment(buffer, offset, length, timestamp);
+        case 0, 25, 26, 27, 29, 30, 31 -> {
+          // reserved, STAP-B, MTAP and FU-B are not used in non-interleaved mode
+          droppedNalUnitCount++;
+          frameDamaged = true;
+        }
+        default -> deliver(buffer, offset, offset + length, timestamp);
+      }
+    }
+    if (marker) {
+      endFrame(true);
+    }
+  }
+
+  private void aggregate(ByteBuffer buffer, int position, int end, long timestamp) {
+    while (position + 2 <= end) {
+      int size = buffer.getShort(position) & 0xFFFF;
+      position += 2;
+      if (size == 0 || position + size > end) {
+        droppedNalUnitCount++;
+        frameDamaged = true;
+        return;
+      }
+      deliver(buffer, position, position + size, timestamp);
+      position += size;
+    }
+  }
+
+  private void fragment(ByteBuffer buffer, int offset, int length, long timestamp) {
+    if (length < 2) {
+      droppedNalUnitCount++;
+      frameDamaged = true;
+      return;
+    }
+    int indicator = buffer.get(offset) & 0xFF;
+    int header = buffer.get(offset + 1) & 0xFF;
+    boolean start = (header & 0x80) != 0;
+    boolean end = (header & 0x40) != 0;
+    if (start) {
+      if (assembling) {
+        droppedNalUnitCount++;
+        frameDamaged = true;
+      }
+      assembly.clear();
+      // the unit header is rebuilt from forbidden bit and NRI of the indicator
+      assembly.put((byte) ((indicator & 0xE0) | (header & 0x1F)));
+      assembling = true;
+    } else if (!assembling) {
+      // its start was lost, the unit was already counted at the gap
+      return;
+    }
+    if (assembly.remaining() < length - 2) {
+      assembling = false;
+      droppedNalUnitCount++;
+      frameDamaged = true;
+      return;
+    }
+    assembly.put(assembly.position(), buffer, offset + 2, length - 2);
+    assembly.position(assembly.position() + length - 2);
+    if (end) {
+      assembling = false;
+      deliver(assembly, 0, assembly.position(), timestamp);
+    }
+  }
+
+  private void deliver(ByteBuffer buffer, int from, int to, long timestamp) {
+    int position = buffer.position();
+    int limit = buffer.limit();
+    buffer.limit(to).position(from);
+    try {
+      nalUnitCount++;
+      stats.onNalUnit();
+      listener.onNalUnit(buffer, timestamp);
+    } finally {
+      buffer.limit(limit).position(position);
+    }
+  }
+
+  private void endFrame(boolean marker) {
+    inFrame = false;
+    if (assembling) {
+      assembling = false;
+      droppedNalUnitCount++;
+      frameDamaged = true;
+    }
+    boolean complete = marker && !frameDamaged;
+    long assemblyNanos = System.nanoTime() - frameStartNanos;
+    stats.onFrame(assemblyNanos, complete);
+    listener.onFrame(frameTimestamp, assemblyNanos, complete);
+  }
+}
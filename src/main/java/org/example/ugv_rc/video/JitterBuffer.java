@@ -0,0 +1,167 @@
+package org.example.ugv_rc.video;
+
+import java.nio.ByteBuffer;
+import lombok.Getter;
+
+/*
+ * Puts the packets of one stream back into sequence order.
+ *
+ * Packets are held in a ring of slots indexed by sequence number and handed to the sink
+ * in order as soon as the next expected one is there, so an in-order stream passes
+ * without delay. A missing packet is waited for until the packet after it has been held
+ * for holdNanos, or until a packet arrives that is more than capacity ahead; then it
+ * counts as lost and the sink is told about the gap. Packets arriving after their turn
+ * are dropped. Owns the buffers it is given and returns them to the pool once the sink
+ * has seen them. Not thread-safe, owned by the receiver thread.
+ */
+class JitterBuffer {
+
+  interface Sink {
+
+    // gap: packets before this one were lost
+    void packet(ByteBuffer buffer, Slot slot, boolean gap);
+  }
+
+  static final class Slot {
+
+    private ByteBuffer buffer;
+    int sequence;
+    long timestamp;
+    boolean marker;
+    int payloadOffset;
+    int payloadLength;
+    long arrivalNanos;
+  }
+
+  private final Slot[] slots;
+  private final int mask;
+  private final long holdNanos;
+  private final BufferPool pool;
+  private final Sink sink;
+  private boolean started;
+  private int next;
+  private int held;
+  private boolean gap;
+
+  // arrived after their turn, or a second time
+  @Getter
+  private long lateCount;
+  // given up on
+  @Getter
+  private long skippedCount;
+
+  /*
+   * capacity: a power of two
+   */
+  JitterBuffer(int capacity, long holdNanos, BufferPool pool, Sink sink) {
+    if (Integer.bitCount(capacity) != 1) {
+      throw new IllegalArgumentException("jitter buffer capacity " + capacity);
+    }
+    this.slots = new Slot[capacity];
+    for (int i = 0; i < capacity; i++) {
+      slots[i] = new Slot();
+    }
+    this.mask = capacity - 1;
+    this.holdNanos = holdNanos;
+    this.pool = pool;
+    this.sink = sink;
+  }
+
+  int getHeld() {
+    return held;
+  }
+
+  void insert(ByteBuffer buffer, RtpPacket packet, long nowNanos) {
+    int sequence = packet.getSequence();
+    if (!started) {
+      started = true;
+      next = sequence;
+    }
+    int ahead = (sequence - next) & 0xFFFF;
+    if (ahead >= 0x8000) {
+      lateCount++;
+      pool.release(buffer);
+      return;
+    }
+    while (((sequence - next) & 0xFFFF) >= slots.length) {
+      advance();
+    }
+    Slot slot = slots[sequence & mask];
+    if (slot.buffer != null) {
+      lateCount++;
+      pool.release(buffer);
+      return;
+    }
+    slot.buffer = buffer;
+    slot.sequence = sequence;
+    slot.timestamp = packet.getTimestamp();
+    slot.marker = packet.isMarker();
+    slot.payloadOffset = packet.getPayloadOffset();
+    slot.payloadLength = packet.getPayloadLength();
+    slot.arrivalNanos = nowNanos;
+    held++;
+    drain(nowNanos);
+  }
+
+  /*
+   * Hands on what is in order, and skips a gap whose successor has waited long enough;
+   * also called when no packet arrived for a while
+   */
+  void drain(long nowNanos) {
+    while (held > 0) {
+      Slot slot = slots[next & mask];
+      if (slot.buffer != null) {
+        emit(slot);
+        continue;
+      }
+      int distance = 1;
+      while (slots[(next + distance) & mask].buffer == null) {
+        distance++;
+      }
+      if (nowNanos - slots[(next + distance) & mask].arrivalNanos < holdNanos) {
+        return;
+      }
+      skippedCount += distance;
+      gap = true;
+      next = (next + distance) & 0xFFFF;
+    }
+  }
+
+  // returns all held packets to the pool
+  void clear() {
+    for (Slot slot : slots) {
+      if (slot.buffer != null) {
+        pool.release(slot.buffer);
+        slot.buffer = null;
+      }
+    }
+    held = 0;
+    started = false;
+  }
+
+  // moves past the next expected packet, whether it is there or not
+  private void advance() {
+    Slot slot = slots[next & mask];
+    if (slot.buffer != null) {
+      emit(slot);
+    } else {
+      skippedCount++;
+      gap = true;
+      next = (next + 1) & 0xFFFF;
+    }
+  }
+
+  private void emit(Slot slot) {
+    ByteBuffer buffer = slot.buffer;
+    slot.buffer = null;
+    held--;
+    next = (next + 1) & 0xFFFF;
+    boolean lost = gap;
+    gap = false;
+    try {
+      sink.packet(buffer, slot, lost);
+    } finally {
+      pool.release(buffer);
+    }
+  }
+}
@@ -0,0 +1,21 @@
+package org.example.ugv_rc.video;
+
+import java.nio.ByteBuffer;
+
+/*
+ * Receives the NAL units of a stream in decoding order, on the receiver thread.
+ * The buffer passed in is the packet or assembly buffer itself, not a copy: the unit,
+ * without start code, lies between position and limit and is only valid during the
+ * call. Listeners copy what they keep and must return quickly.
+ */
+public interface NalUnitListener {
+
+  void onNalUnit(ByteBuffer nal, long rtpTimestamp);
+
+  /*
+   * The last unit of an access unit (frame) was delivered. assemblyNanos: from the
+   * arrival of its first packet; complete: no packet of it was lost.
+   */
+  default void onFrame(long rtpTimestamp, long assemblyNanos, boolean complete) {
+  }
+}
@@ -0,0 +1,146 @@
+package org.example.ugv_rc.video;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import lombok.extern.slf4j.Slf4j;
+
+/*
+ * File of captured UDP datagrams with their arrival times, for replaying a camera stream
+ * with RtpReplaySender: the magic "RTPCAP01", then per datagram the nanoseconds since
+ * the first one (long), its length (unsigned short) and its bytes, big-endian.
+ *
+ * Capturing, e.g. on the host while gimbalcam.sh streams (external player closed):
+ *   java ... org.example.ugv_rc.video.RtpCapture --port=1234 --seconds=10 --out=gimbal.rtpcap
+ */
+@Slf4j
+public class RtpCapture {
+
+  private static final long MAGIC = 0x5254504341503031L;
+
+  private RtpCapture() {
+  }
+
+  public static class Writer implements AutoCloseable {
+
+    private final DataOutputStream out;
+    private long firstNanos = -1;
+    private long count;
+
+    public Writer(Path path) throws IOException {
+      this.out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(path)));
+      out.writeLong(MAGIC);
+    }
+
+    // the datagram between position and limit, which are left unchanged
+    public void write(ByteBuffer datagram, long arrivalNanos) throws IOException {
+      if (firstNanos < 0) {
+        firstNanos = arrivalNanos;
+      }
+      out.writeLong(arrivalNanos - firstNanos);
+      out.writeShort(datagram.remaining());
+      for (int i = datagram.position(); i < datagram.limit(); i++) {
+        out.write(datagram.get(i));
+      }
+      count++;
+    }
+
+    public long getCount() {
+      return count;
+    }
+
+    @Override
+    public void close() throws IOException {
+      out.close();
+    }
+  }
+
+  public static class Reader implements AutoCloseable {
+
+    private final DataInputStream in;
+    private final byte[] bytes = new byte[0x10000];
+
+    public Reader(Path path) throws IOException {
+      this.in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path)));
+      if (in.readLong() != MAGIC) {
+        in.close();
+        throw new IOException(path + ": not an RTP capture");
+      }
+    }
+
+    /*
+     * Reads the next datagram into target, flipped; returns its offset in nanoseconds
+     * from the first one, -1 at the end of the capture
+     */
+    public long next(ByteBuffer target) throws IOException {
+      long offsetNanos;
+      try {
+        offsetNanos = in.readLong();
+      } catch (EOFException e) {
+        return -1;
+      }
+      int length = in.readUnsignedShort();
+      in.readFully(bytes, 0, length);
+      target.clear();
+      target.put(bytes, 0, length).flip();
+      return offsetNanos;
+    }
+
+    @Override
+    public void close() throws IOException {
+      in.close();
+    }
+  }
+
+  static void main(String[] args) throws IOException {
+    int port = 1234;
+    double seconds = 10;
+    Path out = null;
+    for (String arg : args) {
+      String[] option = arg.split("=", 2);
+      if (option.length != 2) {
+        throw new IllegalArgumentException("expected --option=value: " + arg);
+      }
+      switch (option[0]) {
+        case "--port" -> port = Integer.parseInt(option[1]);
+        case "--seconds" -> seconds = Double.parseDouble(option[1]);
+        case "--out" -> out = Path.of(option[1]);
+        default -> throw new IllegalArgumentException("unknown option: " + arg);
+      }
+    }
+    if (out == null) {
+      throw new IllegalArgumentException("--out=file is required");
+    }
+    long end = System.nanoTime() + (long) (seconds * TimeUnit.SECONDS.toNanos(1));
+    ByteBuffer buffer = ByteBuffer.allocateDirect(0x10000);
+    try (DatagramChannel channel = DatagramChannel.open();
+        Selector selector = Selector.open();
+        Writer writer = new Writer(out)) {
+      channel.setOption(StandardSocketOptions.SO_RCVBUF, 4 * 1024 * 1024);
+      channel.bind(new InetSocketAddress(port));
+      channel.configureBlocking(false);
+      channel.register(selector, SelectionKey.OP_READ);
+      log.info("capturing :{} for {} s into {}", port, seconds, out);
+      while (System.nanoTime() - end < 0) {
+        selector.select(_ -> {
+        }, 100);
+        while (channel.receive(buffer.clear()) != null) {
+          writer.write(buffer.flip(), System.nanoTime());
+        }
+      }
+      log.info("captured {} datagrams", writer.getCount());
+    }
+  }
+}
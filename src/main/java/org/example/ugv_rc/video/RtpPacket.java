@@ -0,0 +1,66 @@
+package org.example.ugv_rc.video;
+
+import java.nio.ByteBuffer;
+import lombok.Getter;
+
+/*
+ * Fixed RTP header (RFC 3550) of a packet in a buffer, parsed in place. Reused for every
+ * packet; the payload stays in the buffer at payloadOffset.
+ */
+@Getter
+public class RtpPacket {
+
+  public static final int HEADER_SIZE = 12;
+
+  private boolean marker;
+  private int payloadType;
+  // 16 bit
+  private int sequence;
+  // 32 bit, unsigned
+  private long timestamp;
+  private int ssrc;
+  // absolute index in the buffer
+  private int payloadOffset;
+  private int payloadLength;
+
+  /*
+   * Parses the packet between position and limit; false if it is no RTP version 2
+   * packet or truncated
+   */
+  public boolean parse(ByteBuffer buffer) {
+    int start = buffer.position();
+    int length = buffer.remaining();
+    if (length < HEADER_SIZE) {
+      return false;
+    }
+    int b0 = buffer.get(start) & 0xFF;
+    int b1 = buffer.get(start + 1) & 0xFF;
+    if (b0 >> 6 != 2) {
+      return false;
+    }
+    marker = (b1 & 0x80) != 0;
+    payloadType = b1 & 0x7F;
+    sequence = buffer.getShort(start + 2) & 0xFFFF;
+    timestamp = buffer.getInt(start + 4) & 0xFFFFFFFFL;
+    ssrc = buffer.getInt(start + 8);
+    int offset = HEADER_SIZE + 4 * (b0 & 0x0F);
+    if ((b0 & 0x10) != 0) {
+      // header extension: profile, length in 32 bit words
+      if (length < offset + 4) {
+        return false;
+      }
+      offset += 4 + 4 * (buffer.getShort(start + offset + 2) & 0xFFFF);
+    }
+    int end = length;
+    if ((b0 & 0x20) != 0) {
+      // the last byte counts the padding, itself included
+      end -= buffer.get(start + length - 1) & 0xFF;
+    }
+    if (end < offset) {
+      return false;
+    }
+    payloadOffset = start + offset;
+    payloadLength = end - offset;
+    return true;
+  }
+}
@@ -0,0 +1,199 @@
+package org.example.ugv_rc.video;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.util.concurrent.TimeUnit;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+/*
+ * Receives one RTP/H.264 camera stream (gimbalcam.sh, chassiscam.sh) and hands its NAL
+ * units to a listener.
+ *
+ * One platform thread per stream reads datagrams from a non-blocking DatagramChannel
+ * straight into buffers of a BufferPool, parses the RTP header in place, and passes the
+ * packets through a JitterBuffer to the H264Depacketizer. Nothing is allocated or copied
+ * per packet except fragments of large NAL units, which are reassembled. The socket
+ * receive buffer is enlarged so a keyframe burst is not dropped by the kernel.
+ *
+ * The listening port comes from the SDP file; its connection address names the sender
+ * side and is not used for binding.
+ */
+@Slf4j
+public class RtpReceiver implements AutoCloseable {
+
+  public static final long DEFAULT_JITTER_MILLIS = 20;
+  // a keyframe at 8 Mbit/s is a few hundred kB
+  private static final int RECEIVE_BUFFER_SIZE = 4 * 1024 * 1024;
+  private static final int MAX_DATAGRAM_SIZE = 2048;
+  private static final int JITTER_CAPACITY = 256;
+  private static final int MAX_NAL_SIZE = 4 * 1024 * 1024;
+
+  @Getter
+  private final String name;
+  private final int payloadType;
+  private final DatagramChannel channel;
+  private final Selector selector;
+  @Getter
+  private final BufferPool pool;
+  private final RtpPacket packet = new RtpPacket();
+  private final JitterBuffer jitterBuffer;
+  @Getter
+  private final H264Depacketizer depacketizer;
+  @Getter
+  private final RtpStreamStats stats;
+  private final long selectMillis;
+  private boolean sourceKnown;
+  private int ssrc;
+  private final Thread thread;
+  private volatile boolean running;
+
+  public static RtpReceiver open(String name, SdpDescription sdp, NalUnitListener listener,
+      long jitterMillis) throws IOException {
+    if (!"H264".equalsIgnoreCase(sdp.getEncoding())) {
+      throw new IOException(name + ": unsupported encoding " + sdp.getEncoding());
+    }
+    return new RtpReceiver(name, new InetSocketAddress(sdp.getPort()), sdp.getPayloadType(),
+        sdp.getClockRate(), listener, jitterMillis);
+  }
+
+  /*
+   * bind: local address to listen on, port 0 picks a free one (see getLocalPort)
+   */
+  public RtpReceiver(String name, InetSocketAddress bind, int payloadType, int clockRate,
+      NalUnitListener listener, long jitterMillis) throws IOException {
+    this.name = name;
+    this.payloadType = payloadType;
+    this.stats = new RtpStreamStats(name, clockRate);
+    this.pool = new BufferPool(JITTER_CAPACITY + 1, MAX_DATAGRAM_SIZE);
+    this.depacketizer = new H264Depacketizer(listener, stats, MAX_NAL_SIZE);
+    this.jitterBuffer = new JitterBuffer(JITTER_CAPACITY,
+        TimeUnit.MILLISECONDS.toNanos(jitterMillis), pool,
+        (buffer, slot, gap) -> depacketizer.packet(buffer, slot.payloadOffset,
+            slot.payloadLength, slot.timestamp, slot.marker, slot.arrivalNanos, gap));
+    this.selectMillis = Math.max(1, jitterMillis / 2);
+    this.channel = DatagramChannel.open();
+    channel.setOption(StandardSocketOptions.SO_REUSEADDR, true);
+    channel.setOption(StandardSocketOptions.SO_RCVBUF, RECEIVE_BUFFER_SIZE);
+    channel.bind(bind);
+    channel.configureBlocking(false);
+    this.selector = Selector.open();
+    channel.register(selector, SelectionKey.OP_READ);
+    this.thread = Thread.ofPlatform()
+        .name("video-" + name)
+        .daemon(true)
+        .unstarted(this::run);
+  }
+
+  public void start() {
+    running = true;
+    thread.start();
+    try {
+      log.info("video {}: listening on :{}, receive buffer {} kB", name, getLocalPort(),
+          channel.getOption(StandardSocketOptions.SO_RCVBUF) / 1024);
+    } catch (IOException e) {
+      log.debug("video {}: {}", name, e.getMessage());
+    }
+  }
+
+  public int getLocalPort() {
+    try {
+      return ((InetSocketAddress) channel.getLocalAddress()).getPort();
+    } catch (IOException e) {
+      return -1;
+    }
+  }
+
+  // packets given up on, or received too late, by the jitter buffer
+  public long getSkippedCount() {
+    return jitterBuffer.getSkippedCount();
+  }
+
+  public long getLateCount() {
+    return jitterBuffer.getLateCount();
+  }
+
+  @Override
+  public void close() {
+    running = false;
+    selector.wakeup();
+    if (thread.isAlive()) {
+      try {
+        thread.join(1000);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }
+    try {
+      selector.close();
+      channel.close();
+    } catch (IOException e) {
+      log.debug("video {} close: {}", name, e.getMessage());
+    }
+    log.info("video {}: {} packets, {} lost, {} frames, {} damaged", name,
+        stats.getReceivedCount(), stats.getLostCount(), stats.getCompleteFrameCount(),
+        stats.getDamagedFrameCount());
+  }
+
+  private void run() {
+    try {
+      while (running) {
+        // the consumer does not add the key to the selected set, which would allocate
+        selector.select(_ -> {
+        }, selectMillis);
+        receive();
+        jitterBuffer.drain(System.nanoTime());
+      }
+    } catch (IOException e) {
+      if (running) {
+        log.error("video {} stopped: {}", name, e.getMessage());
+      }
+    } finally {
+      jitterBuffer.clear();
+    }
+  }
+
+  private void receive() throws IOException {
+    while (true) {
+      ByteBuffer buffer = pool.acquire();
+      if (buffer == null) {
+        // cannot happen while the pool holds more buffers than the jitter buffer
+        log.warn("video {}: buffer pool exhausted", name);
+        jitterBuffer.clear();
+        return;
+      }
+      if (channel.receive(buffer) == null) {
+        pool.release(buffer);
+        return;
+      }
+      long now = System.nanoTime();
+      buffer.flip();
+      if (!packet.parse(buffer) || packet.getPayloadType() != payloadType) {
+        stats.onIgnored();
+        pool.release(buffer);
+        continue;
+      }
+      if (!sourceKnown || packet.getSsrc() != ssrc) {
+        newSource(packet.getSsrc());
+      }
+      stats.onPacket(packet.getSequence(), packet.getTimestamp(), now, buffer.remaining());
+      jitterBuffer.insert(buffer, packet, now);
+    }
+  }
+
+  // the sender restarted: new sequence numbers and timestamps
+  private void newSource(int newSsrc) {
+    if (sourceKnown) {
+      log.info("video {}: new source {}", name, Integer.toHexString(newSsrc));
+      jitterBuffer.clear();
+      stats.restart();
+    }
+    sourceKnown = true;
+    ssrc = newSsrc;
+  }
+}
@@ -0,0 +1,224 @@
+package org.example.ugv_rc.video;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+/*
+ * Local UDP sender for trying the receive pipeline without the rover: replays an
+ * RtpCapture with its original timing, or sends a synthetic H.264 stream packetized like
+ * rtph264pay does (SPS and PPS in a STAP-A before each keyframe, FU-A fragments for units
+ * larger than the MTU, the marker on the last packet of a frame, frames as bursts).
+ * Packets can be dropped or swapped with their successor to exercise loss and reordering.
+ *
+ *   java ... org.example.ugv_rc.video.RtpReplaySender --port=1234 --seconds=10 --loss=0.01
+ *   java ... org.example.ugv_rc.video.RtpReplaySender --port=1234 --capture=gimbal.rtpcap
+ */
+@Slf4j
+public class RtpReplaySender implements AutoCloseable {
+
+  public static final int DEFAULT_FPS = 21;
+  public static final int DEFAULT_BITRATE = 4_000_000;
+  private static final int MTU = 1400;
+  private static final int PAYLOAD_TYPE = 96;
+  private static final int CLOCK_RATE = 90_000;
+  private static final int RTP_HEADER = 12;
+
+  private final InetSocketAddress target;
+  private final DatagramChannel channel;
+  private final double loss;
+  private final double reorder;
+  private final Random random;
+  private final ByteBuffer held = ByteBuffer.allocateDirect(0x10000);
+  private boolean holding;
+  // one stream across calls of synthesize
+  private int sequence;
+  private final int ssrc;
+  private long timestamp;
+  @Getter
+  private long sentCount;
+  @Getter
+  private long droppedCount;
+  @Getter
+  private long reorderedCount;
+
+  /*
+   * loss, reorder: probability of dropping a packet, and of sending it after the next one
+   */
+  public RtpReplaySender(InetSocketAddress target, double loss, double reorder, long seed)
+      throws IOException {
+    this.target = target;
+    this.channel = DatagramChannel.open();
+    this.loss = loss;
+    this.reorder = reorder;
+    this.random = new Random(seed);
+    this.sequence = random.nextInt(0x10000);
+    this.ssrc = random.nextInt();
+    this.timestamp = random.nextInt() & 0xFFFFFFFFL;
+  }
+
+  /*
+   * Sends the datagrams of a capture at their recorded offsets, divided by speed
+   */
+  public void replay(RtpCapture.Reader reader, double speed) throws IOException {
+    ByteBuffer datagram = ByteBuffer.allocateDirect(0x10000);
+    long start = System.nanoTime();
+    long offset;
+    while ((offset = reader.next(datagram)) >= 0) {
+      sleepUntil(start + (long) (offset / speed));
+      send(datagram);
+    }
+    flush();
+  }
+
+  /*
+   * Sends a synthetic stream of fps frames per second at about bitrate bit/s for the given
+   * time, with a keyframe every second
+   */
+  public void synthesize(double seconds, int fps, int bitrate) throws IOException {
+    int frames = (int) (seconds * fps);
+    int averageSize = bitrate / 8 / fps;
+    // a keyframe is several times the size of the frames predicted from it
+    int keySize = averageSize * 4;
+    int deltaSize = Math.max(64, (averageSize * fps - keySize) / Math.max(1, fps - 1));
+    byte[] nal = new byte[keySize];
+    ByteBuffer datagram = ByteBuffer.allocateDirect(MTU + RTP_HEADER);
+    long start = System.nanoTime();
+    long frameNanos = TimeUnit.SECONDS.toNanos(1) / fps;
+    for (int frame = 0; frame < frames; frame++) {
+      sleepUntil(start + frame * frameNanos);
+      long rtpTimestamp = (timestamp + (long) frame * CLOCK_RATE / fps) & 0xFFFFFFFFL;
+      boolean key = frame % fps == 0;
+      if (key) {
+        // STAP-A with SPS (7) and PPS (8)
+        header(datagram, sequence++, rtpTimestamp, false);
+        datagram.put((byte) (0x60 | H264Depacketizer.STAP_A));
+        datagram.putShort((short) 12).put((byte) 0x67).put(new byte[11]);
+        datagram.putShort((short) 4).put((byte) 0x68).put(new byte[3]);
+        send(datagram.flip());
+      }
+      int size = key ? keySize : deltaSize;
+      nal[0] = (byte) (key ? 0x65 : 0x41);
+      for (int i = 1; i < size; i++) {
+        nal[i] = (byte) (i * 31 + frame);
+      }
+      if (size <= MTU) {
+        header(datagram, sequence++, rtpTimestamp, true);
+        send(datagram.put(nal, 0, size).flip());
+        continue;
+      }
+      // FU-A: the unit header becomes indicator and fragment header
+      int position = 1;
+      while (position < size) {
+        int chunk = Math.min(MTU - 2, size - position);
+        boolean last = position + chunk == size;
+        header(datagram, sequence++, rtpTimestamp, last);
+        datagram.put((byte) ((nal[0] & 0xE0) | H264Depacketizer.FU_A));
+        datagram.put((byte) ((position == 1 ? 0x80 : 0) | (last ? 0x40 : 0) | (nal[0] & 0x1F)));
+        send(datagram.put(nal, position, chunk).flip());
+        position += chunk;
+      }
+    }
+    flush();
+    timestamp = (timestamp + (long) frames * CLOCK_RATE / fps) & 0xFFFFFFFFL;
+  }
+
+  @Override
+  public void close() throws IOException {
+    channel.close();
+  }
+
+  private void header(ByteBuffer datagram, int number, long rtpTimestamp, boolean marker) {
+    datagram.clear();
+    datagram.put((byte) 0x80);
+    datagram.put((byte) ((marker ? 0x80 : 0) | PAYLOAD_TYPE));
+    datagram.putShort((short) number);
+    datagram.putInt((int) rtpTimestamp);
+    datagram.putInt(ssrc);
+  }
+
+  private void send(ByteBuffer datagram) throws IOException {
+    if (loss > 0 && random.nextDouble() < loss) {
+      droppedCount++;
+      return;
+    }
+    if (!holding && reorder > 0 && random.nextDouble() < reorder) {
+      held.clear();
+      held.put(datagram).flip();
+      holding = true;
+      reorderedCount++;
+      return;
+    }
+    channel.send(datagram, target);
+    sentCount++;
+    flush();
+  }
+
+  private void flush() throws IOException {
+    if (holding) {
+      holding = false;
+      channel.send(held, target);
+      sentCount++;
+    }
+  }
+
+  private static void sleepUntil(long deadline) {
+    long remaining;
+    while ((remaining = deadline - System.nanoTime()) > 0) {
+      LockSupport.parkNanos(remaining);
+    }
+  }
+
+  static void main(String[] args) throws IOException {
+    String host = "127.0.0.1";
+    int port = 1234;
+    Path capture = null;
+    double seconds = 10;
+    double speed = 1;
+    double loss = 0;
+    double reorder = 0;
+    int fps = DEFAULT_FPS;
+    int bitrate = DEFAULT_BITRATE;
+    long seed = 1;
+    for (String arg : args) {
+      String[] option = arg.split("=", 2);
+      if (option.length != 2) {
+        throw new IllegalArgumentException("expected --option=value: " + arg);
+      }
+      switch (option[0]) {
+        case "--host" -> host = option[1];
+        case "--port" -> port = Integer.parseInt(option[1]);
+        case "--capture" -> capture = Path.of(option[1]);
+        case "--seconds" -> seconds = Double.parseDouble(option[1]);
+        case "--speed" -> speed = Double.parseDouble(option[1]);
+        case "--loss" -> loss = Double.parseDouble(option[1]);
+        case "--reorder" -> reorder = Double.parseDouble(option[1]);
+        case "--fps" -> fps = Integer.parseInt(option[1]);
+        case "--bitrate" -> bitrate = Integer.parseInt(option[1]);
+        case "--seed" -> seed = Long.parseLong(option[1]);
+        default -> throw new IllegalArgumentException("unknown option: " + arg);
+      }
+    }
+    InetSocketAddress target = new InetSocketAddress(host, port);
+    try (RtpReplaySender sender = new RtpReplaySender(target, loss, reorder, seed)) {
+      if (capture != null) {
+        log.info("replaying {} to {} at {}x", capture, target, speed);
+        try (RtpCapture.Reader reader = new RtpCapture.Reader(capture)) {
+          sender.replay(reader, speed);
+        }
+      } else {
+        log.info("sending {} s of {} fps at {} bit/s to {}", seconds, fps, bitrate, target);
+        sender.synthesize(seconds, fps, bitrate);
+      }
+      log.info("sent {} packets, dropped {}, reordered {}", sender.getSentCount(),
+          sender.getDroppedCount(), sender.getReorderedCount());
+    }
+  }
+}
@@ -0,0 +1,164 @@
+package org.example.ugv_rc.video;
+
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import lombok.Getter;
+import org.example.ugv_rc.metrics.LatencyHistogram;
+
+/*
+ * Reception statistics of one RTP stream.
+ *
+ * Loss and interarrival jitter are computed as for RTCP receiver reports (RFC 3550
+ * A.3, A.8): lost = expected by the extended highest sequence number - received, jitter
+ * the smoothed deviation of packet transit times, in ms here. Frame assembly latency is
+ * the time from the arrival of the first packet of a frame until its last NAL unit was
+ * delivered, the jitter buffer included. Written by the receiver thread; the counters
+ * may be read from any thread, summary() by one reader at a time.
+ */
+public class RtpStreamStats {
+
+  @Getter
+  private final String name;
+  private final int clockRate;
+  private final LatencyHistogram assembly = new LatencyHistogram();
+  private final LatencyHistogram.Snapshot assemblySnapshot = new LatencyHistogram.Snapshot();
+
+  // receiver thread only
+  private boolean started;
+  private int baseSequence;
+  private int maxSequence;
+  private long cycles;
+  // expected of previous sources
+  private long expectedBefore;
+  private long originNanos;
+  private long lastArrival;
+  private long lastTimestamp;
+
+  @Getter
+  private volatile long receivedCount;
+  @Getter
+  private volatile long expectedCount;
+  // older than the highest sequence number seen
+  @Getter
+  private volatile long reorderedCount;
+  // not RTP, or another payload type
+  @Getter
+  private volatile long ignoredCount;
+  @Getter
+  private volatile long byteCount;
+  @Getter
+  private volatile long nalUnitCount;
+  @Getter
+  private volatile long completeFrameCount;
+  @Getter
+  private volatile long damagedFrameCount;
+  // in timestamp units, times 16 as in the RFC to keep it integral
+  private volatile long jitterScaled;
+
+  // summary() state
+  private long previousReceived;
+  private long previousExpected;
+  private long previousFrames;
+  private long previousBytes;
+  private long previousNanos;
+
+  public RtpStreamStats(String name, int clockRate) {
+    this.name = name;
+    this.clockRate = clockRate;
+  }
+
+  public long getLostCount() {
+    return Math.max(0, expectedCount - receivedCount);
+  }
+
+  public double getJitterMillis() {
+    return (jitterScaled >> 4) * 1000.0 / clockRate;
+  }
+
+  public LatencyHistogram getAssemblyLatency() {
+    return assembly;
+  }
+
+  void onPacket(int sequence, long rtpTimestamp, long arrivalNanos, int length) {
+    if (!started) {
+      started = true;
+      baseSequence = sequence;
+      maxSequence = sequence;
+      originNanos = arrivalNanos;
+      lastTimestamp = rtpTimestamp;
+    } else {
+      int delta = (sequence - maxSequence) & 0xFFFF;
+      if (delta < 0x8000) {
+        if (sequence < maxSequence) {
+          cycles += 0x10000;
+        }
+        maxSequence = sequence;
+      } else {
+        reorderedCount++;
+      }
+      // difference of the transit times, the timestamp wraps at 32 bits
+      long arrival = (arrivalNanos - originNanos) / 1000 * clockRate
+          / TimeUnit.SECONDS.toMicros(1);
+      long d = Math.abs(arrival - lastArrival - (int) (rtpTimestamp - lastTimestamp));
+      lastArrival = arrival;
+      lastTimestamp = rtpTimestamp;
+      long jitter = jitterScaled;
+      jitterScaled = jitter + d - ((jitter + 8) >> 4);
+    }
+    receivedCount++;
+    byteCount += length;
+    expectedCount = expectedBefore + cycles + maxSequence - baseSequence + 1;
+  }
+
+  // sequence numbers and timestamps start over with a new synchronization source
+  void restart() {
+    expectedBefore = expectedCount;
+    cycles = 0;
+    started = false;
+  }
+
+  void onIgnored() {
+    ignoredCount++;
+  }
+
+  void onNalUnit() {
+    nalUnitCount++;
+  }
+
+  void onFrame(long assemblyNanos, boolean complete) {
+    if (complete) {
+      completeFrameCount++;
+      assembly.record(assemblyNanos);
+    } else {
+      damagedFrameCount++;
+    }
+  }
+
+  /*
+   * One line with the rates and the loss of the interval since the previous call
+   */
+  public String summary(long nowNanos) {
+    double seconds = previousNanos == 0 ? 0 : (nowNanos - previousNanos) / 1e9;
+    long received = receivedCount;
+    long expected = expectedCount;
+    long frames = completeFrameCount + damagedFrameCount;
+    long bytes = byteCount;
+    long intervalExpected = expected - previousExpected;
+    double loss = intervalExpected > 0
+        ? 100.0 * Math.max(0, intervalExpected - (received - previousReceived))
+        / intervalExpected : 0;
+    double fps = seconds > 0 ? (frames - previousFrames) / seconds : 0;
+    double mbits = seconds > 0 ? (bytes - previousBytes) * 8 / seconds / 1e6 : 0;
+    previousReceived = received;
+    previousExpected = expected;
+    previousFrames = frames;
+    previousBytes = bytes;
+    previousNanos = nowNanos;
+    assemblySnapshot.update(assembly, nowNanos);
+    return String.format(Locale.ROOT,
+        "%s: %.1f fps %.1f Mbit/s loss %.1f%% jitter %.1fms assembly p50 %.1fms p99 %.1fms"
+            + " damaged %d", name, fps, mbits, loss, getJitterMillis(),
+        assemblySnapshot.getP50Micros() / 1000.0, assemblySnapshot.getP99Micros() / 1000.0,
+        damagedFrameCount);
+  }
+}
@@ -0,0 +1,86 @@
+package org.example.ugv_rc.video;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import lombok.Getter;
+
+/*
+ * What is needed of an SDP file (RFC 4566) to receive one RTP video stream, as in
+ * scripts/host-files: the connection address (c=), port and payload type of the first
+ * video media line (m=video) and encoding and clock rate of its a=rtpmap.
+ */
+@Getter
+public class SdpDescription {
+
+  private final String address;
+  private final int port;
+  private final int payloadType;
+  private final String encoding;
+  private final int clockRate;
+
+  public SdpDescription(String address, int port, int payloadType, String encoding,
+      int clockRate) {
+    this.address = address;
+    this.port = port;
+    this.payloadType = payloadType;
+    this.encoding = encoding;
+    this.clockRate = clockRate;
+  }
+
+  public static SdpDescription read(Path path) throws IOException {
+    try {
+      return parse(Files.readString(path, StandardCharsets.US_ASCII));
+    } catch (IllegalArgumentException e) {
+      throw new IOException(path + ": " + e.getMessage(), e);
+    }
+  }
+
+  public static SdpDescription parse(String sdp) {
+    String address = null;
+    int port = -1;
+    int payloadType = -1;
+    String encoding = null;
+    int clockRate = -1;
+    for (String line : sdp.split("\r?\n")) {
+      line = line.trim();
+      if (line.startsWith("c=") && address == null) {
+        // c=IN IP4 <address>[/ttl]
+        String[] parts = line.substring(2).split(" ");
+        if (parts.length == 3) {
+          address = parts[2].split("/")[0];
+        }
+      } else if (line.startsWith("m=video ") && port < 0) {
+        // m=video <port> RTP/AVP <payload type> ...
+        String[] parts = line.substring(2).split(" ");
+        if (parts.length < 4) {
+          throw new IllegalArgumentException("malformed media line: " + line);
+        }
+        port = Integer.parseInt(parts[1].split("/")[0]);
+        payloadType = Integer.parseInt(parts[3]);
+      } else if (line.startsWith("a=rtpmap:") && payloadType >= 0 && encoding == null) {
+        // a=rtpmap:<payload type> <encoding>/<clock rate>[/<parameters>]
+        String[] parts = line.substring(9).split(" ", 2);
+        if (parts.length == 2 && Integer.parseInt(parts[0]) == payloadType) {
+          String[] format = parts[1].split("/");
+          encoding = format[0];
+          clockRate = format.length > 1 ? Integer.parseInt(format[1]) : -1;
+        }
+      }
+    }
+    if (port < 0) {
+      throw new IllegalArgumentException("no video media line");
+    }
+    if (encoding == null || clockRate <= 0) {
+      throw new IllegalArgumentException("no rtpmap with clock rate for payload type "
+          + payloadType);
+    }
+    return new SdpDescription(address, port, payloadType, encoding, clockRate);
+  }
+
+  @Override
+  public String toString() {
+    return encoding + "/" + clockRate + " pt " + payloadType + " on " + address + ":" + port;
+  }
+}
@@ -0,0 +1,4 @@
+#!/bin/bash
+# bridges the UGV02 ESP32 serial port to TCP for the continuous feedback stream
+# host side: UGV02.stream = <jetson ip>:5001 in application.properties
+socat TCP-LISTEN:5001,reuseaddr,fork,nodelay /dev/ttyTHS1,b115200,raw,echo=0
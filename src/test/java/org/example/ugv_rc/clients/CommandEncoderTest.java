@@ -0,0 +1,86 @@
+package org.example.ugv_rc.clients;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Consumer;
+import org.junit.jupiter.api.Test;
+
+/*
+ * The hand-written encoding against the JSON an ObjectMapper writes, URL-encoded by
+ * URLEncoder, for every command type
+ */
+class CommandEncoderTest {
+
+  private static final ObjectMapper MAPPER = new ObjectMapper()
+      .enable(JsonGenerator.Feature.WRITE_BIGDECIMAL_AS_PLAIN);
+
+  private record Case(String name, Consumer<CommandEncoder> encode, ObjectNode json) {
+  }
+
+  @Test
+  void encodesLikeObjectMapperAndUrlEncoder() throws Exception {
+    CommandEncoder encoder = new CommandEncoder();
+    Set<CommandType> covered = EnumSet.noneOf(CommandType.class);
+    for (Case c : cases()) {
+      c.encode().accept(encoder);
+      String expected = "/js?json="
+          + URLEncoder.encode(MAPPER.writeValueAsString(c.json()), StandardCharsets.UTF_8);
+      assertEquals(expected, encoder.path(), c.name());
+      assertEquals(c.json().path("T").asInt(), encoder.getType().getCode(), c.name());
+      covered.add(encoder.getType());
+    }
+    assertEquals(EnumSet.allOf(CommandType.class), covered, "every command type");
+  }
+
+  private static List<Case> cases() {
+    List<Case> cases = new ArrayList<>();
+    double[][] speeds = {
+        {0, 0}, {0.14, -0.07}, {-0.14, 0.07}, {0.5, -0.5}, {-0.5, 0.5}, {1.25, -1.25},
+        {0.0005, -0.0005}, {0.0004, -0.0004}, {0.1234, -0.9876}, {0.001, -0.001},
+        {0.999, -0.9999}, {12.3456, -7.5}, {Double.NaN, Double.POSITIVE_INFINITY}};
+    for (double[] speed : speeds) {
+      cases.add(new Case("speed " + speed[0] + " " + speed[1],
+          encoder -> encoder.speedControl(speed[0], speed[1]),
+          command(CommandType.SPEED_CTRL).put("L", fixed(speed[0])).put("R", fixed(speed[1]))));
+    }
+    cases.add(new Case("imu", CommandEncoder::imuData, command(CommandType.IMU_DATA)));
+    cases.add(new Case("feedback", CommandEncoder::baseFeedback,
+        command(CommandType.BASE_FEEDBACK)));
+    for (int[] led : new int[][] {{0, 0}, {0, 255}, {255, 128}, {-1, 10}}) {
+      cases.add(new Case("led " + led[0] + " " + led[1],
+          encoder -> encoder.ledControl(led[0], led[1]),
+          command(CommandType.LED_CTRL).put("IO4", led[0]).put("IO5", led[1])));
+    }
+    int[][] gimbals = {{0, 0, 0, 0}, {-180, -30, 0, 0}, {180, 90, 300, 50}, {-7, 45, 1, 100}};
+    for (int[] g : gimbals) {
+      cases.add(new Case("gimbal " + g[0] + " " + g[1],
+          encoder -> encoder.gimbalSimple(g[0], g[1], g[2], g[3]),
+          command(CommandType.GIMBAL_CTRL_SIMPLE)
+              .put("X", g[0]).put("Y", g[1]).put("SPD", g[2]).put("ACC", g[3])));
+    }
+    cases.add(new Case("gimbal stop", CommandEncoder::gimbalStop,
+        command(CommandType.GIMBAL_CTRL_STOP)));
+    return cases;
+  }
+
+  private static ObjectNode command(CommandType type) {
+    return MAPPER.createObjectNode().put("T", type.getCode());
+  }
+
+  // rounded half up to SPEED_DECIMALS, NaN and infinities as 0, as the encoder documents
+  private static BigDecimal fixed(double value) {
+    BigDecimal decimal = Double.isFinite(value) ? BigDecimal.valueOf(value) : BigDecimal.ZERO;
+    return decimal.setScale(CommandEncoder.SPEED_DECIMALS, RoundingMode.HALF_UP);
+  }
+}
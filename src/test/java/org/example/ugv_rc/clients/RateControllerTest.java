@@ -0,0 +1,99 @@
+package org.example.ugv_rc.clients;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import org.example.ugv_rc.clients.RateController.Bounds;
+import org.example.ugv_rc.clients.RateController.Rate;
+import org.example.ugv_rc.telemetry.PowerStatus;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/*
+ * What a client reports to its RateController: error answers keep the rate, timeouts
+ * back it off
+ */
+class RateControllerTest {
+
+  private static final long MIN_MILLIS = 100;
+
+  private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+  private HttpServer server;
+  private JetsonOrinNanoClient client;
+  private Rate rate;
+
+  @BeforeEach
+  void setUp() throws IOException {
+    System.setProperty("sun.net.httpserver.nodelay", "true");
+    server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+    server.createContext("/error", exchange -> answer(exchange, 500, "{}"));
+    server.createContext("/garbage", exchange -> answer(exchange, 200, "{\"voltage\":"));
+    server.createContext(JetsonOrinNanoClient.POWER_STATUS, exchange -> {
+      try (exchange) {
+        // longer than HttpTransport.DEFAULT.socketTimeout()
+        TimeUnit.SECONDS.sleep(4);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    });
+    server.setExecutor(executor);
+    server.start();
+    client = new JetsonOrinNanoClient(server.getAddress().getHostString(),
+        server.getAddress().getPort(), false);
+    rate = client.getRate().rate("test", new Bounds(MIN_MILLIS, 1000));
+  }
+
+  @AfterEach
+  void tearDown() {
+    client.close();
+    server.stop(0);
+    executor.shutdownNow();
+  }
+
+  @Test
+  void errorAnswersDoNotBackOff() {
+    for (int i = 0; i < 10; i++) {
+      client.get("/error");
+      client.get("/garbage");
+    }
+
+    assertEquals(20, client.getMetrics().getTotal().getErrors());
+    assertEquals(TimeUnit.MILLISECONDS.toNanos(MIN_MILLIS), rate.getIntervalNanos());
+    assertEquals(0, client.getRate().getLossRate());
+    assertEquals(CircuitBreaker.State.CLOSED, client.getBreaker().getState());
+  }
+
+  @Test
+  void timeoutsBackOff() {
+    PowerStatus powerStatus = client.getPowerStatus(new PowerStatus());
+
+    assertFalse(powerStatus.isValid());
+    assertEquals(1, client.getMetrics().getTotal().getTimeouts());
+    assertEquals(TimeUnit.MILLISECONDS.toNanos(2 * MIN_MILLIS), rate.getIntervalNanos());
+    assertTrue(client.getRate().getLossRate() > 0);
+  }
+
+  private static void answer(HttpExchange exchange, int status, String body)
+      throws IOException {
+    byte[] bytes = body.getBytes(StandardCharsets.US_ASCII);
+    try (exchange) {
+      exchange.getResponseHeaders().set("Content-Type", "application/json");
+      exchange.sendResponseHeaders(status, bytes.length);
+      try (OutputStream out = exchange.getResponseBody()) {
+        out.write(bytes);
+      }
+    }
+  }
+}
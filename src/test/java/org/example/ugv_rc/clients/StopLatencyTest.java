@@ -0,0 +1,194 @@
+package org.example.ugv_rc.clients;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.example.ugv_rc.telemetry.BaseFeedback;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+/*
+ * Worst-case latency of the priority lane against a slow stand-in of the ESP32 web api
+ */
+class StopLatencyTest {
+
+  // a stop on loopback takes a few ms; this leaves room for a loaded machine
+  private static final long STOP_MILLIS = 250;
+  private static final long QUERY_STALL_MILLIS = 1500;
+
+  private SlowServer server;
+  private ESP32Client client;
+
+  @AfterEach
+  void tearDown() {
+    if (server != null) {
+      server.close();
+    }
+    if (client != null) {
+      client.close();
+    }
+  }
+
+  @Test
+  void stopIsNotDelayedByQueriesHoldingEveryConnection() throws Exception {
+    server = new SlowServer(QUERY_STALL_MILLIS, 0);
+    client = new ESP32Client(server.host(), server.port());
+    assertTrue(client.warmUp());
+    server.stall();
+    int queries = 2 * HttpTransport.DEFAULT.maxConnections();
+    List<CompletableFuture<BaseFeedback>> held = new ArrayList<>();
+    for (int i = 0; i < queries; i++) {
+      held.add(client.cmd_base_feedback_async(new BaseFeedback()));
+    }
+    server.awaitHeld(HttpTransport.DEFAULT.maxConnections());
+
+    long start = System.nanoTime();
+    JsonNode response = client.stop_chassis_async().join();
+    long chassisMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+    start = System.nanoTime();
+    client.emergency_stop_async().join();
+    long emergencyMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+    assertEquals(1001, response.path("T").asInt(), "stop answered");
+    assertTrue(chassisMillis < STOP_MILLIS, "chassis stop took " + chassisMillis + " ms");
+    assertTrue(emergencyMillis < STOP_MILLIS, "emergency stop took " + emergencyMillis + " ms");
+    assertTrue(held.stream().noneMatch(CompletableFuture::isDone), "queries still held");
+  }
+
+  @Test
+  void stopOnStalledLinkCompletesWithinPriorityTimeouts() {
+    server = new SlowServer(QUERY_STALL_MILLIS, TimeUnit.SECONDS.toMillis(10));
+    client = new ESP32Client(server.host(), server.port());
+    server.stall();
+    long bound = HttpTransport.PRIORITY.worstCaseMillis() + STOP_MILLIS;
+
+    long start = System.nanoTime();
+    client.emergency_stop_async().join();
+    long millis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+    assertTrue(millis < bound, "emergency stop took " + millis + " ms, bound " + bound + " ms");
+  }
+
+  @Test
+  void concurrentStopsDoNotWaitForEachOther() {
+    // a stop answered later than a queued one may wait for its connection
+    long stopStallMillis = HttpTransport.PRIORITY.connectionRequestTimeout().toMilliseconds()
+        + STOP_MILLIS;
+    server = new SlowServer(QUERY_STALL_MILLIS, stopStallMillis);
+    client = new ESP32Client(server.host(), server.port());
+    assertTrue(client.warmUp());
+    server.stall();
+
+    long start = System.nanoTime();
+    CompletableFuture<Void> emergency = client.emergency_stop_async();
+    CompletableFuture<JsonNode> chassis = client.stop_chassis_async();
+    JsonNode response = chassis.join();
+    emergency.join();
+    long millis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+    assertEquals(1001, response.path("T").asInt(), "stop answered");
+    assertEquals(3, server.stops.get(), "stops reaching the server");
+    assertTrue(millis < stopStallMillis + STOP_MILLIS, "stops took " + millis + " ms");
+  }
+
+  /*
+   * Answers every command with a base feedback frame; once stalling, holds T:130 and T:126
+   * queries for queryStallMillis and everything else for stopStallMillis first
+   */
+  private static final class SlowServer implements AutoCloseable {
+
+    private static final byte[] BASE_FEEDBACK = ("{\"T\":1001,\"L\":0,\"R\":0,\"r\":-0.51,"
+        + "\"p\":1.27,\"y\":93.4,\"v\":12.06}").getBytes(StandardCharsets.US_ASCII);
+
+    private final long queryStallMillis;
+    private final long stopStallMillis;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final HttpServer server;
+    // queries being held right now
+    private final AtomicInteger heldQueries = new AtomicInteger();
+    // other commands held while stalling
+    private final AtomicInteger stops = new AtomicInteger();
+    private volatile boolean stalling;
+
+    SlowServer(long queryStallMillis, long stopStallMillis) {
+      this.queryStallMillis = queryStallMillis;
+      this.stopStallMillis = stopStallMillis;
+      System.setProperty("sun.net.httpserver.nodelay", "true");
+      try {
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+      } catch (IOException e) {
+        throw new IllegalStateException(e);
+      }
+      server.createContext("/js", this::handle);
+      server.setExecutor(executor);
+      server.start();
+    }
+
+    String host() {
+      return server.getAddress().getHostString();
+    }
+
+    int port() {
+      return server.getAddress().getPort();
+    }
+
+    void stall() {
+      stalling = true;
+    }
+
+    void awaitHeld(int count) throws InterruptedException {
+      while (heldQueries.get() < count) {
+        TimeUnit.MILLISECONDS.sleep(1);
+      }
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+      try (exchange) {
+        String query = exchange.getRequestURI().getRawQuery();
+        int code = query == null ? 0 : Integer.parseInt(URLDecoder.decode(query,
+            StandardCharsets.US_ASCII).replaceAll(".*\"T\":(\\d+).*", "$1"));
+        boolean isQuery = code == 130 || code == 126;
+        if (stalling && isQuery) {
+          heldQueries.incrementAndGet();
+          try {
+            TimeUnit.MILLISECONDS.sleep(queryStallMillis);
+          } finally {
+            heldQueries.decrementAndGet();
+          }
+        } else if (stalling && stopStallMillis > 0) {
+          stops.incrementAndGet();
+          TimeUnit.MILLISECONDS.sleep(stopStallMillis);
+        }
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(200, BASE_FEEDBACK.length);
+        try (OutputStream body = exchange.getResponseBody()) {
+          body.write(BASE_FEEDBACK);
+        }
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }
+
+    @Override
+    public void close() {
+      server.stop(0);
+      executor.shutdownNow();
+    }
+  }
+}
@@ -0,0 +1,125 @@
+package org.example.ugv_rc.control;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+import org.example.ugv_rc.clients.CircuitBreaker;
+import org.example.ugv_rc.clients.CommandCoalescer;
+import org.example.ugv_rc.clients.ESP32Client;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+/*
+ * Gimbal setpoints of the loop against a stand-in of the ESP32 web api that loses the
+ * first release
+ */
+class ControlLoopTest {
+
+  private static final ObjectMapper MAPPER = new ObjectMapper();
+  // longer than the socket timeout of HttpTransport.DEFAULT, the request is lost
+  private static final long DROP_MILLIS = 3000;
+
+  private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+  // T:133 setpoints in the order they arrived, and those answered
+  private final List<JsonNode> received = new CopyOnWriteArrayList<>();
+  private final List<JsonNode> answered = new CopyOnWriteArrayList<>();
+  private HttpServer server;
+  private ESP32Client ugv;
+  private ControlLoop loop;
+
+  @AfterEach
+  void tearDown() {
+    if (loop != null) {
+      loop.close();
+    }
+    if (ugv != null) {
+      ugv.close();
+    }
+    if (server != null) {
+      server.stop(0);
+    }
+    executor.shutdownNow();
+  }
+
+  @Test
+  void releaseIsResentWhenItsRequestIsLost() throws Exception {
+    System.setProperty("sun.net.httpserver.nodelay", "true");
+    server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+    server.createContext("/js", this::handle);
+    server.setExecutor(executor);
+    server.start();
+    ugv = new ESP32Client(server.getAddress().getHostString(), server.getAddress().getPort());
+    OperatorIntent intent = new OperatorIntent();
+    loop = new ControlLoop(50);
+    loop.attach(intent, new CommandCoalescer(ugv));
+    loop.start();
+
+    intent.setGimbal(1, 0);
+    await(setpoint -> setpoint.path("X").asInt() == ESP32Client.PAN_MAX, received);
+    TimeUnit.MILLISECONDS.sleep(200);
+    intent.releaseGimbal();
+    JsonNode release = await(setpoint -> setpoint.path("X").asInt() < ESP32Client.PAN_MAX,
+        received);
+    await(release::equals, answered);
+
+    JsonNode last = answered.getLast();
+    assertEquals(release, last, "the gimbal was left at " + last);
+    assertEquals(2, received.stream().filter(release::equals).count(), "release sent twice");
+    assertEquals(CircuitBreaker.State.CLOSED, ugv.getBreaker().getState());
+  }
+
+  private JsonNode await(Predicate<JsonNode> condition, List<JsonNode> setpoints)
+      throws InterruptedException {
+    long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(2 * DROP_MILLIS);
+    while (System.nanoTime() - deadline < 0) {
+      for (JsonNode setpoint : setpoints) {
+        if (condition.test(setpoint)) {
+          return setpoint;
+        }
+      }
+      TimeUnit.MILLISECONDS.sleep(5);
+    }
+    throw new AssertionError("no such setpoint in " + setpoints);
+  }
+
+  // answers every command with {}, and loses the first T:133 that is not a hold to the right
+  private void handle(HttpExchange exchange) throws IOException {
+    try (exchange) {
+      String query = URLDecoder.decode(exchange.getRequestURI().getRawQuery(),
+          StandardCharsets.UTF_8);
+      JsonNode command = MAPPER.readTree(query.substring(query.indexOf('=') + 1));
+      if (command.path("T").asInt() == 133) {
+        received.add(command);
+        if (command.path("X").asInt() < ESP32Client.PAN_MAX && received.stream()
+            .filter(setpoint -> setpoint.path("X").asInt() < ESP32Client.PAN_MAX)
+            .count() == 1) {
+          TimeUnit.MILLISECONDS.sleep(DROP_MILLIS);
+          return;
+        }
+        answered.add(command);
+      }
+      byte[] body = "{}".getBytes(StandardCharsets.US_ASCII);
+      exchange.sendResponseHeaders(200, body.length);
+      try (OutputStream out = exchange.getResponseBody()) {
+        out.write(body);
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+}
@@ -0,0 +1,212 @@
+package org.example.ugv_rc.recorder;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.stream.Stream;
+import org.example.ugv_rc.telemetry.BaseFeedback;
+import org.example.ugv_rc.telemetry.ImuData;
+import org.example.ugv_rc.telemetry.PowerStatus;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/*
+ * Recordings read back exactly: varint and zigzag edges, segment rolls and a cut tail
+ */
+class FlightRecorderTest {
+
+  // whole thousandths as the recorder keeps them, around the one and two byte varint
+  // boundaries and at the ends of a long
+  private static final double[] EDGES = {
+      0, 0.001, -0.001, 0.063, 0.064, -0.064, -0.065, 8.191, 8.192, -8.192, -8.193,
+      Long.MAX_VALUE / FlightRecorder.FIXED_SCALE, Long.MIN_VALUE / FlightRecorder.FIXED_SCALE,
+      Long.MAX_VALUE / FlightRecorder.FIXED_SCALE, Double.NaN, 11.62, -179.99};
+  private static final long[] TIMESTAMPS = {
+      0, 1, -1, Long.MAX_VALUE, Long.MIN_VALUE, Long.MAX_VALUE, 0, 63, 64, -64, -65};
+
+  private Path directory;
+
+  @BeforeEach
+  void createDirectory() throws IOException {
+    directory = Files.createTempDirectory("flight-recorder-test");
+  }
+
+  @AfterEach
+  void deleteDirectory() throws IOException {
+    try (Stream<Path> paths = Files.walk(directory)) {
+      for (Path path : paths.sorted(Comparator.reverseOrder()).toList()) {
+        Files.delete(path);
+      }
+    }
+  }
+
+  @Test
+  void readsEdgeValuesBack() throws IOException {
+    try (FlightRecorder recorder = new FlightRecorder(directory, "edges",
+        FlightRecorder.DEFAULT_SEGMENT_SIZE)) {
+      for (double a : EDGES) {
+        for (double b : EDGES) {
+          recorder.recordCommand(133, a, b);
+        }
+      }
+      for (int i = 0; i < TIMESTAMPS.length; i++) {
+        recorder.record(feedback(TIMESTAMPS[i], i));
+      }
+    }
+
+    FlightReader reader = new FlightReader(directory.resolve("edges"));
+    FlightRecord record = new FlightRecord();
+    for (double a : EDGES) {
+      for (double b : EDGES) {
+        assertTrue(reader.next(record));
+        assertEquals(FlightRecord.Kind.COMMAND, record.getKind());
+        assertEquals(133, record.getCommandCode());
+        // the recorder stores NaN arguments as 0
+        assertEquals(Double.isNaN(a) ? 0 : a, record.getCommandA(), a + ", " + b);
+        assertEquals(Double.isNaN(b) ? 0 : b, record.getCommandB(), a + ", " + b);
+      }
+    }
+    for (int i = 0; i < TIMESTAMPS.length; i++) {
+      assertTrue(reader.next(record));
+      assertFeedback(feedback(TIMESTAMPS[i], i), record);
+    }
+    assertFalse(reader.next(record));
+  }
+
+  @Test
+  void readsAcrossSegmentRolls() throws IOException {
+    int count = 5_000;
+    long records;
+    try (FlightRecorder recorder = new FlightRecorder(directory, "rolls", 1024)) {
+      for (int i = 0; i < count; i++) {
+        recorder.record(feedback(1_000_000L * i, i));
+        recorder.record(imuData(1_000_000L * i + 1, i));
+        recorder.record(powerStatus(1_000_000L * i + 2, i));
+      }
+      records = recorder.getRecordCount();
+    }
+    assertEquals(3L * count, records);
+
+    FlightReader reader = new FlightReader(directory.resolve("rolls-0000.rec"));
+    assertTrue(reader.getSegmentCount() > 100, "segments " + reader.getSegmentCount());
+    FlightRecord record = new FlightRecord();
+    for (int i = 0; i < count; i++) {
+      assertTrue(reader.next(record));
+      assertFeedback(feedback(1_000_000L * i, i), record);
+      assertTrue(reader.next(record));
+      assertEquals(FlightRecord.Kind.IMU_DATA, record.getKind());
+      ImuData imuData = imuData(1_000_000L * i + 1, i);
+      assertEquals(imuData.getTimestampNanos(), record.getTimestampNanos());
+      assertEquals(imuData.getRoll(), record.getImuData().getRoll());
+      assertEquals(imuData.getAccelZ(), record.getImuData().getAccelZ());
+      assertEquals(imuData.getMagX(), record.getImuData().getMagX());
+      assertEquals(imuData.getTemperature(), record.getImuData().getTemperature());
+      assertTrue(reader.next(record));
+      assertEquals(FlightRecord.Kind.POWER_STATUS, record.getKind());
+      assertEquals(1_000_000L * i + 2, record.getTimestampNanos());
+      assertEquals(powerStatus(0, i).getCurrent(), record.getPowerStatus().getCurrent());
+    }
+    assertFalse(reader.next(record));
+  }
+
+  @Test
+  void readsUpToTheLastCompleteRecord() throws IOException {
+    int count = 50;
+    // same records with one more, so the shorter segment ends where the last record starts
+    recordFeedback("short", count);
+    recordFeedback("crashed", count + 1);
+    recordFeedback("cut", count + 1);
+    long end = Files.size(FlightRecorder.segmentPath(directory, "short", 0));
+
+    // a crash leaves the kind byte of the last record and the mapped rest zero
+    try (RandomAccessFile file = new RandomAccessFile(
+        FlightRecorder.segmentPath(directory, "crashed", 0).toFile(), "rw")) {
+      file.seek(end);
+      file.write(FlightRecorder.END);
+      file.setLength(end + 4096);
+    }
+    FlightReader reader = new FlightReader(directory.resolve("crashed"));
+    FlightRecord record = new FlightRecord();
+    for (int i = 0; i < count; i++) {
+      assertTrue(reader.next(record));
+      assertFeedback(feedback(1_000L * i, i), record);
+    }
+    assertFalse(reader.next(record));
+
+    // a file cut inside a record reads up to it, then reports the truncation
+    try (RandomAccessFile file = new RandomAccessFile(
+        FlightRecorder.segmentPath(directory, "cut", 0).toFile(), "rw")) {
+      file.setLength(end + 3);
+    }
+    FlightReader cut = new FlightReader(directory.resolve("cut"));
+    for (int i = 0; i < count; i++) {
+      assertTrue(cut.next(record));
+      assertFeedback(feedback(1_000L * i, i), record);
+    }
+    assertThrows(IOException.class, () -> cut.next(record));
+  }
+
+  private void recordFeedback(String name, int count) throws IOException {
+    try (FlightRecorder recorder = new FlightRecorder(directory, name,
+        FlightRecorder.DEFAULT_SEGMENT_SIZE)) {
+      for (int i = 0; i < count; i++) {
+        recorder.record(feedback(1_000L * i, i));
+      }
+    }
+  }
+
+  private static BaseFeedback feedback(long timestampNanos, int i) {
+    BaseFeedback feedback = new BaseFeedback();
+    feedback.setValid(true);
+    feedback.setTimestampNanos(timestampNanos);
+    feedback.setLeft(EDGES[i % EDGES.length]);
+    // 0 - x, the recorder does not keep the sign of zero
+    feedback.setRight(0 - EDGES[(i + 1) % EDGES.length]);
+    feedback.setRoll(i * 0.5);
+    feedback.setPitch(-i * 0.25);
+    feedback.setYaw((i * 7 % 360) - 180);
+    feedback.setVoltage((12_300 - i) / FlightRecorder.FIXED_SCALE);
+    return feedback;
+  }
+
+  private static ImuData imuData(long timestampNanos, int i) {
+    ImuData imuData = new ImuData();
+    imuData.setValid(true);
+    imuData.setTimestampNanos(timestampNanos);
+    imuData.setRoll(i % 90);
+    imuData.setAccelZ((9_810 + i % 3) / FlightRecorder.FIXED_SCALE);
+    imuData.setMagX(-i * 0.125);
+    imuData.setTemperature(36.6);
+    return imuData;
+  }
+
+  private static PowerStatus powerStatus(long timestampNanos, int i) {
+    PowerStatus powerStatus = new PowerStatus();
+    powerStatus.setValid(true);
+    powerStatus.setTimestampNanos(timestampNanos);
+    powerStatus.setVoltage(12.1);
+    powerStatus.setCurrent(i % 10 / 10.0);
+    return powerStatus;
+  }
+
+  private static void assertFeedback(BaseFeedback expected, FlightRecord record) {
+    assertEquals(FlightRecord.Kind.BASE_FEEDBACK, record.getKind());
+    assertEquals(expected.getTimestampNanos(), record.getTimestampNanos());
+    BaseFeedback actual = record.getBaseFeedback();
+    assertEquals(expected.getTimestampNanos(), actual.getTimestampNanos());
+    assertEquals(expected.getLeft(), actual.getLeft());
+    assertEquals(expected.getRight(), actual.getRight());
+    assertEquals(expected.getRoll(), actual.getRoll());
+    assertEquals(expected.getPitch(), actual.getPitch());
+    assertEquals(expected.getYaw(), actual.getYaw());
+    assertEquals(expected.getVoltage(), actual.getVoltage());
+  }
+}
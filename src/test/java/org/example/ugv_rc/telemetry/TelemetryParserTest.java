@@ -0,0 +1,82 @@
+package org.example.ugv_rc.telemetry;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+/*
+ * The decimal fast path against Double.parseDouble, bit for bit, and recovery from bad
+ * frames
+ */
+class TelemetryParserTest {
+
+  @Test
+  void parsesLikeDoubleParseDouble() {
+    List<String> numbers = List.of(
+        "0", "0.0", "-0", "-0.0", "1", "-1", "+1", "12.34", "-12.34", "0.001", "-0.000123",
+        "11.62", "-179.99", "3.141592653589793", "123456789012345",
+        // exponents, also with a sign and leading zeros
+        "1e3", "1E3", "1.5e-3", "-2.5E+2", "6.02e23", "1e22", "1e-22", "1e23", "1e-23",
+        "1e0", "1e-0", "1e007", "-0.0e5", "0e-400",
+        // long mantissas take the fallback
+        "1234567890123456", "0.12345678901234567890", "-98765.43210987654321",
+        "1.0000000000000000000001", "9007199254740993",
+        // beyond the range of a double
+        "1e308", "1e309", "-1e309", "1e-324", "1e1000", "1e99999999999", "-1e-99999999999");
+    for (String number : numbers) {
+      assertParsed(number);
+    }
+  }
+
+  @Test
+  void parsesValuesAsTheDeviceFormatsThem() {
+    Random random = new Random(42);
+    for (int i = 0; i < 100_000; i++) {
+      double value = (random.nextDouble() - 0.5) * Math.pow(10, random.nextInt(12) - 4);
+      assertParsed(String.format(Locale.ROOT, "%." + random.nextInt(10) + "f", value));
+      assertParsed(Double.toString(value));
+    }
+  }
+
+  @Test
+  void rejectsAnExponentWithoutDigits() {
+    for (String number : List.of("1e", "1e+", "-2.5E-", "1e5x")) {
+      char[] buf = number.toCharArray();
+      assertThrows(NumberFormatException.class,
+          () -> TelemetryParser.parseDecimal(buf, 0, buf.length), number);
+    }
+  }
+
+  @Test
+  void parsesTheNextFrameAfterATruncatedOrMalformedOne() throws IOException {
+    TelemetryParser parser = new TelemetryParser();
+    BaseFeedback feedback = new BaseFeedback();
+    assertFalse(parse(parser, "{\"T\":1001,\"L\":", feedback));
+    assertTrue(parse(parser, "{\"T\":1001,\"L\":0.25,\"v\":12}", feedback));
+    assertThrows(IOException.class, () -> parse(parser, "{\"T\":1001,\"L\":x}", feedback));
+    assertTrue(parse(parser, "{\"T\":1001,\"L\":0.5,\"v\":12}", feedback));
+    assertEquals(0.5, feedback.getLeft());
+  }
+
+  private static boolean parse(TelemetryParser parser, String frame, BaseFeedback target)
+      throws IOException {
+    byte[] bytes = frame.getBytes(StandardCharsets.US_ASCII);
+    return parser.parse(bytes, 0, bytes.length, target);
+  }
+
+  private static void assertParsed(String number) {
+    char[] buf = (" " + number + " ").toCharArray();
+    double expected = Double.parseDouble(number);
+    double actual = TelemetryParser.parseDecimal(buf, 1, number.length());
+    assertEquals(Double.doubleToRawLongBits(expected), Double.doubleToRawLongBits(actual),
+        number + ": expected " + expected + ", parsed " + actual);
+  }
+}
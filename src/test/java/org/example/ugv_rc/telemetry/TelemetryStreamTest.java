@@ -0,0 +1,192 @@
+package org.example.ugv_rc.telemetry;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+/*
+ * The stream against a local stand-in of the ESP32 serial bridge that writes T:1001 frames
+ */
+class TelemetryStreamTest {
+
+  private static final long WAIT_MILLIS = 5000;
+  private static final int INTERVAL_MILLIS = 50;
+
+  private FakeBridge bridge;
+  private TelemetryStream stream;
+  private final BlockingQueue<BaseFeedback> frames = new LinkedBlockingQueue<>();
+  private final BlockingQueue<Boolean> states = new LinkedBlockingQueue<>();
+
+  @AfterEach
+  void tearDown() throws IOException {
+    if (stream != null) {
+      stream.close();
+    }
+    if (bridge != null) {
+      bridge.close();
+    }
+  }
+
+  @Test
+  void readsFramesSplitAcrossWritesAndSkipsGarbage() throws Exception {
+    start();
+    Socket connection = bridge.accept();
+    OutputStream out = connection.getOutputStream();
+
+    // one frame in three writes, split inside a number and before the newline
+    write(out, "{\"T\":1001,\"L\":0.1,\"R\":-0.");
+    write(out, "1,\"r\":1.5,\"p\":-2.25,\"y\":90,\"v\":11.9");
+    write(out, "}\r");
+    write(out, "\n");
+    assertFrame(0.1, -0.1, 11.9, frames.poll(WAIT_MILLIS, TimeUnit.MILLISECONDS));
+
+    // garbage, a frame without its end, a broken frame, an echo and an overlong line
+    write(out, "garbage\n\n{\"T\":1001,\"L\":\n{\"T\":1001,\"L\":x}\n{\"T\":131,\"cmd\":1}\n");
+    write(out, "{\"T\":1001,\"pad\":\"" + "x".repeat(10_000) + "\"}\n");
+    // two frames in one write, the first after all that garbage
+    write(out, "{\"T\":1001,\"L\":0.2,\"R\":0.3,\"r\":0,\"p\":0,\"y\":0,\"v\":12.1}\n"
+        + "{\"T\":1001,\"L\":-0.5,\"R\":0.5,\"r\":0,\"p\":0,\"y\":0,\"v\":12}\n");
+    assertFrame(0.2, 0.3, 12.1, frames.poll(WAIT_MILLIS, TimeUnit.MILLISECONDS));
+    assertFrame(-0.5, 0.5, 12, frames.poll(WAIT_MILLIS, TimeUnit.MILLISECONDS));
+
+    assertTrue(frames.isEmpty(), "no frame from the garbage");
+    assertEquals(3, stream.getFrameCount());
+    // the broken frame and the overlong line
+    assertEquals(2, stream.getMalformedCount());
+    assertTrue(stream.isConnected());
+  }
+
+  @Test
+  void fallsBackToPollingOnDisconnectAndReconnects() throws Exception {
+    start();
+    Socket first = bridge.accept();
+    assertEquals(Boolean.TRUE, states.poll(WAIT_MILLIS, TimeUnit.MILLISECONDS));
+    write(first.getOutputStream(), frame(11.5));
+    assertFrame(0, 0, 11.5, frames.poll(WAIT_MILLIS, TimeUnit.MILLISECONDS));
+
+    // the bridge goes away: not connected any more, which is what makes a vehicle poll
+    first.close();
+    assertEquals(Boolean.FALSE, states.poll(WAIT_MILLIS, TimeUnit.MILLISECONDS));
+    assertFalse(stream.isConnected());
+
+    // and comes back: the stream connects again, enables the flow and reads on
+    Socket second = bridge.accept();
+    assertEquals(Boolean.TRUE, states.poll(WAIT_MILLIS, TimeUnit.MILLISECONDS));
+    write(second.getOutputStream(), frame(11.4));
+    assertFrame(0, 0, 11.4, frames.poll(WAIT_MILLIS, TimeUnit.MILLISECONDS));
+    assertTrue(stream.isConnected());
+  }
+
+  @Test
+  void treatsASilentBridgeAsDisconnected() throws Exception {
+    start();
+    bridge.accept();
+    assertEquals(Boolean.TRUE, states.poll(WAIT_MILLIS, TimeUnit.MILLISECONDS));
+    // connected, but no frame within the read timeout
+    assertEquals(Boolean.FALSE, states.poll(WAIT_MILLIS, TimeUnit.MILLISECONDS));
+    bridge.accept();
+    assertTrue(waitFor(stream::isConnected), "reconnected");
+  }
+
+  private void start() throws IOException {
+    bridge = new FakeBridge();
+    stream = new TelemetryStream(bridge.host(), bridge.port(), INTERVAL_MILLIS);
+    stream.addListener(new TelemetryListener() {
+      @Override
+      public void onBaseFeedback(BaseFeedback feedback) {
+        BaseFeedback copy = new BaseFeedback();
+        copy.copyFrom(feedback);
+        frames.add(copy);
+      }
+
+      @Override
+      public void onStreamState(boolean connected) {
+        states.add(connected);
+      }
+    });
+    stream.start();
+  }
+
+  private static String frame(double voltage) {
+    return "{\"T\":1001,\"L\":0,\"R\":0,\"r\":0,\"p\":0,\"y\":0,\"v\":" + voltage + "}\n";
+  }
+
+  // a write per packet, so the reader sees the pieces apart
+  private static void write(OutputStream out, String text) throws Exception {
+    out.write(text.getBytes(StandardCharsets.US_ASCII));
+    out.flush();
+    Thread.sleep(20);
+  }
+
+  private static void assertFrame(double left, double right, double voltage,
+      BaseFeedback feedback) {
+    assertTrue(feedback != null, "frame received");
+    assertTrue(feedback.isValid());
+    assertEquals(left, feedback.getLeft());
+    assertEquals(right, feedback.getRight());
+    assertEquals(voltage, feedback.getVoltage());
+  }
+
+  private static boolean waitFor(BooleanSupplier condition) throws InterruptedException {
+    long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(WAIT_MILLIS);
+    while (!condition.getAsBoolean()) {
+      if (System.nanoTime() > deadline) {
+        return false;
+      }
+      Thread.sleep(10);
+    }
+    return true;
+  }
+
+  /*
+   * Accepts the stream's connections and checks that each one turns the flow on first
+   */
+  private static final class FakeBridge implements AutoCloseable {
+
+    private final ServerSocket server = new ServerSocket();
+
+    FakeBridge() throws IOException {
+      server.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+      server.setSoTimeout((int) WAIT_MILLIS);
+    }
+
+    String host() {
+      return server.getInetAddress().getHostAddress();
+    }
+
+    int port() {
+      return server.getLocalPort();
+    }
+
+    Socket accept() throws IOException {
+      Socket socket = server.accept();
+      BufferedReader in = new BufferedReader(
+          new InputStreamReader(socket.getInputStream(), StandardCharsets.US_ASCII));
+      assertEquals(List.of("{\"T\":142,\"cmd\":" + INTERVAL_MILLIS + "}", "{\"T\":131,\"cmd\":1}"),
+          List.of(in.readLine(), in.readLine()), "flow enabled");
+      return socket;
+    }
+
+    @Override
+    public void close() throws IOException {
+      server.close();
+    }
+  }
+}
@@ -0,0 +1,254 @@
+package org.example.ugv_rc.video;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/*
+ * Crafted captures replayed by RtpReplaySender into an RtpReceiver on loopback:
+ * reordered, duplicated and lost packets, STAP-A and FU-A, loss and jitter counters
+ */
+class RtpReceiverTest {
+
+  private static final int PAYLOAD_TYPE = 96;
+  private static final int CLOCK_RATE = 90_000;
+  private static final int SSRC = 0x1234ABCD;
+  // a frame every 10 ms
+  private static final int FRAME_TICKS = CLOCK_RATE / 100;
+  private static final long FRAME_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+  private static final int FIRST_SEQUENCE = 0xFFFE;
+
+  private static final byte[] SPS = {0x67, 0x42, 0x00, 0x1F, 1, 2, 3, 4, 5, 6, 7, 8};
+  private static final byte[] PPS = {0x68, (byte) 0xCE, 0x3C, (byte) 0x80};
+
+  private final List<byte[]> nalUnits = new CopyOnWriteArrayList<>();
+  private final List<Boolean> frames = new CopyOnWriteArrayList<>();
+  private final List<Capture> captured = new ArrayList<>();
+  private Path capture;
+  private RtpReceiver receiver;
+
+  private record Capture(ByteBuffer datagram, long offsetNanos) {
+  }
+
+  @BeforeEach
+  void setUp() throws IOException {
+    capture = Files.createTempFile("rtp-receiver-test", ".rtpcap");
+    receiver = new RtpReceiver("test", new InetSocketAddress(InetAddress.getLoopbackAddress(),
+        0), PAYLOAD_TYPE, CLOCK_RATE, new NalUnitListener() {
+          @Override
+          public void onNalUnit(ByteBuffer nal, long rtpTimestamp) {
+            byte[] bytes = new byte[nal.remaining()];
+            nal.get(nal.position(), bytes);
+            nalUnits.add(bytes);
+          }
+
+          @Override
+          public void onFrame(long rtpTimestamp, long assemblyNanos, boolean complete) {
+            frames.add(complete);
+          }
+        }, RtpReceiver.DEFAULT_JITTER_MILLIS);
+    receiver.start();
+  }
+
+  @AfterEach
+  void tearDown() throws IOException {
+    receiver.close();
+    Files.deleteIfExists(capture);
+  }
+
+  @Test
+  void reassemblesReorderedAndDuplicatedPackets() throws IOException, InterruptedException {
+    byte[] idr = unit(0x65, 3000);
+    List<ByteBuffer> fragments = fuA(idr, 1400);
+    assertEquals(3, fragments.size(), "start, middle and end");
+    // sequence numbers wrap after the STAP-A
+    ByteBuffer stapA = packet(0, 0, false, stapA(SPS, PPS));
+    ByteBuffer start = packet(1, 0, false, fragments.get(0));
+    ByteBuffer middle = packet(2, 0, false, fragments.get(1));
+    ByteBuffer end = packet(3, 0, true, fragments.get(2));
+    ByteBuffer next = packet(4, FRAME_TICKS, true, unit(0x41, 200));
+
+    replay(stapA, middle, start, end, middle, next);
+
+    awaitFrames(2);
+    assertNalUnits(SPS, PPS, idr, unit(0x41, 200));
+    assertEquals(List.of(true, true), frames);
+    RtpStreamStats stats = receiver.getStats();
+    assertEquals(6, stats.getReceivedCount());
+    assertEquals(5, stats.getExpectedCount());
+    assertEquals(0, stats.getLostCount());
+    // the start behind its middle, and the repeated middle
+    assertEquals(2, stats.getReorderedCount());
+    assertEquals(1, receiver.getLateCount());
+    assertEquals(0, receiver.getDepacketizer().getDroppedNalUnitCount());
+  }
+
+  @Test
+  void dropsTheUnitOfALostFragment() throws IOException, InterruptedException {
+    byte[] idr = unit(0x65, 3000);
+    List<ByteBuffer> fragments = fuA(idr, 1400);
+    byte[] after = unit(0x41, 200);
+
+    replay(packet(0, 0, false, stapA(SPS, PPS)),
+        packet(1, 0, false, fragments.get(0)),
+        // the middle fragment is lost
+        packet(3, 0, true, fragments.get(2)),
+        packet(4, FRAME_TICKS, true, after));
+
+    awaitFrames(2);
+    assertNalUnits(SPS, PPS, after);
+    assertEquals(List.of(false, true), frames, "the frame of the lost fragment is damaged");
+    RtpStreamStats stats = receiver.getStats();
+    assertEquals(4, stats.getReceivedCount());
+    assertEquals(5, stats.getExpectedCount());
+    assertEquals(1, stats.getLostCount());
+    assertEquals(1, stats.getDamagedFrameCount());
+    assertEquals(1, receiver.getSkippedCount());
+    assertEquals(1, receiver.getDepacketizer().getDroppedNalUnitCount());
+  }
+
+  @Test
+  void measuresInterarrivalJitter() throws IOException, InterruptedException {
+    // sent at the pace of their timestamps: no jitter beyond that of the scheduler
+    int count = 60;
+    for (int i = 0; i < count; i++) {
+      captured.add(new Capture(packet(i, (long) i * FRAME_TICKS, true, unit(0x41, 100)),
+          i * FRAME_NANOS));
+    }
+    replay();
+    awaitFrames(count);
+    double steady = receiver.getStats().getJitterMillis();
+    assertTrue(steady < 2, "jitter of a steady stream " + steady + " ms");
+
+    // every other packet 5 ms late: each transit time differs by 5 ms from the previous
+    frames.clear();
+    captured.clear();
+    for (int i = count; i < 3 * count; i++) {
+      captured.add(new Capture(packet(i, (long) i * FRAME_TICKS, true, unit(0x41, 100)),
+          i * FRAME_NANOS + (i % 2 == 0 ? 0 : TimeUnit.MILLISECONDS.toNanos(5))));
+    }
+    replay();
+    awaitFrames(2 * count);
+    double jittered = receiver.getStats().getJitterMillis();
+    assertTrue(jittered > 3.5 && jittered < 7, "jitter " + jittered + " ms, expected 5 ms");
+    assertEquals(0, receiver.getStats().getLostCount());
+  }
+
+  @Test
+  void computesJitterAsRfc3550() {
+    RtpStreamStats stats = new RtpStreamStats("test", CLOCK_RATE);
+    // transit times alternating by 10 ms = 900 ticks: J converges to 900 ticks, while the
+    // 16 bit sequence numbers wrap
+    for (int i = 0; i < 200; i++) {
+      stats.onPacket((FIRST_SEQUENCE + i) & 0xFFFF, (long) i * FRAME_TICKS,
+          i * FRAME_NANOS + (i % 2 == 0 ? 0 : TimeUnit.MILLISECONDS.toNanos(10)), 100);
+    }
+    assertEquals(10, stats.getJitterMillis(), 0.1);
+    assertEquals(200, stats.getExpectedCount());
+    assertEquals(0, stats.getLostCount());
+    // one lost
+    stats.onPacket((FIRST_SEQUENCE + 201) & 0xFFFF, 201L * FRAME_TICKS, 201 * FRAME_NANOS, 100);
+    assertEquals(202, stats.getExpectedCount());
+    assertEquals(1, stats.getLostCount());
+  }
+
+  // replays the datagrams given, one each ms, or else those captured
+  private void replay(ByteBuffer... datagrams) throws IOException {
+    for (int i = 0; i < datagrams.length; i++) {
+      captured.add(new Capture(datagrams[i], TimeUnit.MILLISECONDS.toNanos(i)));
+    }
+    try (RtpCapture.Writer writer = new RtpCapture.Writer(capture)) {
+      for (Capture c : captured) {
+        writer.write(c.datagram(), c.offsetNanos());
+      }
+    }
+    InetSocketAddress target = new InetSocketAddress(InetAddress.getLoopbackAddress(),
+        receiver.getLocalPort());
+    try (RtpReplaySender sender = new RtpReplaySender(target, 0, 0, 1);
+        RtpCapture.Reader reader = new RtpCapture.Reader(capture)) {
+      sender.replay(reader, 1);
+    }
+  }
+
+  private void awaitFrames(int count) throws InterruptedException {
+    // the jitter buffer gives up on a lost packet after holding its successor
+    long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+    while (frames.size() < count && System.nanoTime() - deadline < 0) {
+      TimeUnit.MILLISECONDS.sleep(1);
+    }
+    assertEquals(count, frames.size(), "frames");
+  }
+
+  private void assertNalUnits(byte[]... expected) {
+    assertEquals(expected.length, nalUnits.size(), "NAL units");
+    for (int i = 0; i < expected.length; i++) {
+      assertArrayEquals(expected[i], nalUnits.get(i), "NAL unit " + i);
+    }
+  }
+
+  // sequence numbers from FIRST_SEQUENCE on, so that they wrap
+  private static ByteBuffer packet(int index, long timestamp, boolean marker, byte[] payload) {
+    return packet(index, timestamp, marker, ByteBuffer.wrap(payload));
+  }
+
+  private static ByteBuffer packet(int index, long timestamp, boolean marker,
+      ByteBuffer payload) {
+    ByteBuffer datagram = ByteBuffer.allocate(12 + payload.remaining());
+    datagram.put((byte) 0x80);
+    datagram.put((byte) ((marker ? 0x80 : 0) | PAYLOAD_TYPE));
+    datagram.putShort((short) (FIRST_SEQUENCE + index));
+    datagram.putInt((int) timestamp);
+    datagram.putInt(SSRC);
+    return datagram.put(payload.duplicate()).flip();
+  }
+
+  // a unit of the given header byte and length
+  private static byte[] unit(int header, int length) {
+    byte[] unit = new byte[length];
+    unit[0] = (byte) header;
+    for (int i = 1; i < length; i++) {
+      unit[i] = (byte) (i * 7 + header);
+    }
+    return unit;
+  }
+
+  private static byte[] stapA(byte[]... units) {
+    ByteBuffer payload = ByteBuffer.allocate(1 + Arrays.stream(units)
+        .mapToInt(unit -> 2 + unit.length).sum());
+    payload.put((byte) (0x60 | H264Depacketizer.STAP_A));
+    for (byte[] unit : units) {
+      payload.putShort((short) unit.length).put(unit);
+    }
+    return payload.array();
+  }
+
+  // FU-A payloads of at most size bytes each
+  private static List<ByteBuffer> fuA(byte[] unit, int size) {
+    List<ByteBuffer> fragments = new ArrayList<>();
+    for (int position = 1; position < unit.length; position += size - 2) {
+      int chunk = Math.min(size - 2, unit.length - position);
+      boolean first = position == 1;
+      boolean last = position + chunk == unit.length;
+      ByteBuffer payload = ByteBuffer.allocate(2 + chunk);
+      payload.put((byte) ((unit[0] & 0xE0) | H264Depacketizer.FU_A));
+      payload.put((byte) ((first ? 0x80 : 0) | (last ? 0x40 : 0) | (unit[0] & 0x1F)));
+      fragments.add(payload.put(unit, position, chunk).flip());
+    }
+    return fragments;
+  }
+}